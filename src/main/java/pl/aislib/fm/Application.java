@@ -1,15 +1,23 @@
 package pl.aislib.fm;
 
+import java.io.CharArrayWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Writer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import javax.naming.Context;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
@@ -28,6 +36,7 @@ import org.xml.sax.XMLReader;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import pl.aislib.fm.metrics.MetricsRegistry;
 import pl.aislib.fm.shepherds.Pasture;
 import pl.aislib.util.xml.LogErrorHandler;
 import pl.aislib.util.xml.XMLUtils;
@@ -56,11 +65,31 @@ public class Application implements Pasture {
    */
   private static final String APP_VERSION_CONTEXT_PARAM = "app.version";
 
+  /**
+   * Default size of response buffer used in streaming mode.
+   */
+  public static final int DEFAULT_STREAMING_BUFFER_SIZE = 8192;
+
   /**
    * Default content type for responses returned in PageResponse.
    */
   private String defaultContentType = "text/html";
 
+  /**
+   * Default streaming mode for responses returned in PageResponse.
+   */
+  private boolean streaming = false;
+
+  /**
+   * Size of response buffer used in streaming mode.
+   */
+  private int streamingBufferSize = DEFAULT_STREAMING_BUFFER_SIZE;
+
+  /**
+   * True if page templates are rendered directly into slots of their containers.
+   */
+  private boolean composingLayouts = false;
+
   /**
    * Name of the application.
    */
@@ -91,6 +120,26 @@ public class Application implements Pasture {
    */
   private TemplateEngine templateEngine;
 
+  /**
+   * {@link IncludeExecutor} evaluating template includes, <code>null</code> for sequential evaluation.
+   */
+  private IncludeExecutor includeExecutor;
+
+  /**
+   * {@link FragmentCache} of template includes with caching policies, <code>null</code> if caching is disabled.
+   */
+  private FragmentCache fragmentCache = new FragmentCache();
+
+  /**
+   * {@link AsyncDispatcher} processing requests outside of container thread, <code>null</code> by default.
+   */
+  private AsyncDispatcher asyncDispatcher;
+
+  /**
+   * {@link MetricsRegistry} measuring request processing, disabled by default.
+   */
+  private MetricsRegistry metrics = new MetricsRegistry();
+
   /**
    * {@link ConfigAdapter} object for the application.
    */
@@ -365,6 +414,122 @@ public class Application implements Pasture {
     }
   }
 
+  /**
+   * Set {@link IncludeExecutor} evaluating template includes of pages in parallel.
+   *
+   * @param _includeExecutor executor to use, <code>null</code> if includes should be evaluated sequentially.
+   * @since AISLIB 0.6
+   */
+  public void setIncludeExecutor(IncludeExecutor _includeExecutor) {
+    if (mainLog.isInfoEnabled()) {
+      mainLog.info("setting include executor: " + _includeExecutor);
+    }
+    includeExecutor = _includeExecutor;
+  }
+
+  /**
+   * @return {@link IncludeExecutor} evaluating template includes or <code>null</code> if they are evaluated sequentially.
+   * @since AISLIB 0.6
+   */
+  public IncludeExecutor getIncludeExecutor() {
+    return includeExecutor;
+  }
+
+  /**
+   * Set {@link FragmentCache} keeping output of template includes declared with <code>cache-ttl</code> attribute.
+   *
+   * @param _fragmentCache cache to use, <code>null</code> if output of includes should not be cached.
+   * @since AISLIB 0.6
+   */
+  public void setFragmentCache(FragmentCache _fragmentCache) {
+    if (mainLog.isInfoEnabled()) {
+      mainLog.info("setting fragment cache: " + _fragmentCache);
+    }
+    fragmentCache = _fragmentCache;
+  }
+
+  /**
+   * @return {@link FragmentCache} of template includes or <code>null</code> if caching is disabled.
+   * @since AISLIB 0.6
+   */
+  public FragmentCache getFragmentCache() {
+    return fragmentCache;
+  }
+
+  /**
+   * Set {@link RuleScheduler} evaluating rules of forms marked with <code>parallel-rules</code> attribute.
+   *
+   * @param _ruleScheduler scheduler to use, <code>null</code> if rules should be evaluated sequentially.
+   * @since AISLIB 0.6
+   */
+  public void setRuleScheduler(RuleScheduler _ruleScheduler) {
+    if (mainLog.isInfoEnabled()) {
+      mainLog.info("setting rule scheduler: " + _ruleScheduler);
+    }
+    forms.setRuleScheduler(_ruleScheduler);
+  }
+
+  /**
+   * @return {@link RuleScheduler} evaluating rules of forms or <code>null</code> if they are evaluated sequentially.
+   * @since AISLIB 0.6
+   */
+  public RuleScheduler getRuleScheduler() {
+    return forms.getRuleScheduler();
+  }
+
+  /**
+   * Set {@link AsyncDispatcher} processing requests outside of servlet container thread.
+   *
+   * @param _asyncDispatcher dispatcher to use, <code>null</code> if requests should be processed
+   *                         synchronously, in container thread (default).
+   * @since AISLIB 0.6
+   */
+  public void setAsyncDispatcher(AsyncDispatcher _asyncDispatcher) {
+    if (mainLog.isInfoEnabled()) {
+      mainLog.info("setting async dispatcher: " + _asyncDispatcher);
+    }
+    asyncDispatcher = _asyncDispatcher;
+  }
+
+  /**
+   * @return {@link AsyncDispatcher} processing requests or <code>null</code> if they are processed synchronously.
+   * @since AISLIB 0.6
+   */
+  public AsyncDispatcher getAsyncDispatcher() {
+    return asyncDispatcher;
+  }
+
+  /**
+   * Set {@link MetricsRegistry} measuring request processing.
+   *
+   * Application always has a registry, initially a disabled one.
+   *
+   * @param _metrics registry to use.
+   * Throws NullPointerException if given argument is <code>null</code>
+   * @since AISLIB 0.6
+   */
+  public void setMetricsRegistry(MetricsRegistry _metrics) {
+    if (_metrics != null) {
+      if (mainLog.isInfoEnabled()) {
+        mainLog.info("setting metrics registry: " + _metrics);
+      }
+      metrics = _metrics;
+    } else {
+      if (mainLog.isErrorEnabled()) {
+        mainLog.error("try to set null as a metrics registry");
+      }
+      throw new NullPointerException("metrics registry cannot be null");
+    }
+  }
+
+  /**
+   * @return {@link MetricsRegistry} measuring request processing.
+   * @since AISLIB 0.6
+   */
+  public MetricsRegistry getMetricsRegistry() {
+    return metrics;
+  }
+
   /**
    * Set {@link Database} for this Application
    *
@@ -452,6 +617,79 @@ public class Application implements Pasture {
     return defaultContentType;
   }
 
+  /**
+   * Sets default streaming mode for the application.
+   *
+   * In streaming mode master template is evaluated directly into response <code>Writer</code>
+   * and sent to client in chunks of {@link #getStreamingBufferSize()} characters,
+   * instead of being evaluated to <code>String</code> first.
+   * Streaming is disabled by default, single response may override it using
+   * {@link PageResponse#setStreaming(boolean)}.
+   *
+   * @param _streaming <code>true</code> if responses should be streamed.
+   * @since AISLIB 0.6
+   */
+  public void setStreaming(boolean _streaming) {
+    streaming = _streaming;
+  }
+
+  /**
+   * @return default streaming mode for the application.
+   * @since AISLIB 0.6
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * Sets size of response buffer used in streaming mode.
+   *
+   * @param _streamingBufferSize size of the buffer, must be positive.
+   * Throws IllegalArgumentException if given size is not positive.
+   * @since AISLIB 0.6
+   */
+  public void setStreamingBufferSize(int _streamingBufferSize) {
+    if (_streamingBufferSize <= 0) {
+      throw new IllegalArgumentException("streaming buffer size must be positive: " + _streamingBufferSize);
+    }
+    streamingBufferSize = _streamingBufferSize;
+  }
+
+  /**
+   * @return size of response buffer used in streaming mode.
+   * @since AISLIB 0.6
+   */
+  public int getStreamingBufferSize() {
+    return streamingBufferSize;
+  }
+
+  /**
+   * Switches composition of layouts of template containers.
+   *
+   * When switched on, and {@link TemplateEngine#evaluateLayout} supports the container,
+   * page template is rendered directly into the slot of its container, instead of being
+   * evaluated to <code>String</code> first. This changes order of evaluation: parts of
+   * the container before the slot are evaluated before the page template, so they do
+   * not see values the page template sets (e.g. <code>#set</code> or changes of shared
+   * objects). In streaming mode composed output goes directly to the response,
+   * otherwise it is buffered, but not converted to <code>String</code>, until it is written.
+   * Composition is switched off by default.
+   *
+   * @param _composingLayouts <code>true</code> if layouts should be composed.
+   * @since AISLIB 0.6
+   */
+  public void setComposingLayouts(boolean _composingLayouts) {
+    composingLayouts = _composingLayouts;
+  }
+
+  /**
+   * @return <code>true</code> if layouts of template containers are composed.
+   * @since AISLIB 0.6
+   */
+  public boolean isComposingLayouts() {
+    return composingLayouts;
+  }
+
   /**
    * @return the configuration adapter for the application.
    */
@@ -554,6 +792,18 @@ public class Application implements Pasture {
     return forms.getForm(formName, messages.messages, messages.messageGroups, language);
   }
 
+  /**
+   * Gets validator of many records with a form, e.g. for imports.
+   *
+   * @param formName name of a form.
+   * @param language language for the form.
+   * @return <code>BatchValidator</code> object.
+   * @since AISLIB 0.6
+   */
+  public BatchValidator getBatchValidator(String formName, String language) {
+    return forms.getBatchValidator(formName, messages.messages, messages.messageGroups, language);
+  }
+
   /**
    * Process request and response.
    *
@@ -565,82 +815,82 @@ public class Application implements Pasture {
     if (controller == null) {
       throw new ServletException("controller not initialized");
     }
+    if (asyncDispatcher != null) {
+      asyncDispatcher.dispatch(request, response);
+    } else {
+      dispatchPage(request, response);
+    }
+  }
+
+
+  // Package methods
+
+  /**
+   * Process request and response in current thread.
+   *
+   * @see #dispatch(HttpServletRequest, HttpServletResponse)
+   */
+  void dispatchPage(HttpServletRequest request, HttpServletResponse response) throws IOException, ServletException {
+    long start = metrics.start();
 
     String      pageName  = pageSelector.getRequestedPageKey(request);
     HttpSession session   = request.getSession();
 
+    long selected = metrics.start();
+
     PageInfo pageInfo = controller.getPageInfo(request, response, pageSelector);
 
+    String pageKey = (pageInfo != null) ? pageInfo.getActionKey() : MetricsRegistry.UNKNOWN_PAGE;
+    if ((start != 0) && (selected != 0)) {
+      metrics.increment(pageKey, MetricsRegistry.REQUESTS);
+      metrics.recordTime(pageKey, MetricsRegistry.SELECT_PAGE, selected - start);
+      metrics.record(pageKey, MetricsRegistry.RESOLVE_PAGE, selected);
+    }
+
     if (pageInfo == null) {
       if (workflowLog.isDebugEnabled()) {
         workflowLog.debug("unknown page for request, page attribute: " + pageName);
       }
       response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      metrics.record(pageKey, MetricsRegistry.TOTAL, start);
       return;
     }
 
     // create a new Page instance and initialize it through 'init' method
+    long stageStart = metrics.start();
     Page page = pageInfo.newPageInstance();
-    page.init(this, request, response, session);
-
-    if (workflowLog.isDebugEnabled()) {
-      workflowLog.debug("getting response from page: " + pageName);
-    }
-
-    PageResponse pageResponse = page.getPageResponse();
+    Page responsePage = null;
+    boolean completed = false;
+    try {
+      page.init(this, request, response, session);
+      metrics.record(pageKey, MetricsRegistry.CREATE_PAGE, stageStart);
 
-    if (pageResponse != null) {
-      pageInfo = pageResponse.getPage().pageInfo;
-      if (pageResponse.getContentType() != null) {
-        response.setContentType(pageResponse.getContentType());
-      } else if (defaultContentType != null) {
-        response.setContentType(defaultContentType);
+      if (workflowLog.isDebugEnabled()) {
+        workflowLog.debug("getting response from page: " + pageName);
       }
 
-      if (pageResponse.getContentByte() != null) {
-        OutputStream stream = response.getOutputStream();
-        stream.write(pageResponse.getContentByte());
-        return;
-      }
+      stageStart = metrics.start();
+      PageResponse pageResponse = page.getPageResponse();
+      metrics.record(pageKey, MetricsRegistry.PAGE_RESPONSE, stageStart);
 
-      Object masterTemplate = null;
-      Map    params         = pageResponse.getContentMap();
-      if (params == null) {
-        params = new HashMap();
+      if (pageResponse != null) {
+        responsePage = pageResponse.getPage();
+        writeResponse(page, pageResponse, request, response);
       }
-
-      Map    includes = loadAndFill(page, pageInfo, params, request, response);
-      params.putAll(includes);
-
-      if (pageInfo.getContainerTemplateName() == null) {
-        masterTemplate = loadTemplate(request, response, pageInfo.getTemplateName());
-      } else {
-        masterTemplate = loadTemplate(request, response, pageInfo.getContainerTemplateName());
-
-        Object pageTemplate = loadTemplate(request, response, pageInfo.getTemplateName());
-
-        try {
-          params.put(pageInfo.getContainerSlot(), templateEngine.evaluate(pageTemplate, params));
-        } catch (TemplateEngineException teex) {
-          throw new ServletException(teex.getMessage (), teex.getRootCause());
-        }
+      completed = true;
+    } finally {
+      if ((responsePage != null) && (responsePage != page)) {
+        responsePage.pageInfo.releasePageInstance(responsePage);
       }
-
-      String responseString = null;
-      try {
-        responseString = templateEngine.evaluate(masterTemplate, params);
-      } catch (TemplateEngineException teex) {
-        throw new ServletException(teex.getMessage(), teex.getRootCause());
+      pageInfo.releasePageInstance(page);
+      if (!completed) {
+        metrics.increment(pageKey, MetricsRegistry.ERRORS);
       }
-      Writer writer = response.getWriter();
-      writer.write((String) responseString);
-      return;
+      metrics.record(pageKey, MetricsRegistry.TOTAL, start);
     }
   }
 
 
-  // Package methods
-
   /**
    * @see TemplateEngine#load(Application, HttpServletRequest, HttpServletResponse, String)
    */
@@ -677,6 +927,19 @@ public class Application implements Pasture {
     return template;
   }
 
+  /**
+   * Loads template, measuring time of loading for given page.
+   *
+   * @see #loadTemplate(HttpServletRequest, HttpServletResponse, String)
+   */
+  Object loadTemplate(HttpServletRequest request, HttpServletResponse response, String templateName, String pageKey)
+    throws IOException, ServletException {
+    long start = metrics.start();
+    Object template = loadTemplate(request, response, templateName);
+    metrics.record(pageKey, MetricsRegistry.LOAD_TEMPLATE, start);
+    return template;
+  }
+
   /**
    * @param actionKey name of a page.
    * @return the page.
@@ -724,6 +987,103 @@ public class Application implements Pasture {
 
   // Private methods
 
+  /**
+   * Writes response returned by page.
+   *
+   * @param page <code>Page</code> instance which handles the request.
+   * @param pageResponse response returned by the page.
+   * @param request <code>HttpServletRequest</code> object.
+   * @param response <code>HttpServletResponse</code> object.
+   * @throws IOException if an error occurs.
+   * @throws ServletException if an error occurs.
+   */
+  private void writeResponse(Page page, PageResponse pageResponse, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException, ServletException {
+    PageInfo pageInfo = pageResponse.getPage().pageInfo;
+    String   pageKey  = pageInfo.getActionKey();
+    if (pageResponse.getContentType() != null) {
+      response.setContentType(pageResponse.getContentType());
+    } else if (defaultContentType != null) {
+      response.setContentType(defaultContentType);
+    }
+
+    long start;
+    if (pageResponse.getContentByte() != null) {
+      start = metrics.start();
+      OutputStream stream = response.getOutputStream();
+      stream.write(pageResponse.getContentByte());
+      metrics.record(pageKey, MetricsRegistry.WRITE, start);
+      return;
+    }
+
+    Object masterTemplate = null;
+    Map    params         = pageResponse.getContentMap();
+    if (params == null) {
+      params = new HashMap();
+    }
+
+    if (templateEngine == null) {
+      throw new NullPointerException ("Template Engine not initialized");
+    }
+    params = templateEngine.beginRequest(params);
+    start = metrics.start();
+    Map    includes = loadAndFill(page, pageInfo, params, request, response);
+    params.putAll(includes);
+    metrics.record(pageKey, MetricsRegistry.INCLUDES, start);
+
+    Object pageTemplate = null;
+    if (pageInfo.getContainerTemplateName() == null) {
+      masterTemplate = loadTemplate(request, response, pageInfo.getTemplateName(), pageKey);
+    } else {
+      masterTemplate = loadTemplate(request, response, pageInfo.getContainerTemplateName(), pageKey);
+      pageTemplate   = loadTemplate(request, response, pageInfo.getTemplateName(), pageKey);
+    }
+
+    boolean streamResponse = streaming;
+    if (pageResponse.getStreaming() != null) {
+      streamResponse = pageResponse.getStreaming().booleanValue();
+    }
+    if (streamResponse) {
+      start = metrics.start();
+      streamTemplate(masterTemplate, pageTemplate, pageInfo, params, response);
+      metrics.record(pageKey, MetricsRegistry.EVALUATE, start);
+      return;
+    }
+
+    start = metrics.start();
+    String          responseString = null;
+    CharArrayWriter composed       = null;
+    try {
+      if (pageTemplate != null) {
+        String slot = pageInfo.getContainerSlot();
+        if (composingLayouts) {
+          composed = new CharArrayWriter();
+          if (!templateEngine.evaluateLayout(masterTemplate, slot, pageTemplate, params, composed)) {
+            composed = null;
+          }
+        }
+        if (composed == null) {
+          params.put(slot, templateEngine.evaluate(pageTemplate, params));
+        }
+      }
+      if (composed == null) {
+        responseString = templateEngine.evaluate(masterTemplate, params);
+      }
+    } catch (TemplateEngineException teex) {
+      throw new ServletException(teex.getMessage(), teex.getRootCause());
+    }
+    metrics.record(pageKey, MetricsRegistry.EVALUATE, start);
+
+    start = metrics.start();
+    Writer writer = response.getWriter();
+    if (composed != null) {
+      composed.writeTo(writer);
+    } else {
+      writer.write(responseString);
+    }
+    metrics.record(pageKey, MetricsRegistry.WRITE, start);
+  }
+
   /**
    * Fills a template with values.
    *
@@ -740,15 +1100,41 @@ public class Application implements Pasture {
                           HttpServletResponse response) throws IOException, ServletException {
     Map result = new HashMap();
     Map templateIncludes = pageInfo.getTemplateIncludes();
-    Iterator keys = templateIncludes.keySet().iterator();
-    while (keys.hasNext()) {
-      String includeName         = (String) keys.next();
-      String includeTemplateName = (String) templateIncludes.get(includeName);
-      Object includeTemplate     = loadTemplate(request, response, includeTemplateName);
-      try {
-        result.put (includeName, templateEngine.evaluate (includeTemplate, templateParams));
-      } catch (TemplateEngineException teex) {
-        throw new ServletException (teex.getMessage (), teex.getRootCause ());
+    IncludeExecutor executor = includeExecutor;
+    FragmentCache   cache    = fragmentCache;
+    Iterator keys;
+    if ((executor != null) && executor.isParallel() && (templateIncludes.size() > 1)) {
+      evaluateInParallel(executor, cache, pageInfo, templateParams, result, request, response);
+    } else {
+      keys = templateIncludes.keySet().iterator();
+      while (keys.hasNext()) {
+        String includeName         = (String) keys.next();
+        String includeTemplateName = (String) templateIncludes.get(includeName);
+        Object includeTemplate     = loadTemplate(request, response, includeTemplateName, pageInfo.getActionKey());
+        FragmentPolicy policy      = (cache != null) ? pageInfo.getFragmentPolicy(includeName) : null;
+        String cacheKey            = (policy != null)
+          ? policy.createKey(includeTemplateName, (String) request.getAttribute(Constants.LANG), templateParams)
+          : null;
+        if (cacheKey == null) {
+          try {
+            result.put (includeName, templateEngine.evaluate (includeTemplate, templateParams));
+          } catch (TemplateEngineException teex) {
+            throw new ServletException (teex.getMessage (), teex.getRootCause ());
+          }
+          continue;
+        }
+
+        long   lastModified = templateEngine.getLastModified(includeTemplate);
+        String content      = cache.get(cacheKey, lastModified);
+        if (content == null) {
+          try {
+            content = templateEngine.evaluate(includeTemplate, templateParams);
+          } catch (TemplateEngineException teex) {
+            throw new ServletException(teex.getMessage(), teex.getRootCause());
+          }
+          cache.put(cacheKey, content, lastModified, policy);
+        }
+        result.put(includeName, content);
       }
     }
 
@@ -764,6 +1150,299 @@ public class Application implements Pasture {
   }
 
 
+  /**
+   * Evaluates template directly into response <code>Writer</code>.
+   *
+   * Response buffer is set to {@link #streamingBufferSize}, so content is flushed
+   * to client in chunks while the template is evaluated. If evaluation fails before
+   * the response is committed, partial content is discarded.
+   * <p>
+   * Page template of a container is rendered directly into the slot of the container
+   * if composition of layouts is switched on and {@link TemplateEngine} can compose
+   * the layout, otherwise it is evaluated first.
+   * </p>
+   *
+   * @param template template to evaluate.
+   * @param pageTemplate template to put into slot of <code>template</code>, <code>null</code> if there is no container.
+   * @param pageInfo page information object.
+   * @param params evaluation parameters.
+   * @param response <code>HttpServletResponse</code> object.
+   * @throws IOException if an error occurs.
+   * @throws ServletException if an error occurs.
+   */
+  private void streamTemplate(Object template, Object pageTemplate, PageInfo pageInfo, Map params,
+                              HttpServletResponse response) throws IOException, ServletException {
+    if (!response.isCommitted()) {
+      try {
+        response.setBufferSize(streamingBufferSize);
+      } catch (IllegalStateException ise) {
+        if (templateLog.isDebugEnabled()) {
+          templateLog.debug("cannot set buffer size for streamed response: " + ise.getMessage());
+        }
+      }
+    }
+    Writer writer = response.getWriter();
+    try {
+      if (pageTemplate != null) {
+        String slot = pageInfo.getContainerSlot();
+        if (composingLayouts && templateEngine.evaluateLayout(template, slot, pageTemplate, params, writer)) {
+          return;
+        }
+        params.put(slot, templateEngine.evaluate(pageTemplate, params));
+      }
+      templateEngine.evaluate(template, params, writer);
+    } catch (TemplateEngineException teex) {
+      if (!response.isCommitted()) {
+        response.resetBuffer();
+      }
+      throw new ServletException(teex.getMessage(), teex.getRootCause());
+    }
+  }
+
+
+  /**
+   * Evaluates template includes of a page using {@link IncludeExecutor}.
+   *
+   * Templates are loaded in current thread, evaluated by executor, results are put
+   * into <code>result</code> map when all includes are evaluated. Includes found
+   * in <code>cache</code> are not evaluated. Timeout of the executor bounds the time
+   * of evaluating each include; when it is exceeded, remaining evaluations are cancelled,
+   * but they may still be running, reading <code>templateParams</code>, after the request
+   * is finished. Includes are evaluated in current thread if executor has been shut down
+   * or rejects them.
+   *
+   * @param executor executor evaluating includes.
+   * @param cache cache of includes with caching policies, <code>null</code> if caching is disabled.
+   * @param pageInfo page information object.
+   * @param templateParams evaluation parameters.
+   * @param result map for evaluated includes.
+   * @param request <code>HttpServletRequest</code> object.
+   * @param response <code>HttpServletResponse</code> object.
+   * @throws IOException if an error occurs.
+   * @throws ServletException if an error occurs or evaluation of an include exceeds timeout.
+   */
+  private void evaluateInParallel(IncludeExecutor executor, FragmentCache cache, PageInfo pageInfo,
+                                  Map templateParams, Map result,
+                                  HttpServletRequest request, HttpServletResponse response)
+    throws IOException, ServletException {
+    long start = System.nanoTime();
+    Map  templateIncludes = pageInfo.getTemplateIncludes();
+    List tasks   = new ArrayList(templateIncludes.size());
+    List futures = new ArrayList(templateIncludes.size());
+    Iterator keys = templateIncludes.keySet().iterator();
+    while (keys.hasNext()) {
+      String includeName         = (String) keys.next();
+      String includeTemplateName = (String) templateIncludes.get(includeName);
+      Object includeTemplate     = loadTemplate(request, response, includeTemplateName, pageInfo.getActionKey());
+      IncludeTask task = new IncludeTask(includeName, includeTemplate, templateParams);
+
+      task.policy = (cache != null) ? pageInfo.getFragmentPolicy(includeName) : null;
+      if (task.policy != null) {
+        task.cacheKey = task.policy.createKey(includeTemplateName, (String) request.getAttribute(Constants.LANG),
+          templateParams);
+        if (task.cacheKey == null) {
+          task.policy = null;
+        }
+      }
+      if (task.policy != null) {
+        task.lastModified = templateEngine.getLastModified(includeTemplate);
+        String content    = cache.get(task.cacheKey, task.lastModified);
+        if (content != null) {
+          result.put(includeName, content);
+          continue;
+        }
+      }
+
+      Future future = null;
+      if (executor.getExecutor().isShutdown()) {
+        task.run();
+      } else {
+        try {
+          task.submitted = System.nanoTime();
+          future = executor.getExecutor().submit(task);
+        } catch (RejectedExecutionException ree) {
+          task.run();
+        }
+      }
+      tasks.add(task);
+      futures.add(future);
+    }
+
+    long timeoutNanos = executor.getTimeout() * 1000000L;
+    long evaluationNanos = 0;
+    try {
+      for (int i = 0; i < tasks.size(); i++) {
+        IncludeTask task   = (IncludeTask) tasks.get(i);
+        Future      future = (Future) futures.get(i);
+        if (future != null) {
+          try {
+            awaitInclude(task, future, timeoutNanos);
+          } catch (TimeoutException te) {
+            throw new ServletException("include '" + task.name + "' of page '" + pageInfo.getActionKey()
+              + "' not evaluated within " + executor.getTimeout() + " ms");
+          } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("interrupted while evaluating include '" + task.name + "'", ie);
+          } catch (ExecutionException ee) {
+            throw new ServletException("include '" + task.name + "' evaluation failed", ee.getCause());
+          }
+        }
+        if (task.error != null) {
+          throw new ServletException(task.error.getMessage(), task.error.getRootCause());
+        }
+        result.put(task.name, task.result);
+        if (task.policy != null) {
+          cache.put(task.cacheKey, task.result, task.lastModified, task.policy);
+        }
+        evaluationNanos += task.nanos;
+      }
+    } finally {
+      for (int i = 0; i < futures.size(); i++) {
+        Future future = (Future) futures.get(i);
+        if ((future != null) && !future.isDone()) {
+          future.cancel(true);
+        }
+      }
+    }
+    executor.record(pageInfo.getActionKey(), evaluationNanos, System.nanoTime() - start);
+  }
+
+  /**
+   * Waits for evaluation of an include submitted to executor.
+   *
+   * Timeout bounds evaluation of the include from the moment it starts, so time spent
+   * by other includes does not count. An include which has not started within timeout
+   * from its submission, because all threads of executor are busy, is withdrawn from
+   * executor and evaluated in current thread.
+   *
+   * @param task evaluation of the include.
+   * @param future future of the evaluation.
+   * @param timeoutNanos timeout of evaluation in nanoseconds, <code>0</code> means no limit.
+   * @throws InterruptedException if current thread is interrupted.
+   * @throws ExecutionException if the evaluation failed.
+   * @throws TimeoutException if the evaluation exceeds timeout.
+   */
+  private void awaitInclude(IncludeTask task, Future future, long timeoutNanos)
+    throws InterruptedException, ExecutionException, TimeoutException {
+    if (timeoutNanos == 0) {
+      future.get();
+      return;
+    }
+    while (true) {
+      long started = task.started;
+      if (started != 0) {
+        future.get(started + timeoutNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        return;
+      }
+      long remaining = task.submitted + timeoutNanos - System.nanoTime();
+      if (remaining <= 0) {
+        if (future.cancel(false)) {
+          task.run();
+        } else {
+          // Evaluation is just starting
+          future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        }
+        return;
+      }
+      try {
+        future.get(remaining, TimeUnit.NANOSECONDS);
+        return;
+      } catch (TimeoutException te) {
+        ;
+      }
+    }
+  }
+
+
+  // Private classes
+
+  /**
+   * Evaluation of single template include.
+   */
+  private class IncludeTask implements Runnable {
+
+    /**
+     * Name of the include.
+     */
+    private String name;
+
+    /**
+     * Template of the include.
+     */
+    private Object template;
+
+    /**
+     * Evaluation parameters.
+     */
+    private Map params;
+
+    /**
+     * Result of evaluation.
+     */
+    private String result;
+
+    /**
+     * Exception thrown during evaluation.
+     */
+    private TemplateEngineException error;
+
+    /**
+     * Time of evaluation in nanoseconds.
+     */
+    private long nanos;
+
+    /**
+     * Time of submission to executor, as given by <code>System.nanoTime()</code>.
+     */
+    private long submitted;
+
+    /**
+     * Start of evaluation, as given by <code>System.nanoTime()</code>, <code>0</code> until it starts.
+     */
+    private volatile long started;
+
+    /**
+     * Caching policy of the include, <code>null</code> if its output is not cached.
+     */
+    private FragmentPolicy policy;
+
+    /**
+     * Key of cached output of the include.
+     */
+    private String cacheKey;
+
+    /**
+     * Modification time of the template.
+     */
+    private long lastModified;
+
+    /**
+     * @param name name of the include.
+     * @param template template of the include.
+     * @param params evaluation parameters.
+     */
+    IncludeTask(String name, Object template, Map params) {
+      this.name     = name;
+      this.template = template;
+      this.params   = params;
+    }
+
+    /**
+     * @see Runnable#run()
+     */
+    public void run() {
+      long start = System.nanoTime();
+      started = start;
+      try {
+        result = templateEngine.evaluate(template, params);
+      } catch (TemplateEngineException teex) {
+        error = teex;
+      }
+      nanos = System.nanoTime() - start;
+    }
+  } // IncludeTask class
+
+
   // Package classes
 
   /**
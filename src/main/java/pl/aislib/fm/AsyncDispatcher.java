@@ -0,0 +1,510 @@
+package pl.aislib.fm;
+
+import java.io.IOException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import java.util.Map;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Executes pages and renders their templates outside of servlet container thread.
+ * <p>Set for application by {@link Application#setAsyncDispatcher(AsyncDispatcher)}, it makes
+ * {@link Application#dispatch} hand whole processing of request to an executor:
+ * <ul>
+ *   <li>if servlet container supports asynchronous processing (Servlet 3.0 and later) and it is
+ *   enabled for the servlet, request is switched into asynchronous mode and container thread
+ *   is returned to container immediately, response is completed when processing is done,</li>
+ *   <li>otherwise container thread waits for the processing, but not longer than timeout;
+ *   when timeout is exceeded processing is interrupted and
+ *   <code>503 Service Unavailable</code> is sent, if response is not committed yet.
+ *   This gives no concurrency gain, container thread is blocked anyway, it only bounds
+ *   the time of waiting; without timeout request is processed in container thread.</li>
+ * </ul>
+ * When timeout is exceeded, in both modes, processing may still be running, as JDBC drivers
+ * or template engines ignore interruption. Pages get wrappers of the request and the response,
+ * which are detached before the error is sent or the request is completed, so such processing
+ * writes nothing into the response the container may already use for another request,
+ * and fails with <code>IllegalStateException</code> when it calls the request. Objects taken
+ * from the request before, e.g. the session, stay reachable to it.
+ * Page code is executed in executor thread, so it must not depend on values bound to
+ * container thread (e.g. through <code>ThreadLocal</code>).</p>
+ *
+ * @since AISLIB 0.6
+ */
+public class AsyncDispatcher {
+
+  /**
+   * Methods of Servlet 3.0 API found for classes of requests, {@link #NO_ASYNC} for classes without them.
+   */
+  private static final Map ASYNC_METHODS = new ConcurrentHashMap();
+
+  /**
+   * Marker of request classes without asynchronous processing.
+   */
+  private static final Object NO_ASYNC = new Object();
+
+  /**
+   * Application which processes requests.
+   */
+  private Application application;
+
+  /**
+   * Executor processing requests.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Maximum time of processing a request in milliseconds, <code>0</code> means no limit.
+   */
+  private long timeout;
+
+  /**
+   * Logging object.
+   */
+  private Log log;
+
+
+  // Constructors
+
+  /**
+   * @param application application which processes requests.
+   * @param executor executor processing requests.
+   * @param timeout maximum time of processing a request in milliseconds, <code>0</code> means no limit.
+   */
+  public AsyncDispatcher(Application application, ExecutorService executor, long timeout) {
+    if ((application == null) || (executor == null)) {
+      throw new NullPointerException("application and executor cannot be null");
+    }
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout cannot be negative: " + timeout);
+    }
+    this.application = application;
+    this.executor    = executor;
+    this.timeout     = timeout;
+    log = application.getLog("async");
+  }
+
+
+  // Public methods
+
+  /**
+   * Creates executor starting virtual thread for every task if Java runtime supports
+   * virtual threads, or fixed pool of daemon threads otherwise.
+   *
+   * @param threads number of threads used if virtual threads are not available.
+   * @return executor for processing requests.
+   */
+  public static ExecutorService newDefaultExecutor(int threads) {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor", new Class[0]);
+      return (ExecutorService) method.invoke(null, new Object[0]);
+    } catch (Exception e) {
+      return Executors.newFixedThreadPool(threads, new DaemonThreadFactory("aislib-async-"));
+    }
+  }
+
+  /**
+   * @return executor processing requests.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * @return maximum time of processing a request in milliseconds, <code>0</code> means no limit.
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Processes request using executor.
+   *
+   * @param request <code>HttpServletRequest</code> object.
+   * @param response <code>HttpServletResponse</code> object.
+   * @throws IOException if an error occurs.
+   * @throws ServletException if an error occurs.
+   */
+  public void dispatch(HttpServletRequest request, HttpServletResponse response)
+    throws IOException, ServletException {
+    AsyncTask task = new AsyncTask(request, response);
+    if (startAsync(request, task)) {
+      try {
+        executor.execute(task);
+        return;
+      } catch (RejectedExecutionException ree) {
+        task.detach();
+        complete(task);
+        throw new ServletException("request rejected by executor", ree);
+      }
+    }
+
+    if (timeout == 0) {
+      application.dispatchPage(request, response);
+      return;
+    }
+
+    DispatchTask dispatchTask = new DispatchTask(request, response);
+    Future future = null;
+    try {
+      future = executor.submit(dispatchTask);
+    } catch (RejectedExecutionException ree) {
+      throw new ServletException("request rejected by executor", ree);
+    }
+    try {
+      future.get(timeout, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException te) {
+      dispatchTask.detach();
+      future.cancel(true);
+      if (log.isWarnEnabled()) {
+        log.warn("request not processed within " + timeout + " ms: " + request.getRequestURI());
+      }
+      if (!response.isCommitted()) {
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      }
+    } catch (InterruptedException ie) {
+      dispatchTask.detach();
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new ServletException("interrupted while waiting for request processing", ie);
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof ServletException) {
+        throw (ServletException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ServletException(cause);
+    }
+  }
+
+  /**
+   * Stops executor.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+
+  // Private methods
+
+  /**
+   * Switches request into asynchronous mode, if container supports it.
+   *
+   * Servlet 3.0 API is called through reflection, as framework is built against older API;
+   * methods are looked up once for every class of requests.
+   *
+   * @param request <code>ServletRequest</code> object.
+   * @param task processing of the request, listening to events of asynchronous processing.
+   * @return true if the request has been switched into asynchronous mode.
+   */
+  private boolean startAsync(ServletRequest request, AsyncTask task) {
+    Object methods = ASYNC_METHODS.get(request.getClass());
+    if (methods == null) {
+      methods = findAsyncMethods(request.getClass());
+      ASYNC_METHODS.put(request.getClass(), methods);
+    }
+    if (methods == NO_ASYNC) {
+      return false;
+    }
+    AsyncMethods async = (AsyncMethods) methods;
+    try {
+      if (!((Boolean) async.isAsyncSupported.invoke(request, new Object[0])).booleanValue()) {
+        return false;
+      }
+      task.async = async;
+      task.asyncContext = async.startAsync.invoke(request, new Object[0]);
+      async.setTimeout.invoke(task.asyncContext, new Object[] { new Long(timeout) });
+      Object listener = Proxy.newProxyInstance(async.listener.getClassLoader(), new Class[] { async.listener }, task);
+      async.addListener.invoke(task.asyncContext, new Object[] { listener });
+      return true;
+    } catch (IllegalAccessException iae) {
+      return false;
+    } catch (InvocationTargetException ite) {
+      if (log.isDebugEnabled()) {
+        log.debug("cannot start asynchronous processing", ite.getTargetException());
+      }
+      if (task.asyncContext != null) {
+        complete(task);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Completes asynchronous processing of request.
+   *
+   * @param task processing of the request in asynchronous mode.
+   */
+  private void complete(AsyncTask task) {
+    try {
+      task.async.complete.invoke(task.asyncContext, new Object[0]);
+    } catch (Exception e) {
+      // request already completed by container, e.g. after timeout
+      if (log.isDebugEnabled()) {
+        log.debug("cannot complete asynchronous processing", e);
+      }
+    }
+  }
+
+  /**
+   * Looks up methods of Servlet 3.0 API, in the API if it is available, or in the class
+   * of requests otherwise.
+   *
+   * @param requestClass class of requests.
+   * @return found methods, or {@link #NO_ASYNC} if requests do not support asynchronous processing.
+   */
+  private static Object findAsyncMethods(Class requestClass) {
+    try {
+      Method isAsyncSupported = findRequestMethod(requestClass, "isAsyncSupported");
+      Method startAsync = findRequestMethod(requestClass, "startAsync");
+      Class asyncContext = startAsync.getReturnType();
+      Method setTimeout = asyncContext.getMethod("setTimeout", new Class[] { long.class });
+      Method complete = asyncContext.getMethod("complete", new Class[0]);
+      Method[] candidates = asyncContext.getMethods();
+      for (int i = 0; i < candidates.length; i++) {
+        Class[] parameterTypes = candidates[i].getParameterTypes();
+        if ("addListener".equals(candidates[i].getName()) && (parameterTypes.length == 1)
+          && parameterTypes[0].isInterface()) {
+          return new AsyncMethods(isAsyncSupported, startAsync, setTimeout, candidates[i], complete);
+        }
+      }
+    } catch (NoSuchMethodException nsme) {
+      // Servlet 3.0 API not available
+      ;
+    }
+    return NO_ASYNC;
+  }
+
+  /**
+   * @param requestClass class of requests.
+   * @param name name of a method without parameters.
+   * @return the method of <code>ServletRequest</code>, or of the class of requests if the API has no such method.
+   * @throws NoSuchMethodException if the method cannot be found.
+   */
+  private static Method findRequestMethod(Class requestClass, String name) throws NoSuchMethodException {
+    try {
+      return ServletRequest.class.getMethod(name, new Class[0]);
+    } catch (NoSuchMethodException nsme) {
+      return requestClass.getMethod(name, new Class[0]);
+    }
+  }
+
+
+  // Private classes
+
+  /**
+   * Processing of request waited for by container thread.
+   */
+  private class DispatchTask implements Callable {
+
+    /**
+     * Request given to the page.
+     */
+    protected DetachableRequest request;
+
+    /**
+     * Response given to the page.
+     */
+    protected DetachableResponse response;
+
+    /**
+     * URI of the request, for logging after the request is detached.
+     */
+    protected String requestURI;
+
+    /**
+     * @param request processed request.
+     * @param response response for the request.
+     */
+    DispatchTask(HttpServletRequest request, HttpServletResponse response) {
+      this.request    = new DetachableRequest(request);
+      this.response   = new DetachableResponse(response);
+      this.requestURI = request.getRequestURI();
+    }
+
+    /**
+     * @see Callable#call()
+     */
+    public Object call() throws IOException, ServletException {
+      application.dispatchPage(request, response);
+      return null;
+    }
+
+    /**
+     * Detaches request and response given to the page from the ones of container.
+     */
+    void detach() {
+      response.detach();
+      request.detach();
+    }
+  } // DispatchTask class
+
+  /**
+   * Processing of request in asynchronous mode, listening to events of the processing
+   * as <code>javax.servlet.AsyncListener</code>.
+   */
+  private class AsyncTask extends DispatchTask implements Runnable, InvocationHandler {
+
+    /**
+     * Response of container, wrapped by response given to the page.
+     */
+    private HttpServletResponse containerResponse;
+
+    /**
+     * Methods of Servlet 3.0 API for the request.
+     */
+    private AsyncMethods async;
+
+    /**
+     * <code>javax.servlet.AsyncContext</code> of the request, <code>null</code> until started.
+     */
+    private Object asyncContext;
+
+    /**
+     * @param request processed request.
+     * @param response response of container.
+     */
+    AsyncTask(HttpServletRequest request, HttpServletResponse response) {
+      super(request, response);
+      this.containerResponse = response;
+    }
+
+    /**
+     * @see Runnable#run()
+     */
+    public void run() {
+      try {
+        call();
+      } catch (Exception e) {
+        if (log.isErrorEnabled()) {
+          log.error("exception caught during asynchronous processing of " + requestURI, e);
+        }
+        if (!response.isCommitted()) {
+          try {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+          } catch (IOException ioe) {
+            ;
+          }
+        }
+      } finally {
+        complete(this);
+      }
+    }
+
+    /**
+     * Handles calls of <code>javax.servlet.AsyncListener</code> methods.
+     *
+     * Request and response given to the page are detached when processing is completed, fails or times out;
+     * on timeout <code>503 Service Unavailable</code> is sent and processing is completed.
+     *
+     * @see InvocationHandler#invoke(Object, Method, Object[])
+     */
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (method.getDeclaringClass() == Object.class) {
+        if ("equals".equals(method.getName())) {
+          return Boolean.valueOf(proxy == args[0]);
+        }
+        if ("hashCode".equals(method.getName())) {
+          return new Integer(System.identityHashCode(proxy));
+        }
+        return "AsyncListener for " + requestURI;
+      }
+
+      String name = method.getName();
+      if ("onComplete".equals(name) || "onError".equals(name)) {
+        detach();
+      } else if ("onTimeout".equals(name)) {
+        detach();
+        if (log.isWarnEnabled()) {
+          log.warn("request not processed within " + timeout + " ms: " + requestURI);
+        }
+        if (!containerResponse.isCommitted()) {
+          containerResponse.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+        complete(this);
+      }
+      return null;
+    }
+  } // AsyncTask class
+
+  /**
+   * Methods of Servlet 3.0 API used for asynchronous processing.
+   */
+  private static class AsyncMethods {
+
+    /**
+     * <code>ServletRequest.isAsyncSupported</code> method.
+     */
+    final Method isAsyncSupported;
+
+    /**
+     * <code>ServletRequest.startAsync</code> method.
+     */
+    final Method startAsync;
+
+    /**
+     * <code>AsyncContext.setTimeout</code> method.
+     */
+    final Method setTimeout;
+
+    /**
+     * <code>AsyncContext.addListener</code> method.
+     */
+    final Method addListener;
+
+    /**
+     * <code>AsyncContext.complete</code> method.
+     */
+    final Method complete;
+
+    /**
+     * <code>AsyncListener</code> interface.
+     */
+    final Class listener;
+
+    /**
+     * @param isAsyncSupported <code>ServletRequest.isAsyncSupported</code> method.
+     * @param startAsync <code>ServletRequest.startAsync</code> method.
+     * @param setTimeout <code>AsyncContext.setTimeout</code> method.
+     * @param addListener <code>AsyncContext.addListener</code> method.
+     * @param complete <code>AsyncContext.complete</code> method.
+     */
+    AsyncMethods(Method isAsyncSupported, Method startAsync, Method setTimeout, Method addListener, Method complete) {
+      this.isAsyncSupported = isAsyncSupported;
+      this.startAsync       = startAsync;
+      this.setTimeout       = setTimeout;
+      this.addListener      = addListener;
+      this.complete         = complete;
+      this.listener         = addListener.getParameterTypes()[0];
+    }
+  } // AsyncMethods class
+
+} // AsyncDispatcher class
@@ -0,0 +1,28 @@
+package pl.aislib.fm;
+
+import java.util.Map;
+
+/**
+ * Receives results of validation of records by {@link BatchValidator}.
+ *
+ * @since AISLIB 0.6
+ */
+public interface BatchValidationHandler {
+
+  /**
+   * Called once for every validated record, right after its validation.
+   *
+   * The form is reused for the next record handled by the same thread, so values,
+   * messages and maps returned by the form are valid only until this method returns;
+   * they should be copied if needed later.
+   * When records are validated by a pool of workers, the method is called
+   * concurrently from many threads.
+   *
+   * @param recordNumber number of the record in the iterator, starting with 0.
+   * @param record map of original string values of the record.
+   * @param form form the record has been validated with.
+   * @param validated true if the record has been successfully validated.
+   */
+  void handle(int recordNumber, Map record, Form form, boolean validated);
+
+} // BatchValidationHandler interface
@@ -0,0 +1,268 @@
+package pl.aislib.fm;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Validates many records with a single form definition, e.g. rows of an import file.
+ *
+ * Records are maps of original string values, like request parameters of a form submission.
+ * Results are streamed to a {@link BatchValidationHandler} as soon as a record has been validated.
+ * Each thread validating records uses one instance of the form and reuses its maps
+ * for consecutive records, so no per-record instance of the form is created.
+ * <p>
+ * Records can be validated in the calling thread or by a number of workers of an
+ * <code>ExecutorService</code>; the iterator of records is read by one worker at a time,
+ * so it does not have to be thread safe.
+ *
+ * @since AISLIB 0.6
+ */
+public class BatchValidator {
+
+  /**
+   * Validated form.
+   */
+  private final Form form;
+
+  /**
+   * Map of messages.
+   */
+  private final Map messages;
+
+  /**
+   * Map of message groups.
+   */
+  private final Map messageGroups;
+
+  /**
+   * Language of messages.
+   */
+  private final String lang;
+
+  /**
+   * Object specific for validators, passed to every validation.
+   */
+  private Object data;
+
+
+  // Constructors
+
+  /**
+   * @param form form read from configuration, or an instance of it.
+   * @param messages map of messages.
+   * @param messageGroups map of message groups.
+   * @param lang language of messages.
+   */
+  public BatchValidator(Form form, Map messages, Map messageGroups, String lang) {
+    if (form == null) {
+      throw new NullPointerException("form");
+    }
+    this.form = form;
+    this.messages = messages;
+    this.messageGroups = messageGroups;
+    this.lang = lang;
+  }
+
+
+  // Public methods
+
+  /**
+   * @param data an object specific for validators, passed to validation of every record.
+   */
+  public void setData(Object data) {
+    this.data = data;
+  }
+
+  /**
+   * @return an object specific for validators.
+   */
+  public Object getData() {
+    return data;
+  }
+
+  /**
+   * Validates records in the calling thread.
+   *
+   * @param records iterator of maps of original string values.
+   * @param handler handler of results.
+   * @return number of successfully validated records.
+   */
+  public int validate(Iterator records, BatchValidationHandler handler) {
+    return new Worker(new RecordSource(records), handler).run();
+  }
+
+  /**
+   * Validates records using a number of workers.
+   *
+   * The method returns when all records have been validated.
+   * If validation of a record or the handler throws an exception,
+   * remaining records are skipped and the exception is rethrown.
+   *
+   * @param records iterator of maps of original string values.
+   * @param handler handler of results, called concurrently by workers.
+   * @param executor executor running workers.
+   * @param workers number of workers.
+   * @return number of successfully validated records.
+   * @throws InterruptedException if the calling thread has been interrupted while waiting for workers.
+   */
+  public int validate(Iterator records, BatchValidationHandler handler, ExecutorService executor, int workers)
+    throws InterruptedException {
+    if (workers <= 0) {
+      throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+    }
+
+    RecordSource source = new RecordSource(records);
+    List futures = new ArrayList(workers);
+    try {
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.submit(new Worker(source, handler)));
+      }
+
+      int result = 0;
+      for (Iterator i = futures.iterator(); i.hasNext();) {
+        Future future = (Future) i.next();
+        try {
+          result += ((Integer) future.get()).intValue();
+        } catch (ExecutionException ee) {
+          source.stop();
+          Throwable cause = ee.getCause();
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          if (cause instanceof Error) {
+            throw (Error) cause;
+          }
+          throw new RuntimeException("Cannot validate records of form " + form.getName(), cause);
+        }
+      }
+      return result;
+    } finally {
+      source.stop();
+      for (Iterator i = futures.iterator(); i.hasNext();) {
+        ((Future) i.next()).cancel(true);
+      }
+    }
+  }
+
+
+  // Private classes
+
+  /**
+   * Hands out records of the iterator to workers, one at a time.
+   */
+  private static final class RecordSource {
+
+    /**
+     * Iterator of records.
+     */
+    private final Iterator records;
+
+    /**
+     * Number of the next record.
+     */
+    private int next;
+
+    /**
+     * True if no more records should be handed out.
+     */
+    private boolean stopped;
+
+    /**
+     * @param records iterator of records.
+     */
+    RecordSource(Iterator records) {
+      this.records = records;
+    }
+
+    /**
+     * Fills the array with the next record and its number.
+     *
+     * @param holder array of two elements: number and record.
+     * @return false if there are no more records.
+     */
+    synchronized boolean next(Object[] holder) {
+      if (stopped || !records.hasNext()) {
+        return false;
+      }
+      holder[1] = records.next();
+      holder[0] = new Integer(next++);
+      return true;
+    }
+
+    /**
+     * Stops handing out records.
+     */
+    synchronized void stop() {
+      stopped = true;
+    }
+
+  } // RecordSource class
+
+  /**
+   * Validates records with its own instance of the form.
+   */
+  private final class Worker implements Callable {
+
+    /**
+     * Source of records.
+     */
+    private final RecordSource source;
+
+    /**
+     * Handler of results.
+     */
+    private final BatchValidationHandler handler;
+
+    /**
+     * @param source source of records.
+     * @param handler handler of results.
+     */
+    Worker(RecordSource source, BatchValidationHandler handler) {
+      this.source = source;
+      this.handler = handler;
+    }
+
+    /**
+     * @see java.util.concurrent.Callable#call()
+     */
+    public Object call() {
+      return new Integer(run());
+    }
+
+    /**
+     * @return number of successfully validated records.
+     */
+    int run() {
+      Form instance = form.newInstance(messages, messageGroups, lang);
+      instance.reuseState = true;
+
+      Object[] holder = new Object[2];
+      int result = 0;
+      try {
+        while (source.next(holder)) {
+          Map record = (Map) holder[1];
+          boolean validated = instance.validate(record, data);
+          if (validated) {
+            result++;
+          }
+          handler.handle(((Integer) holder[0]).intValue(), record, instance, validated);
+        }
+      } catch (RuntimeException re) {
+        source.stop();
+        throw re;
+      } catch (Error e) {
+        source.stop();
+        throw e;
+      }
+      return result;
+    }
+
+  } // Worker class
+
+} // BatchValidator class
@@ -0,0 +1,68 @@
+package pl.aislib.fm;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates daemon threads, so executors of the framework do not prevent container shutdown.
+ *
+ * @since AISLIB 0.6
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+  /**
+   * Prefix of names of created threads.
+   */
+  private final String prefix;
+
+  /**
+   * Number of created threads.
+   */
+  private int counter;
+
+
+  // Constructors
+
+  /**
+   * @param prefix prefix of names of created threads, followed by their consecutive numbers.
+   */
+  DaemonThreadFactory(String prefix) {
+    this.prefix = prefix;
+  }
+
+
+  // Public methods
+
+  /**
+   * @see ThreadFactory#newThread(Runnable)
+   */
+  public synchronized Thread newThread(Runnable runnable) {
+    Thread thread = new Thread(runnable, prefix + (++counter));
+    thread.setDaemon(true);
+    return thread;
+  }
+
+
+  // Package methods
+
+  /**
+   * Creates bounded pool of daemon threads.
+   *
+   * When all threads are busy and queue is full, or the pool has been shut down,
+   * task is rejected with <code>RejectedExecutionException</code>, so the submitting
+   * thread can run it itself and still get its result.
+   *
+   * @param prefix prefix of names of threads.
+   * @param threads number of threads.
+   * @param queueSize maximum number of tasks waiting for execution.
+   * @return created executor.
+   */
+  static ExecutorService newBoundedPool(String prefix, int threads, int queueSize) {
+    return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue(queueSize),
+      new DaemonThreadFactory(prefix), new ThreadPoolExecutor.AbortPolicy());
+  }
+
+} // DaemonThreadFactory class
@@ -0,0 +1,58 @@
+package pl.aislib.fm;
+
+import java.lang.reflect.Constructor;
+
+import javax.servlet.ServletException;
+
+/**
+ * Default {@link PageFactory}, creates new page instance for every request.
+ *
+ * No-argument constructor of page class is looked up once, during initialization.
+ *
+ * @since AISLIB 0.6
+ */
+public class DefaultPageFactory extends PageFactory {
+
+  /**
+   * Empty argument list for constructor invocation.
+   */
+  private static final Object[] NO_ARGS = new Object[0];
+
+  /**
+   * No-argument constructor of page class.
+   */
+  private Constructor constructor;
+
+
+  // Public methods
+
+  /**
+   * @see PageFactory#init(PageInfo)
+   */
+  public void init(PageInfo _pageInfo) throws ApplicationConfigurationException {
+    super.init(_pageInfo);
+    Class clazz = pageInfo.getClazz();
+    if (!Page.class.isAssignableFrom(clazz)) {
+      throw new ApplicationConfigurationException(
+        "Page class '" + clazz.getName() + "' does not extend " + Page.class.getName());
+    }
+    try {
+      constructor = clazz.getDeclaredConstructor(new Class[0]);
+    } catch (NoSuchMethodException nsme) {
+      throw new ApplicationConfigurationException(
+        "Page class '" + clazz.getName() + "' has no default constructor", nsme);
+    }
+  }
+
+  /**
+   * @see PageFactory#newPage()
+   */
+  public Page newPage() throws ServletException {
+    try {
+      return preparePage((Page) constructor.newInstance(NO_ARGS));
+    } catch (Exception ex) {
+      throw new ServletException("Errors during page '" + pageInfo.getActionKey() + "' creation: ", ex);
+    }
+  }
+
+} // DefaultPageFactory class
@@ -0,0 +1,144 @@
+package pl.aislib.fm;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Passes calls of a proxy to an object of servlet container until the proxy is detached from it.
+ *
+ * Proxies implement interfaces of the servlet API available at runtime, so all methods
+ * are guarded, including methods added by versions of the API newer than the one
+ * the framework is built against. After detaching, calls are either rejected with
+ * <code>IllegalStateException</code> or ignored, returning <code>null</code>, <code>false</code>
+ * or zero. Ignored calls are synchronized with detaching, so no call is in progress
+ * when {@link #detach()} returns; rejected calls are not, they only must not start afterwards.
+ *
+ * @since AISLIB 0.6
+ */
+final class DetachableHandler implements InvocationHandler {
+
+  /**
+   * Object of servlet container.
+   */
+  private final Object target;
+
+  /**
+   * True if calls are rejected after detaching, false if they are ignored.
+   */
+  private final boolean rejecting;
+
+  /**
+   * True if the proxy is detached from the object.
+   */
+  private volatile boolean detached;
+
+
+  // Constructors
+
+  /**
+   * @param target object of servlet container.
+   * @param rejecting true if calls should be rejected after detaching, false if they should be ignored.
+   */
+  DetachableHandler(Object target, boolean rejecting) {
+    this.target = target;
+    this.rejecting = rejecting;
+  }
+
+
+  // Public methods
+
+  /**
+   * @see InvocationHandler#invoke(Object, Method, Object[])
+   */
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (method.getDeclaringClass() == Object.class) {
+      return invokeTarget(method, args);
+    }
+    if (rejecting) {
+      if (detached) {
+        throw new IllegalStateException("request has been detached, cannot call " + method.getName());
+      }
+      return invokeTarget(method, args);
+    }
+    synchronized (this) {
+      return detached ? defaultValue(method.getReturnType()) : invokeTarget(method, args);
+    }
+  }
+
+
+  // Package methods
+
+  /**
+   * @param type interface implemented by the object.
+   * @return proxy passing calls to the object.
+   */
+  Object newProxy(Class type) {
+    return Proxy.newProxyInstance(type.getClassLoader(), new Class[] { type }, this);
+  }
+
+  /**
+   * Detaches the proxy from the object, waiting for an ignorable call in progress.
+   */
+  synchronized void detach() {
+    detached = true;
+  }
+
+  /**
+   * @return true if the proxy is detached from the object.
+   */
+  boolean isDetached() {
+    return detached;
+  }
+
+
+  // Private methods
+
+  /**
+   * @param method called method.
+   * @param args arguments of the call.
+   * @return result of the call.
+   * @throws Throwable exception thrown by the method.
+   */
+  private Object invokeTarget(Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException ite) {
+      throw ite.getTargetException();
+    }
+  }
+
+  /**
+   * @param type return type of a method.
+   * @return value returned by an ignored call.
+   */
+  private static Object defaultValue(Class type) {
+    if (!type.isPrimitive() || (type == void.class)) {
+      return null;
+    }
+    if (type == boolean.class) {
+      return Boolean.FALSE;
+    }
+    if (type == char.class) {
+      return new Character((char) 0);
+    }
+    if (type == long.class) {
+      return new Long(0);
+    }
+    if (type == float.class) {
+      return new Float(0);
+    }
+    if (type == double.class) {
+      return new Double(0);
+    }
+    if (type == byte.class) {
+      return new Byte((byte) 0);
+    }
+    if (type == short.class) {
+      return new Short((short) 0);
+    }
+    return new Integer(0);
+  }
+
+} // DetachableHandler class
@@ -0,0 +1,52 @@
+package pl.aislib.fm;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Request given to processing of a request outside of servlet container thread.
+ *
+ * Once {@link #detach()} is called, every call of the request, including its attributes,
+ * parameters and <code>getSession</code>, throws <code>IllegalStateException</code>,
+ * so processing which ignores interruption cannot read or change the request after
+ * the container has reused it for another request. Objects obtained from the request before,
+ * e.g. the session or the input stream, are not guarded.
+ *
+ * @since AISLIB 0.6
+ */
+final class DetachableRequest extends HttpServletRequestWrapper {
+
+  /**
+   * Guard of wrapped request.
+   */
+  private final DetachableHandler handler;
+
+
+  // Constructors
+
+  /**
+   * @param request wrapped request.
+   */
+  DetachableRequest(HttpServletRequest request) {
+    this(new DetachableHandler(request, true));
+  }
+
+  /**
+   * @param handler guard of wrapped request.
+   */
+  private DetachableRequest(DetachableHandler handler) {
+    super((HttpServletRequest) handler.newProxy(HttpServletRequest.class));
+    this.handler = handler;
+  }
+
+
+  // Package methods
+
+  /**
+   * Detaches the request from wrapped request.
+   */
+  void detach() {
+    handler.detach();
+  }
+
+} // DetachableRequest class
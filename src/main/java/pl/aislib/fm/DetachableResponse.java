@@ -0,0 +1,229 @@
+package pl.aislib.fm;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response given to processing of a request outside of servlet container thread.
+ *
+ * Once {@link #detach()} is called, writer and stream of the response discard their output
+ * and all other calls of the response are ignored, so processing which ignores interruption
+ * cannot write into the response after the container has reused it for another request.
+ * Wrapped response is reached only through {@link DetachableHandler}, which guards also methods
+ * added by versions of the servlet API newer than 2.3 (e.g. <code>setCharacterEncoding</code>).
+ * Calls and detaching are synchronized, so no call is in progress when {@link #detach()} returns.
+ *
+ * @since AISLIB 0.6
+ */
+final class DetachableResponse extends HttpServletResponseWrapper {
+
+  /**
+   * Guard of wrapped response, also the lock of writing.
+   */
+  private final DetachableHandler handler;
+
+  /**
+   * Writer of the response, created on demand.
+   */
+  private PrintWriter writer;
+
+  /**
+   * Stream of the response, created on demand.
+   */
+  private ServletOutputStream stream;
+
+
+  // Constructors
+
+  /**
+   * @param response wrapped response.
+   */
+  DetachableResponse(HttpServletResponse response) {
+    this(new DetachableHandler(response, false));
+  }
+
+  /**
+   * @param handler guard of wrapped response.
+   */
+  private DetachableResponse(DetachableHandler handler) {
+    super((HttpServletResponse) handler.newProxy(HttpServletResponse.class));
+    this.handler = handler;
+  }
+
+
+  // Public methods
+
+  /**
+   * @see javax.servlet.ServletResponse#getWriter()
+   */
+  public PrintWriter getWriter() throws IOException {
+    synchronized (handler) {
+      if (writer == null) {
+        writer = new PrintWriter(new DetachableWriter(super.getWriter()));
+      }
+      return writer;
+    }
+  }
+
+  /**
+   * @see javax.servlet.ServletResponse#getOutputStream()
+   */
+  public ServletOutputStream getOutputStream() throws IOException {
+    synchronized (handler) {
+      if (stream == null) {
+        stream = new DetachableStream(super.getOutputStream());
+      }
+      return stream;
+    }
+  }
+
+
+  // Package methods
+
+  /**
+   * Detaches the response from wrapped response, waiting for a write in progress.
+   */
+  void detach() {
+    handler.detach();
+  }
+
+  /**
+   * @return true if the response is detached from wrapped response.
+   */
+  boolean isDetached() {
+    return handler.isDetached();
+  }
+
+
+  // Private classes
+
+  /**
+   * Writer discarding output once the response is detached.
+   */
+  private class DetachableWriter extends Writer {
+
+    /**
+     * Writer of wrapped response, <code>null</code> if the response was detached before.
+     */
+    private Writer out;
+
+    /**
+     * @param out writer of wrapped response.
+     */
+    DetachableWriter(Writer out) {
+      this.out = out;
+    }
+
+    /**
+     * @see Writer#write(char[], int, int)
+     */
+    public void write(char[] cbuf, int off, int len) throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.write(cbuf, off, len);
+        }
+      }
+    }
+
+    /**
+     * @see Writer#write(String, int, int)
+     */
+    public void write(String str, int off, int len) throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.write(str, off, len);
+        }
+      }
+    }
+
+    /**
+     * @see Writer#flush()
+     */
+    public void flush() throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.flush();
+        }
+      }
+    }
+
+    /**
+     * @see Writer#close()
+     */
+    public void close() throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.close();
+        }
+      }
+    }
+  } // DetachableWriter class
+
+  /**
+   * Stream discarding output once the response is detached.
+   */
+  private class DetachableStream extends ServletOutputStream {
+
+    /**
+     * Stream of wrapped response, <code>null</code> if the response was detached before.
+     */
+    private ServletOutputStream out;
+
+    /**
+     * @param out stream of wrapped response.
+     */
+    DetachableStream(ServletOutputStream out) {
+      this.out = out;
+    }
+
+    /**
+     * @see java.io.OutputStream#write(int)
+     */
+    public void write(int b) throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.write(b);
+        }
+      }
+    }
+
+    /**
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    public void write(byte[] b, int off, int len) throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.write(b, off, len);
+        }
+      }
+    }
+
+    /**
+     * @see java.io.OutputStream#flush()
+     */
+    public void flush() throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.flush();
+        }
+      }
+    }
+
+    /**
+     * @see java.io.OutputStream#close()
+     */
+    public void close() throws IOException {
+      synchronized (handler) {
+        if (!handler.isDetached()) {
+          out.close();
+        }
+      }
+    }
+  } // DetachableStream class
+
+} // DetachableResponse class
@@ -0,0 +1,202 @@
+package pl.aislib.fm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index of names of dynamic entities.
+ *
+ * Names of dynamic fields and rules have the form <code>prefix + number</code>,
+ * e.g. <code>field_001_12</code>. The index reads keys of a map once and groups them
+ * by prefix, keeping numbers sorted and names in order of the map,
+ * so instances of a dynamic entity are found without scanning all keys with
+ * <code>startsWith</code> and parsing numbers for each dynamic entity.
+ * <p>
+ * Only non-negative decimal numbers are recognized. Prefixes ending with a digit
+ * cannot be told apart from the number, such entities should be looked up by scanning.
+ *
+ * @since AISLIB 0.6
+ */
+final class DynamicFieldIndex {
+
+  /**
+   * Empty array of numbers.
+   */
+  private static final int[] NO_NUMBERS = new int[0];
+
+  /**
+   * Empty array of names.
+   */
+  private static final String[] NO_NAMES = new String[0];
+
+  /**
+   * Map of prefixes and their entries.
+   */
+  private final Map entries;
+
+  /**
+   * Number of keys in the indexed map at the time of indexing.
+   */
+  private final int size;
+
+
+  // Constructors
+
+  /**
+   * Indexes keys of the map.
+   *
+   * @param map map with names of entities as keys.
+   */
+  DynamicFieldIndex(Map map) {
+    entries = new HashMap();
+    size = map.size();
+
+    for (Iterator i = map.keySet().iterator(); i.hasNext();) {
+      Object key = i.next();
+      if (!(key instanceof String)) {
+        continue;
+      }
+      String name = (String) key;
+      int start = name.length();
+      while (start > 0 && Character.isDigit(name.charAt(start - 1))) {
+        start--;
+      }
+      int digits = name.length() - start;
+      if (digits == 0 || digits > 9 || start == 0) {
+        continue;
+      }
+      String prefix = name.substring(0, start);
+      Entry entry = (Entry) entries.get(prefix);
+      if (entry == null) {
+        entry = new Entry();
+        entries.put(prefix, entry);
+      }
+      entry.add(Integer.parseInt(name.substring(start)), name);
+    }
+
+    for (Iterator i = entries.values().iterator(); i.hasNext();) {
+      ((Entry) i.next()).seal();
+    }
+  }
+
+
+  // Package methods
+
+  /**
+   * @param prefix prefix of names.
+   * @return true if names with the prefix can be looked up in the index.
+   */
+  static boolean isIndexable(String prefix) {
+    return prefix != null && prefix.length() > 0 && !Character.isDigit(prefix.charAt(prefix.length() - 1));
+  }
+
+  /**
+   * @param map map the index has been built for.
+   * @return true if keys may have been added to the map since it has been indexed.
+   */
+  boolean isStale(Map map) {
+    return map.size() != size;
+  }
+
+  /**
+   * @param prefix prefix of names.
+   * @return numbers of names with the prefix in ascending order. The array must not be modified.
+   */
+  int[] getNumbers(String prefix) {
+    Entry entry = (Entry) entries.get(prefix);
+    return entry != null ? entry.numbers : NO_NUMBERS;
+  }
+
+  /**
+   * @param prefix prefix of names.
+   * @return names with the prefix, ordered as their numbers. The array must not be modified.
+   */
+  String[] getSortedNames(String prefix) {
+    Entry entry = (Entry) entries.get(prefix);
+    return entry != null ? entry.sortedNames : NO_NAMES;
+  }
+
+  /**
+   * @param prefix prefix of names.
+   * @return names with the prefix, in order of the indexed map. The array must not be modified.
+   */
+  String[] getNames(String prefix) {
+    Entry entry = (Entry) entries.get(prefix);
+    return entry != null ? entry.names : NO_NAMES;
+  }
+
+
+  // Private classes
+
+  /**
+   * Names and numbers sharing a prefix.
+   */
+  private static final class Entry {
+
+    /**
+     * Names in order of the map, used while indexing.
+     */
+    private List list = new ArrayList();
+
+    /**
+     * Numbers in ascending order.
+     */
+    int[] numbers;
+
+    /**
+     * Names ordered as numbers.
+     */
+    String[] sortedNames;
+
+    /**
+     * Names in order of the map.
+     */
+    String[] names;
+
+    /**
+     * Numbers in order of the map, used while indexing.
+     */
+    private int[] unsorted = new int[4];
+
+    /**
+     * @param number number of the name.
+     * @param name the name.
+     */
+    void add(int number, String name) {
+      if (list.size() == unsorted.length) {
+        int[] tmp = new int[unsorted.length * 2];
+        System.arraycopy(unsorted, 0, tmp, 0, unsorted.length);
+        unsorted = tmp;
+      }
+      unsorted[list.size()] = number;
+      list.add(name);
+    }
+
+    /**
+     * Sorts collected numbers and names.
+     */
+    void seal() {
+      int n = list.size();
+      names = (String[]) list.toArray(new String[n]);
+      long[] packed = new long[n];
+      for (int i = 0; i < n; i++) {
+        packed[i] = ((long) unsorted[i] << 32) | i;
+      }
+      Arrays.sort(packed);
+      numbers = new int[n];
+      sortedNames = new String[n];
+      for (int i = 0; i < n; i++) {
+        numbers[i] = (int) (packed[i] >>> 32);
+        sortedNames[i] = names[(int) packed[i]];
+      }
+      list = null;
+      unsorted = null;
+    }
+
+  } // Entry class
+
+} // DynamicFieldIndex class
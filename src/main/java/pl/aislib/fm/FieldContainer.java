@@ -3,6 +3,7 @@ package pl.aislib.fm;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -12,8 +13,10 @@ import java.util.TreeMap;
 import org.apache.commons.logging.Log;
 
 import pl.aislib.fm.forms.Field;
+import pl.aislib.fm.forms.FieldMapping;
 import pl.aislib.fm.forms.IEntity;
 import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 import pl.aislib.fm.messages.IMessage;
 import pl.aislib.fm.messages.IMessageConverter;
 import pl.aislib.util.Pair;
@@ -147,6 +150,26 @@ public abstract class FieldContainer {
    */
   protected boolean bTreatEmptyAsNull = false;
 
+  /**
+   * Compiled validation plan, shared by all instances of the container.
+   */
+  volatile ValidationPlan plan;
+
+  /**
+   * Indexes of names of dynamic entities, keyed by identity of indexed maps.
+   */
+  private Map dynamicFieldIndexes;
+
+  /**
+   * True if maps holding state of validation are cleared and reused by the next validation.
+   */
+  boolean reuseState = false;
+
+  /**
+   * Result of the last validation.
+   */
+  private boolean validated = false;
+
 
   // Constructors
 
@@ -169,6 +192,7 @@ public abstract class FieldContainer {
    */
   public void addField(Field field) {
     fields.put(field.getName(), field);
+    plan = null;
   }
 
   /**
@@ -331,9 +355,29 @@ public abstract class FieldContainer {
    * @return true if all fields have been successfully validated.
    */
   public boolean validate(Map fieldValues, Object data) {
-    return preValidate(fieldValues, data)
+    validated = preValidate(fieldValues, data)
          && doValidate(fieldValues, data)
          && postValidate(fieldValues, data);
+    return validated;
+  }
+
+  /**
+   * @return result of the last validation, with messages converted by standard converter.
+   * @since AISLIB 0.6
+   */
+  public ValidationResult getValidationResult() {
+    return getValidationResult(null);
+  }
+
+  /**
+   * Returns result of the last validation, resolving error messages only when they are asked for.
+   *
+   * @param messageConverter message converter object.
+   * @return result of the last validation.
+   * @since AISLIB 0.6
+   */
+  public ValidationResult getValidationResult(IMessageConverter messageConverter) {
+    return new ValidationResult(this, validated, messageConverter);
   }
 
   /**
@@ -349,20 +393,11 @@ public abstract class FieldContainer {
     Object fieldValue = null;
 
     if (field.isComplex() && field.isDynamic()) {
-      Map fValues = new LinkedHashMap(fieldValues);
       Map builderMapping = field.getBuilder().getMapping();
 
-      //int maxIndex = -1;
-
-      for (Iterator i = builderMapping.entrySet().iterator(); i.hasNext();) {
-        Map.Entry me = (Map.Entry) i.next();
-        String partFieldName = (String) me.getValue();
-        constrainValues(fValues, partFieldName);
-      }
-
       boolean result = true;
 
-      List l = orderFieldValues(values, builderMapping, fValues);
+      List l = orderFieldValues(values, builderMapping, fieldValues);
       for (Iterator i = l.iterator(); i.hasNext();) {
         Pair pair = (Pair) i.next();
         int j = ((Integer) pair.getFirst()).intValue();
@@ -383,8 +418,7 @@ public abstract class FieldContainer {
       }
       fieldValue = field.getBuilder().join(builderValues);
     } else if (field.isDynamic()) {
-      Map fValues = new LinkedHashMap(fieldValues);
-      Map constrainedValues = constrainValues(fValues, field.getName());
+      Map constrainedValues = constrainValues(fieldValues, field.getName());
       boolean result = true;
       for (Iterator i = constrainedValues.entrySet().iterator(); i.hasNext();) {
         Map.Entry me = (Map.Entry) i.next();
@@ -438,13 +472,22 @@ public abstract class FieldContainer {
       validatedFields.put(fieldName, Boolean.TRUE);
       switch (valuesType) {
         case Field.VT_SINGLE:
-          if (fieldValue instanceof String) {
-            theValue = field.validate((String) fieldValue, messagesMap, fieldName, data);
-            break;
-          } else if (fieldValue instanceof String[]) {
-            String[] arr = (String[]) fieldValue;
-            originalValues.put(fieldName, arr[0]);
-            theValue = field.validate(arr[0], messagesMap, fieldName, data);
+          if (fieldValue instanceof String || fieldValue instanceof String[]) {
+            String value;
+            if (fieldValue instanceof String) {
+              value = (String) fieldValue;
+            } else {
+              value = ((String[]) fieldValue)[0];
+              originalValues.put(fieldName, value);
+            }
+            if (field.isCheckSupported()) {
+              theValue = field.check(value, messagesMap, validators, fieldName, data);
+              if (theValue instanceof ValidationFailure) {
+                return rejectField(fieldName, ((ValidationFailure) theValue).getMessage());
+              }
+            } else {
+              theValue = field.validate(value, messagesMap, fieldName, data);
+            }
             break;
           } else {
             validatedFields.put(fieldName, Boolean.FALSE);
@@ -482,16 +525,8 @@ public abstract class FieldContainer {
       values.put(fieldName, isValueEmpty(theValue) ? null : theValue);
       return true;
     } catch (ValidateException ve) {
-      Iterator keys = messagesMap.values().iterator();
-      Object last = null;
-      while (keys.hasNext()) {
-        last = keys.next();
-      }
-      orderedMessagesMap.put(fieldName, last);
-      validatedFields.put(fieldName, Boolean.FALSE);
       validators.put(fieldName, ve.getValidator());
-      stamp("Field '" + fieldName + "' has not been successfully validated. Returned message: " + ve.getMessage());
-      return false;
+      return rejectField(fieldName, ve.getMessage());
     }
   }
 
@@ -506,9 +541,20 @@ public abstract class FieldContainer {
    * @return true if all fields have been successfully pre-validated.
    */
   protected boolean preValidate(Map fieldValues, Object data) {
-    values = new LinkedHashMap();
-    originalValues = new LinkedHashMap();
-    validatedFields = new LinkedHashMap();
+    dynamicFieldIndexes = null;
+    if (reuseState && values != null) {
+      values.clear();
+      originalValues.clear();
+      validatedFields.clear();
+      validators.clear();
+      messagesMap.clear();
+      orderedMessagesMap.clear();
+      return true;
+    }
+    int capacity = getPlan().getInitialCapacity();
+    values = new LinkedHashMap(capacity);
+    originalValues = new LinkedHashMap(capacity);
+    validatedFields = new LinkedHashMap(capacity);
     validators = new LinkedHashMap();
     messagesMap = new LinkedHashMap();
     orderedMessagesMap = new LinkedHashMap();
@@ -540,8 +586,6 @@ public abstract class FieldContainer {
    * @return map of values of fields that start with the given name.
    */
   protected Map constrainValues(Map fieldValues, String fieldName) {
-    Map result = new TreeMap();
-
     int maxIndex = -1;
     try {
       maxIndex = Integer.parseInt((String) fieldValues.get(fieldName + "_count"));
@@ -549,29 +593,34 @@ public abstract class FieldContainer {
       ;
     }
 
-    for (Iterator i = fieldValues.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      String key = (String) me.getKey();
-      if (key.startsWith(fieldName)) {
-        try {
-          int index = Integer.parseInt(key.substring(fieldName.length()));
-          if (index > maxIndex) {
-            maxIndex = index;
-          }
-          result.put(key, me.getValue());
-        } catch (Exception e) {
-          ;
-        }
-      }
+    if (!DynamicFieldIndex.isIndexable(fieldName)) {
+      return scanValues(fieldValues, fieldName, maxIndex);
     }
 
-    for (int i = 1; i <= maxIndex; i++) {
-      if (!fieldValues.containsKey(fieldName + i)) {
-        result.put(fieldName + i, null);
+    DynamicFieldIndex index = getDynamicFieldIndex(fieldValues);
+    int[] numbers = index.getNumbers(fieldName);
+    String[] names = index.getSortedNames(fieldName);
+    if (numbers.length > 0 && numbers[numbers.length - 1] > maxIndex) {
+      maxIndex = numbers[numbers.length - 1];
+    }
+
+    Map result = new LinkedHashMap(Math.max(numbers.length, maxIndex) * 4 / 3 + 1);
+    int next = 1;
+    for (int k = 0; k <= numbers.length; k++) {
+      int limit = k < numbers.length ? Math.min(numbers[k], maxIndex + 1) : maxIndex + 1;
+      for (; next < limit; next++) {
+        String name = fieldName + next;
+        if (!fieldValues.containsKey(name)) {
+          result.put(name, null);
+        }
+      }
+      if (k < numbers.length) {
+        result.put(names[k], fieldValues.get(names[k]));
+        next = Math.max(next, numbers[k] + 1);
       }
     }
 
-    return new LinkedHashMap(result);
+    return result;
   }
 
   /**
@@ -602,11 +651,9 @@ public abstract class FieldContainer {
   protected boolean validateComplexFields(Map fieldValues, Object data) {
     boolean result = true;
 
-    for (Iterator i = fields.entrySet().iterator(); i.hasNext();) {
-      Field field = (Field) ((Map.Entry) i.next()).getValue();
-      if (field.isConditional() || !field.isComplex()) {
-        continue;
-      }
+    Field[] complexFields = getPlan().getComplexFields();
+    for (int i = 0; i < complexFields.length; i++) {
+      Field field = complexFields[i];
 
       boolean bFieldValidated = validateField(field, data, fieldValues);
 
@@ -625,11 +672,9 @@ public abstract class FieldContainer {
   protected boolean validateNonComplexFields(Map fieldValues, Object data) {
     boolean result = true;
 
-    for (Iterator i = fields.entrySet().iterator(); i.hasNext();) {
-      Field field = (Field) ((Map.Entry) i.next()).getValue();
-      if (field.isConditional() || field.isComplex()) {
-        continue;
-      }
+    Field[] nonComplexFields = getPlan().getNonComplexFields();
+    for (int i = 0; i < nonComplexFields.length; i++) {
+      Field field = nonComplexFields[i];
 
       boolean bFieldValidated = validateField(field, data, fieldValues);
 
@@ -778,32 +823,8 @@ public abstract class FieldContainer {
       entities.add(entityName);
     }
 
-    int counter = 0;
-    for (Iterator i = entities.iterator(); i.hasNext(); counter++) {
-      String entName = (String) i.next();
-      Integer errorCode = (Integer) orderedMessagesMap.get(entName);
-      Message message = (Message) messages.get(errorCode);
-
-      Map entityProperties = (Map) formEntityProperties.get(entName);
-      entityProperties.put(MC_ENTITY_FORM, formEntityProperties);
-
-      // First, check not grouped messages
-      if (message != null) {
-        IMessage cMessage = messageConverter.convert(message, lang, entityProperties, entityProperties);
-        result.put(cMessage.getKey(), cMessage.getContent());
-      } else {
-        // Then, check grouped messages
-        List messageGroup = (List) messageGroups.get(errorCode);
-        if (messageGroup != null) {
-          for (Iterator j = messageGroup.iterator(); j.hasNext();) {
-            Message gMessage = (Message) j.next();
-            if (gMessage != null) {
-              IMessage cMessage = messageConverter.convert(gMessage, lang, entityProperties, entityProperties);
-              result.put(cMessage.getKey(), cMessage.getContent());
-            }
-          }
-        }
-      }
+    for (Iterator i = entities.iterator(); i.hasNext();) {
+      convertEntityMessages((String) i.next(), messageConverter, formEntityProperties, lang, result);
     }
 
     return result;
@@ -840,10 +861,14 @@ public abstract class FieldContainer {
    * @return list of all names of entity's instances.
    */
   protected List getDynamicEntityNamesList(String entityName) {
-    List result = new ArrayList();
-
     IEntity entity = getEntity(entityName);
 
+    if (entity.isDynamic() && DynamicFieldIndex.isIndexable(entityName)) {
+      return getIndexedNames(validatedFields, entityName);
+    }
+
+    List result = new ArrayList();
+
     for (Iterator i = validatedFields.keySet().iterator(); i.hasNext();) {
       String fieldName = (String) i.next();
       if (fieldName.startsWith(entityName)) {
@@ -906,98 +931,289 @@ public abstract class FieldContainer {
    * @return list of consecutive numbers of entity's instances.
    */
   protected List getDynamicNumbers(Map fieldValues, String fieldName) {
-    List result = new ArrayList();
+    if (!DynamicFieldIndex.isIndexable(fieldName)) {
+      List result = new ArrayList();
+      for (Iterator i = fieldValues.entrySet().iterator(); i.hasNext();) {
+        Map.Entry me = (Map.Entry) i.next();
+        String key = (String) me.getKey();
+        if (key.startsWith(fieldName)) {
+          try {
+            Integer j = Integer.valueOf(key.substring(fieldName.length()));
+            result.add(j);
+          } catch (Exception e) {
+            ;
+          }
+        }
+      }
+      Collections.sort(result);
+      return result;
+    }
+
+    int[] numbers = getDynamicFieldIndex(fieldValues).getNumbers(fieldName);
+    List result = new ArrayList(numbers.length);
+    for (int i = 0; i < numbers.length; i++) {
+      result.add(new Integer(numbers[i]));
+    }
+    return result;
+  }
+
+  /**
+   * @param values values of fields.
+   * @param mapping mapping.
+   * @param fieldValues string values of fields.
+   * @return list of pairs: number and map of values of fields for entity's instance.
+   */
+  protected List orderFieldValues(Map values, Map mapping, Map fieldValues) {
+    FieldMapping resolved = getPlan().getMapping(mapping);
+    if (resolved == null) {
+      resolved = new FieldMapping(mapping, this);
+    }
+    return orderFieldValues(values, resolved, fieldValues);
+  }
+
+
+  // Package methods
+
+  /**
+   * Converts messages of a single instance of an entity.
+   *
+   * @param entityName name of the entity's instance.
+   * @param messageConverter message converter object.
+   * @param formEntityProperties properties of all entities.
+   * @param language language of messages.
+   * @param result map to put keys and contents of converted messages to.
+   */
+  void convertEntityMessages(String entityName, IMessageConverter messageConverter, Map formEntityProperties,
+    String language, Map result) {
+    Integer errorCode = (Integer) orderedMessagesMap.get(entityName);
+    Message message = (Message) messages.get(errorCode);
+
+    Map entityProperties = (Map) formEntityProperties.get(entityName);
+    entityProperties.put(MC_ENTITY_FORM, formEntityProperties);
+
+    // First, check not grouped messages
+    if (message != null) {
+      IMessage cMessage = messageConverter.convert(message, language, entityProperties, entityProperties);
+      result.put(cMessage.getKey(), cMessage.getContent());
+    } else {
+      // Then, check grouped messages
+      List messageGroup = (List) messageGroups.get(errorCode);
+      if (messageGroup != null) {
+        for (Iterator j = messageGroup.iterator(); j.hasNext();) {
+          Message gMessage = (Message) j.next();
+          if (gMessage != null) {
+            IMessage cMessage = messageConverter.convert(gMessage, language, entityProperties, entityProperties);
+            result.put(cMessage.getKey(), cMessage.getContent());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Collects distinct codes of error messages, replacing codes of message groups with codes of their messages.
+   *
+   * @return set of codes in order of error messages.
+   */
+  IntSet createErrorCodeSet() {
+    IntSet result = new IntSet(orderedMessagesMap.size());
+
+    for (Iterator i = orderedMessagesMap.values().iterator(); i.hasNext();) {
+      Integer msgCode = (Integer) i.next();
+      if (result.contains(msgCode.intValue())) {
+        continue;
+      }
+      if (messages.containsKey(msgCode)) {
+        result.add(msgCode.intValue());
+      } else {
+        List messageGroup = (List) messageGroups.get(msgCode);
+        if (messageGroup != null) {
+          for (Iterator j = messageGroup.iterator(); j.hasNext();) {
+            IMessage message = (IMessage) j.next();
+            if (message != null) {
+              result.add(message.getCode());
+            }
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns compiled validation plan of the container, building it if necessary.
+   *
+   * @return <code>ValidationPlan</code> object.
+   */
+  ValidationPlan getPlan() {
+    ValidationPlan result = plan;
+    if (result == null) {
+      result = createPlan();
+      plan = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return new validation plan for current definition of the container.
+   */
+  ValidationPlan createPlan() {
+    return new ValidationPlan(this, null);
+  }
+
+
+  /**
+   * Returns index of names of dynamic entities for the map.
+   * Indexes are kept until the next validation and rebuilt when keys are added to the map.
+   *
+   * @param map map with names of entities as keys.
+   * @return <code>DynamicFieldIndex</code> object.
+   */
+  DynamicFieldIndex getDynamicFieldIndex(Map map) {
+    if (dynamicFieldIndexes == null) {
+      dynamicFieldIndexes = new IdentityHashMap(4);
+    }
+    DynamicFieldIndex index = (DynamicFieldIndex) dynamicFieldIndexes.get(map);
+    if (index == null || index.isStale(map)) {
+      index = new DynamicFieldIndex(map);
+      dynamicFieldIndexes.put(map, index);
+    }
+    return index;
+  }
+
+  /**
+   * @param map map with names of entities as keys.
+   * @param entityName name of a dynamic entity.
+   * @return list of names of entity's instances, in order of the map.
+   */
+  List getIndexedNames(Map map, String entityName) {
+    String[] names = getDynamicFieldIndex(map).getNames(entityName);
+    List result = new ArrayList(names.length);
+    for (int i = 0; i < names.length; i++) {
+      result.add(names[i]);
+    }
+    return result;
+  }
+
+
+  // Private methods
+
+  /**
+   * Marks a field as not successfully validated.
+   *
+   * @param fieldName name of the field.
+   * @param message message of the validation error.
+   * @return always false.
+   */
+  private boolean rejectField(String fieldName, String message) {
+    Iterator keys = messagesMap.values().iterator();
+    Object last = null;
+    while (keys.hasNext()) {
+      last = keys.next();
+    }
+    orderedMessagesMap.put(fieldName, last);
+    validatedFields.put(fieldName, Boolean.FALSE);
+    stamp("Field '" + fieldName + "' has not been successfully validated. Returned message: " + message);
+    return false;
+  }
+
+  /**
+   * Finds values of a dynamic field by scanning all keys, used when name of the field ends with a digit.
+   *
+   * @param fieldValues map of field values.
+   * @param fieldName name of a field.
+   * @param maxIndex highest number of field's instances known so far.
+   * @return map of values of fields that start with the given name.
+   * @see #constrainValues(Map, String)
+   */
+  private Map scanValues(Map fieldValues, String fieldName, int maxIndex) {
+    Map result = new TreeMap();
+
     for (Iterator i = fieldValues.entrySet().iterator(); i.hasNext();) {
       Map.Entry me = (Map.Entry) i.next();
       String key = (String) me.getKey();
       if (key.startsWith(fieldName)) {
         try {
-          Integer j = Integer.valueOf(key.substring(fieldName.length()));
-          result.add(j);
+          int index = Integer.parseInt(key.substring(fieldName.length()));
+          if (index > maxIndex) {
+            maxIndex = index;
+          }
+          result.put(key, me.getValue());
         } catch (Exception e) {
           ;
         }
       }
     }
-    Collections.sort(result);
-    return result;
+
+    for (int i = 1; i <= maxIndex; i++) {
+      if (!fieldValues.containsKey(fieldName + i)) {
+        result.put(fieldName + i, null);
+      }
+    }
+
+    return new LinkedHashMap(result);
   }
 
   /**
    * @param values values of fields.
-   * @param mapping mapping.
+   * @param mapping resolved mapping.
    * @param fieldValues string values of fields.
    * @return list of pairs: number and map of values of fields for entity's instance.
+   * @see #orderFieldValues(Map, Map, Map)
    */
-  protected List orderFieldValues(Map values, Map mapping, Map fieldValues) {
-    List result = new ArrayList();
-
-    List l = new ArrayList();
-    boolean bDynamicFound = false;
-    boolean bNoDynamicFound = true;
-    for (Iterator i = mapping.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      String fieldName = (String) me.getValue();
-      Field field = (Field) fields.get(fieldName);
-      if (field.isDynamic()) {
-        bNoDynamicFound = false;
+  private List orderFieldValues(Map values, FieldMapping mapping, Map fieldValues) {
+    List l = null;
+    if (mapping.isDynamic()) {
+      for (int n = 0; n < mapping.size(); n++) {
+        String fieldName = mapping.getFieldName(n);
+        Field field = mapping.getField(n);
+        if (!field.isDynamic()) {
+          continue;
+        }
         if (field.isConditional() && field.isComplex()) {
           for (Iterator j = field.getBuilder().getMapping().entrySet().iterator(); j.hasNext();) {
             Map.Entry me2 = (Map.Entry) j.next();
             String partFieldName = (String) me2.getValue();
-            //Field partField = (Field) fields.get(partFieldName);
-            if (!bDynamicFound) {
+            if (l == null) {
               l = getDynamicNumbers(fieldValues, partFieldName);
-              bDynamicFound = true;
             } else {
               l.retainAll(getDynamicNumbers(fieldValues, partFieldName));
             }
           }
         } else {
-          if (!bDynamicFound) {
-            l = getDynamicNumbers(
-                  (isFieldValidated(fieldName) || fieldValues == null) ? values : fieldValues,
-                  fieldName
-                );
-            bDynamicFound = true;
+          Map source = (isFieldValidated(fieldName) || fieldValues == null) ? values : fieldValues;
+          if (l == null) {
+            l = getDynamicNumbers(source, fieldName);
           } else {
-            l.retainAll(
-              getDynamicNumbers(
-                (isFieldValidated(fieldName) || fieldValues == null) ? values : fieldValues,
-                fieldName
-              )
-            );
+            l.retainAll(getDynamicNumbers(source, fieldName));
           }
         }
       }
-    }
-
-    if (bNoDynamicFound) {
+      if (l == null) {
+        l = new ArrayList();
+      }
+    } else {
+      l = new ArrayList(1);
       l.add(new Integer(-1));
     }
 
+    List result = new ArrayList(l.size());
+    int capacity = mapping.getCapacity();
+
     for (Iterator i = l.iterator(); i.hasNext();) {
-      int j = ((Integer) i.next()).intValue();
-      Map map = new HashMap();
-      for (Iterator k = mapping.entrySet().iterator(); k.hasNext();) {
-        Map.Entry me = (Map.Entry) k.next();
-        String fieldName = (String) me.getValue();
-        Field field = (Field) fields.get(fieldName);
-        if (field.isDynamic()) {
-          if (isFieldValidated(fieldName + j) || fieldValues == null) {
-            map.put(me.getKey(), values.get(fieldName + j));
-          } else {
-            map.put(me.getKey(), fieldValues.get(fieldName + j));
-          }
+      Integer number = (Integer) i.next();
+      int j = number.intValue();
+      Map map = new HashMap(capacity);
+      for (int n = 0; n < mapping.size(); n++) {
+        String fieldName = mapping.getField(n).isDynamic() ? mapping.getFieldName(n) + j : mapping.getFieldName(n);
+        if (isFieldValidated(fieldName) || fieldValues == null) {
+          map.put(mapping.getKey(n), values.get(fieldName));
         } else {
-          if (isFieldValidated(fieldName) || fieldValues == null) {
-            map.put(me.getKey(), values.get(fieldName));
-          } else {
-            map.put(me.getKey(), fieldValues.get(fieldName));
-          }
+          map.put(mapping.getKey(n), fieldValues.get(fieldName));
         }
       }
-      result.add(new Pair(new Integer(j), map));
+      result.add(new Pair(number, map));
     }
 
     return result;
@@ -6,10 +6,13 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import pl.aislib.fm.forms.Field;
 import pl.aislib.fm.forms.IEntity;
 import pl.aislib.fm.forms.Rule;
+import pl.aislib.fm.forms.RuleInvocation;
 import pl.aislib.fm.messages.IMessageConverter;
 import pl.aislib.util.Pair;
 
@@ -43,6 +46,16 @@ public class Form extends FieldContainer {
    */
   protected Map validatedRules;
 
+  /**
+   * True if independent rules of the form may be evaluated in parallel.
+   */
+  protected boolean parallelRules = false;
+
+  /**
+   * Scheduler evaluating rules in parallel, <code>null</code> for sequential evaluation.
+   */
+  RuleScheduler ruleScheduler;
+
 
   // Constructors
 
@@ -56,6 +69,25 @@ public class Form extends FieldContainer {
     rules = new LinkedHashMap();
   }
 
+  /**
+   * Creates an instance sharing definition of the prototype form.
+   *
+   * @param prototype form read from configuration.
+   */
+  private Form(Form prototype) {
+    super(prototype.name);
+
+    messages = prototype.messages;
+    messageGroups = prototype.messageGroups;
+    fields = prototype.fields;
+    rules = prototype.rules;
+    log = prototype.log;
+    bTreatEmptyAsNull = prototype.bTreatEmptyAsNull;
+    parallelRules = prototype.parallelRules;
+    ruleScheduler = prototype.ruleScheduler;
+    plan = prototype.getPlan();
+  }
+
 
   // Public methods
 
@@ -64,6 +96,56 @@ public class Form extends FieldContainer {
    */
   public void addRule(Rule rule) {
     rules.put(rule.getName(), rule);
+    plan = null;
+  }
+
+  /**
+   * Compiles the definition of the form into an immutable validation plan.
+   *
+   * Called once the form has been read from configuration, the plan is then shared
+   * by all instances returned by {@link #newInstance(Map, Map, String)}.
+   * Adding fields or rules afterwards discards the plan, it is rebuilt on next validation.
+   *
+   * @since AISLIB 0.6
+   */
+  public void compile() {
+    plan = createPlan();
+  }
+
+  /**
+   * Creates an instance of the form used for validation of a single request.
+   *
+   * The instance shares fields, rules and validation plan with this form,
+   * only state of the validation belongs to the instance.
+   *
+   * @param messages map of messages.
+   * @param messageGroups map of message groups.
+   * @param lang language of the form.
+   * @return new instance of the form.
+   * @since AISLIB 0.6
+   */
+  public Form newInstance(Map messages, Map messageGroups, String lang) {
+    Form form = new Form(this);
+    form.messages = messages;
+    form.messageGroups = messageGroups;
+    form.lang = lang;
+    return form;
+  }
+
+  /**
+   * @param parallelRules true if independent rules may be evaluated in parallel.
+   * @since AISLIB 0.6
+   */
+  public void setParallelRules(boolean parallelRules) {
+    this.parallelRules = parallelRules;
+  }
+
+  /**
+   * @return true if independent rules may be evaluated in parallel.
+   * @since AISLIB 0.6
+   */
+  public boolean isParallelRules() {
+    return parallelRules;
   }
 
 
@@ -88,16 +170,7 @@ public class Form extends FieldContainer {
    * @see java.lang.Object#clone()
    */
   protected Object clone() throws CloneNotSupportedException {
-    Form form = new Form(name);
-
-    form.messages = messages;
-    form.messageGroups = messageGroups;
-    form.fields = fields;
-    form.rules = rules;
-    form.log = log;
-    form.bTreatEmptyAsNull = bTreatEmptyAsNull;
-
-    return form;
+    return new Form(this);
   }
 
   /**
@@ -123,37 +196,13 @@ public class Form extends FieldContainer {
    * @return true if rule has been successfully validated.
    */
   protected boolean validateRule(Rule rule, Map fieldValues, Map values) {
-    String ruleName = rule.getName();
     boolean result = true;
 
     List l = orderFieldValues(values, rule.getMapping(), fieldValues);
     for (Iterator i = l.iterator(); i.hasNext();) {
-      try {
-        Pair pair = (Pair) i.next();
-        int j = ((Integer) pair.getFirst()).intValue();
-        ruleName = rule.getName() + (rule.isDynamic() ? "" + j : "");
-        Map map = (Map) pair.getSecond();
-
-        stamp("Validating rule " + rule.getName() + " ...");
-
-        boolean ruleValidated = rule.doValidate(this, fieldValues, map, j);
-
-        validatedRules.put(ruleName, new Boolean(ruleValidated));
-
-        if (!ruleValidated) {
-          if (rule.areAllFieldsValidated()) {
-            messagesMap.put(ruleName, new Integer(rule.getMsgCode()));
-            orderedMessagesMap.put(ruleName, new Integer(rule.getMsgCode()));
-            stamp("Rule '" + ruleName + "' has not been successfully validated.");
-          }
-        }
-
-        result &= ruleValidated;
-      } catch (Exception e) {
-        messagesMap.put(ruleName, new Integer(rule.getMsgCode()));
-        orderedMessagesMap.put(ruleName, new Integer(rule.getMsgCode()));
-        validatedRules.put(ruleName, Boolean.FALSE);
-        stamp("Rule '" + ruleName + "' has not been successfully validated. Exception thrown: " + e.getMessage());
+      RuleOutcome outcome = evaluateRule(rule, (Pair) i.next(), fieldValues);
+      result &= applyRuleOutcome(rule, outcome);
+      if (outcome.error != null) {
         return false;
       }
     }
@@ -162,15 +211,23 @@ public class Form extends FieldContainer {
   }
 
   /**
+   * Validates rules sequentially or, if the form has a rule scheduler and more
+   * than one independent rule, in parallel.
+   *
    * @param fieldValues map of string field values.
    * @return true if all rules have been successfully validated.
    */
   protected boolean validateRules(Map fieldValues) {
+    ValidationPlan validationPlan = getPlan();
+    if (parallelRules && ruleScheduler != null && validationPlan.getIndependentRuleCount() > 1) {
+      return validateRulesInParallel(validationPlan, fieldValues);
+    }
+
     boolean result = true;
 
-    for (Iterator i = rules.entrySet().iterator(); i.hasNext();) {
-      Rule rule = (Rule) ((Map.Entry) i.next()).getValue();
-      result &= validateRule(rule, fieldValues, values);
+    Rule[] planRules = validationPlan.getRules();
+    for (int i = 0; i < planRules.length; i++) {
+      result &= validateRule(planRules[i], fieldValues, values);
     }
 
     return result;
@@ -243,6 +300,8 @@ public class Form extends FieldContainer {
       Field field = getField((String) i.next());
       field.addType(Field.FT_CONDITIONAL);
     }
+
+    plan = null;
   }
 
   /**
@@ -284,27 +343,7 @@ public class Form extends FieldContainer {
    * @see pl.aislib.fm.FieldContainer#getErrorCodes()
    */
   public Iterator getErrorCodes() {
-    List list = new ArrayList();
-
-    for (Iterator i = orderedMessagesMap.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      Integer msgCode = (Integer) me.getValue();
-      if (!list.contains(msgCode)) {
-        if (messages.containsKey(msgCode)) {
-          list.add(msgCode);
-        } else if (messageGroups.containsKey(msgCode)) {
-          List messageGroup = (List) messageGroups.get(msgCode);
-          for (Iterator j = messageGroup.iterator(); j.hasNext();) {
-            Integer refMsgCode = (Integer) j.next();
-            if (!list.contains(refMsgCode)) {
-              list.add(refMsgCode);
-            }
-          }
-        }
-      }
-    }
-
-    return list.iterator();
+    return createErrorCodeSet().toList().iterator();
   }
 
   /**
@@ -347,7 +386,11 @@ public class Form extends FieldContainer {
   protected boolean preValidate(Map fieldValues, Object data) {
     super.preValidate(fieldValues, data);
 
-    validatedRules = new LinkedHashMap();
+    if (reuseState && validatedRules != null) {
+      validatedRules.clear();
+    } else {
+      validatedRules = new LinkedHashMap(getPlan().getInitialCapacity());
+    }
 
     return true;
   }
@@ -370,6 +413,10 @@ public class Form extends FieldContainer {
       return result;
     }
 
+    if (DynamicFieldIndex.isIndexable(entityName)) {
+      return getIndexedNames(validatedRules, entityName);
+    }
+
     for (Iterator i = validatedRules.keySet().iterator(); i.hasNext();) {
       String ruleName = (String) i.next();
       if (ruleName.startsWith(entityName)) {
@@ -386,7 +433,7 @@ public class Form extends FieldContainer {
   public Map getErrorMessages(IMessageConverter messageConverter) {
     Map formEntityProperties = getEntitiesProperties();
 
-    Map result = super.getErrorMessages(messageConverter);
+    Map result = super.getErrorMessages(messageConverter, formEntityProperties);
 
     for (Iterator i = rules.keySet().iterator(); i.hasNext();) {
       String ruleName = (String) i.next();
@@ -451,4 +498,198 @@ public class Form extends FieldContainer {
     entityProperties.put(MC_ENTITY_RULE, ruleFieldProperties);
   }
 
+
+  // Package methods
+
+  /**
+   * @see pl.aislib.fm.FieldContainer#createPlan()
+   */
+  ValidationPlan createPlan() {
+    return new ValidationPlan(this, rules);
+  }
+
+
+  // Private methods
+
+  /**
+   * Evaluates independent rules by rule scheduler, then evaluates remaining rules
+   * and applies all results in order of definition of rules.
+   *
+   * @param validationPlan validation plan of the form.
+   * @param fieldValues map of string field values.
+   * @return true if all rules have been successfully validated.
+   */
+  private boolean validateRulesInParallel(ValidationPlan validationPlan, Map fieldValues) {
+    Rule[] planRules = validationPlan.getRules();
+    Object[] outcomes = new Object[planRules.length];
+
+    // Independent rules do not change state of the form, so they can be evaluated concurrently
+    Future[] futures = new Future[planRules.length];
+    for (int i = 0; i < planRules.length; i++) {
+      if (validationPlan.isIndependentRule(i)) {
+        List instances = orderFieldValues(values, planRules[i].getMapping(), fieldValues);
+        RuleTask task = new RuleTask(planRules[i], instances, fieldValues);
+        futures[i] = ruleScheduler.submit(task);
+        if (futures[i] == null) {
+          outcomes[i] = task.call();
+        }
+      }
+    }
+    for (int i = 0; i < planRules.length; i++) {
+      if (futures[i] != null) {
+        outcomes[i] = ruleScheduler.await(futures[i]);
+      }
+    }
+
+    boolean result = true;
+    for (int i = 0; i < planRules.length; i++) {
+      if (outcomes[i] == null) {
+        result &= validateRule(planRules[i], fieldValues, values);
+        continue;
+      }
+      for (Iterator j = ((List) outcomes[i]).iterator(); j.hasNext();) {
+        result &= applyRuleOutcome(planRules[i], (RuleOutcome) j.next());
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Evaluates single instance of a rule.
+   * State of the form is changed only by rules validating conditional fields.
+   *
+   * @param rule a rule.
+   * @param instance pair of number of the instance and map of values of rule's fields.
+   * @param fieldValues map of string field values.
+   * @return outcome of the evaluation.
+   */
+  private RuleOutcome evaluateRule(Rule rule, Pair instance, Map fieldValues) {
+    RuleOutcome outcome = new RuleOutcome();
+    outcome.ruleName = rule.getName();
+    try {
+      int j = ((Integer) instance.getFirst()).intValue();
+      outcome.ruleName = rule.getName() + (rule.isDynamic() ? "" + j : "");
+
+      stamp("Validating rule " + rule.getName() + " ...");
+
+      RuleInvocation invocation = new RuleInvocation(this, fieldValues, (Map) instance.getSecond(), j);
+      outcome.validated = rule.doValidate(invocation);
+      outcome.allFieldsValidated = invocation.areAllFieldsValidated();
+    } catch (Exception e) {
+      outcome.error = e;
+    }
+    return outcome;
+  }
+
+  /**
+   * Stores outcome of evaluation of a rule in state of the form.
+   *
+   * @param rule a rule.
+   * @param outcome outcome of evaluation of an instance of the rule.
+   * @return true if the instance of the rule has been successfully validated.
+   */
+  private boolean applyRuleOutcome(Rule rule, RuleOutcome outcome) {
+    String ruleName = outcome.ruleName;
+
+    if (outcome.error != null) {
+      messagesMap.put(ruleName, new Integer(rule.getMsgCode()));
+      orderedMessagesMap.put(ruleName, new Integer(rule.getMsgCode()));
+      validatedRules.put(ruleName, Boolean.FALSE);
+      stamp("Rule '" + ruleName + "' has not been successfully validated. Exception thrown: " + outcome.error.getMessage());
+      return false;
+    }
+
+    validatedRules.put(ruleName, new Boolean(outcome.validated));
+
+    if (!outcome.validated) {
+      if (outcome.allFieldsValidated) {
+        messagesMap.put(ruleName, new Integer(rule.getMsgCode()));
+        orderedMessagesMap.put(ruleName, new Integer(rule.getMsgCode()));
+        stamp("Rule '" + ruleName + "' has not been successfully validated.");
+      }
+    }
+
+    return outcome.validated;
+  }
+
+
+  // Private classes
+
+  /**
+   * Outcome of evaluation of single instance of a rule.
+   */
+  private static class RuleOutcome {
+
+    /**
+     * Name of the instance of the rule.
+     */
+    String ruleName;
+
+    /**
+     * True if the rule has been successfully validated.
+     */
+    boolean validated;
+
+    /**
+     * True if all fields of the rule have been validated.
+     */
+    boolean allFieldsValidated;
+
+    /**
+     * Exception thrown by the rule.
+     */
+    Exception error;
+
+  } // RuleOutcome class
+
+  /**
+   * Evaluates all instances of an independent rule.
+   */
+  private class RuleTask implements Callable {
+
+    /**
+     * Evaluated rule.
+     */
+    private final Rule rule;
+
+    /**
+     * Instances of the rule, pairs of numbers and maps of values.
+     */
+    private final List instances;
+
+    /**
+     * Map of string field values.
+     */
+    private final Map fieldValues;
+
+    /**
+     * @param rule evaluated rule.
+     * @param instances instances of the rule.
+     * @param fieldValues map of string field values.
+     */
+    RuleTask(Rule rule, List instances, Map fieldValues) {
+      this.rule = rule;
+      this.instances = instances;
+      this.fieldValues = fieldValues;
+    }
+
+    /**
+     * @return list of outcomes, ending with the first instance which threw an exception.
+     * @see java.util.concurrent.Callable#call()
+     */
+    public Object call() {
+      List result = new ArrayList(instances.size());
+      for (Iterator i = instances.iterator(); i.hasNext();) {
+        RuleOutcome outcome = evaluateRule(rule, (Pair) i.next(), fieldValues);
+        result.add(outcome);
+        if (outcome.error != null) {
+          break;
+        }
+      }
+      return result;
+    }
+
+  } // RuleTask class
+
 } // pl.aislib.fm.Form class
@@ -28,6 +28,11 @@ public class FormsHandler extends Handler {
    */
   protected Form currentForm;
 
+  /**
+   * Scheduler evaluating rules of forms in parallel.
+   */
+  protected RuleScheduler ruleScheduler;
+
 
   // Constructors
 
@@ -50,23 +55,50 @@ public class FormsHandler extends Handler {
    */
   public Form getForm(String formName, Map messages, Map messageGroups, String lang) {
     Form form = (Form) forms.get(formName);
-    try {
-      Form result = (Form) form.clone();
-      result.messages = messages;
-      result.messageGroups = messageGroups;
-      result.lang = lang;
-      return result;
-    } catch (CloneNotSupportedException cnse) {
-      return null;
+    return form != null ? form.newInstance(messages, messageGroups, lang) : null;
+  }
+
+  /**
+   * @param formName name of a form.
+   * @param messages map of messages.
+   * @param messageGroups map of message groups.
+   * @param lang language of the form.
+   * @return validator of records with the form, <code>null</code> if there is no such form.
+   * @since AISLIB 0.6
+   */
+  public BatchValidator getBatchValidator(String formName, Map messages, Map messageGroups, String lang) {
+    Form form = (Form) forms.get(formName);
+    return form != null ? new BatchValidator(form, messages, messageGroups, lang) : null;
+  }
+
+  /**
+   * Sets scheduler used by forms with <code>parallel-rules</code> attribute set to <code>true</code>.
+   *
+   * @param ruleScheduler scheduler of rules, <code>null</code> for sequential evaluation.
+   * @since AISLIB 0.6
+   */
+  public void setRuleScheduler(RuleScheduler ruleScheduler) {
+    this.ruleScheduler = ruleScheduler;
+    for (Iterator i = forms.values().iterator(); i.hasNext();) {
+      ((Form) i.next()).ruleScheduler = ruleScheduler;
     }
   }
 
+  /**
+   * @return scheduler of rules.
+   * @since AISLIB 0.6
+   */
+  public RuleScheduler getRuleScheduler() {
+    return ruleScheduler;
+  }
+
   /**
    * @see pl.aislib.fm.forms.config.IXMLHandler#processEndElement(String, String, String)
    */
   public void processEndElement(String namespaceURI, String localName, String qName) throws SAXException {
     if ("form".equals(localName)) {
       currentForm.setConditionalFields();
+      currentForm.compile();
     }
   }
 
@@ -79,6 +111,8 @@ public class FormsHandler extends Handler {
       String formName = atts.getValue("name");
       forms.put(formName, currentForm = new Form(formName));
       currentForm.setLog(log);
+      currentForm.setParallelRules("true".equals(atts.getValue("parallel-rules")));
+      currentForm.ruleScheduler = ruleScheduler;
       return currentForm;
     }
     return localName;
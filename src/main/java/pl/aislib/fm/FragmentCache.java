@@ -0,0 +1,270 @@
+package pl.aislib.fm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of rendered template includes.
+ *
+ * Used by {@link Application} for includes with {@link FragmentPolicy} declared in workflow description.
+ * Cached output is dropped when its time to live passes or when the included template changes,
+ * as reported by {@link TemplateEngine#getLastModified(Object)}. Size of the cache is bounded by
+ * estimated memory of keys and output; least recently used fragments are evicted first.
+ * <p>
+ * Fragments are kept as <code>String</code>s, the form in which includes are passed to templates,
+ * so served fragments are neither copied nor decoded.
+ * </p>
+ *
+ * @since AISLIB 0.6
+ */
+public class FragmentCache {
+
+  /**
+   * Default maximal size of the cache, in bytes.
+   */
+  public static final long DEFAULT_MAX_SIZE = 4 * 1024 * 1024;
+
+  /**
+   * Estimated memory used by a fragment besides its key and content, in bytes.
+   */
+  private static final int ENTRY_OVERHEAD = 96;
+
+  /**
+   * Maximal size of the cache, in bytes.
+   */
+  private final long maxSize;
+
+  /**
+   * Cached fragments, in access order.
+   */
+  private final LinkedHashMap fragments = new LinkedHashMap(64, 0.75f, true);
+
+  /**
+   * Estimated size of cached fragments, in bytes.
+   */
+  private long size;
+
+  /**
+   * Number of requests served from the cache.
+   */
+  private long hits;
+
+  /**
+   * Number of requests not served from the cache.
+   */
+  private long misses;
+
+  /**
+   * Number of fragments dropped because of changed templates.
+   */
+  private long invalidations;
+
+  /**
+   * Number of fragments evicted to keep size of the cache.
+   */
+  private long evictions;
+
+
+  // Constructors
+
+  /**
+   * @param maxSize maximal size of the cache in bytes.
+   * @throws IllegalArgumentException if <code>maxSize</code> is negative.
+   */
+  public FragmentCache(long maxSize) {
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("maximal size cannot be negative: " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Creates cache of {@link #DEFAULT_MAX_SIZE} bytes.
+   */
+  public FragmentCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+
+  // Public methods
+
+  /**
+   * Returns cached output.
+   *
+   * @param key key created by {@link FragmentPolicy#createKey(String, String, Map)}.
+   * @param lastModified current modification time of the template, <code>0</code> if unknown.
+   * @return cached output or <code>null</code> if it is not cached, expired or the template has changed.
+   */
+  public synchronized String get(String key, long lastModified) {
+    Fragment fragment = (Fragment) fragments.get(key);
+    if (fragment == null) {
+      misses++;
+      return null;
+    }
+    if (fragment.lastModified != lastModified) {
+      invalidations++;
+      remove(key, fragment);
+      misses++;
+      return null;
+    }
+    if (fragment.expires <= System.currentTimeMillis()) {
+      remove(key, fragment);
+      misses++;
+      return null;
+    }
+    hits++;
+    return fragment.content;
+  }
+
+  /**
+   * Caches output of a template.
+   *
+   * Output larger than the cache is not cached.
+   *
+   * @param key key created by {@link FragmentPolicy#createKey(String, String, Map)}.
+   * @param content output of the template.
+   * @param lastModified modification time of the rendered template, <code>0</code> if unknown.
+   * @param policy caching policy of the include.
+   */
+  public synchronized void put(String key, String content, long lastModified, FragmentPolicy policy) {
+    Fragment fragment = new Fragment(content, lastModified, System.currentTimeMillis() + policy.getTtl(),
+      ENTRY_OVERHEAD + 2L * (key.length() + content.length()));
+    Fragment previous = (Fragment) fragments.remove(key);
+    if (previous != null) {
+      size -= previous.size;
+    }
+    if (fragment.size > maxSize) {
+      return;
+    }
+
+    fragments.put(key, fragment);
+    size += fragment.size;
+    for (Iterator it = fragments.values().iterator(); size > maxSize && it.hasNext();) {
+      Fragment eldest = (Fragment) it.next();
+      it.remove();
+      size -= eldest.size;
+      evictions++;
+    }
+  }
+
+  /**
+   * Drops all cached fragments.
+   */
+  public synchronized void clear() {
+    fragments.clear();
+    size = 0;
+  }
+
+  /**
+   * @return number of cached fragments.
+   */
+  public synchronized int getCount() {
+    return fragments.size();
+  }
+
+  /**
+   * @return estimated size of cached fragments, in bytes.
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  /**
+   * @return maximal size of the cache, in bytes.
+   */
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return number of requests served from the cache.
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return number of requests not served from the cache.
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return number of fragments dropped because of changed templates.
+   */
+  public synchronized long getInvalidations() {
+    return invalidations;
+  }
+
+  /**
+   * @return number of fragments evicted to keep size of the cache.
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  public synchronized String toString() {
+    return "FragmentCache[count=" + fragments.size() + ", size=" + size + "/" + maxSize + ", hits=" + hits
+      + ", misses=" + misses + ", invalidations=" + invalidations + ", evictions=" + evictions + "]";
+  }
+
+
+  // Private methods
+
+  /**
+   * @param key key of a fragment.
+   * @param fragment cached fragment.
+   */
+  private void remove(String key, Fragment fragment) {
+    fragments.remove(key);
+    size -= fragment.size;
+  }
+
+
+  // Private classes
+
+  /**
+   * Cached output of a template.
+   */
+  private static class Fragment {
+
+    /**
+     * Output of the template.
+     */
+    private final String content;
+
+    /**
+     * Modification time of the rendered template.
+     */
+    private final long lastModified;
+
+    /**
+     * Expiration time.
+     */
+    private final long expires;
+
+    /**
+     * Estimated size, in bytes.
+     */
+    private final long size;
+
+    /**
+     * @param content output of the template.
+     * @param lastModified modification time of the rendered template.
+     * @param expires expiration time.
+     * @param size estimated size in bytes.
+     */
+    Fragment(String content, long lastModified, long expires, long size) {
+      this.content      = content;
+      this.lastModified = lastModified;
+      this.expires      = expires;
+      this.size         = size;
+    }
+  } // Fragment class
+
+} // FragmentCache class
@@ -0,0 +1,141 @@
+package pl.aislib.fm;
+
+import java.util.Map;
+
+/**
+ * Caching policy of a template include, declared in workflow description.
+ *
+ * Output of an include is cached for given time, separately for every language
+ * and every combination of values of declared evaluation parameters, e.g.
+ * <pre>
+ *   &lt;include name="menu" template="menu.vm" cache-ttl="300" cache-vary="user section"/&gt;
+ * </pre>
+ * Includes depending on other evaluation parameters should not be cached.
+ * Values of declared parameters must be strings, characters, booleans or numbers
+ * of <code>java.lang</code> and <code>java.math</code> packages, or <code>null</code>;
+ * if any of them is of another type, e.g. a user object whose <code>toString</code>
+ * does not identify it, output of the include is neither taken from the cache nor stored.
+ *
+ * @see FragmentCache
+ * @since AISLIB 0.6
+ */
+public final class FragmentPolicy {
+
+  /**
+   * Time to live of cached output, in milliseconds.
+   */
+  private final long ttl;
+
+  /**
+   * Names of evaluation parameters the output depends on.
+   */
+  private final String[] varyingParameters;
+
+
+  // Constructors
+
+  /**
+   * @param ttl time to live of cached output in seconds, positive.
+   * @param varyingParameters names of evaluation parameters the output depends on, may be <code>null</code>.
+   * @throws IllegalArgumentException if <code>ttl</code> is not positive.
+   */
+  public FragmentPolicy(long ttl, String[] varyingParameters) {
+    if (ttl <= 0) {
+      throw new IllegalArgumentException("time to live must be positive: " + ttl);
+    }
+    this.ttl = ttl * 1000L;
+    this.varyingParameters = (varyingParameters != null) ? (String[]) varyingParameters.clone() : new String[0];
+  }
+
+
+  // Public methods
+
+  /**
+   * Creates policy from attributes of <code>include</code> element.
+   *
+   * @param ttl value of <code>cache-ttl</code> attribute, seconds.
+   * @param vary value of <code>cache-vary</code> attribute, names separated by whitespace or commas; may be <code>null</code>.
+   * @return parsed policy.
+   * @throws NumberFormatException if <code>ttl</code> is not a number.
+   */
+  public static FragmentPolicy parse(String ttl, String vary) {
+    String[] names = null;
+    if ((vary != null) && (vary.trim().length() > 0)) {
+      names = vary.trim().split("[\\s,]+");
+    }
+    return new FragmentPolicy(Long.parseLong(ttl.trim()), names);
+  }
+
+  /**
+   * @return time to live of cached output, in milliseconds.
+   */
+  public long getTtl() {
+    return ttl;
+  }
+
+  /**
+   * @return names of evaluation parameters the output depends on.
+   */
+  public String[] getVaryingParameters() {
+    return (String[]) varyingParameters.clone();
+  }
+
+  /**
+   * Creates key of cached output.
+   *
+   * Output of the same template is shared by all includes with the same key, also on different pages.
+   * Every value is written with its type and length, so different values never give the same key.
+   *
+   * @param templateName name of the included template.
+   * @param language language of the request, may be <code>null</code>.
+   * @param parameters evaluation parameters.
+   * @return key of cached output, <code>null</code> if value of a declared parameter
+   *         is of unsupported type and output must not be cached.
+   */
+  public String createKey(String templateName, String language, Map parameters) {
+    StringBuffer result = new StringBuffer(templateName);
+    appendValue(result, language);
+    for (int i = 0; i < varyingParameters.length; i++) {
+      Object value = (parameters != null) ? parameters.get(varyingParameters[i]) : null;
+      if (!isKeyValue(value)) {
+        return null;
+      }
+      appendValue(result, value);
+    }
+    return result.toString();
+  }
+
+
+  // Private methods
+
+  /**
+   * @param value value of a declared parameter.
+   * @return true if string value identifies the value.
+   */
+  private static boolean isKeyValue(Object value) {
+    if ((value == null) || (value instanceof String) || (value instanceof Boolean) || (value instanceof Character)) {
+      return true;
+    }
+    if (value instanceof Number) {
+      String className = value.getClass().getName();
+      return className.startsWith("java.lang.") || className.startsWith("java.math.");
+    }
+    return false;
+  }
+
+  /**
+   * Appends value to a key as class name, length of string value and string value.
+   *
+   * @param key key being created.
+   * @param value appended value, may be <code>null</code>.
+   */
+  private static void appendValue(StringBuffer key, Object value) {
+    key.append('\u0000');
+    if (value == null) {
+      return;
+    }
+    String string = value.toString();
+    key.append(value.getClass().getName()).append(':').append(string.length()).append(':').append(string);
+  }
+
+} // FragmentPolicy class
@@ -0,0 +1,197 @@
+package pl.aislib.fm;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Evaluates template includes of a page concurrently.
+ *
+ * Used by {@link Application} when set through {@link Application#setIncludeExecutor(IncludeExecutor)}.
+ * Templates are loaded in request thread, only their evaluation is delegated to executor;
+ * {@link TemplateEngine} used by application must allow concurrent evaluation of different templates.
+ * <p>
+ * Includes are evaluated sequentially, in request thread, if:
+ * <ul>
+ *   <li>page has less than two template includes,</li>
+ *   <li>parallel evaluation is switched off by {@link #setParallel(boolean)},</li>
+ *   <li>executor has been shut down or refuses to accept evaluation task.</li>
+ * </ul>
+ * Timeout bounds the time of evaluating each include of a page, from the moment its evaluation
+ * starts. An include which waits for a thread of executor longer than timeout is evaluated
+ * in request thread. Evaluations not finished within timeout are cancelled, but template engines
+ * usually ignore interruption, so they may still be running, reading evaluation parameters
+ * of the request, after the request is finished.
+ * Executor must not discard tasks silently: without timeout, request thread would wait
+ * for them forever.
+ * </p>
+ * <p>
+ * For every page action key executor counts requests evaluated in parallel and wall-clock
+ * time saved by parallel evaluation (sum of evaluation times of includes minus real time
+ * of evaluating all of them).
+ * </p>
+ *
+ * @since AISLIB 0.6
+ */
+public class IncludeExecutor {
+
+  /**
+   * Executor evaluating includes.
+   */
+  private ExecutorService executor;
+
+  /**
+   * Maximum time of evaluation of single include, in milliseconds.
+   */
+  private long timeout;
+
+  /**
+   * Parallel evaluation switch.
+   */
+  private volatile boolean parallel = true;
+
+  /**
+   * Statistics for page action keys, values are <code>long[] { requests, savedNanos }</code>.
+   */
+  private Map statistics = new HashMap();
+
+
+  // Constructors
+
+  /**
+   * @param executor executor evaluating includes, should be bounded and reject tasks it cannot accept.
+   * @param timeout maximum time of evaluation of single include in milliseconds, <code>0</code> means no limit.
+   */
+  public IncludeExecutor(ExecutorService executor, long timeout) {
+    if (executor == null) {
+      throw new NullPointerException("executor cannot be null");
+    }
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout cannot be negative: " + timeout);
+    }
+    this.executor = executor;
+    this.timeout  = timeout;
+  }
+
+  /**
+   * Creates executor using bounded pool of daemon threads.
+   *
+   * When all threads are busy and queue is full, or executor has been shut down,
+   * include is evaluated in request thread.
+   *
+   * @param threads number of threads.
+   * @param queueSize maximum number of includes waiting for evaluation.
+   * @param timeout maximum time of evaluation of single include in milliseconds, <code>0</code> means no limit.
+   */
+  public IncludeExecutor(int threads, int queueSize, long timeout) {
+    this(DaemonThreadFactory.newBoundedPool("aislib-include-", threads, queueSize), timeout);
+  }
+
+
+  // Public methods
+
+  /**
+   * @return executor evaluating includes.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * @return maximum time of evaluation of single include in milliseconds, <code>0</code> means no limit.
+   */
+  public long getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Switches parallel evaluation on or off, without stopping executor.
+   *
+   * @param parallel <code>false</code> if includes should be evaluated sequentially.
+   */
+  public void setParallel(boolean parallel) {
+    this.parallel = parallel;
+  }
+
+  /**
+   * @return <code>true</code> if includes are evaluated in parallel.
+   */
+  public boolean isParallel() {
+    return parallel;
+  }
+
+  /**
+   * Returns number of requests for given page, whose includes were evaluated in parallel.
+   *
+   * @param actionKey action key of the page.
+   * @return number of requests.
+   */
+  public long getParallelRequests(String actionKey) {
+    synchronized (statistics) {
+      long[] stats = (long[]) statistics.get(actionKey);
+      return (stats != null) ? stats[0] : 0;
+    }
+  }
+
+  /**
+   * Returns total wall-clock time saved by parallel evaluation of includes of given page.
+   *
+   * @param actionKey action key of the page.
+   * @return saved time in milliseconds, negative if parallel evaluation was slower.
+   */
+  public long getSavedTime(String actionKey) {
+    synchronized (statistics) {
+      long[] stats = (long[]) statistics.get(actionKey);
+      return (stats != null) ? stats[1] / 1000000L : 0;
+    }
+  }
+
+  /**
+   * Returns action keys of pages whose includes were evaluated in parallel mapped to saved time.
+   *
+   * @return map of action keys into saved time in milliseconds (<code>Long</code>).
+   */
+  public Map getSavedTimes() {
+    Map result = new HashMap();
+    synchronized (statistics) {
+      for (Iterator it = statistics.entrySet().iterator(); it.hasNext();) {
+        Map.Entry entry = (Map.Entry) it.next();
+        result.put(entry.getKey(), new Long(((long[]) entry.getValue())[1] / 1000000L));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stops executor, includes are evaluated sequentially afterwards.
+   */
+  public void shutdown() {
+    parallel = false;
+    executor.shutdown();
+  }
+
+
+  // Package methods
+
+  /**
+   * Records parallel evaluation of includes of a page.
+   *
+   * @param actionKey action key of the page.
+   * @param evaluationNanos sum of evaluation times of all includes.
+   * @param wallNanos real time of evaluation.
+   */
+  void record(String actionKey, long evaluationNanos, long wallNanos) {
+    synchronized (statistics) {
+      long[] stats = (long[]) statistics.get(actionKey);
+      if (stats == null) {
+        stats = new long[2];
+        statistics.put(actionKey, stats);
+      }
+      stats[0]++;
+      stats[1] += evaluationNanos - wallNanos;
+    }
+  }
+
+} // IncludeExecutor class
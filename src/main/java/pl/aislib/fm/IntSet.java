@@ -0,0 +1,137 @@
+package pl.aislib.fm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Set of primitive integers keeping order of addition.
+ *
+ * Used for message codes, so that checking whether a code has already been
+ * collected does not need boxing nor scanning of a list.
+ *
+ * @since AISLIB 0.6
+ */
+final class IntSet {
+
+  /**
+   * Elements in order of addition.
+   */
+  private int[] elements;
+
+  /**
+   * Number of elements.
+   */
+  private int size;
+
+  /**
+   * Open addressing table of indexes of elements, increased by one; zero marks an empty slot.
+   */
+  private int[] table;
+
+
+  // Constructors
+
+  /**
+   * @param expectedSize expected number of elements.
+   */
+  IntSet(int expectedSize) {
+    int capacity = 8;
+    while (capacity < expectedSize * 2) {
+      capacity <<= 1;
+    }
+    elements = new int[Math.max(expectedSize, 4)];
+    table = new int[capacity];
+  }
+
+
+  // Package methods
+
+  /**
+   * @param value an integer.
+   * @return true if the value has been added, false if the set already contains it.
+   */
+  boolean add(int value) {
+    int slot = find(value);
+    if (table[slot] != 0) {
+      return false;
+    }
+
+    if (size == elements.length) {
+      int[] newElements = new int[size * 2];
+      System.arraycopy(elements, 0, newElements, 0, size);
+      elements = newElements;
+    }
+    elements[size++] = value;
+    table[slot] = size;
+
+    if (size * 2 > table.length) {
+      rehash();
+    }
+    return true;
+  }
+
+  /**
+   * @param value an integer.
+   * @return true if the set contains the value.
+   */
+  boolean contains(int value) {
+    return table[find(value)] != 0;
+  }
+
+  /**
+   * @return number of elements.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * @param index index of an element, in order of addition.
+   * @return the element.
+   */
+  int get(int index) {
+    if (index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+    }
+    return elements[index];
+  }
+
+  /**
+   * @return list of <code>Integer</code> elements in order of addition.
+   */
+  List toList() {
+    List result = new ArrayList(size);
+    for (int i = 0; i < size; i++) {
+      result.add(new Integer(elements[i]));
+    }
+    return result;
+  }
+
+
+  // Private methods
+
+  /**
+   * @param value an integer.
+   * @return slot of the table holding the value, or empty slot where it should be put.
+   */
+  private int find(int value) {
+    int mask = table.length - 1;
+    int hash = value * 0x9E3779B9;
+    int slot = (hash ^ (hash >>> 16)) & mask;
+    while (table[slot] != 0 && elements[table[slot] - 1] != value) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  /**
+   * Doubles the table and puts all elements again.
+   */
+  private void rehash() {
+    table = new int[table.length * 2];
+    for (int i = 0; i < size; i++) {
+      table[find(elements[i])] = i + 1;
+    }
+  }
+
+} // IntSet class
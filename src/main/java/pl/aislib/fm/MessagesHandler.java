@@ -1,6 +1,7 @@
 package pl.aislib.fm;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -14,6 +15,7 @@ import pl.aislib.fm.messages.IMessage;
 import pl.aislib.fm.messages.IMessageContent;
 import pl.aislib.fm.messages.MessageGroupHandler;
 import pl.aislib.fm.messages.MessageHandler;
+import pl.aislib.fm.messages.MessageStore;
 
 /**
  * XML handler for handling framework's messages.
@@ -37,6 +39,12 @@ public class MessagesHandler extends Handler {
    */
   protected String defaultLanguage = "en-us";
 
+  /**
+   * Store of all messages, built at the end of the messages document;
+   * <code>null</code> while messages are being added.
+   */
+  private volatile MessageStore messageStore;
+
 
   // Constructors
 
@@ -57,6 +65,9 @@ public class MessagesHandler extends Handler {
    * @see pl.aislib.fm.forms.config.IXMLHandler#processEndElement(java.lang.String, java.lang.String, java.lang.String)
    */
   public void processEndElement(String namespaceURI, String localName, String qName) throws SAXException {
+    if ("messages".equals(localName)) {
+      buildMessageStore();
+    }
   }
 
   /**
@@ -84,6 +95,7 @@ public class MessagesHandler extends Handler {
     int messageType, int messageCode, String key, IMessageContent content, String defaultLanguage
   ) {
     messages.put(new Integer(messageCode), new Message(messageType, messageCode, key, content, defaultLanguage));
+    messageStore = null;
   }
 
   /**
@@ -120,6 +132,10 @@ public class MessagesHandler extends Handler {
    * @return the message with all of its contents.
    */
   public IMessage getFullMessage(int messageCode) {
+    MessageStore store = messageStore;
+    if (store != null) {
+      return store.getFullMessage(messageCode);
+    }
     Object obj = messages.get(new Integer(messageCode));
     return obj != null ? (IMessage) obj : null;
   }
@@ -138,6 +154,10 @@ public class MessagesHandler extends Handler {
    * @return the message with content in given language.
    */
   public Message getMessage(int messageCode, String language) {
+    MessageStore store = messageStore;
+    if (store != null) {
+      return store.getMessage(messageCode, language);
+    }
     pl.aislib.fm.messages.Message message = (pl.aislib.fm.messages.Message) getFullMessage(messageCode);
     if (message == null) {
       return null;
@@ -155,6 +175,33 @@ public class MessagesHandler extends Handler {
   }
 
 
+  /**
+   * Builds store of all messages added so far.
+   *
+   * Messages in the map of messages are replaced with views of the store, which share its contents.
+   *
+   * @return store of messages.
+   * @since AISLIB 0.6
+   */
+  public MessageStore buildMessageStore() {
+    MessageStore store = new MessageStore(messages);
+    for (Iterator i = messages.entrySet().iterator(); i.hasNext();) {
+      Map.Entry me = (Map.Entry) i.next();
+      me.setValue(store.getFullMessage(((Integer) me.getKey()).intValue()));
+    }
+    messageStore = store;
+    return store;
+  }
+
+  /**
+   * @return store of messages or <code>null</code> if it has not been built since messages have been added.
+   * @since AISLIB 0.6
+   */
+  public MessageStore getMessageStore() {
+    return messageStore;
+  }
+
+
   // Protected methods
 
   /**
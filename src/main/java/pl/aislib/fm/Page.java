@@ -382,4 +382,15 @@ public abstract class Page {
     onLoad();
   }
 
+  /**
+   * Clears references to request related objects, before page instance is reused.
+   *
+   * @see PoolingPageFactory
+   */
+  void recycle() {
+    request     = null;
+    response    = null;
+    session     = null;
+  }
+
 } // Page class
@@ -0,0 +1,82 @@
+package pl.aislib.fm;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+
+/**
+ * Creates {@link Page} instances for single {@link PageInfo}.
+ *
+ * Factory is resolved by {@link Workflow} once, while reading XML configuration,
+ * and may be chosen for page using <code>factory</code> attribute of <code>page</code> element.
+ * Implementations must have public no-argument constructor and must be thread-safe.
+ *
+ * @since AISLIB 0.6
+ * @see DefaultPageFactory
+ * @see PoolingPageFactory
+ */
+public abstract class PageFactory {
+
+  /**
+   * Description of created pages.
+   */
+  protected PageInfo pageInfo;
+
+  /**
+   * Unmodifiable properties shared by all created pages.
+   */
+  protected Map properties;
+
+
+  // Public methods
+
+  /**
+   * Initializes factory for given page description.
+   *
+   * Properties of the page are copied and frozen here, so they must be completely set before.
+   *
+   * @param _pageInfo description of created pages.
+   * @throws ApplicationConfigurationException if pages cannot be created by this factory.
+   */
+  public void init(PageInfo _pageInfo) throws ApplicationConfigurationException {
+    pageInfo   = _pageInfo;
+    properties = Collections.unmodifiableMap(new HashMap(pageInfo.getProperties()));
+  }
+
+  /**
+   * Returns page described by {@link #pageInfo}, ready for initialization.
+   *
+   * @return {@link Page} subclass.
+   * @throws ServletException if an error occurs during page creation.
+   */
+  public abstract Page newPage() throws ServletException;
+
+  /**
+   * Notifies that processing of page returned by {@link #newPage()} is finished.
+   *
+   * Default implementation does nothing.
+   *
+   * @param page which will not be used any more.
+   */
+  public void releasePage(Page page) {
+    ;
+  }
+
+
+  // Protected methods
+
+  /**
+   * Sets {@link #pageInfo} and {@link #properties} on a newly created page.
+   *
+   * @param page newly created page.
+   * @return given <code>page</code>.
+   */
+  protected Page preparePage(Page page) {
+    page.pageInfo   = pageInfo;
+    page.properties = properties;
+    return page;
+  }
+
+} // PageFactory class
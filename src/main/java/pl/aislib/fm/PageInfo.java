@@ -1,8 +1,5 @@
 package pl.aislib.fm;
 
-import java.lang.reflect.Constructor;
-
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -12,9 +9,12 @@ import java.util.Set;
 
 import javax.servlet.ServletException;
 
+import org.apache.commons.logging.Log;
+
 import pl.aislib.fm.shepherds.Pasture;
 import pl.aislib.fm.shepherds.Shepherd;
 import pl.aislib.fm.shepherds.ShepherdsSchool;
+import pl.aislib.fm.shepherds.ShepherdsTable;
 
 /**
  * This class describes servlet page attributes.
@@ -72,6 +72,11 @@ public class PageInfo {
    */
   private Map templateIncludes;
 
+  /**
+   * Map of keys and caching policies of template includes.
+   */
+  private Map fragmentPolicies;
+
   /**
    * Map of message codes and keys.
    */
@@ -87,11 +92,21 @@ public class PageInfo {
    */
   private List shepherds;
 
+  /**
+   * Compiled shepherds for the page.
+   */
+  private ShepherdsTable shepherdsTable;
+
   /**
    * Set of flows for the page.
    */
   private Set flows;
 
+  /**
+   * Factory creating instances of the page.
+   */
+  private PageFactory pageFactory;
+
 
   // Constructors
 
@@ -107,6 +122,7 @@ public class PageInfo {
     properties       = new HashMap();
     shepherds        = new LinkedList();
     templateIncludes = new HashMap();
+    fragmentPolicies = new HashMap();
     flows            = new HashSet();
   }
 
@@ -123,6 +139,32 @@ public class PageInfo {
     templateIncludes.put(name, templateName);
   }
 
+  /**
+   * Adds template to include in output of the page, caching its output.
+   *
+   * @param name key in master template.
+   * @param templateName name of template to include.
+   * @param policy caching policy of the include, <code>null</code> if output should not be cached.
+   * @since AISLIB 0.6
+   */
+  public void addTemplateInclude(String name, String templateName, FragmentPolicy policy) {
+    addTemplateInclude(name, templateName);
+    if (policy != null) {
+      fragmentPolicies.put(name, policy);
+    } else {
+      fragmentPolicies.remove(name);
+    }
+  }
+
+  /**
+   * @param name key of a template include.
+   * @return caching policy of the include or <code>null</code> if its output is not cached.
+   * @since AISLIB 0.6
+   */
+  public FragmentPolicy getFragmentPolicy(String name) {
+    return (FragmentPolicy) fragmentPolicies.get(name);
+  }
+
   /**
    * Adds message to include in output of the page.
    *
@@ -207,6 +249,25 @@ public class PageInfo {
     this.properties = properties;
   }
 
+  /**
+   * Gets properties of the page.
+   *
+   * @return properties of the page.
+   */
+  protected Map getProperties() {
+    return properties;
+  }
+
+  /**
+   * Gets factory creating instances of the page.
+   *
+   * @return factory of the page or <code>null</code> if it was not set yet.
+   * @since AISLIB 0.6
+   */
+  public PageFactory getPageFactory() {
+    return pageFactory;
+  }
+
   /**
    * Gets action key for the page.
    *
@@ -306,27 +367,48 @@ public class PageInfo {
     this.clazz = clazz;
   }
 
+  /**
+   * Sets factory creating instances of the page.
+   *
+   * Method called by Workflow class when reading XML configuration.
+   *
+   * @param _pageFactory initialized factory of the page.
+   */
+  void setPageFactory(PageFactory _pageFactory) {
+    pageFactory = _pageFactory;
+  }
+
   /**
    * Creates {@link Page} object.
    *
+   * If no factory has been set, {@link DefaultPageFactory} is created on first call.
+   *
    * @return {@link Page} subclass.
    * @throws ServletException if an error occurs during page creation.
    */
   Page newPageInstance() throws ServletException {
-    Page page = null;
-    try {
-      Class[] argClasses = new Class[0];
-      Constructor constructor = clazz.getDeclaredConstructor(argClasses);
-      if (constructor != null) {
-        Object[] args = new Object[0];
-        page = (Page) constructor.newInstance(args);
+    PageFactory factory = pageFactory;
+    if (factory == null) {
+      factory = new DefaultPageFactory();
+      try {
+        factory.init(this);
+      } catch (ApplicationConfigurationException ace) {
+        throw new ServletException("Errors during page '" + actionKey + "' creation: ", ace);
       }
-    } catch (Exception ex) {
-      throw new ServletException("Errors during page '" + actionKey + "' creation: ", ex);
+      pageFactory = factory;
+    }
+    return factory.newPage();
+  }
+
+  /**
+   * Returns page created by {@link #newPageInstance()} to its factory.
+   *
+   * @param page which will not be used any more.
+   */
+  void releasePageInstance(Page page) {
+    if (pageFactory != null) {
+      pageFactory.releasePage(page);
     }
-    page.pageInfo = this;
-    page.properties = Collections.unmodifiableMap(properties);
-    return page;
   }
 
   /**
@@ -366,7 +448,21 @@ public class PageInfo {
    *         or this page's action key, if there are no triggers.
    */
    String resolveTriggers(Pasture pasture, Object sheep) {
+     if (shepherdsTable != null) {
+       return shepherdsTable.examine(pasture, sheep, actionKey);
+     }
      return ShepherdsSchool.examine(shepherds, pasture, sheep, actionKey);
    }
 
+  /**
+   * Compiles shepherds of the page into {@link ShepherdsTable}.
+   *
+   * Method called by Workflow class when XML configuration is read.
+   *
+   * @param log workflow log.
+   */
+  void compileTriggers(Log log) {
+    shepherdsTable = ShepherdsTable.compile(shepherds, log);
+  }
+
 } // PageInfo class
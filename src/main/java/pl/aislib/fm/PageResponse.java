@@ -49,6 +49,11 @@ public class PageResponse {
    */
   private Page page;
 
+  /**
+   * Streaming mode of the response, <code>null</code> means default mode of {@link Application}.
+   */
+  private Boolean streaming;
+
 
   // Constructors
 
@@ -142,6 +147,31 @@ public class PageResponse {
     return contentByte;
   }
 
+  /**
+   * Sets streaming mode for this response, overriding default mode of {@link Application}.
+   *
+   * Streamed response is evaluated directly into servlet's <code>Writer</code>,
+   * so headers cannot be changed once first chunk of content has been flushed.
+   *
+   * @param streaming <code>true</code> if response should be streamed,
+   *                  <code>false</code> if it should be evaluated to <code>String</code> first.
+   * @see Application#setStreaming(boolean)
+   * @since AISLIB 0.6
+   */
+  public void setStreaming(boolean streaming) {
+    this.streaming = Boolean.valueOf(streaming);
+  }
+
+  /**
+   * Returns streaming mode for this response.
+   *
+   * @return streaming mode or <code>null</code> if default mode of {@link Application} should be used.
+   * @since AISLIB 0.6
+   */
+  public Boolean getStreaming() {
+    return streaming;
+  }
+
   /**
    * Returns page which creates this response.
    *
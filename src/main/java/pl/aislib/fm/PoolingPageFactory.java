@@ -0,0 +1,101 @@
+package pl.aislib.fm;
+
+import java.util.LinkedList;
+
+import javax.servlet.ServletException;
+
+/**
+ * {@link PageFactory} reusing page instances between requests.
+ *
+ * May be used only for pages which keep no state in their own fields between requests:
+ * fields declared in {@link Page} are reset before the instance is reused, fields
+ * of subclasses are not touched.
+ * <p>
+ * Maximum number of idle instances is {@link #DEFAULT_POOL_SIZE}, it may be changed
+ * for particular page by property named {@link #POOL_SIZE_PROPERTY}.
+ * </p>
+ *
+ * @since AISLIB 0.6
+ */
+public class PoolingPageFactory extends DefaultPageFactory {
+
+  /**
+   * Default maximum number of idle page instances.
+   */
+  public static final int DEFAULT_POOL_SIZE = 16;
+
+  /**
+   * Name of page property defining maximum number of idle page instances.
+   */
+  public static final String POOL_SIZE_PROPERTY = "pl.aislib.fm.page-pool-size";
+
+  /**
+   * Idle page instances.
+   */
+  private LinkedList pool = new LinkedList();
+
+  /**
+   * Maximum number of idle page instances.
+   */
+  private int maxPoolSize = DEFAULT_POOL_SIZE;
+
+
+  // Public methods
+
+  /**
+   * @see PageFactory#init(PageInfo)
+   */
+  public void init(PageInfo _pageInfo) throws ApplicationConfigurationException {
+    super.init(_pageInfo);
+    Object poolSize = properties.get(POOL_SIZE_PROPERTY);
+    if (poolSize != null) {
+      try {
+        maxPoolSize = Integer.parseInt(poolSize.toString());
+      } catch (NumberFormatException nfe) {
+        throw new ApplicationConfigurationException(
+          "Invalid '" + POOL_SIZE_PROPERTY + "' of page '" + pageInfo.getActionKey() + "': " + poolSize);
+      }
+    }
+  }
+
+  /**
+   * Returns idle instance if there is any, new one otherwise.
+   *
+   * @see PageFactory#newPage()
+   */
+  public Page newPage() throws ServletException {
+    synchronized (pool) {
+      if (!pool.isEmpty()) {
+        return (Page) pool.removeFirst();
+      }
+    }
+    return super.newPage();
+  }
+
+  /**
+   * Returns page instance to the pool, unless the pool is full.
+   *
+   * @see PageFactory#releasePage(Page)
+   */
+  public void releasePage(Page page) {
+    if ((page == null) || (page.pageInfo != pageInfo)) {
+      return;
+    }
+    page.recycle();
+    synchronized (pool) {
+      if (pool.size() < maxPoolSize) {
+        pool.addFirst(page);
+      }
+    }
+  }
+
+  /**
+   * @return number of idle page instances.
+   */
+  public int getPoolSize() {
+    synchronized (pool) {
+      return pool.size();
+    }
+  }
+
+} // PoolingPageFactory class
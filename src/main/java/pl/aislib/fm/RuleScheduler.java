@@ -0,0 +1,131 @@
+package pl.aislib.fm;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates rules of forms concurrently.
+ *
+ * Used by forms marked with <code>parallel-rules="true"</code> in forms configuration,
+ * once set through {@link FormsHandler#setRuleScheduler(RuleScheduler)} or
+ * {@link Application#setRuleScheduler(RuleScheduler)}.
+ * <p>
+ * Rules which depend only on fields validated before rules (i.e. rules without
+ * condition and without conditional fields) are evaluated by the executor.
+ * Rules validating conditional fields change state of the form, so they are evaluated
+ * in the validating thread, after all other rules have finished.
+ * No dependency graph of rules and conditions is built: a conditional rule, or a rule
+ * with a conditional field, is always evaluated sequentially, even if its condition
+ * does not depend on other rules. Forms whose rules are mostly conditional therefore
+ * gain little or nothing from parallel evaluation.
+ * Results are merged in order of definition of rules, so messages are the same as
+ * for sequential evaluation. Rule implementations must allow concurrent calls
+ * of {@link pl.aislib.fm.forms.Rule#validate(java.util.Map)}.
+ * </p>
+ *
+ * @since AISLIB 0.6
+ */
+public class RuleScheduler {
+
+  /**
+   * Executor evaluating rules.
+   */
+  private ExecutorService executor;
+
+
+  // Constructors
+
+  /**
+   * @param executor executor evaluating rules, should be bounded.
+   */
+  public RuleScheduler(ExecutorService executor) {
+    if (executor == null) {
+      throw new NullPointerException("executor cannot be null");
+    }
+    this.executor = executor;
+  }
+
+  /**
+   * Creates scheduler using bounded pool of daemon threads.
+   *
+   * When all threads are busy and queue is full, or the scheduler has been shut down,
+   * rule is evaluated in validating thread.
+   *
+   * @param threads number of threads.
+   * @param queueSize maximum number of rules waiting for evaluation.
+   */
+  public RuleScheduler(int threads, int queueSize) {
+    this(DaemonThreadFactory.newBoundedPool("aislib-rules-", threads, queueSize));
+  }
+
+
+  // Public methods
+
+  /**
+   * @return executor evaluating rules.
+   */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Stops executor. Rules submitted afterwards are evaluated in validating thread.
+   */
+  public void shutdown() {
+    executor.shutdown();
+  }
+
+
+  // Package methods
+
+  /**
+   * @param task evaluation of a rule.
+   * @return future result of the task, <code>null</code> if executor refused to accept it
+   *         or has been shut down.
+   */
+  Future submit(Callable task) {
+    if (executor.isShutdown()) {
+      return null;
+    }
+    try {
+      return executor.submit(task);
+    } catch (RuntimeException re) {
+      return null;
+    }
+  }
+
+  /**
+   * Waits for result of the task.
+   *
+   * If the thread is interrupted while waiting, the task is cancelled, interrupted status
+   * of the thread is restored and <code>null</code> is returned, so the rule is evaluated
+   * in validating thread instead.
+   *
+   * @param future future result of a task.
+   * @return result of the task, <code>null</code> if it has not been obtained.
+   */
+  Object await(Future future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ie) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      return null;
+    } catch (CancellationException ce) {
+      return null;
+    } catch (ExecutionException ee) {
+      Throwable cause = ee.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException("Cannot evaluate rule", cause);
+    }
+  }
+
+} // RuleScheduler class
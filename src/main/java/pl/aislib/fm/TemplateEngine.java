@@ -1,5 +1,10 @@
 package pl.aislib.fm;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -53,4 +58,105 @@ public abstract class TemplateEngine {
    */
   public abstract boolean isTemplate(Object object);
 
+
+  // Public methods
+
+  /**
+   * Evaluates template writing the result directly into given writer.
+   *
+   * Default implementation writes <code>String</code> returned by {@link #evaluate(Object, Map)},
+   * engines able to render without intermediate <code>String</code> should override it.
+   *
+   * @param template <code>Template</code> object.
+   * @param parameters {@link Map} containing evaluation parameters.
+   * @param writer {@link Writer} to write result of evaluation to.
+   * @throws IOException if writing to <code>writer</code> fails.
+   * @throws TemplateEngineException exception.
+   * @since AISLIB 0.6
+   */
+  public void evaluate(Object template, Map parameters, Writer writer) throws IOException, TemplateEngineException {
+    writer.write(evaluate(template, parameters));
+  }
+
+  /**
+   * Evaluates container template with output of another template in its slot.
+   *
+   * Engines able to compose layouts render <code>template</code> directly into
+   * the place of the slot in <code>writer</code>, so output of the template is not
+   * kept as <code>String</code>. Default implementation writes nothing and returns
+   * <code>false</code>, so the template is evaluated first and its output
+   * is put into <code>parameters</code> under the name of the slot.
+   * <p>
+   * Composed layouts evaluate parts of the container before the slot before
+   * the template, so they do not see values set by the template; {@link Application}
+   * calls this method only when {@link Application#setComposingLayouts(boolean)} is switched on.
+   * </p>
+   *
+   * @param container container template object.
+   * @param slot name of the slot in the container.
+   * @param template template object to put into the slot.
+   * @param parameters {@link Map} containing evaluation parameters.
+   * @param writer {@link Writer} to write result of evaluation to.
+   * @return <code>true</code> if the layout has been evaluated, <code>false</code> if nothing has been written.
+   * @throws IOException if writing to <code>writer</code> fails.
+   * @throws TemplateEngineException exception.
+   * @since AISLIB 0.6
+   */
+  public boolean evaluateLayout(Object container, String slot, Object template, Map parameters, Writer writer)
+    throws IOException, TemplateEngineException {
+    return false;
+  }
+
+  /**
+   * Returns modification time of a loaded template.
+   *
+   * Used to drop cached output of changed templates, see {@link FragmentCache}.
+   * Default implementation returns <code>0</code>, so cached output expires only with time.
+   *
+   * @param template <code>Template</code> object.
+   * @return modification time of the template or <code>0</code> if it is not known.
+   * @since AISLIB 0.6
+   */
+  public long getLastModified(Object template) {
+    return 0;
+  }
+
+  /**
+   * Called before templates of a request are evaluated with given parameters.
+   *
+   * The returned object is then used instead of <code>parameters</code> to evaluate
+   * the page, its includes and its container, possibly in many threads. Engines may
+   * return parameters wrapped with state shared by these evaluations; the wrapper must
+   * pass all changes through to <code>parameters</code> and must not need any cleanup,
+   * it is simply dropped with the request. Default implementation returns <code>parameters</code>.
+   *
+   * @param parameters {@link Map} containing evaluation parameters of the request.
+   * @return {@link Map} of parameters to evaluate templates of the request with.
+   * @since AISLIB 0.6
+   */
+  public Map beginRequest(Map parameters) {
+    return parameters;
+  }
+
+  /**
+   * Evaluates template writing the result directly into given stream, encoded with given charset.
+   *
+   * The result is written through {@link #evaluate(Object, Map, Writer)}, so engines
+   * rendering directly into writers do not build intermediate <code>String</code> either.
+   *
+   * @param template <code>Template</code> object.
+   * @param parameters {@link Map} containing evaluation parameters.
+   * @param stream {@link OutputStream} to write result of evaluation to, flushed but not closed.
+   * @param charset name of the charset to encode result with.
+   * @throws IOException if writing to <code>stream</code> fails or the charset is not supported.
+   * @throws TemplateEngineException exception.
+   * @since AISLIB 0.6
+   */
+  public void evaluate(Object template, Map parameters, OutputStream stream, String charset)
+    throws IOException, TemplateEngineException {
+    Writer writer = new OutputStreamWriter(stream, charset);
+    evaluate(template, parameters, writer);
+    writer.flush();
+  }
+
 } // TemplateEngine class
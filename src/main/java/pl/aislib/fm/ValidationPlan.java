@@ -0,0 +1,205 @@
+package pl.aislib.fm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import pl.aislib.fm.forms.Field;
+import pl.aislib.fm.forms.FieldMapping;
+import pl.aislib.fm.forms.Rule;
+
+/**
+ * Immutable, precomputed description of the validation of a {@link FieldContainer}.
+ *
+ * A plan is built once, after the container has been configured, and is shared
+ * by all instances of the container returned by {@link FormsHandler}.
+ * It keeps fields and rules in arrays, already split into the groups validated
+ * one after another, and resolves all rule and builder mappings to fields,
+ * so validation does not walk and filter maps of the definition on every request.
+ *
+ * @since AISLIB 0.6
+ */
+final class ValidationPlan {
+
+  /**
+   * Non-complex, non-conditional fields in order of definition.
+   */
+  private final Field[] nonComplexFields;
+
+  /**
+   * Complex, non-conditional fields in order of definition.
+   */
+  private final Field[] complexFields;
+
+  /**
+   * Rules in order of definition.
+   */
+  private final Rule[] rules;
+
+  /**
+   * Flags of rules depending only on fields validated before rules.
+   */
+  private final boolean[] independentRules;
+
+  /**
+   * Number of independent rules.
+   */
+  private final int independentRuleCount;
+
+  /**
+   * Resolved mappings of rules and field builders, keyed by identity of the mapping.
+   */
+  private final Map mappings;
+
+  /**
+   * Number of entries expected in per-request maps.
+   */
+  private final int expectedSize;
+
+
+  // Constructors
+
+  /**
+   * @param container validated container.
+   * @param rules map of rule names and rules, may be <code>null</code>.
+   */
+  ValidationPlan(FieldContainer container, Map rules) {
+    Map fields = container.fields;
+    List nonComplex = new ArrayList();
+    List complex = new ArrayList();
+    mappings = new IdentityHashMap();
+
+    for (Iterator i = fields.values().iterator(); i.hasNext();) {
+      Field field = (Field) i.next();
+      if (field.isComplex()) {
+        Map builderMapping = field.getBuilder().getMapping();
+        mappings.put(builderMapping, new FieldMapping(builderMapping, container));
+      }
+      if (field.isConditional()) {
+        continue;
+      }
+      if (field.isComplex()) {
+        complex.add(field);
+      } else {
+        nonComplex.add(field);
+      }
+    }
+
+    List ruleList = new ArrayList();
+    if (rules != null) {
+      for (Iterator i = rules.values().iterator(); i.hasNext();) {
+        Rule rule = (Rule) i.next();
+        ruleList.add(rule);
+        if (rule.getMapping() != null) {
+          mappings.put(rule.getMapping(), new FieldMapping(rule.getMapping(), container));
+        }
+      }
+    }
+
+    nonComplexFields = (Field[]) nonComplex.toArray(new Field[nonComplex.size()]);
+    complexFields = (Field[]) complex.toArray(new Field[complex.size()]);
+    this.rules = (Rule[]) ruleList.toArray(new Rule[ruleList.size()]);
+    expectedSize = fields.size() + ruleList.size();
+
+    independentRules = new boolean[this.rules.length];
+    int count = 0;
+    for (int i = 0; i < this.rules.length; i++) {
+      independentRules[i] = isIndependent(this.rules[i], fields);
+      if (independentRules[i]) {
+        count++;
+      }
+    }
+    independentRuleCount = count;
+  }
+
+
+  // Package methods
+
+  /**
+   * @return non-complex, non-conditional fields. The array must not be modified.
+   */
+  Field[] getNonComplexFields() {
+    return nonComplexFields;
+  }
+
+  /**
+   * @return complex, non-conditional fields. The array must not be modified.
+   */
+  Field[] getComplexFields() {
+    return complexFields;
+  }
+
+  /**
+   * @return rules. The array must not be modified.
+   */
+  Rule[] getRules() {
+    return rules;
+  }
+
+  /**
+   * @param index index of a rule in {@link #getRules()}.
+   * @return true if the rule depends only on fields validated before rules,
+   *         so it can be evaluated without changing state of the form.
+   */
+  boolean isIndependentRule(int index) {
+    return independentRules[index];
+  }
+
+  /**
+   * @return number of independent rules.
+   */
+  int getIndependentRuleCount() {
+    return independentRuleCount;
+  }
+
+  /**
+   * @param mapping mapping of a rule or of a field builder.
+   * @return resolved mapping, or <code>null</code> if the mapping is not known to the plan.
+   */
+  FieldMapping getMapping(Map mapping) {
+    return (FieldMapping) mappings.get(mapping);
+  }
+
+  /**
+   * @return initial capacity for per-request maps.
+   */
+  int getInitialCapacity() {
+    return Math.max(16, expectedSize * 4 / 3 + 1);
+  }
+
+
+  // Private methods
+
+  /**
+   * A rule is independent if it is not conditional and none of its fields
+   * (including parts of complex fields) is validated conditionally.
+   * Conditions are not analysed any further, so every conditional rule is dependent.
+   *
+   * @param rule a rule.
+   * @param fields map of field names and fields.
+   * @return true if the rule is independent.
+   */
+  private static boolean isIndependent(Rule rule, Map fields) {
+    if (rule.isCheckCondition() || rule.getMapping() == null) {
+      return false;
+    }
+    for (Iterator i = rule.getMapping().values().iterator(); i.hasNext();) {
+      Field field = (Field) fields.get(i.next());
+      if (field == null || field.isConditional()) {
+        return false;
+      }
+      if (field.isComplex()) {
+        for (Iterator j = field.getBuilder().getMapping().values().iterator(); j.hasNext();) {
+          Field partField = (Field) fields.get(j.next());
+          if (partField == null || partField.isConditional()) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+} // ValidationPlan class
@@ -0,0 +1,197 @@
+package pl.aislib.fm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import pl.aislib.fm.messages.IMessageConverter;
+import pl.aislib.util.messages.StandardMessageConverter;
+
+/**
+ * Result of validation of a form, resolving error messages lazily.
+ *
+ * Error codes are collected into a set of integers when the result is created.
+ * Messages are converted only when they are asked for, one entity at a time,
+ * and converted messages are remembered for each language.
+ * Pages rendering only some of the errors do not pay for converting all of them.
+ * <p>
+ * The result reads state of the container it has been created for, so it is valid
+ * until the container is validated again. It must not be shared between threads.
+ *
+ * @see FieldContainer#getValidationResult(IMessageConverter)
+ * @since AISLIB 0.6
+ */
+public final class ValidationResult {
+
+  /**
+   * Validated container.
+   */
+  private final FieldContainer container;
+
+  /**
+   * Result of the validation.
+   */
+  private final boolean validated;
+
+  /**
+   * Converter of messages.
+   */
+  private final IMessageConverter messageConverter;
+
+  /**
+   * Codes of messages, with message groups replaced by codes of their messages.
+   */
+  private final IntSet errorCodes;
+
+  /**
+   * Properties of entities, created on first conversion of a message.
+   */
+  private Map entitiesProperties;
+
+  /**
+   * Converted messages: languages mapped to maps of entity names and messages.
+   */
+  private final Map convertedMessages = new HashMap();
+
+
+  // Constructors
+
+  /**
+   * @param container validated container.
+   * @param validated result of the validation.
+   * @param messageConverter converter of messages, <code>null</code> for standard converter.
+   */
+  ValidationResult(FieldContainer container, boolean validated, IMessageConverter messageConverter) {
+    this.container = container;
+    this.validated = validated;
+    this.messageConverter = messageConverter != null ? messageConverter : new StandardMessageConverter();
+    errorCodes = container.createErrorCodeSet();
+  }
+
+
+  // Public methods
+
+  /**
+   * @return true if the container has been successfully validated.
+   */
+  public boolean isValidated() {
+    return validated;
+  }
+
+  /**
+   * @return true if there is at least one error message.
+   */
+  public boolean hasErrors() {
+    return !container.orderedMessagesMap.isEmpty();
+  }
+
+  /**
+   * @return number of entities (fields and rules) with error messages.
+   */
+  public int getErrorCount() {
+    return container.orderedMessagesMap.size();
+  }
+
+  /**
+   * @return names of entities with error messages, in order of validation.
+   */
+  public List getErrorNames() {
+    return Collections.unmodifiableList(new ArrayList(container.orderedMessagesMap.keySet()));
+  }
+
+  /**
+   * @param entityName name of a field or a rule, for dynamic entities including number.
+   * @return true if there is an error message for the entity.
+   */
+  public boolean hasError(String entityName) {
+    return container.orderedMessagesMap.containsKey(entityName);
+  }
+
+  /**
+   * @param code code of a message.
+   * @return true if the message is one of error messages.
+   */
+  public boolean hasErrorCode(int code) {
+    return errorCodes.contains(code);
+  }
+
+  /**
+   * @return iterator of distinct codes of error messages.
+   */
+  public Iterator getErrorCodes() {
+    return errorCodes.toList().iterator();
+  }
+
+  /**
+   * @param entityName name of a field or a rule, for dynamic entities including number.
+   * @return map of keys and contents of messages for the entity, in language of the container.
+   */
+  public Map getMessages(String entityName) {
+    return getMessages(entityName, container.lang);
+  }
+
+  /**
+   * @param entityName name of a field or a rule, for dynamic entities including number.
+   * @param language language of messages.
+   * @return map of keys and contents of messages for the entity, empty if there is no error for it.
+   */
+  public Map getMessages(String entityName, String language) {
+    if (!hasError(entityName)) {
+      return Collections.EMPTY_MAP;
+    }
+
+    Map languageMessages = (Map) convertedMessages.get(language);
+    if (languageMessages == null) {
+      languageMessages = new HashMap();
+      convertedMessages.put(language, languageMessages);
+    }
+
+    Map result = (Map) languageMessages.get(entityName);
+    if (result == null) {
+      if (entitiesProperties == null) {
+        entitiesProperties = container.getEntitiesProperties();
+      }
+      result = new LinkedHashMap();
+      container.convertEntityMessages(entityName, messageConverter, entitiesProperties, language, result);
+      result = Collections.unmodifiableMap(result);
+      languageMessages.put(entityName, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return map of keys and contents of all error messages, in language of the container.
+   */
+  public Map getErrorMessages() {
+    return getErrorMessages(container.lang, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param limit maximal number of entities whose messages are returned.
+   * @return map of keys and contents of error messages of first entities, in language of the container.
+   */
+  public Map getErrorMessages(int limit) {
+    return getErrorMessages(container.lang, limit);
+  }
+
+  /**
+   * @param language language of messages.
+   * @param limit maximal number of entities whose messages are returned.
+   * @return map of keys and contents of error messages of first entities, in order of validation.
+   */
+  public Map getErrorMessages(String language, int limit) {
+    Map result = new LinkedHashMap();
+
+    int count = 0;
+    for (Iterator i = container.orderedMessagesMap.keySet().iterator(); i.hasNext() && count < limit; count++) {
+      result.putAll(getMessages((String) i.next(), language));
+    }
+
+    return result;
+  }
+
+} // ValidationResult class
@@ -2,6 +2,7 @@ package pl.aislib.fm;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +21,7 @@ import org.apache.commons.logging.Log;
 import pl.aislib.fm.shepherds.Pasture;
 import pl.aislib.fm.shepherds.Shepherd;
 import pl.aislib.fm.shepherds.ShepherdsSchool;
+import pl.aislib.fm.shepherds.ShepherdsTable;
 import pl.aislib.lang.Loader;
 import pl.aislib.util.predicates.FalsePredicate;
 import pl.aislib.util.predicates.servlet.IsNewHttpSessionPredicate;
@@ -51,6 +53,21 @@ public class Workflow extends DefaultHandler {
    */
   private static final String FLOW = "flow";
 
+  /**
+   * Constant: factory.
+   */
+  private static final String FACTORY = "factory";
+
+  /**
+   * Constant: cache-ttl.
+   */
+  private static final String CACHE_TTL = "cache-ttl";
+
+  /**
+   * Constant: cache-vary.
+   */
+  private static final String CACHE_VARY = "cache-vary";
+
 
   /**
    * Holds application pages descriptions ({@link PageInfo} objects).
@@ -62,6 +79,11 @@ public class Workflow extends DefaultHandler {
    */
   protected List workflowShepherds;
 
+  /**
+   * Compiled list of shepherds.
+   */
+  private ShepherdsTable workflowShepherdsTable;
+
   /**
    * Map of properties of template container.
    */
@@ -97,6 +119,11 @@ public class Workflow extends DefaultHandler {
    */
   private PageInfo tPage;
 
+  /**
+   * Name of page factory class.
+   */
+  private String tPageFactory;
+
   /**
    * Name of start page of the application.
    */
@@ -145,6 +172,9 @@ public class Workflow extends DefaultHandler {
    * @return <code>String</code> object.
    */
   String resolveGlobalTriggers(Pasture pasture, Object sheep) {
+    if (workflowShepherdsTable != null) {
+      return workflowShepherdsTable.examine(pasture, sheep, null);
+    }
     return ShepherdsSchool.examine(workflowShepherds, pasture, sheep, null);
   }
 
@@ -295,6 +325,7 @@ public class Workflow extends DefaultHandler {
         log.fatal(message, cnfe);
         throw new SAXException(message, cnfe);
       }
+      tPageFactory = attrs.getValue(FACTORY);
       return;
     }
 
@@ -333,7 +364,19 @@ public class Workflow extends DefaultHandler {
       }
 
       if (templateName != null) {
-        tPage.addTemplateInclude(includeName, templateName);
+        String cacheTtl = attrs.getValue(CACHE_TTL);
+        if (cacheTtl == null) {
+          tPage.addTemplateInclude(includeName, templateName);
+          return;
+        }
+        // Values of cache-vary parameters of other types than strings, booleans and numbers
+        // bypass the cache at request time, see FragmentPolicy
+        try {
+          tPage.addTemplateInclude(includeName, templateName,
+            FragmentPolicy.parse(cacheTtl, attrs.getValue(CACHE_VARY)));
+        } catch (IllegalArgumentException iae) {
+          throw new SAXException("cache-ttl must be a positive integer in <include>");
+        }
         return;
       } else if (messageCode != null) {
         try {
@@ -347,12 +390,26 @@ public class Workflow extends DefaultHandler {
     }
   }
 
+  /**
+   * Receives notification of the end of the document.
+   *
+   * Compiles global shepherds and shepherds of all pages into {@link ShepherdsTable}s.
+   *
+   * @see org.xml.sax.ContentHandler#endDocument()
+   */
+  public void endDocument() {
+    workflowShepherdsTable = ShepherdsTable.compile(workflowShepherds, log);
+    for (Iterator it = pages.values().iterator(); it.hasNext();) {
+      ((PageInfo) it.next()).compileTriggers(log);
+    }
+  }
+
   /**
    * Receives notification of the end of an element.
    *
    * @see org.xml.sax.ContentHandler#endElement(String, String, String)
    */
-  public void endElement(String uri, String localName, String rawName) {
+  public void endElement(String uri, String localName, String rawName) throws SAXException {
     if ("template-container".equals(localName)) {
       tContainerSlot = null;
       tContainerName = null;
@@ -361,8 +418,10 @@ public class Workflow extends DefaultHandler {
 
     if ("page".equals(localName)) {
       tPage.setProperties(pageProperties);
+      tPage.setPageFactory(createPageFactory(tPage, tPageFactory));
       pages.put (tPage.getActionKey(), tPage);
       tPage = null;
+      tPageFactory = null;
     }
 
     if ("property-list".equals(localName)) {
@@ -376,6 +435,43 @@ public class Workflow extends DefaultHandler {
   }
 
 
+  // Protected methods
+
+  /**
+   * Creates and initializes {@link PageFactory} for given page.
+   *
+   * Called once for every page, after all its properties were read.
+   *
+   * @param pageInfo description of the page.
+   * @param factoryClass name of {@link PageFactory} subclass given in <code>factory</code>
+   *                     attribute, <code>null</code> for {@link DefaultPageFactory}.
+   * @return initialized page factory.
+   * @throws SAXException if factory cannot be created or initialized.
+   */
+  protected PageFactory createPageFactory(PageInfo pageInfo, String factoryClass) throws SAXException {
+    PageFactory factory = null;
+    if (factoryClass == null) {
+      factory = new DefaultPageFactory();
+    } else {
+      try {
+        factory = (PageFactory) Loader.findClass(factoryClass).newInstance();
+      } catch (Exception e) {
+        String message = "Page factory '" + factoryClass + "' cannot be created";
+        log.fatal(message, e);
+        throw new SAXException(message, e);
+      }
+    }
+    try {
+      factory.init(pageInfo);
+    } catch (ApplicationConfigurationException ace) {
+      String message = "Page factory for page '" + pageInfo.getActionKey() + "' cannot be initialized";
+      log.fatal(message, ace);
+      throw new SAXException(message, ace);
+    }
+    return factory;
+  }
+
+
   // Private methods
 
   /**
@@ -0,0 +1,25 @@
+package pl.aislib.fm.forms;
+
+/**
+ * Validator of single strings which reports failures without exceptions.
+ *
+ * @since AISLIB 0.6
+ */
+public interface CheckingValidator extends Validator {
+
+  /**
+   * Validates a string like {@link Validator#validate(String)}, but returns a reason instead of throwing an exception.
+   *
+   * @param value a string.
+   * @return a validated object, <code>null</code> if the value could not be converted,
+   *         or a {@link ValidationFailure} if the validation was not successful.
+   */
+  public Object check(String value);
+
+  /**
+   * @return true if {@link #check(String)} gives the same results as {@link Validator#validate(String)};
+   *         false if the validator should be used through <code>validate</code> method.
+   */
+  public boolean isCheckSupported();
+
+} // CheckingValidator interface
@@ -166,6 +166,23 @@ public class Field implements IField, IEntity {
     return valuesType;
   }
 
+  /**
+   * @return true if all validators of the field support validation without exceptions.
+   * @since AISLIB 0.6
+   */
+  public boolean isCheckSupported() {
+    if (valuesType != VT_SINGLE) {
+      return false;
+    }
+    for (Iterator i = validators.keySet().iterator(); i.hasNext();) {
+      Object validator = i.next();
+      if (!(validator instanceof CheckingValidator && ((CheckingValidator) validator).isCheckSupported())) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * @return true if the field is complex.
    */
@@ -286,6 +303,50 @@ public class Field implements IField, IEntity {
     return result;
   }
 
+  /**
+   * Validates value of the field without exceptions.
+   *
+   * Should be used only if {@link #isCheckSupported()} returns true.
+   *
+   * @param value value of the field.
+   * @param messagesMap a map the message will be put into, in case of errors.
+   * @param validatorsMap a map the validator will be put into, in case of errors.
+   * @param fieldName name of the field (used for dynamic fields).
+   * @param data an object specific for validators.
+   * @return converted value of the field or a {@link ValidationFailure} if the field has not been validated.
+   * @since AISLIB 0.6
+   */
+  public Object check(String value, Map messagesMap, Map validatorsMap, String fieldName, Object data) {
+    Object result = value;
+    CheckingValidator validator = null;
+
+    boolean validatorDataChecked = false;
+
+    for (Iterator i = validators.entrySet().iterator(); i.hasNext();) {
+      validator = (CheckingValidator) ((Map.Entry) i.next()).getKey();
+      if (data != null && checkValidatorData(validator, data)) {
+        validatorDataChecked = true;
+        continue;
+      }
+      validatorDataChecked = false;
+      result = validator.check(value);
+      if (result instanceof ValidationFailure) {
+        messagesMap.put(fieldName, validators.get(validator));
+        validatorsMap.put(fieldName, validator);
+        return result;
+      }
+    }
+    if (result == null && validator != null) {
+      if (!validatorDataChecked) {
+        messagesMap.put(fieldName, validators.get(validator));
+        validatorsMap.put(fieldName, validator);
+        return ValidationFailure.PROBABLY_INVALID_CONVERSION;
+      }
+      return value;
+    }
+    return result;
+  }
+
   /**
    * Validates an array of values of the field.
    *
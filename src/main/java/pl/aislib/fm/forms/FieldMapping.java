@@ -0,0 +1,129 @@
+package pl.aislib.fm.forms;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import pl.aislib.fm.FieldContainer;
+
+/**
+ * Immutable mapping of parameters to fields of a container, resolved once.
+ *
+ * Used for mappings of rules and of field builders, so validation does not look up
+ * fields by names on every request.
+ *
+ * @since AISLIB 0.6
+ */
+public final class FieldMapping {
+
+  /**
+   * Parameter names (keys of the mapping).
+   */
+  private final String[] keys;
+
+  /**
+   * Names of mapped fields.
+   */
+  private final String[] fieldNames;
+
+  /**
+   * Mapped fields, <code>null</code> entries for unknown fields.
+   */
+  private final Field[] fields;
+
+  /**
+   * True if at least one of mapped fields is dynamic.
+   */
+  private final boolean dynamic;
+
+  /**
+   * Read-only copy of the mapping.
+   */
+  private final Map fieldNameMapping;
+
+
+  // Constructors
+
+  /**
+   * @param mapping mapping of parameter names and field names.
+   * @param container container of mapped fields.
+   */
+  public FieldMapping(Map mapping, FieldContainer container) {
+    int size = mapping.size();
+    keys = new String[size];
+    fieldNames = new String[size];
+    fields = new Field[size];
+
+    boolean bDynamic = false;
+    int n = 0;
+    for (Iterator i = mapping.entrySet().iterator(); i.hasNext(); n++) {
+      Map.Entry me = (Map.Entry) i.next();
+      keys[n] = (String) me.getKey();
+      fieldNames[n] = (String) me.getValue();
+      fields[n] = container.getField(fieldNames[n]);
+      if (fields[n] != null && fields[n].isDynamic()) {
+        bDynamic = true;
+      }
+    }
+
+    dynamic = bDynamic;
+    fieldNameMapping = Collections.unmodifiableMap(new HashMap(mapping));
+  }
+
+
+  // Public methods
+
+  /**
+   * @return number of mapped parameters.
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * @param index index of a mapped parameter.
+   * @return name of the parameter.
+   */
+  public String getKey(int index) {
+    return keys[index];
+  }
+
+  /**
+   * @param index index of a mapped parameter.
+   * @return name of the field mapped to the parameter.
+   */
+  public String getFieldName(int index) {
+    return fieldNames[index];
+  }
+
+  /**
+   * @param index index of a mapped parameter.
+   * @return field mapped to the parameter, <code>null</code> if the container has no such field.
+   */
+  public Field getField(int index) {
+    return fields[index];
+  }
+
+  /**
+   * @return true if at least one of mapped fields is dynamic.
+   */
+  public boolean isDynamic() {
+    return dynamic;
+  }
+
+  /**
+   * @return read-only copy of the mapping.
+   */
+  public Map getFieldNameMapping() {
+    return fieldNameMapping;
+  }
+
+  /**
+   * @return initial capacity of maps keyed by mapped parameters.
+   */
+  public int getCapacity() {
+    return keys.length * 4 / 3 + 1;
+  }
+
+} // FieldMapping class
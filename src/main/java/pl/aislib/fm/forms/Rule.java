@@ -76,9 +76,24 @@ public abstract class Rule implements IRule, IEntity {
 
   /**
    * True, if all fields have been validated.
+   *
+   * @deprecated As of AISLIB 0.6 rules are shared between instances of a form,
+   *             state of an evaluation is kept in {@link RuleInvocation};
+   *             the field is not updated any more.
    */
   protected boolean allFieldsValidated;
 
+  /**
+   * Result of {@link #areAllFieldsValidated()} for the last call of deprecated
+   * {@link #doValidate(Form, Map, Map, int)} in the calling thread.
+   */
+  private final ThreadLocal legacyAllFieldsValidated = new ThreadLocal();
+
+  /**
+   * Mapping resolved against fields of the form, <code>null</code> until {@link #setDynamic(Form)} is called.
+   */
+  private volatile FieldMapping resolvedMapping;
+
 
   // Constructors
 
@@ -106,10 +121,13 @@ public abstract class Rule implements IRule, IEntity {
   // Public methods
 
   /**
-   * @return true if all fields have been validated.
+   * @return true if all fields have been validated by the last call of
+   *         {@link #doValidate(Form, Map, Map, int)} in the calling thread.
+   * @deprecated As of AISLIB 0.6 replaced by {@link RuleInvocation#areAllFieldsValidated()}.
    */
   public boolean areAllFieldsValidated() {
-    return allFieldsValidated;
+    Boolean result = (Boolean) legacyAllFieldsValidated.get();
+    return result != null ? result.booleanValue() : allFieldsValidated;
   }
 
   /**
@@ -168,13 +186,14 @@ public abstract class Rule implements IRule, IEntity {
       }
       if (field.isDynamic()) {
         bDynamic = true;
-        break;
       }
     }
 
     if (bDynamic) {
       type |= RT_DYNAMIC;
     }
+
+    resolvedMapping = new FieldMapping(mapping, form);
   }
 
   /**
@@ -225,6 +244,7 @@ public abstract class Rule implements IRule, IEntity {
    */
   public void addMapping(String ruleParameter, String fieldName) {
     mapping.put(ruleParameter, fieldName);
+    resolvedMapping = null;
   }
 
   /**
@@ -239,6 +259,7 @@ public abstract class Rule implements IRule, IEntity {
    */
   public void setMapping(Map mapping) {
     this.mapping.putAll(mapping);
+    resolvedMapping = null;
   }
 
   /**
@@ -263,6 +284,24 @@ public abstract class Rule implements IRule, IEntity {
    */
   public abstract boolean validate(Map values);
 
+  /**
+   * Validates the rule, called from {@link pl.aislib.fm.Form#validateRule(Rule, Map, Map)}.
+   *
+   * @param form form the rule is child of.
+   * @param fieldValues original values of fields.
+   * @param values converted values of fields, i.e. after validation.
+   * @param number consecutive number of the dynamic rule, this field is used for dynamic rules only.
+   * @return true if the rule has been successfully validated.
+   * @deprecated As of AISLIB 0.6 replaced by {@link #doValidate(RuleInvocation)}.
+   *             The result for {@link #areAllFieldsValidated()} is kept for the calling thread only.
+   */
+  public final boolean doValidate(Form form, Map fieldValues, Map values, int number) {
+    RuleInvocation invocation = new RuleInvocation(form, fieldValues, values, number);
+    boolean result = doValidate(invocation);
+    legacyAllFieldsValidated.set(Boolean.valueOf(invocation.areAllFieldsValidated()));
+    return result;
+  }
+
   /**
    * Validates the rule, called from {@link pl.aislib.fm.Form#validateRule(Rule, Map, Map)}.
    *
@@ -274,18 +313,27 @@ public abstract class Rule implements IRule, IEntity {
    * Otherwise, if the condition has not been met, the rule is not validated.
    * <br>
    * Otherwise, the rule must be sure all fields have been validated before being validated itself.
+   * <p>
+   * The rule itself is not modified, so the same rule may be evaluated by many threads at once,
+   * each with its own invocation.
+   * <p>
+   * Evaluation is not free of allocations: {@link #useMapping(Form, Map, int)} creates a map
+   * of rule parameters for every conditional rule validated, and values of complex conditional
+   * fields are collected into a new map before joining them.
    *
-   * @param form form the rule is child of.
-   * @param fieldValues original values of fields.
-   * @param values converted values of fields, i.e. after validation.
-   * @param number consecutive number of the dynamic rule, this field is used for dynamic rules only.
+   * @param invocation state of this evaluation of the rule.
    * @return true if the rule has been successfully validated.
+   * @since AISLIB 0.6
    */
-  public final boolean doValidate(Form form, Map fieldValues, Map values, int number) {
+  public final boolean doValidate(RuleInvocation invocation) {
+    Form form = invocation.getForm();
+    Map fieldValues = invocation.getFieldValues();
+    int number = invocation.getNumber();
+    FieldMapping resolved = resolveMapping(form);
+
     boolean bDoValidateRule = true;
-    for (Iterator i = mapping.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      Field field = form.getField((String) me.getValue());
+    for (int n = 0; n < resolved.size(); n++) {
+      Field field = resolved.getField(n);
       if (!field.isConditional()) {
         String fieldName = field.getName();
         if (field.isDynamic()) {
@@ -298,13 +346,15 @@ public abstract class Rule implements IRule, IEntity {
       }
     }
 
-    allFieldsValidated = true;
+    invocation.setAllFieldsValidated(true);
 
     if (!bDoValidateRule) {
       // Rule has not been tried to be validated
       return true;
     }
 
+    Map values = invocation.getValues();
+
     if (!isCheckCondition()) {
       return validate(values);
     }
@@ -314,9 +364,10 @@ public abstract class Rule implements IRule, IEntity {
       return true;
     }
 
-    for (Iterator i = mapping.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      Field field = form.getField((String) me.getValue());
+    boolean bAllFieldsValidated = true;
+
+    for (int n = 0; n < resolved.size(); n++) {
+      Field field = resolved.getField(n);
       if (field.isConditional()) {
         if (field.isComplex() && field.isDynamic()) {
           Map builderMapping = field.getBuilder().getMapping();
@@ -330,7 +381,7 @@ public abstract class Rule implements IRule, IEntity {
               builderValues.put(me2.getKey(), fieldValues.get(me2.getValue()));
             }
           }
-          allFieldsValidated
+          bAllFieldsValidated
             &= form.validateField(
                  field,
                  field.getName() + number,
@@ -347,17 +398,17 @@ public abstract class Rule implements IRule, IEntity {
               builderValues.put(me2.getKey(), form.getValue(partFieldName, true));
             } else {
               Field partField = form.getField(partFieldName);
-              allFieldsValidated &= form.validateField(partField, null, fieldValues);
-              if (allFieldsValidated) {
+              bAllFieldsValidated &= form.validateField(partField, null, fieldValues);
+              if (bAllFieldsValidated) {
                 builderValues.put(me2.getKey(), form.getValue(partFieldName, true));
               }
             }
           }
-          if (allFieldsValidated) {
-            allFieldsValidated &= form.validateField(field, null, field.getBuilder().join(builderValues));
+          if (bAllFieldsValidated) {
+            bAllFieldsValidated &= form.validateField(field, null, field.getBuilder().join(builderValues));
           }
         } else {
-          allFieldsValidated
+          bAllFieldsValidated
             &= form.validateField(
                  field,
                  field.isDynamic() ? field.getName() + number : field.getName(),
@@ -368,7 +419,9 @@ public abstract class Rule implements IRule, IEntity {
       }
     }
 
-    return allFieldsValidated ? validate(useMapping(form, form.getValues(), number)) : false;
+    invocation.setAllFieldsValidated(bAllFieldsValidated);
+
+    return bAllFieldsValidated ? validate(useMapping(form, form.getValues(), number)) : false;
   }
 
 
@@ -384,34 +437,43 @@ public abstract class Rule implements IRule, IEntity {
   /**
    * Gets proper values of the rule's fields from the mapping before the rule is being validated.
    *
+   * Creates a new map on every call, as {@link #validate(Map)} takes the values as a map.
+   *
    * @param form a form.
    * @param values a map.
    * @param number an int.
    * @return a map.
    */
   protected Map useMapping(Form form, Map values, int number) {
-    Map result = new HashMap();
-    for (Iterator i = mapping.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      Field field = form.getField((String) me.getValue());
-      if (field.isDynamic()) {
-        result.put(me.getKey(), values.get((String) me.getValue() + number));
+    FieldMapping resolved = resolveMapping(form);
+    Map result = new HashMap(resolved.getCapacity());
+    for (int n = 0; n < resolved.size(); n++) {
+      if (resolved.getField(n).isDynamic()) {
+        result.put(resolved.getKey(n), values.get(resolved.getFieldName(n) + number));
       } else {
-        result.put(me.getKey(), values.get(me.getValue()));
+        result.put(resolved.getKey(n), values.get(resolved.getFieldName(n)));
       }
     }
     return result;
   }
 
+  /**
+   * @param form a form.
+   * @param number consecutive number of the dynamic rule.
+   * @return map of rule parameters and names of fields of the given instance of the rule.
+   *         For rules without dynamic fields a shared, read-only map is returned.
+   */
   public Map getDynamicFieldNameMapping(Form form, int number) {
-    Map result = new HashMap();
-    for (Iterator i = mapping.entrySet().iterator(); i.hasNext();) {
-      Map.Entry me = (Map.Entry) i.next();
-      Field field = form.getField((String) me.getValue());
-      if (field.isDynamic()) {
-        result.put(me.getKey(), (String) me.getValue() + number);
+    FieldMapping resolved = resolveMapping(form);
+    if (!resolved.isDynamic()) {
+      return resolved.getFieldNameMapping();
+    }
+    Map result = new HashMap(resolved.getCapacity());
+    for (int n = 0; n < resolved.size(); n++) {
+      if (resolved.getField(n).isDynamic()) {
+        result.put(resolved.getKey(n), resolved.getFieldName(n) + number);
       } else {
-        result.put(me.getKey(), me.getValue());
+        result.put(resolved.getKey(n), resolved.getFieldName(n));
       }
     }
     return result;
@@ -425,4 +487,16 @@ public abstract class Rule implements IRule, IEntity {
     return true;
   }
 
+
+  // Private methods
+
+  /**
+   * @param form a form.
+   * @return mapping resolved by {@link #setDynamic(Form)}, or resolved now if there is none.
+   */
+  private FieldMapping resolveMapping(Form form) {
+    FieldMapping result = resolvedMapping;
+    return result != null ? result : new FieldMapping(mapping, form);
+  }
+
 } // Rule class
@@ -0,0 +1,108 @@
+package pl.aislib.fm.forms;
+
+import java.util.Map;
+
+import pl.aislib.fm.Form;
+
+/**
+ * State of a single evaluation of a {@link Rule}.
+ *
+ * Rules are shared by all instances of a form, so everything that is specific
+ * to one evaluation is kept here instead of in the rule itself.
+ * An invocation is created by the form for each (possibly dynamic) instance of a rule
+ * and must not be shared between threads.
+ *
+ * @since AISLIB 0.6
+ */
+public final class RuleInvocation {
+
+  /**
+   * Form the rule is evaluated for.
+   */
+  private final Form form;
+
+  /**
+   * Original values of fields.
+   */
+  private final Map fieldValues;
+
+  /**
+   * Converted values of fields, i.e. after validation.
+   */
+  private final Map values;
+
+  /**
+   * Consecutive number of the dynamic rule.
+   */
+  private final int number;
+
+  /**
+   * True, if all fields of the rule have been validated.
+   */
+  private boolean allFieldsValidated;
+
+
+  // Constructors
+
+  /**
+   * @param form form the rule is child of.
+   * @param fieldValues original values of fields.
+   * @param values converted values of fields, i.e. after validation.
+   * @param number consecutive number of the dynamic rule, used for dynamic rules only.
+   */
+  public RuleInvocation(Form form, Map fieldValues, Map values, int number) {
+    this.form = form;
+    this.fieldValues = fieldValues;
+    this.values = values;
+    this.number = number;
+  }
+
+
+  // Public methods
+
+  /**
+   * @return form the rule is evaluated for.
+   */
+  public Form getForm() {
+    return form;
+  }
+
+  /**
+   * @return original values of fields.
+   */
+  public Map getFieldValues() {
+    return fieldValues;
+  }
+
+  /**
+   * @return converted values of fields.
+   */
+  public Map getValues() {
+    return values;
+  }
+
+  /**
+   * @return consecutive number of the dynamic rule.
+   */
+  public int getNumber() {
+    return number;
+  }
+
+  /**
+   * @return true if all fields of the rule have been validated during the evaluation.
+   */
+  public boolean areAllFieldsValidated() {
+    return allFieldsValidated;
+  }
+
+
+  // Package methods
+
+  /**
+   * @param allFieldsValidated true if all fields of the rule have been validated.
+   */
+  void setAllFieldsValidated(boolean allFieldsValidated) {
+    this.allFieldsValidated = allFieldsValidated;
+  }
+
+} // RuleInvocation class
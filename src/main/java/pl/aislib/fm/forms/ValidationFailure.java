@@ -0,0 +1,168 @@
+package pl.aislib.fm.forms;
+
+/**
+ * Reason of an unsuccessful validation, returned by {@link CheckingValidator#check(String)}.
+ *
+ * Reasons are preallocated constants, so failed validations create no objects;
+ * the message of a reason is formatted with the validated value only when it is asked for.
+ *
+ * @since AISLIB 0.6
+ */
+public final class ValidationFailure {
+
+  /**
+   * Placeholder of the validated value in message patterns.
+   */
+  private static final String VALUE_PLACEHOLDER = "{0}";
+
+  /**
+   * Value validated by other means than {@link CheckingValidator#check(String)} has not been validated.
+   */
+  public static final ValidationFailure NOT_VALIDATED = new ValidationFailure(0, "Value has not been validated.");
+
+  /**
+   * Empty value of a required field.
+   */
+  public static final ValidationFailure REQUIRED = new ValidationFailure(1, "Value is required.");
+
+  /**
+   * Value could not be converted to an object.
+   */
+  public static final ValidationFailure INVALID_CONVERSION = new ValidationFailure(2, "Invalid conversion.");
+
+  /**
+   * Last validator of a field could not convert the value.
+   */
+  public static final ValidationFailure PROBABLY_INVALID_CONVERSION =
+    new ValidationFailure(3, "Probably invalid conversion.");
+
+  /**
+   * Value contains disallowed characters.
+   */
+  public static final ValidationFailure DISALLOWED_CHARS =
+    new ValidationFailure(4, "Value '{0}' contains disallowed characters.");
+
+  /**
+   * Length of value is invalid.
+   */
+  public static final ValidationFailure INVALID_LENGTH = new ValidationFailure(5, "Length of value '{0}'is invalid.");
+
+  /**
+   * Value does not match pattern.
+   */
+  public static final ValidationFailure PATTERN_NOT_MATCHED =
+    new ValidationFailure(6, "Value '{0}' has not been matched successfully against pattern.");
+
+  /**
+   * Value is matched although there is no pattern.
+   */
+  public static final ValidationFailure NO_PATTERN =
+    new ValidationFailure(7, "Value '{0}' has not been matched because there is no pattern to match against.");
+
+  /**
+   * Value is not allowed or is disallowed.
+   */
+  public static final ValidationFailure NOT_ALLOWED = new ValidationFailure(8, "Value is not allowed.");
+
+  /**
+   * Value is not in range.
+   */
+  public static final ValidationFailure NOT_IN_RANGE = new ValidationFailure(9, "Value not in range.");
+
+  /**
+   * Date is before current date.
+   */
+  public static final ValidationFailure BEFORE_CURRENT_DATE = new ValidationFailure(10, "Value is before current date.");
+
+  /**
+   * Date is after current date.
+   */
+  public static final ValidationFailure AFTER_CURRENT_DATE = new ValidationFailure(11, "Value is after current date.");
+
+  /**
+   * Invalid SSN number.
+   */
+  public static final ValidationFailure INVALID_SSN = new ValidationFailure(12, "Invalid SSN number.");
+
+  /**
+   * Invalid zip code.
+   */
+  public static final ValidationFailure INVALID_ZIP = new ValidationFailure(13, "Invalid zip.");
+
+  /**
+   * Protocol of URL is not allowed.
+   */
+  public static final ValidationFailure PROTOCOL_NOT_ALLOWED = new ValidationFailure(14, "Protocol type is not allowed.");
+
+  /**
+   * Invalid format of phone number.
+   */
+  public static final ValidationFailure INVALID_PHONE = new ValidationFailure(15, "Invalid phone number format.");
+
+  /**
+   * Code of the reason.
+   */
+  private final int code;
+
+  /**
+   * Pattern of the message, possibly with placeholder of the validated value.
+   */
+  private final String pattern;
+
+
+  // Constructors
+
+  /**
+   * @param code code of the reason.
+   * @param pattern pattern of the message.
+   */
+  private ValidationFailure(int code, String pattern) {
+    this.code = code;
+    this.pattern = pattern;
+  }
+
+
+  // Public methods
+
+  /**
+   * @return code of the reason.
+   */
+  public int getCode() {
+    return code;
+  }
+
+  /**
+   * @return message of the reason, without the validated value.
+   */
+  public String getMessage() {
+    return pattern;
+  }
+
+  /**
+   * @param value validated value.
+   * @return message of the reason for given value.
+   */
+  public String getMessage(Object value) {
+    int index = pattern.indexOf(VALUE_PLACEHOLDER);
+    if (index == -1) {
+      return pattern;
+    }
+    return pattern.substring(0, index) + value + pattern.substring(index + VALUE_PLACEHOLDER.length());
+  }
+
+  /**
+   * @param value validated value.
+   * @return exception with message of the reason, for exception-based validation.
+   */
+  public ValidateException toException(Object value) {
+    return new ValidateException(getMessage(value));
+  }
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  public String toString() {
+    return code + ": " + pattern;
+  }
+
+} // pl.aislib.fm.forms.ValidationFailure class
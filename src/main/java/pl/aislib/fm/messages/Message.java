@@ -1,7 +1,9 @@
 package pl.aislib.fm.messages;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Core implementation of message class.
@@ -197,6 +199,14 @@ public class Message implements IMessage {
       return items.get(lang);
     }
 
+    /**
+     * @return set of languages of contents.
+     * @since AISLIB 0.6
+     */
+    public Set getLanguages() {
+      return Collections.unmodifiableSet(items.keySet());
+    }
+
   } // Content class
 
 } // Message class
@@ -0,0 +1,369 @@
+package pl.aislib.fm.messages;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable store of messages, built once all messages are loaded.
+ *
+ * Messages are found by their codes in an open addressing table of primitive integers.
+ * Languages are numbered once and contents of all messages in one language are kept
+ * in a single array, so the store needs no maps per message.
+ * Messages handed out by the store are shared, read-only views created on first use;
+ * later lookups allocate no objects. Objects of the class are thread-safe.
+ *
+ * @since AISLIB 0.6
+ */
+public final class MessageStore {
+
+  /**
+   * Open addressing table of message indexes increased by one; zero marks an empty slot.
+   */
+  private final int[] table;
+
+  /**
+   * Codes of messages.
+   */
+  private final int[] codes;
+
+  /**
+   * Types of messages.
+   */
+  private final int[] types;
+
+  /**
+   * Keys of messages.
+   */
+  private final String[] keys;
+
+  /**
+   * Default languages of messages.
+   */
+  private final String[] defaultLanguages;
+
+  /**
+   * Languages of contents.
+   */
+  private final String[] languages;
+
+  /**
+   * Map of languages and their indexes.
+   */
+  private final Map languageIndexes;
+
+  /**
+   * Contents of messages, by indexes of languages and messages.
+   */
+  private final String[][] contents;
+
+  /**
+   * Contents of messages which are not kept in arrays, e.g. custom content objects.
+   */
+  private final IMessageContent[] otherContents;
+
+  /**
+   * Views of messages with all their contents.
+   */
+  private final AtomicReferenceArray fullMessages;
+
+  /**
+   * Views of messages with content in one language, by indexes of messages and languages.
+   */
+  private final AtomicReferenceArray messages;
+
+
+  // Constructors
+
+  /**
+   * @param messages map of message codes (<code>Integer</code> objects) and messages (<code>IMessage</code> objects).
+   */
+  public MessageStore(Map messages) {
+    int count = messages.size();
+
+    int capacity = 2;
+    while (capacity < count * 2) {
+      capacity <<= 1;
+    }
+    table = new int[capacity];
+    codes = new int[count];
+    types = new int[count];
+    keys = new String[count];
+    defaultLanguages = new String[count];
+    otherContents = new IMessageContent[count];
+
+    List languageList = new ArrayList();
+    Map indexes = new HashMap();
+    List contentList = new ArrayList();
+
+    int index = 0;
+    for (Iterator i = messages.entrySet().iterator(); i.hasNext(); index++) {
+      Map.Entry me = (Map.Entry) i.next();
+      int code = ((Integer) me.getKey()).intValue();
+      IMessage message = (IMessage) me.getValue();
+
+      codes[index] = code;
+      types[index] = message.getType();
+      keys[index] = message.getKey();
+      defaultLanguages[index] = internLanguage(message.getDefaultLanguage(), languageList, indexes, contentList, count);
+
+      int slot = slot(code, table.length);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (table.length - 1);
+      }
+      table[slot] = index + 1;
+
+      IMessageContent content = message.getContentObject();
+      if (content instanceof StoredContent) {
+        copyContent((StoredContent) content, index, languageList, indexes, contentList);
+      } else if (content != null && content.getClass() == Message.Content.class) {
+        for (Iterator j = ((Message.Content) content).getLanguages().iterator(); j.hasNext();) {
+          String language = (String) j.next();
+          if (language == null) {
+            otherContents[index] = content;
+            continue;
+          }
+          language = internLanguage(language, languageList, indexes, contentList, count);
+          Object item = content.getContent(language);
+          String[] languageContents = (String[]) contentList.get(((Integer) indexes.get(language)).intValue());
+          languageContents[index] = item != null ? item.toString() : null;
+        }
+      } else {
+        otherContents[index] = content;
+      }
+    }
+
+    languages = (String[]) languageList.toArray(new String[languageList.size()]);
+    languageIndexes = indexes;
+    contents = (String[][]) contentList.toArray(new String[contentList.size()][]);
+    fullMessages = new AtomicReferenceArray(count);
+    this.messages = new AtomicReferenceArray(count * (languages.length + 1));
+  }
+
+
+  // Public methods
+
+  /**
+   * @return number of messages.
+   */
+  public int size() {
+    return codes.length;
+  }
+
+  /**
+   * @param code identification code for a message.
+   * @return true if the store contains the message.
+   */
+  public boolean contains(int code) {
+    return indexOf(code) != -1;
+  }
+
+  /**
+   * @return languages of contents of messages.
+   */
+  public String[] getLanguages() {
+    return (String[]) languages.clone();
+  }
+
+  /**
+   * @param code identification code for a message.
+   * @param language language of the content, default language of the message if <code>null</code>.
+   * @return content of the message or <code>null</code> if there is no such message or content.
+   */
+  public String getContent(int code, String language) {
+    int index = indexOf(code);
+    return index != -1 ? contentAt(index, language) : null;
+  }
+
+  /**
+   * @param code identification code for a message.
+   * @return shared view of the message with all of its contents or <code>null</code> if there is no such message.
+   */
+  public IMessage getFullMessage(int code) {
+    int index = indexOf(code);
+    if (index == -1) {
+      return null;
+    }
+    IMessage result = (IMessage) fullMessages.get(index);
+    if (result == null) {
+      result = new pl.aislib.fm.Message(
+        types[index], codes[index], keys[index], new StoredContent(this, index), defaultLanguages[index]
+      );
+      if (!fullMessages.compareAndSet(index, null, result)) {
+        result = (IMessage) fullMessages.get(index);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param code identification code for a message.
+   * @param language language in which the message should be given.
+   * @return shared view of the message with content in given language or <code>null</code> if there is no such message.
+   */
+  public pl.aislib.fm.Message getMessage(int code, String language) {
+    int index = indexOf(code);
+    if (index == -1) {
+      return null;
+    }
+
+    int languageIndex = language != null ? languageIndex(language) : languages.length;
+    if (languageIndex == -1) {
+      return new pl.aislib.fm.Message(codes[index], keys[index], contentAt(index, language), language);
+    }
+
+    int viewIndex = index * (languages.length + 1) + languageIndex;
+    pl.aislib.fm.Message result = (pl.aislib.fm.Message) messages.get(viewIndex);
+    if (result == null) {
+      result = new pl.aislib.fm.Message(codes[index], keys[index], contentAt(index, language), language);
+      if (!messages.compareAndSet(viewIndex, null, result)) {
+        result = (pl.aislib.fm.Message) messages.get(viewIndex);
+      }
+    }
+    return result;
+  }
+
+
+  // Private methods
+
+  /**
+   * @param code identification code for a message.
+   * @return index of the message or <code>-1</code> if there is no such message.
+   */
+  private int indexOf(int code) {
+    int slot = slot(code, table.length);
+    int index;
+    while ((index = table[slot]) != 0) {
+      if (codes[index - 1] == code) {
+        return index - 1;
+      }
+      slot = (slot + 1) & (table.length - 1);
+    }
+    return -1;
+  }
+
+  /**
+   * @param language a language.
+   * @return index of the language or <code>-1</code> if no message has content in the language.
+   */
+  private int languageIndex(String language) {
+    Integer result = (Integer) languageIndexes.get(language);
+    return result != null ? result.intValue() : -1;
+  }
+
+  /**
+   * @param index index of a message.
+   * @param language language of the content, default language of the message if <code>null</code>.
+   * @return content of the message or <code>null</code> if there is no such content.
+   */
+  private String contentAt(int index, String language) {
+    if (language == null) {
+      language = defaultLanguages[index];
+    }
+    if (otherContents[index] != null) {
+      Object obj = otherContents[index].getContent(language);
+      return obj != null ? obj.toString() : null;
+    }
+    int languageIndex = language != null ? languageIndex(language) : -1;
+    return languageIndex != -1 ? contents[languageIndex][index] : null;
+  }
+
+  /**
+   * Copies content of a message kept in another store, so rebuilt stores do not wrap one another.
+   *
+   * @param content content of the message in the other store.
+   * @param index index of the message in this store.
+   * @param languageList list of languages.
+   * @param indexes map of languages and their indexes.
+   * @param contentList list of arrays of contents.
+   */
+  private void copyContent(StoredContent content, int index, List languageList, Map indexes, List contentList) {
+    MessageStore source = content.store;
+    if (source.otherContents[content.index] != null) {
+      otherContents[index] = source.otherContents[content.index];
+      return;
+    }
+    for (int i = 0; i < source.languages.length; i++) {
+      String item = source.contents[i][content.index];
+      if (item != null) {
+        String language = internLanguage(source.languages[i], languageList, indexes, contentList, codes.length);
+        String[] languageContents = (String[]) contentList.get(((Integer) indexes.get(language)).intValue());
+        languageContents[index] = item;
+      }
+    }
+  }
+
+  /**
+   * @param code identification code for a message.
+   * @param length length of the table, a power of two.
+   * @return first slot of the code in the table.
+   */
+  private static int slot(int code, int length) {
+    int hash = code * 0x9E3779B9;
+    return (hash ^ (hash >>> 16)) & (length - 1);
+  }
+
+  /**
+   * Numbers a language, if it has not been numbered yet.
+   *
+   * @param language a language, possibly <code>null</code>.
+   * @param languageList list of languages.
+   * @param indexes map of languages and their indexes.
+   * @param contentList list of arrays of contents.
+   * @param count number of messages.
+   * @return the language instance shared by all messages.
+   */
+  private static String internLanguage(String language, List languageList, Map indexes, List contentList, int count) {
+    if (language == null) {
+      return null;
+    }
+    Integer index = (Integer) indexes.get(language);
+    if (index != null) {
+      return (String) languageList.get(index.intValue());
+    }
+    indexes.put(language, new Integer(languageList.size()));
+    languageList.add(language);
+    contentList.add(new String[count]);
+    return language;
+  }
+
+
+  // Private classes
+
+  /**
+   * Content of a message kept in the store.
+   */
+  private static class StoredContent implements IMessageContent {
+
+    /**
+     * Store of the message.
+     */
+    private final MessageStore store;
+
+    /**
+     * Index of the message in the store.
+     */
+    private final int index;
+
+    /**
+     * @param store store of the message.
+     * @param index index of the message.
+     */
+    StoredContent(MessageStore store, int index) {
+      this.store = store;
+      this.index = index;
+    }
+
+    /**
+     * @see pl.aislib.fm.messages.IMessageContent#getContent(java.lang.String)
+     */
+    public Object getContent(String language) {
+      return language != null ? store.contentAt(index, language) : null;
+    }
+
+  } // StoredContent class
+
+} // MessageStore class
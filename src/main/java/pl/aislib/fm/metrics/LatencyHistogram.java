@@ -0,0 +1,178 @@
+package pl.aislib.fm.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with bounded relative error.
+ * <p>Values are counted in log-linear buckets: every power of two is divided into
+ * {@link #SUB_BUCKETS} equal sub-buckets, so percentiles are reported with relative
+ * error below 7%, using fixed amount of memory independent of number of recorded values.
+ * Recording does not lock, histogram may be updated by many threads.</p>
+ *
+ * @since AISLIB 0.6
+ */
+public class LatencyHistogram {
+
+  /**
+   * Number of bits used for sub-bucket index.
+   */
+  private static final int SUB_BUCKET_BITS = 4;
+
+  /**
+   * Number of sub-buckets within every power of two.
+   */
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Number of buckets covering all non-negative <code>long</code> values.
+   */
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  /**
+   * Counts of values in buckets.
+   */
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  /**
+   * Number of recorded values.
+   */
+  private final AtomicLong count = new AtomicLong();
+
+  /**
+   * Sum of recorded values.
+   */
+  private final AtomicLong sum = new AtomicLong();
+
+  /**
+   * Minimal recorded value.
+   */
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+  /**
+   * Maximal recorded value.
+   */
+  private final AtomicLong max = new AtomicLong(0);
+
+
+  // Public methods
+
+  /**
+   * Records value, negative values are recorded as <code>0</code>.
+   *
+   * @param value value to record.
+   */
+  public void record(long value) {
+    if (value < 0) {
+      value = 0;
+    }
+    counts.incrementAndGet(bucketOf(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long current = min.get();
+    while ((value < current) && !min.compareAndSet(current, value)) {
+      current = min.get();
+    }
+    current = max.get();
+    while ((value > current) && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * @return number of recorded values.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return sum of recorded values.
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /**
+   * @return minimal recorded value, <code>0</code> if nothing was recorded.
+   */
+  public long getMin() {
+    return (count.get() == 0) ? 0 : min.get();
+  }
+
+  /**
+   * @return maximal recorded value.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Returns value below which given percent of recorded values fall.
+   *
+   * @param percentile percent of values, from <code>0</code> to <code>100</code>.
+   * @return upper bound of bucket containing the percentile, <code>0</code> if nothing was recorded.
+   */
+  public long getPercentile(double percentile) {
+    long total = count.get();
+    if (total == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(total * Math.min(Math.max(percentile, 0.0), 100.0) / 100.0);
+    if (rank < 1) {
+      rank = 1;
+    }
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  /**
+   * Removes all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+
+  // Private methods
+
+  /**
+   * @param value non-negative value.
+   * @return index of bucket for the value.
+   */
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @param bucket index of a bucket.
+   * @return largest value counted in the bucket.
+   */
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int exponent  = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = bucket % SUB_BUCKETS;
+    long lower = (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+  }
+
+} // LatencyHistogram class
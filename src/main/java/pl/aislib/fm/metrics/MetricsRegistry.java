@@ -0,0 +1,375 @@
+package pl.aislib.fm.metrics;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects counters and latencies of request processing stages for every page.
+ * <p>Registry is disabled by default. While disabled, {@link #start()} returns <code>0</code>
+ * without reading the clock and {@link #record(String, String, long)} returns immediately,
+ * so instrumented code costs one field read per stage.</p>
+ * <p>Typical use:
+ * <pre>
+ *   long start = metrics.start();
+ *   ... // measured stage
+ *   metrics.record(pageKey, MetricsRegistry.EVALUATE, start);
+ * </pre></p>
+ * Measurements are available through {@link #getSnapshot()} or through JMX, after
+ * registering the registry using {@link #registerMBean(String)}.
+ *
+ * @since AISLIB 0.6
+ */
+public class MetricsRegistry implements MetricsRegistryMBean {
+
+  /**
+   * Stage: selecting requested page key.
+   */
+  public static final String SELECT_PAGE = "select-page";
+
+  /**
+   * Stage: resolving page by {@link pl.aislib.fm.Controller#getPageInfo}.
+   */
+  public static final String RESOLVE_PAGE = "resolve-page";
+
+  /**
+   * Stage: creating and initializing page instance.
+   */
+  public static final String CREATE_PAGE = "create-page";
+
+  /**
+   * Stage: {@link pl.aislib.fm.Page#getPageResponse()}.
+   */
+  public static final String PAGE_RESPONSE = "page-response";
+
+  /**
+   * Stage: loading single template.
+   */
+  public static final String LOAD_TEMPLATE = "load-template";
+
+  /**
+   * Stage: evaluating includes of the page.
+   */
+  public static final String INCLUDES = "includes";
+
+  /**
+   * Stage: evaluating page and container templates.
+   */
+  public static final String EVALUATE = "evaluate";
+
+  /**
+   * Stage: writing response.
+   */
+  public static final String WRITE = "write";
+
+  /**
+   * Stage: whole request.
+   */
+  public static final String TOTAL = "total";
+
+  /**
+   * Counter: requests.
+   */
+  public static final String REQUESTS = "requests";
+
+  /**
+   * Counter: requests finished with exception.
+   */
+  public static final String ERRORS = "errors";
+
+  /**
+   * Key used for requests for unknown pages.
+   */
+  public static final String UNKNOWN_PAGE = "<unknown>";
+
+  /**
+   * Measurement switch.
+   */
+  private volatile boolean enabled;
+
+  /**
+   * Histograms, keyed by page key and stage name.
+   */
+  private final ConcurrentMap histograms = new ConcurrentHashMap();
+
+  /**
+   * Counters, keyed by page key and counter name.
+   */
+  private final ConcurrentMap counters = new ConcurrentHashMap();
+
+  /**
+   * Name under which registry is registered as MBean.
+   */
+  private ObjectName objectName;
+
+
+  // Public methods
+
+  /**
+   * @see MetricsRegistryMBean#isEnabled()
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @see MetricsRegistryMBean#setEnabled(boolean)
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Starts measurement of a stage.
+   *
+   * @return current value of {@link System#nanoTime()} or <code>0</code> if registry is disabled.
+   */
+  public long start() {
+    return enabled ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Finishes measurement of a stage.
+   *
+   * @param pageKey action key of the page.
+   * @param stage name of the stage.
+   * @param start value returned by {@link #start()}, measurement is ignored if it is <code>0</code>.
+   */
+  public void record(String pageKey, String stage, long start) {
+    if ((start == 0) || !enabled) {
+      return;
+    }
+    recordTime(pageKey, stage, System.nanoTime() - start);
+  }
+
+  /**
+   * Records time of a stage.
+   *
+   * @param pageKey action key of the page.
+   * @param stage name of the stage.
+   * @param nanos time of the stage in nanoseconds.
+   */
+  public void recordTime(String pageKey, String stage, long nanos) {
+    if (!enabled) {
+      return;
+    }
+    getHistogram(pageKey, stage).record(nanos);
+  }
+
+  /**
+   * Increments a counter.
+   *
+   * @param pageKey action key of the page.
+   * @param counter name of the counter.
+   */
+  public void increment(String pageKey, String counter) {
+    if (!enabled) {
+      return;
+    }
+    Key key = new Key(pageKey, counter);
+    AtomicLong value = (AtomicLong) counters.get(key);
+    if (value == null) {
+      counters.putIfAbsent(key, new AtomicLong());
+      value = (AtomicLong) counters.get(key);
+    }
+    value.incrementAndGet();
+  }
+
+  /**
+   * @see MetricsRegistryMBean#getCounter(String, String)
+   */
+  public long getCounter(String pageKey, String counter) {
+    AtomicLong value = (AtomicLong) counters.get(new Key(pageKey, counter));
+    return (value != null) ? value.get() : 0;
+  }
+
+  /**
+   * Returns histogram of given stage of given page, creating it if necessary.
+   *
+   * @param pageKey action key of the page.
+   * @param stage name of the stage.
+   * @return histogram of latencies in nanoseconds.
+   */
+  public LatencyHistogram getHistogram(String pageKey, String stage) {
+    Key key = new Key(pageKey, stage);
+    LatencyHistogram histogram = (LatencyHistogram) histograms.get(key);
+    if (histogram == null) {
+      histograms.putIfAbsent(key, new LatencyHistogram());
+      histogram = (LatencyHistogram) histograms.get(key);
+    }
+    return histogram;
+  }
+
+  /**
+   * Returns snapshots of all measured stages, sorted by page key and stage name.
+   *
+   * @return list of {@link StageSnapshot} objects.
+   */
+  public List getSnapshot() {
+    Map sorted = new TreeMap();
+    for (Iterator it = histograms.entrySet().iterator(); it.hasNext();) {
+      Map.Entry entry = (Map.Entry) it.next();
+      Key key = (Key) entry.getKey();
+      sorted.put(key.toString(), new StageSnapshot(key.pageKey, key.name, (LatencyHistogram) entry.getValue()));
+    }
+    return Collections.unmodifiableList(new ArrayList(sorted.values()));
+  }
+
+  /**
+   * Returns snapshots of all measured stages of given page, sorted by stage name.
+   *
+   * @param pageKey action key of the page.
+   * @return list of {@link StageSnapshot} objects.
+   */
+  public List getSnapshot(String pageKey) {
+    List result = new ArrayList();
+    for (Iterator it = getSnapshot().iterator(); it.hasNext();) {
+      StageSnapshot snapshot = (StageSnapshot) it.next();
+      if (snapshot.getPageKey().equals(pageKey)) {
+        result.add(snapshot);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @see MetricsRegistryMBean#getPageKeys()
+   */
+  public String[] getPageKeys() {
+    Map sorted = new TreeMap();
+    for (Iterator it = histograms.keySet().iterator(); it.hasNext();) {
+      String pageKey = ((Key) it.next()).pageKey;
+      sorted.put(pageKey, pageKey);
+    }
+    return (String[]) sorted.keySet().toArray(new String[sorted.size()]);
+  }
+
+  /**
+   * @see MetricsRegistryMBean#getSummary()
+   */
+  public String[] getSummary() {
+    return toStrings(getSnapshot());
+  }
+
+  /**
+   * @see MetricsRegistryMBean#getPageSummary(String)
+   */
+  public String[] getPageSummary(String pageKey) {
+    return toStrings(getSnapshot(pageKey));
+  }
+
+  /**
+   * @see MetricsRegistryMBean#reset()
+   */
+  public void reset() {
+    histograms.clear();
+    counters.clear();
+  }
+
+  /**
+   * Registers this registry in platform <code>MBeanServer</code>.
+   *
+   * @param name object name, for example <code>pl.aislib.fm:type=Metrics,application=shop</code>.
+   * @throws JMException if registration fails.
+   */
+  public synchronized void registerMBean(String name) throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName newName = new ObjectName(name);
+    server.registerMBean(this, newName);
+    objectName = newName;
+  }
+
+  /**
+   * Unregisters this registry from platform <code>MBeanServer</code>, if it was registered.
+   *
+   * @throws JMException if unregistration fails.
+   */
+  public synchronized void unregisterMBean() throws JMException {
+    if (objectName != null) {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+      objectName = null;
+    }
+  }
+
+
+  // Private methods
+
+  /**
+   * @param snapshots list of {@link StageSnapshot} objects.
+   * @return descriptions of snapshots.
+   */
+  private static String[] toStrings(List snapshots) {
+    String[] result = new String[snapshots.size()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = snapshots.get(i).toString();
+    }
+    return result;
+  }
+
+
+  // Private classes
+
+  /**
+   * Key of histogram or counter.
+   */
+  private static final class Key {
+
+    /**
+     * Action key of a page.
+     */
+    private final String pageKey;
+
+    /**
+     * Name of a stage or counter.
+     */
+    private final String name;
+
+    /**
+     * @param pageKey action key of a page.
+     * @param name name of a stage or counter.
+     */
+    Key(String pageKey, String name) {
+      this.pageKey = (pageKey != null) ? pageKey : UNKNOWN_PAGE;
+      this.name    = name;
+    }
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    public boolean equals(Object object) {
+      if (!(object instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) object;
+      return pageKey.equals(key.pageKey) && name.equals(key.name);
+    }
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    public int hashCode() {
+      return pageKey.hashCode() * 31 + name.hashCode();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    public String toString() {
+      return pageKey + "\u0000" + name;
+    }
+  } // Key class
+
+} // MetricsRegistry class
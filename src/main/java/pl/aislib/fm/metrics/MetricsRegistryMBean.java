@@ -0,0 +1,48 @@
+package pl.aislib.fm.metrics;
+
+/**
+ * Management interface of {@link MetricsRegistry}.
+ *
+ * @since AISLIB 0.6
+ */
+public interface MetricsRegistryMBean {
+
+  /**
+   * @return <code>true</code> if measurements are collected.
+   */
+  public boolean isEnabled();
+
+  /**
+   * @param enabled <code>true</code> if measurements should be collected.
+   */
+  public void setEnabled(boolean enabled);
+
+  /**
+   * @return action keys of measured pages.
+   */
+  public String[] getPageKeys();
+
+  /**
+   * @return description of every measured stage of every page.
+   */
+  public String[] getSummary();
+
+  /**
+   * @param pageKey action key of a page.
+   * @return description of every measured stage of the page.
+   */
+  public String[] getPageSummary(String pageKey);
+
+  /**
+   * @param pageKey action key of a page.
+   * @param counter name of a counter.
+   * @return value of the counter.
+   */
+  public long getCounter(String pageKey, String counter);
+
+  /**
+   * Removes all measurements.
+   */
+  public void reset();
+
+}
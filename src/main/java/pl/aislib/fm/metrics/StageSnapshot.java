@@ -0,0 +1,159 @@
+package pl.aislib.fm.metrics;
+
+/**
+ * Immutable snapshot of latencies of one stage of processing requests for one page.
+ *
+ * All times are given in microseconds.
+ *
+ * @since AISLIB 0.6
+ * @see MetricsRegistry#getSnapshot()
+ */
+public class StageSnapshot {
+
+  /**
+   * Action key of the page.
+   */
+  private final String pageKey;
+
+  /**
+   * Name of the stage.
+   */
+  private final String stage;
+
+  /**
+   * Number of measurements.
+   */
+  private final long count;
+
+  /**
+   * Total time.
+   */
+  private final long total;
+
+  /**
+   * Minimal time.
+   */
+  private final long min;
+
+  /**
+   * Maximal time.
+   */
+  private final long max;
+
+  /**
+   * Median time.
+   */
+  private final long median;
+
+  /**
+   * 90th percentile of time.
+   */
+  private final long percentile90;
+
+  /**
+   * 99th percentile of time.
+   */
+  private final long percentile99;
+
+
+  // Constructors
+
+  /**
+   * @param pageKey action key of the page.
+   * @param stage name of the stage.
+   * @param histogram histogram of latencies in nanoseconds.
+   */
+  StageSnapshot(String pageKey, String stage, LatencyHistogram histogram) {
+    this.pageKey = pageKey;
+    this.stage   = stage;
+    count        = histogram.getCount();
+    total        = histogram.getSum() / 1000;
+    min          = histogram.getMin() / 1000;
+    max          = histogram.getMax() / 1000;
+    median       = histogram.getPercentile(50) / 1000;
+    percentile90 = histogram.getPercentile(90) / 1000;
+    percentile99 = histogram.getPercentile(99) / 1000;
+  }
+
+
+  // Public methods
+
+  /**
+   * @return action key of the page.
+   */
+  public String getPageKey() {
+    return pageKey;
+  }
+
+  /**
+   * @return name of the stage.
+   */
+  public String getStage() {
+    return stage;
+  }
+
+  /**
+   * @return number of measurements.
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return total time of all measurements.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  /**
+   * @return mean time.
+   */
+  public long getMean() {
+    return (count == 0) ? 0 : total / count;
+  }
+
+  /**
+   * @return minimal time.
+   */
+  public long getMin() {
+    return min;
+  }
+
+  /**
+   * @return maximal time.
+   */
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * @return median time.
+   */
+  public long getMedian() {
+    return median;
+  }
+
+  /**
+   * @return 90th percentile of time.
+   */
+  public long getPercentile90() {
+    return percentile90;
+  }
+
+  /**
+   * @return 99th percentile of time.
+   */
+  public long getPercentile99() {
+    return percentile99;
+  }
+
+  /**
+   * @see java.lang.Object#toString()
+   */
+  public String toString() {
+    return pageKey + "/" + stage + ": count=" + count + ", mean=" + getMean() + "us, min=" + min
+      + "us, p50=" + median + "us, p90=" + percentile90 + "us, p99=" + percentile99 + "us, max=" + max + "us";
+  }
+
+} // StageSnapshot class
@@ -16,6 +16,15 @@ public abstract class AbstractShepherdsDog implements ShepherdsDog {
    */
   public final void setWatchedProperty(String propertyName) {
     this.propertyName = propertyName;
+    watchedPropertyChanged();
+  }
+
+  /**
+   * Called after name of watched property has been set, subclasses
+   * may override it to prepare values derived from the name.
+   */
+  protected void watchedPropertyChanged() {
+    ;
   }
 
   /**
@@ -11,6 +11,35 @@ import javax.servlet.http.HttpServletRequest;
  */
 public class DogWatchingHttpRequestParameters extends AbstractShepherdsDog {
 
+  /**
+   * Name of <code>x</code> coordinate parameter sent by image input.
+   */
+  private String propertyNameX;
+
+  /**
+   * Name of <code>y</code> coordinate parameter sent by image input.
+   */
+  private String propertyNameY;
+
+  /**
+   * Prepares names of parameters sent by image inputs.
+   */
+  protected void watchedPropertyChanged() {
+    propertyNameX = (propertyName != null) ? propertyName + ".x" : null;
+    propertyNameY = (propertyName != null) ? propertyName + ".y" : null;
+  }
+
+  /**
+   * Returns names of all parameters checked by this Dog: watched one and ones
+   * sent by image input with the same name.
+   *
+   * @return names of checked parameters.
+   * @since AISLIB 0.6
+   */
+  public String[] getWatchedParameterNames() {
+    return new String[] { propertyName, propertyNameX, propertyNameY };
+  }
+
   /**
    * @return String identyfying this Dog ({@link ShepherdsDog#REQUEST_PARAM})
    */
@@ -40,11 +69,11 @@ public class DogWatchingHttpRequestParameters extends AbstractShepherdsDog {
       if (paramValue != null) {
         return paramValue;
       }
-      paramValue = request.getParameter(propertyName + ".x");
+      paramValue = request.getParameter(propertyNameX);
       if (paramValue != null) {
         return paramValue;
       }
-      paramValue = request.getParameter(propertyName + ".y");
+      paramValue = request.getParameter(propertyNameY);
       if (paramValue != null) {
         return paramValue;
       }
@@ -70,6 +70,30 @@ public class Shepherd extends Object {
     return null;
   }
 
+  /**
+   * @return <code>Predicate</code> used by this Shepherd.
+   * @since AISLIB 0.6
+   */
+  public Predicate getPredicate() {
+    return predicate;
+  }
+
+  /**
+   * @return Dog helping this Shepherd.
+   * @since AISLIB 0.6
+   */
+  public ShepherdsDog getShepherdsDog() {
+    return shepherdsDog;
+  }
+
+  /**
+   * @return action key of <code>Page</code> to which request is dispatched when <code>Predicate</code> is matched.
+   * @since AISLIB 0.6
+   */
+  public String getPageRef() {
+    return pageRef;
+  }
+
   /**
    * Describe Shepherd
    *
@@ -0,0 +1,204 @@
+package pl.aislib.fm.shepherds;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.collections.Predicate;
+import org.apache.commons.logging.Log;
+
+import pl.aislib.util.predicates.FalsePredicate;
+import pl.aislib.util.predicates.IsNotNullPredicate;
+import pl.aislib.util.predicates.TruePredicate;
+
+/**
+ * Immutable, compiled form of a list of {@link Shepherd}s.
+ * <p>Gives exactly the same answers as {@link ShepherdsSchool#examine(List, Pasture, Object, String)}
+ * for the list it was compiled from, but:
+ * <ul>
+ *   <li>Shepherds using {@link FalsePredicate} are removed, Shepherds following
+ *   one using {@link TruePredicate} are removed as they are never asked,</li>
+ *   <li>Shepherds checking presence of request parameter (default <code>request-param</code>
+ *   trigger with <code>isNotNull</code> predicate) are grouped into one hash lookup,
+ *   so their number does not influence cost of examination.</li>
+ * </ul>
+ * Other Shepherds are asked one by one, in order of declaration.</p>
+ *
+ * @since AISLIB 0.6
+ * @see ShepherdsSchool
+ */
+public final class ShepherdsTable {
+
+  /**
+   * Shepherds left after compilation, in order of declaration.
+   */
+  private final Shepherd[] shepherds;
+
+  /**
+   * Names of parameters checked by Shepherds, <code>null</code> for Shepherds which are not indexed.
+   */
+  private final String[][] parameterNames;
+
+  /**
+   * Positions of indexed Shepherds, ascending.
+   */
+  private final int[] indexedPositions;
+
+  /**
+   * Map of parameter names into position of first Shepherd checking it.
+   */
+  private final Map parameterIndex;
+
+  /**
+   * Logging object.
+   */
+  private final Log log;
+
+
+  // Constructors
+
+  /**
+   * @param shepherds Shepherds left after compilation.
+   * @param parameterNames names of parameters checked by indexed Shepherds.
+   * @param log logging object.
+   */
+  private ShepherdsTable(Shepherd[] shepherds, String[][] parameterNames, Log log) {
+    this.shepherds      = shepherds;
+    this.parameterNames = parameterNames;
+    this.log            = log;
+
+    parameterIndex = new HashMap();
+    int indexed = 0;
+    for (int i = shepherds.length - 1; i >= 0; i--) {
+      if (parameterNames[i] != null) {
+        indexed++;
+        for (int j = 0; j < parameterNames[i].length; j++) {
+          parameterIndex.put(parameterNames[i][j], new Integer(i));
+        }
+      }
+    }
+    indexedPositions = new int[indexed];
+    for (int i = 0, j = 0; i < shepherds.length; i++) {
+      if (parameterNames[i] != null) {
+        indexedPositions[j++] = i;
+      }
+    }
+  }
+
+
+  // Public methods
+
+  /**
+   * Compiles given list of Shepherds.
+   *
+   * @param shepherds list of {@link Shepherd} objects.
+   * @param log logging object.
+   * @return compiled table.
+   */
+  public static ShepherdsTable compile(List shepherds, Log log) {
+    List kept  = new ArrayList(shepherds.size());
+    List names = new ArrayList(shepherds.size());
+    for (Iterator it = shepherds.iterator(); it.hasNext();) {
+      Shepherd  shepherd  = (Shepherd) it.next();
+      Predicate predicate = shepherd.getPredicate();
+      if (predicate.getClass() == FalsePredicate.class) {
+        continue;
+      }
+      kept.add(shepherd);
+      if (predicate.getClass() == TruePredicate.class) {
+        names.add(null);
+        break;
+      }
+      ShepherdsDog dog = shepherd.getShepherdsDog();
+      if ((predicate.getClass() == IsNotNullPredicate.class)
+          && (dog.getClass() == DogWatchingHttpRequestParameters.class)
+          && (dog.getWatchedProperty() != null)) {
+        names.add(((DogWatchingHttpRequestParameters) dog).getWatchedParameterNames());
+      } else {
+        names.add(null);
+      }
+    }
+    return new ShepherdsTable(
+      (Shepherd[]) kept.toArray(new Shepherd[kept.size()]), (String[][]) names.toArray(new String[names.size()][]), log
+    );
+  }
+
+  /**
+   * Asks Shepherds about given sheep.
+   *
+   * @param pasture universe in which everything happens.
+   * @param sheep current user request (usually <code>HttpServletRequest</code> object).
+   * @param defaultResult value returned if no Shepherd catches the sheep.
+   * @return action key of first Shepherd which caught the sheep or <code>defaultResult</code>.
+   * @see ShepherdsSchool#examine(List, Pasture, Object, String)
+   */
+  public String examine(Pasture pasture, Object sheep, String defaultResult) {
+    int limit = shepherds.length;
+    if ((indexedPositions.length > 0) && (sheep instanceof HttpServletRequest)) {
+      limit = findIndexed((HttpServletRequest) sheep);
+    } else if (indexedPositions.length > 0) {
+      // indexed Shepherds complain about such a sheep, let them do it in proper order
+      return ShepherdsSchool.examine(Arrays.asList(shepherds), pasture, sheep, defaultResult);
+    }
+    for (int i = 0; i < limit; i++) {
+      if (parameterNames[i] == null) {
+        String result = shepherds[i].mindTheSheep(pasture, sheep);
+        if (result != null) {
+          return result;
+        }
+      }
+    }
+    if (limit < shepherds.length) {
+      if (log.isDebugEnabled()) {
+        log.debug("caught by request parameter, returning: " + shepherds[limit].getPageRef());
+      }
+      return shepherds[limit].getPageRef();
+    }
+    return defaultResult;
+  }
+
+  /**
+   * @return number of Shepherds left after compilation.
+   */
+  public int size() {
+    return shepherds.length;
+  }
+
+
+  // Private methods
+
+  /**
+   * Finds first indexed Shepherd catching given request.
+   *
+   * @param request <code>HttpServletRequest</code> object.
+   * @return position of the Shepherd or number of all Shepherds if there is no such a Shepherd.
+   */
+  private int findIndexed(HttpServletRequest request) {
+    Map params = request.getParameterMap();
+    if (params.size() < parameterIndex.size()) {
+      int result = shepherds.length;
+      for (Iterator it = params.keySet().iterator(); it.hasNext();) {
+        Integer position = (Integer) parameterIndex.get(it.next());
+        if ((position != null) && (position.intValue() < result)) {
+          result = position.intValue();
+        }
+      }
+      return result;
+    }
+    for (int i = 0; i < indexedPositions.length; i++) {
+      String[] names = parameterNames[indexedPositions[i]];
+      for (int j = 0; j < names.length; j++) {
+        if (request.getParameter(names[j]) != null) {
+          return indexedPositions[i];
+        }
+      }
+    }
+    return shepherds.length;
+  }
+
+} // class
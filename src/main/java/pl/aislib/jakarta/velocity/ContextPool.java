@@ -0,0 +1,60 @@
+package pl.aislib.jakarta.velocity;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of evaluation contexts.
+ *
+ * Contexts are borrowed for a single evaluation and returned afterwards;
+ * when the pool is empty a new context is created, when it is full a returned
+ * context is left to the garbage collector. Pool of size <code>0</code> never keeps contexts.
+ *
+ * @since AISLIB 0.6
+ */
+final class ContextPool {
+
+  /**
+   * Idle contexts, <code>null</code> if pooling is disabled.
+   */
+  private final BlockingQueue idle;
+
+
+  // Constructors
+
+  /**
+   * @param size maximal number of idle contexts, <code>0</code> to disable pooling.
+   */
+  ContextPool(int size) {
+    idle = size > 0 ? new ArrayBlockingQueue(size) : null;
+  }
+
+
+  // Package methods
+
+  /**
+   * @return context for an evaluation.
+   */
+  EvaluationContext borrow() {
+    EvaluationContext result = idle != null ? (EvaluationContext) idle.poll() : null;
+    return result != null ? result : new EvaluationContext();
+  }
+
+  /**
+   * @param context context which is not used any more.
+   */
+  void release(EvaluationContext context) {
+    context.clear();
+    if (idle != null) {
+      idle.offer(context);
+    }
+  }
+
+  /**
+   * @return number of idle contexts.
+   */
+  int size() {
+    return idle != null ? idle.size() : 0;
+  }
+
+} // ContextPool class
@@ -0,0 +1,123 @@
+package pl.aislib.jakarta.velocity;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.velocity.context.Context;
+
+/**
+ * Velocity context of a single evaluation of a template.
+ *
+ * Values are looked up in values set during the evaluation (e.g. by <code>#set</code>),
+ * then in the request level layer (predefined values, then evaluation parameters)
+ * and finally in values set directly in the template, the same order in which values
+ * used to overwrite each other in a single context of the template.
+ * Only values set during the evaluation are stored in the context, so it is cheap
+ * to create and may be reused after {@link #clear()}.
+ *
+ * @since AISLIB 0.6
+ */
+final class EvaluationContext implements Context {
+
+  /**
+   * Values set during the evaluation.
+   */
+  private final Map local = new HashMap();
+
+  /**
+   * Values set directly in the template, may be <code>null</code>.
+   */
+  private Map templateValues;
+
+  /**
+   * Request level layer, may be <code>null</code>.
+   */
+  private Context parent;
+
+
+  // Public methods
+
+  /**
+   * @see Context#get(String)
+   */
+  public Object get(String key) {
+    Object result = local.get(key);
+    if (result != null) {
+      return result;
+    }
+    if (parent != null) {
+      result = parent.get(key);
+      if (result != null) {
+        return result;
+      }
+    }
+    return templateValues != null ? templateValues.get(key) : null;
+  }
+
+  /**
+   * @see Context#put(String, Object)
+   */
+  public Object put(String key, Object value) {
+    return local.put(key, value);
+  }
+
+  /**
+   * @see Context#containsKey(Object)
+   */
+  public boolean containsKey(Object key) {
+    return local.containsKey(key) || parent != null && parent.containsKey(key)
+      || templateValues != null && templateValues.containsKey(key);
+  }
+
+  /**
+   * @see Context#getKeys()
+   */
+  public Object[] getKeys() {
+    Set keys = new HashSet(local.keySet());
+    if (templateValues != null) {
+      keys.addAll(templateValues.keySet());
+    }
+    if (parent != null) {
+      Object[] parentKeys = parent.getKeys();
+      for (int i = 0; i < parentKeys.length; i++) {
+        keys.add(parentKeys[i]);
+      }
+    }
+    return keys.toArray();
+  }
+
+  /**
+   * Removes value set during the evaluation.
+   *
+   * @see Context#remove(Object)
+   */
+  public Object remove(Object key) {
+    return local.remove(key);
+  }
+
+
+  // Package methods
+
+  /**
+   * Prepares the context for an evaluation.
+   *
+   * @param templateValues values set directly in the template, may be <code>null</code>.
+   * @param parent request level layer, may be <code>null</code>.
+   */
+  void reset(Map templateValues, Context parent) {
+    this.templateValues = templateValues != null && !templateValues.isEmpty() ? templateValues : null;
+    this.parent = parent;
+  }
+
+  /**
+   * Forgets values and layers of the last evaluation.
+   */
+  void clear() {
+    local.clear();
+    templateValues = null;
+    parent = null;
+  }
+
+} // EvaluationContext class
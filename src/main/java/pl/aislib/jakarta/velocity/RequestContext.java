@@ -0,0 +1,108 @@
+package pl.aislib.jakarta.velocity;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.velocity.context.Context;
+
+/**
+ * Read-only request level layer of Velocity contexts.
+ *
+ * Exposes evaluation parameters of a request, without copying them, over
+ * the application level layer of predefined values; predefined values win
+ * over parameters with the same names. One layer is shared by all templates
+ * of a request: the page, its includes and its container.
+ *
+ * @since AISLIB 0.6
+ */
+final class RequestContext implements Context {
+
+  /**
+   * Evaluation parameters of the request, may be <code>null</code>.
+   */
+  private final Map values;
+
+  /**
+   * Immutable predefined values of the application, may be <code>null</code>.
+   */
+  private final Map predefined;
+
+
+  // Constructors
+
+  /**
+   * @param values evaluation parameters of the request, may be <code>null</code>.
+   * @param predefined immutable predefined values of the application, may be <code>null</code>.
+   */
+  RequestContext(Map values, Map predefined) {
+    this.values = values;
+    this.predefined = predefined;
+  }
+
+
+  // Public methods
+
+  /**
+   * @see Context#get(String)
+   */
+  public Object get(String key) {
+    if (predefined != null) {
+      Object result = predefined.get(key);
+      if (result != null || predefined.containsKey(key)) {
+        return result;
+      }
+    }
+    return values != null ? values.get(key) : null;
+  }
+
+  /**
+   * @see Context#containsKey(Object)
+   */
+  public boolean containsKey(Object key) {
+    return predefined != null && predefined.containsKey(key) || values != null && values.containsKey(key);
+  }
+
+  /**
+   * @see Context#getKeys()
+   */
+  public Object[] getKeys() {
+    Set keys = new HashSet();
+    if (values != null) {
+      keys.addAll(values.keySet());
+    }
+    if (predefined != null) {
+      keys.addAll(predefined.keySet());
+    }
+    return keys.toArray();
+  }
+
+  /**
+   * Layer is read-only, values set by templates are kept in evaluation contexts.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  public Object put(String key, Object value) {
+    throw new UnsupportedOperationException("request context is read-only");
+  }
+
+  /**
+   * Layer is read-only, values set by templates are kept in evaluation contexts.
+   *
+   * @throws UnsupportedOperationException always.
+   */
+  public Object remove(Object key) {
+    throw new UnsupportedOperationException("request context is read-only");
+  }
+
+
+  // Package methods
+
+  /**
+   * @return evaluation parameters of the request.
+   */
+  Map getValues() {
+    return values;
+  }
+
+} // RequestContext class
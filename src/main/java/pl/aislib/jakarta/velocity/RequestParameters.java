@@ -0,0 +1,158 @@
+package pl.aislib.jakarta.velocity;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Evaluation parameters of a request, carrying the request level layer of Velocity contexts.
+ *
+ * Returned by {@link VelocityTemplateEngine#beginRequest(Map)}, so evaluations of the request
+ * find their layer without any lookup shared by concurrent requests. All operations
+ * are delegated to wrapped parameters, which are seen by the layer without copying.
+ *
+ * @since AISLIB 0.6
+ */
+final class RequestParameters implements Map {
+
+  /**
+   * Wrapped parameters.
+   */
+  private final Map parameters;
+
+  /**
+   * Request level layer over the parameters.
+   */
+  private final RequestContext context;
+
+
+  // Constructors
+
+  /**
+   * @param parameters wrapped parameters.
+   * @param context request level layer over the parameters.
+   */
+  RequestParameters(Map parameters, RequestContext context) {
+    this.parameters = parameters;
+    this.context = context;
+  }
+
+
+  // Public methods
+
+  /**
+   * @see Map#size()
+   */
+  public int size() {
+    return parameters.size();
+  }
+
+  /**
+   * @see Map#isEmpty()
+   */
+  public boolean isEmpty() {
+    return parameters.isEmpty();
+  }
+
+  /**
+   * @see Map#containsKey(Object)
+   */
+  public boolean containsKey(Object key) {
+    return parameters.containsKey(key);
+  }
+
+  /**
+   * @see Map#containsValue(Object)
+   */
+  public boolean containsValue(Object value) {
+    return parameters.containsValue(value);
+  }
+
+  /**
+   * @see Map#get(Object)
+   */
+  public Object get(Object key) {
+    return parameters.get(key);
+  }
+
+  /**
+   * @see Map#put(Object, Object)
+   */
+  public Object put(Object key, Object value) {
+    return parameters.put(key, value);
+  }
+
+  /**
+   * @see Map#remove(Object)
+   */
+  public Object remove(Object key) {
+    return parameters.remove(key);
+  }
+
+  /**
+   * @see Map#putAll(Map)
+   */
+  public void putAll(Map map) {
+    parameters.putAll(map);
+  }
+
+  /**
+   * @see Map#clear()
+   */
+  public void clear() {
+    parameters.clear();
+  }
+
+  /**
+   * @see Map#keySet()
+   */
+  public Set keySet() {
+    return parameters.keySet();
+  }
+
+  /**
+   * @see Map#values()
+   */
+  public Collection values() {
+    return parameters.values();
+  }
+
+  /**
+   * @see Map#entrySet()
+   */
+  public Set entrySet() {
+    return parameters.entrySet();
+  }
+
+  /**
+   * @see Object#equals(Object)
+   */
+  public boolean equals(Object o) {
+    return o == this || parameters.equals(o);
+  }
+
+  /**
+   * @see Object#hashCode()
+   */
+  public int hashCode() {
+    return parameters.hashCode();
+  }
+
+  /**
+   * @see Object#toString()
+   */
+  public String toString() {
+    return parameters.toString();
+  }
+
+
+  // Package methods
+
+  /**
+   * @return request level layer over the parameters.
+   */
+  RequestContext getContext() {
+    return context;
+  }
+
+} // RequestParameters class
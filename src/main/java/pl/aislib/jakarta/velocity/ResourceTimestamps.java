@@ -0,0 +1,86 @@
+package pl.aislib.jakarta.velocity;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.net.HttpURLConnection;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+
+import org.apache.velocity.runtime.resource.Resource;
+
+/**
+ * Reads modification times of templates for resource loaders.
+ *
+ * @since AISLIB 0.6
+ */
+final class ResourceTimestamps {
+
+  // Constructors
+
+  /**
+   * Utility class.
+   */
+  private ResourceTimestamps() {
+  }
+
+
+  // Package methods
+
+  /**
+   * Returns modification time of a resource located by <code>URL</code>.
+   *
+   * Local files are checked directly, other resources through <code>URLConnection</code>;
+   * HTTP resources are asked with a <code>HEAD</code> request, so their content is not transferred.
+   * No content stream is opened; archives of <code>jar:</code> resources are left to the cache
+   * of the runtime, which would otherwise open them again on every check.
+   *
+   * @param url location of a resource.
+   * @return modification time of the resource or <code>0</code> if it is not known.
+   */
+  static long getLastModified(URL url) {
+    if ("file".equals(url.getProtocol())) {
+      try {
+        return new File(url.toURI()).lastModified();
+      } catch (URISyntaxException use) {
+        ;
+      } catch (IllegalArgumentException iae) {
+        ;
+      }
+    }
+
+    URLConnection connection = null;
+    try {
+      connection = url.openConnection();
+      if (!(connection instanceof JarURLConnection)) {
+        connection.setUseCaches(false);
+      }
+      if (connection instanceof HttpURLConnection) {
+        ((HttpURLConnection) connection).setRequestMethod("HEAD");
+      }
+      return connection.getLastModified();
+    } catch (IOException ioe) {
+      return 0;
+    } finally {
+      if (connection instanceof HttpURLConnection) {
+        ((HttpURLConnection) connection).disconnect();
+      }
+    }
+  }
+
+  /**
+   * Checks if a resource has been modified since it was loaded.
+   *
+   * Resources of unknown modification time are always reported as modified.
+   *
+   * @param resource loaded resource.
+   * @param lastModified current modification time of the resource, <code>0</code> if it is not known.
+   * @return <code>true</code> if the resource should be reloaded.
+   */
+  static boolean isModified(Resource resource, long lastModified) {
+    return lastModified == 0 || lastModified != resource.getLastModified();
+  }
+
+} // ResourceTimestamps class
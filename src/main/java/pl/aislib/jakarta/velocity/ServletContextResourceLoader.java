@@ -1,7 +1,11 @@
 package pl.aislib.jakarta.velocity;
 
+import java.io.File;
 import java.io.InputStream;
 
+import java.net.MalformedURLException;
+import java.net.URL;
+
 import javax.servlet.ServletContext;
 
 import org.apache.commons.collections.ExtendedProperties;
@@ -77,18 +81,38 @@ public class ServletContextResourceLoader extends ResourceLoader {
   }
 
   /**
-   * @param resource ignored argument
-   * @return <code>true</code>.
+   * Resources of unknown modification time are always reported as modified.
+   *
+   * @param resource to be checked.
+   * @return <code>true</code> if the resource should be reloaded.
    */
   public boolean isSourceModified(Resource resource) {
-    return true;
+    return ResourceTimestamps.isModified(resource, getLastModified(resource));
   }
 
   /**
-   * @param resource ignored argument
-   * @return <code>0</code>.
+   * Uses timestamp of the file if the web application is expanded,
+   * otherwise modification time of the <code>URL</code> given by the servlet context.
+   *
+   * @param resource to be checked.
+   * @return modification time or <code>0</code> if it is not known.
    */
   public long getLastModified(Resource resource) {
-    return 0;
+    String path = templateDir + resource.getName();
+
+    String realPath = servletContext.getRealPath(path);
+    if (realPath != null) {
+      File file = new File(realPath);
+      if (file.isFile()) {
+        return file.lastModified();
+      }
+    }
+
+    try {
+      URL url = servletContext.getResource(path);
+      return url != null ? ResourceTimestamps.getLastModified(url) : 0;
+    } catch (MalformedURLException e) {
+      return 0;
+    }
   }
 }
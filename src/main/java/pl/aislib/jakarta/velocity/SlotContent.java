@@ -0,0 +1,96 @@
+package pl.aislib.jakarta.velocity;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.util.Map;
+
+import pl.aislib.fm.TemplateEngineException;
+
+/**
+ * Output of a page put into a slot of its container.
+ *
+ * The page is rendered directly into holes of {@link VelocityLayout};
+ * references to the slot outside of the container, e.g. in global macros,
+ * get the output as <code>String</code>, rendered when it is needed for the first time.
+ *
+ * @since AISLIB 0.6
+ */
+final class SlotContent {
+
+  /**
+   * Engine rendering the page.
+   */
+  private final VelocityTemplateEngine engine;
+
+  /**
+   * Page template.
+   */
+  private final VelocityTemplate template;
+
+  /**
+   * Evaluation parameters.
+   */
+  private final Map parameters;
+
+  /**
+   * Output of the page, if it has been rendered as <code>String</code>.
+   */
+  private String content;
+
+
+  // Constructors
+
+  /**
+   * @param engine engine rendering the page.
+   * @param template page template.
+   * @param parameters evaluation parameters.
+   */
+  SlotContent(VelocityTemplateEngine engine, VelocityTemplate template, Map parameters) {
+    this.engine = engine;
+    this.template = template;
+    this.parameters = parameters;
+  }
+
+
+  // Public methods
+
+  /**
+   * @return output of the page.
+   * @throws IllegalStateException if the page cannot be rendered.
+   */
+  public String toString() {
+    if (content == null) {
+      StringWriter writer = new StringWriter();
+      try {
+        writeTo(writer);
+      } catch (IOException ioe) {
+        throw new IllegalStateException(ioe.getMessage());
+      } catch (TemplateEngineException teex) {
+        throw new IllegalStateException(teex.getMessage());
+      }
+      content = writer.toString();
+    }
+    return content;
+  }
+
+
+  // Package methods
+
+  /**
+   * Renders the page into given writer.
+   *
+   * @param writer writer to render to.
+   * @throws IOException if writing fails.
+   * @throws TemplateEngineException if the page cannot be rendered.
+   */
+  void writeTo(Writer writer) throws IOException, TemplateEngineException {
+    if (content != null) {
+      writer.write(content);
+    } else {
+      engine.evaluate(template, parameters, writer);
+    }
+  }
+
+} // SlotContent class
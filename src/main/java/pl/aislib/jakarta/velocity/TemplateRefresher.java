@@ -0,0 +1,132 @@
+package pl.aislib.jakarta.velocity;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.velocity.app.VelocityEngine;
+
+import org.apache.velocity.exception.ResourceNotFoundException;
+
+/**
+ * Refreshes templates loaded by a Velocity engine in a background thread.
+ *
+ * Velocity checks modification of a cached template when it is requested after
+ * the <code>modificationCheckInterval</code> of its resource loader has passed,
+ * so the check and reloading are done by the request. The refresher periodically
+ * requests all templates loaded so far, so modified templates are reloaded off the
+ * request path. It is useful only for resource loaders with caching and
+ * a positive check interval, not longer than the refresh interval; otherwise
+ * refreshes find templates not due for checking and requests still reload them.
+ * {@link VelocityTemplateEngine} configured with
+ * {@link VelocityTemplateEngine#REFRESH_INTERVAL_KEY} sets both intervals from that setting.
+ *
+ * @since AISLIB 0.6
+ */
+public class TemplateRefresher {
+
+  /**
+   * Engine which templates are refreshed.
+   */
+  private final VelocityEngine engine;
+
+  /**
+   * Names of loaded templates, as keys.
+   */
+  private final Map names = new ConcurrentHashMap();
+
+  /**
+   * Timer running refreshes, <code>null</code> if the refresher is stopped.
+   */
+  private Timer timer;
+
+
+  // Constructors
+
+  /**
+   * @param engine engine which templates should be refreshed.
+   */
+  public TemplateRefresher(VelocityEngine engine) {
+    if (engine == null) {
+      throw new NullPointerException("engine cannot be null");
+    }
+    this.engine = engine;
+  }
+
+
+  // Public methods
+
+  /**
+   * Registers a template to be refreshed.
+   *
+   * @param name name of a template loaded by the engine.
+   */
+  public void add(String name) {
+    names.put(name, Boolean.TRUE);
+  }
+
+  /**
+   * @return number of registered templates.
+   */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Starts refreshing templates in a daemon thread.
+   *
+   * @param interval time between refreshes, in milliseconds.
+   * @throws IllegalArgumentException if the interval is not positive.
+   */
+  public synchronized void start(long interval) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("interval must be positive: " + interval);
+    }
+    stop();
+    timer = new Timer("Velocity template refresher", true);
+    timer.schedule(new TimerTask() {
+      public void run() {
+        refresh();
+      }
+    }, interval, interval);
+  }
+
+  /**
+   * Stops refreshing templates.
+   */
+  public synchronized void stop() {
+    if (timer != null) {
+      timer.cancel();
+      timer = null;
+    }
+  }
+
+  /**
+   * @return <code>true</code> if templates are refreshed in background.
+   */
+  public synchronized boolean isRunning() {
+    return timer != null;
+  }
+
+  /**
+   * Requests all registered templates, so the engine reloads modified ones.
+   *
+   * Templates which do not exist any more are forgotten.
+   */
+  public void refresh() {
+    for (Iterator i = names.keySet().iterator(); i.hasNext();) {
+      String name = (String) i.next();
+      try {
+        engine.getTemplate(name);
+      } catch (ResourceNotFoundException rnfe) {
+        i.remove();
+      } catch (Exception e) {
+        engine.warn("Cannot refresh template " + name + ": " + e.getMessage());
+      }
+    }
+  }
+
+} // TemplateRefresher class
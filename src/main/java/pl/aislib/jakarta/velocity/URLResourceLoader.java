@@ -58,24 +58,29 @@ public class URLResourceLoader extends ResourceLoader {
   /**
    * Checks if given resource has been modified.
    *
-   * Always return <code>true</code>.
+   * Resources of unknown modification time are always reported as modified.
    *
    * @param resource to be checked.
-   * @return <code>true</code>.
+   * @return <code>true</code> if the resource should be reloaded.
    */
   public boolean isSourceModified(Resource resource) {
-    return true;
+    return ResourceTimestamps.isModified(resource, getLastModified(resource));
   }
 
   /**
    * Checks when given resource has been modified.
    *
-   * Always return <code>0</code>.
+   * Uses timestamps of files for <code>file:</code> URLs
+   * and <code>URLConnection.getLastModified()</code> for other ones.
    *
    * @param resource to be checked
-   * @return <code>0</code>
+   * @return modification time or <code>0</code> if it is not known.
    */
   public long getLastModified(Resource resource) {
-    return 0;
+    try {
+      return ResourceTimestamps.getLastModified(new URL(resource.getName()));
+    } catch (MalformedURLException e) {
+      return 0;
+    }
   }
 }
@@ -77,6 +77,23 @@ public class VelocityConfigHelper {
     configuration.put(baseKey + "cache", new Boolean(cacheControl));
   }
 
+  /**
+   * Put proper entries for cached <code>ServletContextResourceLoader</code> into given <code>Map</code>.
+   *
+   * @since AISLIB 0.6
+   * @param configuration Map to initialize <code>Velocity</code>
+   * @param context used to load templates
+   * @param prefix directory to load templates
+   * @param modificationCheckInterval seconds between checks of modification of loaded templates,
+   *         <code>0</code> if they should never be checked.
+   */
+  public static void configureServletContextLoader(Map configuration,
+          ServletContext context, String prefix, long modificationCheckInterval) {
+    configureServletContextLoader(configuration, context, prefix, true);
+    String baseKey = "servletContext." + RuntimeConstants.RESOURCE_LOADER + ".";
+    configuration.put(baseKey + "modificationCheckInterval", new Long(modificationCheckInterval));
+  }
+
   /**
    * Put proper entries for {@link URLResourceLoader} into given <code>Map</code>.
    *
@@ -113,6 +130,35 @@ public class VelocityConfigHelper {
     configureURLResourceLoader(configuration, 0);
   }
 
+  /**
+   * Refresh loaded templates in background.
+   *
+   * Modified templates are reloaded by {@link TemplateRefresher} instead of requests.
+   * Resource loaders should be cached and have a positive <code>modificationCheckInterval</code>,
+   * which <code>VelocityTemplateEngine</code> replaces with the refresh interval, as Velocity
+   * checks a template only when its check interval has passed.
+   *
+   * @since AISLIB 0.6
+   * @param configuration Map to initialize <code>VelocityTemplateEngine</code>.
+   * @param interval seconds between refreshes, <code>0</code> to disable refreshing.
+   */
+  public static void configureRefresher(Map configuration, long interval) {
+    configuration.put(VelocityTemplateEngine.REFRESH_INTERVAL_KEY, new Long(interval));
+  }
+
+  /**
+   * Reuse Velocity contexts of evaluations.
+   *
+   * At most <code>size</code> idle contexts are kept by <code>VelocityTemplateEngine</code>.
+   *
+   * @since AISLIB 0.6
+   * @param configuration Map to initialize <code>VelocityTemplateEngine</code>.
+   * @param size maximal number of pooled contexts, <code>0</code> to disable pooling.
+   */
+  public static void configureContextPool(Map configuration, int size) {
+    configuration.put(VelocityTemplateEngine.CONTEXT_POOL_SIZE_KEY, new Integer(size));
+  }
+
   /**
    * Put proper entries for {@link CommonsLogSystem} into given <code>Map</code>.
    *
@@ -0,0 +1,187 @@
+package pl.aislib.jakarta.velocity;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+import org.apache.velocity.context.Context;
+import org.apache.velocity.context.InternalContextAdapterImpl;
+
+import org.apache.velocity.runtime.parser.node.ASTReference;
+import org.apache.velocity.runtime.parser.node.ASTText;
+import org.apache.velocity.runtime.parser.node.Node;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+
+/**
+ * Container template compiled into a sequence of static chunks, dynamic nodes and holes.
+ *
+ * Top level of the container is split once: text is rendered in advance into
+ * static chunks, references to the slot (<code>$slot</code>, <code>${slot}</code>,
+ * <code>$!slot</code> or <code>$!{slot}</code>) become holes and all other nodes
+ * are rendered as usual. Holes are filled by rendering the page directly into
+ * the output, so output of the page is never kept as <code>String</code>.
+ * Containers referring to the slot in any other way, e.g. in directives or by
+ * methods, are not split, as they need output of the page as <code>String</code>.
+ * <p>
+ * Nodes before a hole are rendered before the page, so unlike evaluation of the page
+ * first, they do not see values the page sets, e.g. by <code>#set</code> or in shared objects.
+ * </p>
+ *
+ * @since AISLIB 0.6
+ */
+final class VelocityLayout {
+
+  /**
+   * Marker of holes in parts of the layout.
+   */
+  private static final Object HOLE = new Object();
+
+  /**
+   * Compiled container template.
+   */
+  private final Template template;
+
+  /**
+   * Static chunks (<code>String</code>s), nodes and holes of the container, <code>null</code> if it has no holes.
+   */
+  private final Object[] parts;
+
+
+  // Constructors
+
+  /**
+   * @param template compiled container template.
+   * @param parts parts of the container, <code>null</code> if it has no holes.
+   */
+  private VelocityLayout(Template template, Object[] parts) {
+    this.template = template;
+    this.parts = parts;
+  }
+
+
+  // Package methods
+
+  /**
+   * Splits container template.
+   *
+   * @param template compiled container template.
+   * @param slot name of the slot.
+   * @return layout of the container.
+   * @throws IOException if static chunks cannot be rendered.
+   */
+  static VelocityLayout compile(Template template, String slot) throws IOException {
+    if (!(template.getData() instanceof SimpleNode)) {
+      return new VelocityLayout(template, null);
+    }
+    SimpleNode root = (SimpleNode) template.getData();
+
+    List parts = new ArrayList();
+    StringWriter chunk = new StringWriter();
+    InternalContextAdapterImpl staticContext = new InternalContextAdapterImpl(new VelocityContext());
+    int holes = 0;
+    for (int i = 0; i < root.jjtGetNumChildren(); i++) {
+      Node node = root.jjtGetChild(i);
+      if (node instanceof ASTText) {
+        node.render(staticContext, chunk);
+        continue;
+      }
+
+      if (chunk.getBuffer().length() > 0) {
+        parts.add(chunk.toString());
+        chunk = new StringWriter();
+      }
+      if ((node instanceof ASTReference) && isHole(((ASTReference) node).literal(), slot)) {
+        parts.add(HOLE);
+        holes++;
+      } else {
+        parts.add(node);
+      }
+    }
+    if (chunk.getBuffer().length() > 0) {
+      parts.add(chunk.toString());
+    }
+
+    boolean split = (holes > 0) && (countReferences(root, slot) == holes);
+    return new VelocityLayout(template, split ? parts.toArray() : null);
+  }
+
+  /**
+   * @param template compiled container template.
+   * @return <code>true</code> if the layout has been compiled from given template.
+   */
+  boolean isFor(Template template) {
+    return this.template == template;
+  }
+
+  /**
+   * @return <code>true</code> if the container has holes for the page.
+   */
+  boolean hasHoles() {
+    return parts != null;
+  }
+
+  /**
+   * Renders container, filling holes with the page, like <code>Template.merge(Context, Writer)</code>.
+   *
+   * @param context context of the container.
+   * @param content output of the page.
+   * @param writer writer to render to.
+   * @throws Exception if rendering fails.
+   */
+  void render(Context context, SlotContent content, Writer writer) throws Exception {
+    InternalContextAdapterImpl ica = new InternalContextAdapterImpl(context);
+    ica.pushCurrentTemplateName(template.getName());
+    ica.setCurrentResource(template);
+    try {
+      for (int i = 0; i < parts.length; i++) {
+        Object part = parts[i];
+        if (part instanceof String) {
+          writer.write((String) part);
+        } else if (part == HOLE) {
+          content.writeTo(writer);
+        } else {
+          ((Node) part).render(ica, writer);
+        }
+      }
+    } finally {
+      ica.popCurrentTemplateName();
+      ica.setCurrentResource(null);
+    }
+  }
+
+
+  // Private methods
+
+  /**
+   * @param node a node.
+   * @param slot name of the slot.
+   * @return number of references to the slot in the node and its descendants.
+   */
+  private static int countReferences(Node node, String slot) {
+    int result = 0;
+    if ((node instanceof ASTReference) && slot.equals(((ASTReference) node).getRootString())) {
+      result++;
+    }
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      result += countReferences(node.jjtGetChild(i), slot);
+    }
+    return result;
+  }
+
+  /**
+   * @param literal literal of a reference.
+   * @param slot name of the slot.
+   * @return <code>true</code> if the literal is a plain reference to the slot.
+   */
+  private static boolean isHole(String literal, String slot) {
+    return literal.equals("$" + slot) || literal.equals("${" + slot + "}")
+      || literal.equals("$!" + slot) || literal.equals("$!{" + slot + "}");
+  }
+
+} // VelocityLayout class
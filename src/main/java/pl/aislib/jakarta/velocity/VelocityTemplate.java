@@ -5,23 +5,58 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.OutputStreamWriter;
+import java.io.ByteArrayOutputStream;
 
 import java.util.Map;
+import java.util.HashMap;
 import java.util.Iterator;
 
 import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
 
+import org.apache.velocity.context.Context;
+
 import pl.aislib.util.template.StringTemplate;
 
 public class VelocityTemplate implements StringTemplate {
 
   private Template        template;
+  private Context         parent;
+
+  /**
+   * Context of values set directly in this template, created on demand.
+   */
   private VelocityContext context;
+  private Map             values;
 
   VelocityTemplate(Template _template) {
+    this(_template, null);
+  }
+
+  /**
+   * @param _template Velocity template.
+   * @param _parent context with values visible to the template unless set in the template, may be <code>null</code>.
+   * @since AISLIB 0.6
+   */
+  VelocityTemplate(Template _template, Context _parent) {
     template = _template;
-    context = new VelocityContext();
+    parent = _parent;
+  }
+
+  /**
+   * @return Velocity template.
+   * @since AISLIB 0.6
+   */
+  Template getTemplate() {
+    return template;
+  }
+
+  /**
+   * @return values set directly in this template, <code>null</code> if none has been set.
+   * @since AISLIB 0.6
+   */
+  Map getValues() {
+    return values;
   }
 
   public void setValues(Map map) {
@@ -29,30 +64,93 @@ public class VelocityTemplate implements StringTemplate {
       Iterator keys = map.keySet().iterator();
       while (keys.hasNext()) {
         String key = keys.next().toString();
-        context.put(key, map.get(key));
+        getContext().put(key, map.get(key));
       }
     }
   }
 
   public void setValue(String key, Object value) {
-    context.put(key, value);
+    getContext().put(key, value);
   }
 
   public void writeTo(Writer writer) throws IOException {
     try {
-      template.merge(context, writer);
+      merge(writer);
+    } catch (IOException ioe) {
+      throw ioe;
     } catch (Exception e) {
       throw new IOException(e.getMessage());
     } 
   }
 
+  /**
+   * Merges template with its context into given writer, passing Velocity exceptions untouched.
+   */
+  void merge(Writer writer) throws Exception {
+    template.merge(getContext(), writer);
+  }
+
+  /**
+   * Writes result to given stream using the default charset.
+   *
+   * @see #writeTo(OutputStream, String)
+   */
   public void writeTo(OutputStream stream) throws IOException {
     Writer writer = new OutputStreamWriter(stream);
     writeTo(writer);
+    writer.flush();
   }
 
+  /**
+   * Writes result directly to given stream, without building intermediate <code>String</code>.
+   *
+   * @param stream stream to write result to, flushed but not closed.
+   * @param charset name of the charset to encode result with.
+   * @throws IOException if writing fails or the charset is not supported.
+   * @since AISLIB 0.6
+   */
+  public void writeTo(OutputStream stream, String charset) throws IOException {
+    Writer writer = new OutputStreamWriter(stream, charset);
+    writeTo(writer);
+    writer.flush();
+  }
+
+  /**
+   * Returns result encoded with the default charset.
+   *
+   * @see #toByteArray(String)
+   */
   public byte[] toByteArray() {
-    return toString().getBytes();
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    try {
+      writeTo(stream);
+    } catch (IOException ioe) {
+      throw new RuntimeException(ioe.getMessage());
+    }
+    return stream.toByteArray();
+  }
+
+  /**
+   * @param charset name of the charset to encode result with.
+   * @return result encoded with given charset.
+   * @throws IOException if the template cannot be merged or the charset is not supported.
+   * @since AISLIB 0.6
+   */
+  public byte[] toByteArray(String charset) throws IOException {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    writeTo(stream, charset);
+    return stream.toByteArray();
+  }
+
+  /**
+   * @return context of values set directly in this template, created on first use.
+   */
+  private VelocityContext getContext() {
+    if (context == null) {
+      values = new HashMap();
+      context = new VelocityContext(values, parent);
+    }
+    return context;
   }
 
   public String toString() {
@@ -1,8 +1,14 @@
 package pl.aislib.jakarta.velocity;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletContext;
 
@@ -10,6 +16,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
 
 import org.apache.velocity.app.VelocityEngine;
 
@@ -30,8 +37,36 @@ import pl.aislib.fm.TemplateEngineException;
  */
 public class VelocityTemplateEngine extends TemplateEngine {
 
-  private Map predefinedValues;
+  /**
+   * Configuration key of seconds between background refreshes of loaded templates.
+   *
+   * When refreshing is enabled, positive <code>modificationCheckInterval</code> of every
+   * resource loader is set to the same number of seconds, so every refresh checks
+   * modification of templates, and requests between refreshes do not.
+   *
+   * @since AISLIB 0.6
+   * @see VelocityConfigHelper#configureRefresher(Map, long)
+   */
+  public static final String REFRESH_INTERVAL_KEY = "aislib.template.refreshInterval";
+
+  /**
+   * Configuration key of maximal number of pooled evaluation contexts.
+   *
+   * @since AISLIB 0.6
+   * @see VelocityConfigHelper#configureContextPool(Map, int)
+   */
+  public static final String CONTEXT_POOL_SIZE_KEY = "aislib.context.poolSize";
+
+  private volatile Map predefinedValues;
+  private volatile VelocityContext predefinedContext;
   private VelocityEngine engine;
+  private TemplateRefresher refresher;
+  private ContextPool contextPool = new ContextPool(0);
+
+  /**
+   * Compiled layouts of container templates, keyed by names of templates and slots.
+   */
+  private final Map layouts = new ConcurrentHashMap();
 
   /**
    * Initialize the engine using given <code>Map</code> as
@@ -59,37 +94,112 @@ public class VelocityTemplateEngine extends TemplateEngine {
    * WARNING: These keys/values (from <code>predefinedValues</code>) will be allways present in 
    * evaluation map.  
    * 
+   * Predefined values are kept in a parent context shared by all templates, 
+   * so they are not copied into every evaluated template. 
+   * 
    * @param predefinedValues map with predefined values. This map should be created with pl.aislib.lang.ClassConstUtils
    */
-  public void appendPredefinedValues(Map predefinedValues) {
-    if(this.predefinedValues == null) {
-      this.predefinedValues = new HashMap();      
+  public synchronized void appendPredefinedValues(Map predefinedValues) {
+    Map values = new HashMap();
+    if (this.predefinedValues != null) {
+      values.putAll(this.predefinedValues);
     }
-    
-    this.predefinedValues.putAll(predefinedValues);
+    values.putAll(predefinedValues);
+
+    values = Collections.unmodifiableMap(values);
+    this.predefinedContext = new VelocityContext(values);
+    this.predefinedValues = values;
   }
 
-  public String evaluate(Object o, Map map) {
-    VelocityTemplate template = (VelocityTemplate) o;
-    if (map != null) {
-      template.setValues(map);
+  /**
+   * Evaluates template with a context layered over <code>map</code> and predefined values.
+   *
+   * Values of <code>map</code> are not copied and the template is not modified.
+   */
+  public String evaluate(Object o, Map map) throws TemplateEngineException {
+    StringWriter writer = new StringWriter();
+    try {
+      merge((VelocityTemplate) o, map, writer);
+    } catch (IOException ioe) {
+      throw new TemplateEngineException(ioe);
     }
-        
-    if(predefinedValues != null) {
-      // check if there are any conflicts
-      if( map != null ) {
-        for (Iterator iter = predefinedValues.keySet().iterator(); iter.hasNext();) {
-          Object key = (Object) iter.next();
-          if(map.containsKey(key)) {
-            engine.warn("Conflict found! key: "+key+", predefined value: "+ predefinedValues.get(key)+", map value: "+map.get(key));
-          }
-        }
-      }
+    return writer.toString();
+  }
+
+  /**
+   * Evaluates template directly into <code>writer</code>, without building intermediate <code>String</code>.
+   *
+   * @see TemplateEngine#evaluate(Object, Map, Writer)
+   */
+  public void evaluate(Object o, Map map, Writer writer) throws IOException, TemplateEngineException {
+    merge((VelocityTemplate) o, map, writer);
+  }
 
-      template.setValues(predefinedValues);
+  /**
+   * Evaluates container with compiled layout, rendering the page directly into holes of the container.
+   *
+   * Layouts are compiled once for every version of a container; containers without
+   * references to the slot at their top level are not composed.
+   *
+   * @see TemplateEngine#evaluateLayout(Object, String, Object, Map, Writer)
+   */
+  public boolean evaluateLayout(Object container, String slot, Object template, Map map, Writer writer)
+    throws IOException, TemplateEngineException {
+    VelocityTemplate containerTemplate = (VelocityTemplate) container;
+    VelocityLayout layout = getLayout(containerTemplate.getTemplate(), slot);
+    if (!layout.hasHoles()) {
+      return false;
     }
-    
-    return template.toString();
+
+    EvaluationContext context = contextPool.borrow();
+    context.reset(containerTemplate.getValues(), getRequestContext(map));
+    context.put(slot, new SlotContent(this, (VelocityTemplate) template, map));
+    try {
+      layout.render(context, (SlotContent) context.get(slot), writer);
+    } catch (IOException ioe) {
+      throw ioe;
+    } catch (TemplateEngineException teex) {
+      throw teex;
+    } catch (Exception e) {
+      throw new TemplateEngineException(e);
+    } finally {
+      contextPool.release(context);
+    }
+    return true;
+  }
+
+  /**
+   * Creates request level context layer shared by all evaluations with returned parameters.
+   *
+   * The layer is carried by returned parameters, so evaluations share no lookup
+   * with other requests. Parameters conflicting with predefined values are reported
+   * once per request.
+   *
+   * @see TemplateEngine#beginRequest(Map)
+   */
+  public Map beginRequest(Map parameters) {
+    if (parameters == null || parameters instanceof RequestParameters) {
+      return parameters;
+    }
+    return new RequestParameters(parameters, createRequestContext(parameters));
+  }
+
+  /**
+   * Stops background refreshing of templates, if it has been configured.
+   *
+   * @since AISLIB 0.6
+   */
+  public void stopRefresher() {
+    if (refresher != null) {
+      refresher.stop();
+    }
+  }
+
+  /**
+   * @see TemplateEngine#getLastModified(Object)
+   */
+  public long getLastModified(Object o) {
+    return ((VelocityTemplate) o).getTemplate().getLastModified();
   }
 
   public boolean isTemplate(Object o) {
@@ -100,7 +210,10 @@ public class VelocityTemplateEngine extends TemplateEngine {
   throws TemplateEngineException {
     try {
       Template template = engine.getTemplate(name);
-      return new VelocityTemplate(template);
+      if (refresher != null) {
+        refresher.add(name);
+      }
+      return new VelocityTemplate(template, predefinedContext);
     } catch (ResourceNotFoundException rnfe) {
       throw new TemplateEngineException(rnfe);
     } catch (ParseErrorException pef) {
@@ -110,13 +223,87 @@ public class VelocityTemplateEngine extends TemplateEngine {
     }
   }
 
+  /**
+   * Merges template with pooled evaluation context, layered over request and predefined values.
+   */
+  private void merge(VelocityTemplate template, Map map, Writer writer) throws IOException, TemplateEngineException {
+    EvaluationContext context = contextPool.borrow();
+    context.reset(template.getValues(), getRequestContext(map));
+    try {
+      template.getTemplate().merge(context, writer);
+    } catch (IOException ioe) {
+      throw ioe;
+    } catch (Exception e) {
+      throw new TemplateEngineException(e);
+    } finally {
+      contextPool.release(context);
+    }
+  }
+
+  /**
+   * Returns request level layer created by {@link #beginRequest(Map)} or a new one.
+   */
+  private RequestContext getRequestContext(Map map) {
+    if (map instanceof RequestParameters) {
+      return ((RequestParameters) map).getContext();
+    }
+    return createRequestContext(map);
+  }
+
+  /**
+   * Returns layout of the current version of a container, compiling it if needed.
+   */
+  private VelocityLayout getLayout(Template template, String slot) throws TemplateEngineException {
+    String key = template.getName() + '\u0000' + slot;
+    VelocityLayout result = (VelocityLayout) layouts.get(key);
+    if (result == null || !result.isFor(template)) {
+      try {
+        result = VelocityLayout.compile(template, slot);
+      } catch (IOException ioe) {
+        throw new TemplateEngineException(ioe);
+      }
+      layouts.put(key, result);
+    }
+    return result;
+  }
+
+  /**
+   * Creates request level layer over predefined values.
+   *
+   * Values conflicting with predefined ones are reported, predefined values win.
+   */
+  private RequestContext createRequestContext(Map map) {
+    Map predefined = predefinedValues;
+    if (predefined != null && map != null) {
+      for (Iterator iter = map.entrySet().iterator(); iter.hasNext();) {
+        Map.Entry entry = (Map.Entry) iter.next();
+        Object key = entry.getKey();
+        if (predefined.containsKey(key)) {
+          engine.warn("Conflict found! key: "+key+", predefined value: "+ predefined.get(key)+", map value: "+entry.getValue());
+        }
+      }
+    }
+    return new RequestContext(map, predefined);
+  }
+
   private void initVelocity(Map configuration) throws TemplateEngineException {
     engine = new VelocityEngine();
+    Object refreshValue = configuration.get(REFRESH_INTERVAL_KEY);
+    long refreshInterval = (refreshValue != null) ? Long.parseLong(refreshValue.toString()) : 0;
     Iterator keys = configuration.keySet().iterator();
     while (keys.hasNext()) {
       Object key = keys.next();
       Object value = configuration.get(key);
-      if (value != null) {
+      if (REFRESH_INTERVAL_KEY.equals(key)) {
+        continue;
+      } else if (CONTEXT_POOL_SIZE_KEY.equals(key)) {
+        if (value != null) {
+          contextPool = new ContextPool(Integer.parseInt(value.toString()));
+        }
+      } else if (refreshInterval > 0 && value != null && ((String) key).endsWith(".modificationCheckInterval")
+        && Long.parseLong(value.toString()) > 0) {
+        engine.addProperty((String) key, new Long(refreshInterval));
+      } else if (value != null) {
         engine.addProperty((String) key, value);
       }
     }
@@ -125,6 +312,10 @@ public class VelocityTemplateEngine extends TemplateEngine {
     } catch (Exception e) {
       throw new TemplateEngineException("Problems during Velocity initialization", e);
     }
+    if (refreshInterval > 0) {
+      refresher = new TemplateRefresher(engine);
+      refresher.start(refreshInterval * 1000);
+    }
   }
 }
 
@@ -2,14 +2,14 @@ package pl.aislib.util.messages;
 
 import java.io.Serializable;
 
-import java.text.MessageFormat;
-
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -40,6 +40,10 @@ import pl.aislib.util.validators.Validator;
  * <p>
  * This way, messages can be more dynamic.
  *
+ * <p>
+ * Every message key and content is compiled once, on its first conversion, into a {@link MessageTemplate}
+ * and names of patterns it refers to; later conversions only look up values of the patterns and render the template.
+ *
  * @author Wojciech Swiatek, AIS.PL
  */
 public class MessageFormatConverter implements IMessageConverter {
@@ -88,6 +92,16 @@ public class MessageFormatConverter implements IMessageConverter {
    */
   private Map customProperties = new LinkedHashMap();
 
+  /**
+   * Cache of templates compiled from strings with parameter numbers.
+   */
+  private final ConcurrentMap templates = new ConcurrentHashMap();
+
+  /**
+   * Cache of templates compiled from strings with extended message format patterns.
+   */
+  private final ConcurrentMap patternTemplates = new ConcurrentHashMap();
+
 
   // Public methods
 
@@ -280,7 +294,12 @@ public class MessageFormatConverter implements IMessageConverter {
    * @return formatted <code>String</code>.
    */
   private String formatPatterns(String strPattern, Object[] values) {
-    return MessageFormat.format(strPattern, values);
+    MessageTemplate template = (MessageTemplate) templates.get(strPattern);
+    if (template == null) {
+      template = MessageTemplate.compile(strPattern);
+      templates.put(strPattern, template);
+    }
+    return template.format(values);
   }
 
   /**
@@ -291,6 +310,31 @@ public class MessageFormatConverter implements IMessageConverter {
    * @return <code>String</code> with replaced values.
    */
   private String convertPatterns(String str, Map mapPatterns) {
+    PatternTemplate template = (PatternTemplate) patternTemplates.get(str);
+    if (template == null) {
+      template = compilePatterns(str);
+      patternTemplates.put(str, template);
+    }
+
+    // Retrieve values of all patterns, in the order of parameter numbers
+    String[] fullPatternNames = template.fullPatternNames;
+    Object[] values = new Object[fullPatternNames.length];
+    for (int i = 0; i < fullPatternNames.length; i++) {
+      Object patternValue = findPatternValue(fullPatternNames[i], mapPatterns);
+      values[i] = patternValue != null ? patternValue : "";
+    }
+
+    // Return string formatted with values
+    return template.template.format(values);
+  }
+
+  /**
+   * Compiles string containing extended message format patterns.
+   *
+   * @param str <code>String</code> to be compiled.
+   * @return template with consecutive parameter numbers instead of full pattern names.
+   */
+  private PatternTemplate compilePatterns(String str) {
     // Prefilter string
     String strPrefiltered = prefilterString(str);
 
@@ -304,38 +348,41 @@ public class MessageFormatConverter implements IMessageConverter {
       String group = matcher.group();
       // Retrieve next match, e.g. entity:name or rule:object1:value
       String fullPatternName = group.substring(1, group.length() - 1);
+      patternValues.put(fullPatternName, "");
+    }
 
-      // Retrieve patternType, e.g. entity or rule
-      int indPatternType = fullPatternName.indexOf(":");
-      String patternType = indPatternType != -1 ? fullPatternName.substring(0, indPatternType) : fullPatternName;
-
-      // Try to get value for the match found, e.g. value of rule:object1:value
-      Object patternValue = getPatternValue(patternType, fullPatternName, mapPatterns);
+    // Replace all e.g. entity:name or rule:object1:value with consecutive numbers needed for <code>MessageFormat</code> class.
+    String strWithNumbers = replacePatterns(strPrefiltered, patternValues);
 
-      // If the value is not found, find the value explicitly from the map of patterns, e.g. value of entity:name
-      if (patternValue == null) {
-        String patternName = fullPatternName.substring(indPatternType + 1);
-        Object patternTypeObject = mapPatterns.get(patternType);
-        if (patternTypeObject != null && patternTypeObject instanceof Map && ((Map) patternTypeObject).get(patternName) != null) {
-          patternValue = ((Map) patternTypeObject).get(patternName);
-        }
-      }
+    String[] fullPatternNames = (String[]) patternValues.keySet().toArray(new String[patternValues.size()]);
+    return new PatternTemplate(fullPatternNames, MessageTemplate.compile(strWithNumbers));
+  }
 
-      // If the value is found, put it to the map of pattern values
-      if (patternValue != null) {
-        if (patternValues.get(fullPatternName) == null) {
-          patternValues.put(fullPatternName, patternValue);
-        }
-      } else {
-        patternValues.put(fullPatternName, "");
+  /**
+   * Finds value of a pattern.
+   *
+   * @param fullPatternName full name of the pattern, e.g. entity:name or rule:object1:value.
+   * @param mapPatterns <code>Map</code> of pattern types.
+   * @return value of the pattern or <code>null</code> if it is not found.
+   */
+  private Object findPatternValue(String fullPatternName, Map mapPatterns) {
+    // Retrieve patternType, e.g. entity or rule
+    int indPatternType = fullPatternName.indexOf(":");
+    String patternType = indPatternType != -1 ? fullPatternName.substring(0, indPatternType) : fullPatternName;
+
+    // Try to get value for the match found, e.g. value of rule:object1:value
+    Object patternValue = getPatternValue(patternType, fullPatternName, mapPatterns);
+
+    // If the value is not found, find the value explicitly from the map of patterns, e.g. value of entity:name
+    if (patternValue == null) {
+      String patternName = fullPatternName.substring(indPatternType + 1);
+      Object patternTypeObject = mapPatterns.get(patternType);
+      if (patternTypeObject != null && patternTypeObject instanceof Map && ((Map) patternTypeObject).get(patternName) != null) {
+        patternValue = ((Map) patternTypeObject).get(patternName);
       }
     }
 
-    // Replace all e.g. entity:name or rule:object1:value with consecutive numbers needed for <code>MessageFormat</code> class.
-    String strWithNumbers = replacePatterns(strPrefiltered, patternValues);
-
-    // Return string formatted with values, using <code>MessageFormat</code> class.
-    return formatPatterns(strWithNumbers, patternValues.values().toArray());
+    return patternValue;
   }
 
 
@@ -359,4 +406,30 @@ public class MessageFormatConverter implements IMessageConverter {
 
   }
 
+  /**
+   * String with extended message format patterns, compiled.
+   */
+  private static class PatternTemplate {
+
+    /**
+     * Full names of patterns, in the order of parameter numbers.
+     */
+    final String[] fullPatternNames;
+
+    /**
+     * Template with parameter numbers.
+     */
+    final MessageTemplate template;
+
+    /**
+     * @param fullPatternNames full names of patterns.
+     * @param template template with parameter numbers.
+     */
+    PatternTemplate(String[] fullPatternNames, MessageTemplate template) {
+      this.fullPatternNames = fullPatternNames;
+      this.template = template;
+    }
+
+  }
+
 } // pl.aislib.util.messages.MessageFormatConverter class
@@ -0,0 +1,178 @@
+package pl.aislib.util.messages;
+
+import java.text.DateFormat;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * <code>MessageFormat</code>-compatible pattern compiled once into literal text and argument slots.
+ *
+ * Patterns with plain arguments only, like <code>Value of {0} should be up to {1}.</code>,
+ * are rendered in a single pass, with the same results as <code>MessageFormat.format</code>.
+ * Patterns with format types or styles, like <code>{0,number,#.##}</code>,
+ * and invalid patterns are rendered by <code>MessageFormat</code>.
+ * Objects of the class are immutable and thread-safe.
+ *
+ * @since AISLIB 0.6
+ */
+public final class MessageTemplate {
+
+  /**
+   * Source pattern.
+   */
+  private final String pattern;
+
+  /**
+   * Literal texts before consecutive arguments and after the last one;
+   * <code>null</code> if the pattern is rendered by <code>MessageFormat</code>.
+   */
+  private final String[] literals;
+
+  /**
+   * Indexes of consecutive arguments.
+   */
+  private final int[] arguments;
+
+  /**
+   * Estimated length of rendered messages.
+   */
+  private final int length;
+
+
+  // Constructors
+
+  /**
+   * @param pattern source pattern.
+   * @param literals literal texts or <code>null</code>.
+   * @param arguments indexes of arguments.
+   */
+  private MessageTemplate(String pattern, String[] literals, int[] arguments) {
+    this.pattern = pattern;
+    this.literals = literals;
+    this.arguments = arguments;
+    this.length = pattern.length() + 16 * arguments.length;
+  }
+
+
+  // Public methods
+
+  /**
+   * @param pattern <code>MessageFormat</code>-compatible pattern.
+   * @return compiled template.
+   */
+  public static MessageTemplate compile(String pattern) {
+    List literals = new ArrayList();
+    List arguments = new ArrayList();
+
+    StringBuffer literal = new StringBuffer();
+    boolean inQuote = false;
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+          literal.append(c);
+          i += 2;
+        } else {
+          inQuote = !inQuote;
+          i++;
+        }
+      } else if (c == '{' && !inQuote) {
+        int end = i + 1;
+        while (end < pattern.length() && pattern.charAt(end) >= '0' && pattern.charAt(end) <= '9') {
+          end++;
+        }
+        if (end == i + 1 || end - i > 10 || end == pattern.length() || pattern.charAt(end) != '}') {
+          // Format types, styles and invalid arguments are left to MessageFormat
+          return new MessageTemplate(pattern, null, new int[0]);
+        }
+        literals.add(literal.toString());
+        literal.setLength(0);
+        arguments.add(Integer.valueOf(pattern.substring(i + 1, end)));
+        i = end + 1;
+      } else {
+        literal.append(c);
+        i++;
+      }
+    }
+    literals.add(literal.toString());
+
+    int[] argumentIndexes = new int[arguments.size()];
+    for (int j = 0; j < argumentIndexes.length; j++) {
+      argumentIndexes[j] = ((Integer) arguments.get(j)).intValue();
+    }
+    return new MessageTemplate(pattern, (String[]) literals.toArray(new String[literals.size()]), argumentIndexes);
+  }
+
+  /**
+   * Formats the template with given values, like <code>MessageFormat.format</code>.
+   *
+   * @param values array of values of arguments.
+   * @return formatted <code>String</code>.
+   */
+  public String format(Object[] values) {
+    if (literals == null) {
+      return MessageFormat.format(pattern, values);
+    }
+    if (arguments.length == 0) {
+      return literals[0];
+    }
+
+    StringBuffer result = new StringBuffer(length);
+    for (int i = 0; i < arguments.length; i++) {
+      result.append(literals[i]);
+      int argument = arguments[i];
+      if (values == null || argument >= values.length) {
+        result.append('{').append(argument).append('}');
+      } else {
+        appendValue(result, values[argument]);
+      }
+    }
+    result.append(literals[arguments.length]);
+    return result.toString();
+  }
+
+  /**
+   * @return source pattern.
+   */
+  public String getPattern() {
+    return pattern;
+  }
+
+  /**
+   * @return true if the template is rendered without <code>MessageFormat</code>.
+   */
+  public boolean isCompiled() {
+    return literals != null;
+  }
+
+
+  // Private methods
+
+  /**
+   * Appends a value the way <code>MessageFormat</code> formats arguments without format types.
+   *
+   * @param result buffer to append to.
+   * @param value value of an argument.
+   */
+  private static void appendValue(StringBuffer result, Object value) {
+    if (value instanceof String) {
+      result.append((String) value);
+    } else if (value == null) {
+      result.append("null");
+    } else if (value instanceof Number) {
+      result.append(NumberFormat.getInstance(Locale.getDefault(Locale.Category.FORMAT)).format(value));
+    } else if (value instanceof Date) {
+      Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+      result.append(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT, locale).format(value));
+    } else {
+      String str = value.toString();
+      result.append(str != null ? str : "null");
+    }
+  }
+
+} // MessageTemplate class
@@ -1,8 +1,12 @@
 package pl.aislib.util.template.image;
 
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.Frame;
-import java.awt.Graphics;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.ImageObserver;
+import java.awt.image.PixelGrabber;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -20,6 +24,10 @@ import pl.aislib.util.template.Template;
 /**
  * Template for generating images.
  *
+ * <p>The image of the template is drawn once into a background raster, which is never
+ * modified afterwards. Every call of {@link #writeTo} copies the raster into a new
+ * <code>BufferedImage</code> and renders fields on the copy, so no AWT peers are needed
+ * and templates work in headless environments.</p>
  *
  * @since 0.2
  * @author Tomasz Pik
@@ -29,6 +37,17 @@ public class ImageTemplate implements Template {
   private String name;
 
   private Image image;
+
+  /**
+   * Immutable background, the image of the template copied into <code>int</code> ARGB pixels.
+   */
+  private BufferedImage background;
+
+  /**
+   * Pixels of the background, copied into every rendered image.
+   */
+  private int[] backgroundPixels;
+
   private ImageTemplateOutputter outputter;
   private Log log;
 
@@ -85,6 +104,29 @@ public class ImageTemplate implements Template {
     fieldRenderers = _fieldRenderers;
     log = _log;
 
+    background = createBackground(_image);
+    backgroundPixels = ((DataBufferInt) background.getRaster().getDataBuffer()).getData();
+    values = new HashMap();
+  }
+
+  /**
+   * Creates template sharing the background, fields and renderers of another one,
+   * without values.
+   *
+   * @param prototype a template.
+   * @since AISLIB 0.6
+   */
+  ImageTemplate(ImageTemplate prototype) {
+    name = prototype.name;
+    image = prototype.image;
+    background = prototype.background;
+    backgroundPixels = prototype.backgroundPixels;
+    outputter = prototype.outputter;
+    fields = prototype.fields;
+    clazzRenderers = prototype.clazzRenderers;
+    fieldRenderers = prototype.fieldRenderers;
+    log = prototype.log;
+
     values = new HashMap();
   }
 
@@ -101,22 +143,23 @@ public class ImageTemplate implements Template {
    * @throws IOException if there's a problem with writing to given stream.
    */
   public void writeTo(OutputStream stream) throws IOException {
-    Frame frame = new Frame();
-    frame.addNotify();
-    Image image2 = frame.createImage(image.getWidth(frame), image.getHeight(frame));
-    Graphics graphics = image2.getGraphics();
-    graphics.drawImage(image, 0, 0, frame);
-    Iterator keys = values.keySet().iterator();
-    while (keys.hasNext()) {
-      String fieldName = (String) keys.next();
-      Field field = (Field) fields.get(fieldName);
-      if (field != null) {
-        Object value = values.get(fieldName);
-        if (value != null) {
-          FieldRenderer fieldRenderer = findFieldRenderer(fieldName, value.getClass());
-          fieldRenderer.render(graphics, field, value);
+    BufferedImage image2 = copyBackground();
+    Graphics2D graphics = image2.createGraphics();
+    try {
+      Iterator keys = values.keySet().iterator();
+      while (keys.hasNext()) {
+        String fieldName = (String) keys.next();
+        Field field = (Field) fields.get(fieldName);
+        if (field != null) {
+          Object value = values.get(fieldName);
+          if (value != null) {
+            FieldRenderer fieldRenderer = findFieldRenderer(fieldName, value.getClass());
+            fieldRenderer.render(graphics, field, value);
+          }
         }
       }
+    } finally {
+      graphics.dispose();
     }
     outputter.writeImage(image2, stream);
   }
@@ -146,4 +189,57 @@ public class ImageTemplate implements Template {
     }
     return new SimpleFieldRenderer();
   }
+
+  /**
+   * @return new image with pixels of the background.
+   */
+  private BufferedImage copyBackground() {
+    BufferedImage result = new BufferedImage(background.getWidth(), background.getHeight(), background.getType());
+    int[] pixels = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+    System.arraycopy(backgroundPixels, 0, pixels, 0, backgroundPixels.length);
+    return result;
+  }
+
+  /**
+   * Copies pixels of an image into a new background.
+   *
+   * Images other than <code>BufferedImage</code>, like ones created by <code>Toolkit</code>,
+   * are converted by <code>PixelGrabber</code>, waiting until they are completely loaded.
+   * Transparency of the image is kept.
+   *
+   * @param image image of the template.
+   * @return image with <code>int</code> ARGB pixels.
+   * @throws IllegalArgumentException if the image could not be loaded.
+   */
+  private static BufferedImage createBackground(Image image) {
+    int width;
+    int height;
+    int[] pixels;
+    if (image instanceof BufferedImage) {
+      BufferedImage bufferedImage = (BufferedImage) image;
+      width = bufferedImage.getWidth();
+      height = bufferedImage.getHeight();
+      pixels = bufferedImage.getRGB(0, 0, width, height, null, 0, width);
+    } else {
+      PixelGrabber grabber = new PixelGrabber(image, 0, 0, -1, -1, true);
+      try {
+        if (!grabber.grabPixels() || (grabber.getStatus() & ImageObserver.ABORT) != 0) {
+          throw new IllegalArgumentException("image could not be loaded");
+        }
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+        throw new IllegalArgumentException("interrupted while loading image");
+      }
+      width = grabber.getWidth();
+      height = grabber.getHeight();
+      pixels = (int[]) grabber.getPixels();
+    }
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("image could not be loaded");
+    }
+
+    BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    result.setRGB(0, 0, width, height, pixels, 0, width);
+    return result;
+  }
 }
@@ -4,20 +4,22 @@ package pl.aislib.util.template.image;
  */
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 
 import java.awt.Image;
-import java.awt.Toolkit;
-import java.awt.Frame;
-import java.awt.MediaTracker;
 
+import java.awt.image.BufferedImage;
 import java.awt.image.PixelGrabber;
 
+import javax.imageio.ImageIO;
+
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
 /**
  * Default implementation of {@link ImageTemplateProducer} and {@link ImageTemplateOutputter}.
  *
- * <p>This implementation uses {@link Toolkit#createImage(byte[])} to load images and
+ * <p>This implementation uses {@link ImageIO} to decode images into
+ * <code>BufferedImage</code> objects, without AWT peers, and
  * code of <a href='http://www.cs.brown.edu/people/amd/'>Adam Doppelt</a>
  * (<a href="http://www.gurge.com/amd/old/java/GIFEncoder/">code here</a>)
  * to serialize images as GIF files.</p>
@@ -45,40 +47,25 @@ public class ImageTemplateEngine extends ImageTemplateProducer implements ImageT
   }
 
   /**
-   * Create {@link Image} instaces using {@link Toolkit#createImage(byte[])} method.
+   * Create {@link Image} instances using {@link ImageIO}.
    *
-   * Using default JVM method for creating images. Reads given stream
-   * into array of bytes and call {@link Toolkit#createImage(byte[])} method.
+   * Decodes given stream completely, in memory, into a <code>BufferedImage</code>,
+   * so it works also in headless environments.
    *
    * @param stream contains image.
    * @return loaded image.
    * @throws NullPointerException if <code>stream</code> is <em>null</em>.
-   * @throws IOException during I/O operations.
+   * @throws IOException during I/O operations or if the format of the image is not supported.
    */
   public Image loadImage(InputStream stream) throws IOException {
     if (stream == null) {
       throw new NullPointerException("stream cannot be null");
     }
 
-    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-    int tmp;
-    while ((tmp = stream.read()) != -1) {
-      buffer.write(tmp);
+    BufferedImage result = ImageIO.read(new MemoryCacheImageInputStream(stream));
+    if (result == null) {
+      throw new IOException("unsupported image format");
     }
-    byte[] byteArray = buffer.toByteArray();
-
-    Toolkit toolkit = Toolkit.getDefaultToolkit();
-    Image result = toolkit.createImage(byteArray);
-    Frame frame = new Frame();
-    MediaTracker tracker = new MediaTracker(frame);
-    tracker.addImage(result, 0);
-    try {
-      tracker.waitForAll();
-    } catch (InterruptedException ie) {
-      throw new IOException("InterruptedException: " + ie.getMessage());
-    }
-    result.getWidth(frame);
-    result.getHeight(frame);
     return result;
   }
 
@@ -113,15 +100,19 @@ public class ImageTemplateEngine extends ImageTemplateProducer implements ImageT
       height = (short) image.getHeight(null);
 
       int values[] = new int[width * height];
-      PixelGrabber grabber = new PixelGrabber(
-          image, 0, 0, width, height, values, 0, width);
-
-      try {
-        if (grabber.grabPixels() != true) {
-          throw new RuntimeException("Grabber returned false: " + grabber.status());
+      if (image instanceof BufferedImage) {
+        ((BufferedImage) image).getRGB(0, 0, width, height, values, 0, width);
+      } else {
+        PixelGrabber grabber = new PixelGrabber(
+            image, 0, 0, width, height, values, 0, width);
+
+        try {
+          if (grabber.grabPixels() != true) {
+            throw new RuntimeException("Grabber returned false: " + grabber.status());
+          }
+        } catch (InterruptedException e) {
+          ;
         }
-      } catch (InterruptedException e) {
-        ;
       }
 
       byte r[][] = new byte[width][height];
@@ -130,9 +121,11 @@ public class ImageTemplateEngine extends ImageTemplateProducer implements ImageT
       int index = 0;
       for (int y = 0; y < height; ++y) {
         for (int x = 0; x < width; ++x) {
-          r[x][y] = (byte) ((values[index] >> 16) & 0xFF);
-          g[x][y] = (byte) ((values[index] >> 8) & 0xFF);
-          b[x][y] = (byte) ((values[index]) & 0xFF);
+          // GIF images are written without transparency, translucent pixels are laid on white
+          int alpha = (values[index] >>> 24) & 0xFF;
+          r[x][y] = (byte) onWhite((values[index] >> 16) & 0xFF, alpha);
+          g[x][y] = (byte) onWhite((values[index] >> 8) & 0xFF, alpha);
+          b[x][y] = (byte) onWhite((values[index]) & 0xFF, alpha);
           ++index;
         }
       }
@@ -230,6 +223,15 @@ public class ImageTemplateEngine extends ImageTemplateProducer implements ImageT
       System.arraycopy(colors, 0, copy, 0, numColors * 3);
       colors = copy;
     }
+
+    /**
+     * @param intensity intensity of a color component.
+     * @param alpha alpha of the pixel.
+     * @return intensity of the component of the pixel laid on white.
+     */
+    int onWhite(int intensity, int alpha) {
+      return (intensity * alpha + 0xFF * (0xFF - alpha)) / 0xFF;
+    }
   }
 
   private static class BitFile {
@@ -8,6 +8,8 @@ import java.io.IOException;
 import java.util.Map;
 import java.util.HashMap;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -35,6 +37,10 @@ import pl.aislib.util.template.Template;
  * for logging. This may be changed using {@link #setLog} method.
  * All renderers registering is logged at <code>debug</code> level.
  *
+ * <p><b>Backgrounds</b> of templates loaded by {@link #loadTemplate(InputStream, String)}
+ * are kept, so further templates of the same name may be created by {@link #newTemplate}
+ * without decoding their images again.</p>
+ *
  * @author Tomasz Pik, AIS.PL
  * @since 0.3
  */
@@ -45,6 +51,7 @@ public abstract class ImageTemplateProducer implements Loggable {
   private Map fieldRenderers = new HashMap();
   private Log log = LogFactory.getLog("pl.aislib.util.template.image");
   private ImageTemplatesBean config = new ImageTemplatesBean();
+  private Map prototypes = new ConcurrentHashMap();
 
   /**
    * @throws RuntimeException if <code>outputter</code> is <em>null</em>.
@@ -93,7 +100,27 @@ public abstract class ImageTemplateProducer implements Loggable {
   public Template loadTemplate(InputStream stream, String name) throws IOException {
 
     ImageTemplate template = config.getTemplate(name);
-    return loadTemplate(stream, template.getFields());
+    ImageTemplate result = (ImageTemplate) loadTemplate(stream, template.getFields());
+    result.setName(name);
+    prototypes.put(name, new ImageTemplate(result));
+    return result;
+  }
+
+  /**
+   * Create template sharing the decoded background of the template
+   * of the same name, loaded last by {@link #loadTemplate(InputStream, String)}.
+   *
+   * @param name name of the template.
+   * @return created template, without values.
+   * @throws IllegalStateException if the template has not been loaded.
+   * @since AISLIB 0.6
+   */
+  public Template newTemplate(String name) {
+    ImageTemplate prototype = (ImageTemplate) prototypes.get(name);
+    if (prototype == null) {
+      throw new IllegalStateException("template not loaded: " + name);
+    }
+    return new ImageTemplate(prototype);
   }
   
   public void setOutputter(ImageTemplateOutputter _outputter) {
@@ -1,14 +1,17 @@
 package pl.aislib.util.validators;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import pl.aislib.fm.forms.BaseValidator;
@@ -62,12 +65,6 @@ public abstract class AbstractValidator implements BaseValidator {
    */
   protected Map propertyValues = new HashMap();
 
-  /**
-   * Array of all available locales for the system server resides in.
-   * This is called only once, in the creation of the application.
-   */
-  private static Locale[] availableLocales = Locale.getAvailableLocales();
-
 
   // Constructors
 
@@ -304,13 +301,7 @@ public abstract class AbstractValidator implements BaseValidator {
    * @param value string value for the <code>Locale</code> object.
    */
   private void setLocaleObject(String value) {
-    for (int i = 0; i < availableLocales.length; i++) {
-      if (value.equals(availableLocales[i].toString())) {
-        locale = availableLocales[i];
-        return;
-      }
-    }
-    locale = Locale.US;
+    locale = LocaleRegistry.getLocale(value);
   }
 
 
@@ -768,6 +759,11 @@ public abstract class AbstractValidator implements BaseValidator {
      */
     protected Object[] convertedTokens;
 
+    /**
+     * Set of converted tokens, built for the array it refers to.
+     */
+    private volatile ConvertedTokenSet convertedTokenSet;
+
     /**
      * @see AbstractValidator.Property#AbstractValidator.Property(int, int, Object)
      * @deprecated
@@ -799,6 +795,27 @@ public abstract class AbstractValidator implements BaseValidator {
       return convertedTokens;
     }
 
+    /**
+     * Checks whether an object equals one of converted tokens, using a hashed set of them.
+     *
+     * @param value an object.
+     * @return true if the object equals one of converted tokens.
+     * @since AISLIB 0.6
+     */
+    public boolean containsConvertedToken(Object value) {
+      Object[] tokenArray = convertedTokens;
+      if (tokenArray == null) {
+        return false;
+      }
+
+      ConvertedTokenSet tokenSet = convertedTokenSet;
+      if (tokenSet == null || tokenSet.tokens != tokenArray) {
+        tokenSet = new ConvertedTokenSet(tokenArray);
+        convertedTokenSet = tokenSet;
+      }
+      return tokenSet.set.contains(value);
+    }
+
     /**
      * @param type type of the property.
      * @param value value of the property.
@@ -832,6 +849,7 @@ public abstract class AbstractValidator implements BaseValidator {
     public void setTokens(String[] tokens, Object[] convertedTokens) {
       this.tokens = tokens;
       this.convertedTokens = convertedTokens;
+      convertedTokenSet = convertedTokens != null ? new ConvertedTokenSet(convertedTokens) : null;
     }
 
     /**
@@ -873,6 +891,31 @@ public abstract class AbstractValidator implements BaseValidator {
 
   } // TokenizedProperty inner class
 
+  /**
+   * Hashed set of converted tokens of a tokenized property.
+   */
+  private static final class ConvertedTokenSet {
+
+    /**
+     * Array of converted tokens the set has been built for.
+     */
+    final Object[] tokens;
+
+    /**
+     * Set of converted tokens.
+     */
+    final Set set;
+
+    /**
+     * @param tokens array of converted tokens.
+     */
+    ConvertedTokenSet(Object[] tokens) {
+      this.tokens = tokens;
+      set = new HashSet(Arrays.asList(tokens));
+    }
+
+  } // ConvertedTokenSet inner class
+
   /**
    * Class of property maps.
    * It is a way of grouping similar properties.
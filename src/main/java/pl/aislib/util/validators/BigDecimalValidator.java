@@ -1,7 +1,6 @@
 package pl.aislib.util.validators;
 
 import java.text.Format;
-import java.text.ParsePosition;
 
 import java.math.BigDecimal;
 
@@ -46,6 +45,7 @@ public class BigDecimalValidator extends NumberValidator {
    */
   public void setUseICU4J(boolean useICEU4J) {
     this.useICU4J = useICEU4J;
+    resetNumberParser();
   }
 
   /**
@@ -95,25 +95,19 @@ public class BigDecimalValidator extends NumberValidator {
   }
 
   /**
-   * @see StringValidator#formatString(String)
+   * @see NumberValidator#convertNumber(Number)
    */
-  protected Object formatString(String value) throws Exception {
-    Number val = parseNumber(value);
-    return NumberFormatHelper.convert(useICU4J, val);
+  protected Object convertNumber(Number value) {
+    return NumberFormatHelper.convert(useICU4J, value);
   }
 
   /**
-   * @param value a string to be parsed.
-   * @return number taken from the string.
-   * @throws Exception if the string could not be parsed properly.
+   * Format of the parser is created for the current pattern, locale and ICU4J usage.
+   *
+   * @see NumberValidator#getParserFormat()
    */
-  protected Number parseNumber(String value) throws Exception {
-    ParsePosition pos = new ParsePosition(0);
-    Number result = NumberFormatHelper.parse(getDecimalFormat(), value, pos);
-    if (pos.getIndex() != value.length()) {
-      throw new NumberFormatException("Invalid format.");
-    }
-    return result;
+  protected Format getParserFormat() {
+    return getDecimalFormat();
   }
 
   /**
@@ -0,0 +1,156 @@
+package pl.aislib.util.validators;
+
+import java.util.Arrays;
+
+/**
+ * Compiled set of characters, e.g. allowed or disallowed characters of a validator.
+ *
+ * Characters of the Basic Multilingual Plane are kept in a bitmap, supplementary
+ * code points in a sorted array, so checking a string takes time proportional
+ * to its length only. Objects of the class are immutable and thread-safe.
+ *
+ * @since AISLIB 0.6
+ */
+public final class CharacterClass {
+
+  /**
+   * Characters the class has been compiled from.
+   */
+  private final String source;
+
+  /**
+   * True if the class has been compiled from upper case characters of the source.
+   */
+  private final boolean upperCase;
+
+  /**
+   * Bitmap of characters of the Basic Multilingual Plane, up to the greatest of them.
+   */
+  private final long[] bitmap;
+
+  /**
+   * Sorted supplementary code points.
+   */
+  private final int[] supplementary;
+
+
+  // Constructors
+
+  /**
+   * @param source characters of the class.
+   * @param upperCase true if upper case characters of the source should be used.
+   */
+  private CharacterClass(String source, boolean upperCase) {
+    this.source = source;
+    this.upperCase = upperCase;
+
+    String chars = upperCase ? source.toUpperCase() : source;
+
+    int maxChar = -1;
+    int supplementaryCount = 0;
+    for (int i = 0; i < chars.length();) {
+      int codePoint = chars.codePointAt(i);
+      if (codePoint > Character.MAX_VALUE) {
+        supplementaryCount++;
+      } else {
+        maxChar = Math.max(maxChar, codePoint);
+      }
+      i += Character.charCount(codePoint);
+    }
+
+    bitmap = new long[(maxChar >> 6) + 1];
+    int[] codePoints = new int[supplementaryCount];
+    supplementaryCount = 0;
+    for (int i = 0; i < chars.length();) {
+      int codePoint = chars.codePointAt(i);
+      if (codePoint > Character.MAX_VALUE) {
+        codePoints[supplementaryCount++] = codePoint;
+      } else {
+        bitmap[codePoint >> 6] |= 1L << codePoint;
+      }
+      i += Character.charCount(codePoint);
+    }
+    Arrays.sort(codePoints);
+    supplementary = codePoints;
+  }
+
+
+  // Public methods
+
+  /**
+   * @param chars characters of the class.
+   * @param upperCase true if upper case characters should be used, for validators ignoring case.
+   * @return compiled class.
+   */
+  public static CharacterClass compile(String chars, boolean upperCase) {
+    return new CharacterClass(chars, upperCase);
+  }
+
+  /**
+   * @param chars characters of a class.
+   * @param upperCase true if upper case characters are used.
+   * @return true if the class has been compiled from given characters.
+   */
+  public boolean isFor(String chars, boolean upperCase) {
+    return this.upperCase == upperCase && (source == chars || source.equals(chars));
+  }
+
+  /**
+   * @param codePoint a code point.
+   * @return true if the code point belongs to the class.
+   */
+  public boolean contains(int codePoint) {
+    if (codePoint <= Character.MAX_VALUE) {
+      int index = codePoint >> 6;
+      return index < bitmap.length && (bitmap[index] & (1L << codePoint)) != 0;
+    }
+    return Arrays.binarySearch(supplementary, codePoint) >= 0;
+  }
+
+  /**
+   * @param value a string.
+   * @return true if all characters of the string belong to the class.
+   */
+  public boolean containsAll(String value) {
+    for (int i = 0, l = value.length(); i < l;) {
+      char c = value.charAt(i);
+      if (!Character.isHighSurrogate(c)) {
+        if (!contains(c)) {
+          return false;
+        }
+        i++;
+      } else {
+        int codePoint = value.codePointAt(i);
+        if (!contains(codePoint)) {
+          return false;
+        }
+        i += Character.charCount(codePoint);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param value a string.
+   * @return true if any character of the string belongs to the class.
+   */
+  public boolean containsAny(String value) {
+    for (int i = 0, l = value.length(); i < l;) {
+      char c = value.charAt(i);
+      if (!Character.isHighSurrogate(c)) {
+        if (contains(c)) {
+          return true;
+        }
+        i++;
+      } else {
+        int codePoint = value.codePointAt(i);
+        if (contains(codePoint)) {
+          return true;
+        }
+        i += Character.charCount(codePoint);
+      }
+    }
+    return false;
+  }
+
+} // CharacterClass class
@@ -0,0 +1,340 @@
+package pl.aislib.util.validators;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe parser of dates, compiled once for a pattern, a locale and leniency.
+ *
+ * Parsers are cached and shared by all validators with the same configuration.
+ * Patterns built only of fixed-width numeric fields (<code>yyyy</code>, <code>MM</code>,
+ * <code>dd</code>, <code>HH</code>, <code>mm</code>, <code>ss</code>, <code>SSS</code>)
+ * and literal separators, like <code>yyyy-MM-dd</code> or <code>dd.MM.yyyy HH:mm</code>,
+ * are parsed directly into milliseconds without <code>Calendar</code>.
+ * Values the direct parsing is not sure about (other lengths, out of range fields,
+ * days of time zone transitions, years before 1600) and all other patterns are parsed
+ * by <code>SimpleDateFormat</code>, one copy per thread, so results are always the same
+ * as those of <code>SimpleDateFormat</code>.
+ *
+ * @since AISLIB 0.6
+ */
+public final class DateParser {
+
+  /**
+   * Milliseconds in a day.
+   */
+  private static final long DAY = 24 * 60 * 60 * 1000L;
+
+  /**
+   * Numeric fields supported by direct parsing.
+   */
+  private static final String FIELDS = "yMdHmsS";
+
+  /**
+   * Widths of numeric fields supported by direct parsing.
+   */
+  private static final int[] FIELD_WIDTHS = { 4, 2, 2, 2, 2, 2, 3 };
+
+  /**
+   * Default values of numeric fields.
+   */
+  private static final int[] FIELD_DEFAULTS = { 1970, 1, 1, 0, 0, 0, 0 };
+
+  /**
+   * Cache of parsers.
+   */
+  private static final ConcurrentMap parsers = new ConcurrentHashMap();
+
+  /**
+   * Pattern of dates.
+   */
+  private final String pattern;
+
+  /**
+   * Locale of dates.
+   */
+  private final Locale locale;
+
+  /**
+   * True if parsing is lenient.
+   */
+  private final boolean lenient;
+
+  /**
+   * Time zone of dates, default time zone at creation of the parser.
+   */
+  private final TimeZone timeZone;
+
+  /**
+   * Compiled pattern for direct parsing: indexes of fields or <code>-1</code> for literals;
+   * <code>null</code> if the pattern cannot be parsed directly.
+   */
+  private final int[] layout;
+
+  /**
+   * Copies of the date format used by threads.
+   */
+  private final ThreadLocal formats = new ThreadLocal();
+
+
+  // Constructors
+
+  /**
+   * @param pattern pattern of dates.
+   * @param locale locale of dates.
+   * @param lenient true if parsing is lenient.
+   * @param timeZone time zone of dates.
+   */
+  private DateParser(String pattern, Locale locale, boolean lenient, TimeZone timeZone) {
+    this.pattern = pattern;
+    this.locale = locale;
+    this.lenient = lenient;
+    this.timeZone = timeZone;
+
+    SimpleDateFormat format = createFormat();
+    formats.set(format);
+    // Subclasses such as BuddhistCalendar shift years, only plain Gregorian calendar is parsed directly
+    layout = format.getCalendar().getClass() == GregorianCalendar.class ? compile(pattern) : null;
+  }
+
+
+  // Public methods
+
+  /**
+   * Returns parser for given configuration, using the default time zone.
+   *
+   * @param pattern pattern of dates as for <code>SimpleDateFormat</code>.
+   * @param locale locale of dates.
+   * @param lenient true if parsing is lenient.
+   * @return parser shared by all validators with the same configuration.
+   * @throws IllegalArgumentException if the pattern is invalid.
+   */
+  public static DateParser getInstance(String pattern, Locale locale, boolean lenient) {
+    TimeZone timeZone = TimeZone.getDefault();
+    String key = (lenient ? "L|" : "S|") + locale + "|" + timeZone.getID() + "|" + pattern;
+
+    DateParser result = (DateParser) parsers.get(key);
+    if (result == null) {
+      result = new DateParser(pattern, locale, lenient, timeZone);
+      DateParser previous = (DateParser) parsers.putIfAbsent(key, result);
+      if (previous != null) {
+        result = previous;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @param pattern pattern of dates.
+   * @param locale locale of dates.
+   * @return true if the parser has been created for given pattern and locale.
+   */
+  public boolean isFor(String pattern, Locale locale) {
+    return this.pattern.equals(pattern) && this.locale.equals(locale);
+  }
+
+  /**
+   * @return pattern of dates.
+   */
+  public String getPattern() {
+    return pattern;
+  }
+
+  /**
+   * @return locale of dates.
+   */
+  public Locale getLocale() {
+    return locale;
+  }
+
+  /**
+   * @return true if parsing is lenient.
+   */
+  public boolean isLenient() {
+    return lenient;
+  }
+
+  /**
+   * Parses a date, like {@link DateFormat#parse(String)}.
+   *
+   * @param value string to be parsed.
+   * @return parsed date.
+   * @throws ParseException if the string could not be parsed.
+   */
+  public Date parse(String value) throws ParseException {
+    if (layout != null && value.length() == layout.length) {
+      long millis = parseDirectly(value);
+      if (millis != Long.MIN_VALUE) {
+        return new Date(millis);
+      }
+    }
+    return getFormat().parse(value);
+  }
+
+  /**
+   * Parses a date without exceptions, like {@link DateFormat#parse(String, ParsePosition)}.
+   *
+   * @param value string to be parsed.
+   * @param pos position to start parsing at, updated to the first unparsed character.
+   * @return parsed date or <code>null</code> if the string could not be parsed.
+   * @since AISLIB 0.6
+   */
+  public Date parse(String value, ParsePosition pos) {
+    if (layout != null && pos.getIndex() == 0 && value.length() == layout.length) {
+      long millis = parseDirectly(value);
+      if (millis != Long.MIN_VALUE) {
+        pos.setIndex(value.length());
+        return new Date(millis);
+      }
+    }
+    return getFormat().parse(value, pos);
+  }
+
+  /**
+   * @param date a date.
+   * @return date formatted with the pattern.
+   */
+  public String format(Date date) {
+    return getFormat().format(date);
+  }
+
+
+  // Private methods
+
+  /**
+   * @return new date format for the configuration of the parser.
+   */
+  private SimpleDateFormat createFormat() {
+    SimpleDateFormat result = new SimpleDateFormat(pattern, locale);
+    result.setLenient(lenient);
+    result.setTimeZone(timeZone);
+    return result;
+  }
+
+  /**
+   * @return copy of the date format owned by the calling thread.
+   */
+  private DateFormat getFormat() {
+    DateFormat result = (DateFormat) formats.get();
+    if (result == null) {
+      result = createFormat();
+      formats.set(result);
+    }
+    return result;
+  }
+
+  /**
+   * @param pattern pattern of dates.
+   * @return layout for direct parsing or <code>null</code> if the pattern is not supported.
+   */
+  private static int[] compile(String pattern) {
+    int[] result = new int[pattern.length()];
+    boolean[] used = new boolean[FIELDS.length()];
+
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        return null;
+      }
+      if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+        result[i++] = -1;
+        continue;
+      }
+
+      int field = FIELDS.indexOf(c);
+      int end = i;
+      while (end < pattern.length() && pattern.charAt(end) == c) {
+        end++;
+      }
+      if (field == -1 || used[field] || end - i != FIELD_WIDTHS[field]) {
+        return null;
+      }
+      used[field] = true;
+      for (; i < end; i++) {
+        result[i] = field;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @param value string of the length of the layout.
+   * @return milliseconds of the date or <code>Long.MIN_VALUE</code> if the date format has to parse the string.
+   */
+  private long parseDirectly(String value) {
+    int[] fields = (int[]) FIELD_DEFAULTS.clone();
+    int previous = -1;
+    for (int i = 0; i < layout.length; i++) {
+      char c = value.charAt(i);
+      int field = layout[i];
+      if (field == -1) {
+        if (c != pattern.charAt(i)) {
+          return Long.MIN_VALUE;
+        }
+      } else {
+        if (c < '0' || c > '9') {
+          return Long.MIN_VALUE;
+        }
+        fields[field] = (field == previous ? fields[field] * 10 : 0) + (c - '0');
+      }
+      previous = field;
+    }
+
+    int year = fields[0];
+    int month = fields[1];
+    int day = fields[2];
+    if (year < 1600 || month < 1 || month > 12 || day < 1 || day > getDaysInMonth(year, month)
+      || fields[3] > 23 || fields[4] > 59 || fields[5] > 59) {
+      return Long.MIN_VALUE;
+    }
+
+    long local = getDays(year, month, day) * DAY
+      + fields[3] * 3600000L + fields[4] * 60000L + fields[5] * 1000L + fields[6];
+
+    // Local time is ambiguous only around transitions, leave such days to the date format
+    int offset = timeZone.getOffset(local - timeZone.getRawOffset());
+    long result = local - offset;
+    if (timeZone.getOffset(result - DAY) != offset || timeZone.getOffset(result + DAY) != offset) {
+      return Long.MIN_VALUE;
+    }
+    return result;
+  }
+
+  /**
+   * @param year a year.
+   * @param month a month, starting with 1.
+   * @return number of days in the month.
+   */
+  private static int getDaysInMonth(int year, int month) {
+    if (month == 2) {
+      return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+    }
+    return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+  }
+
+  /**
+   * @param year a year of the Gregorian calendar, not negative.
+   * @param month a month, starting with 1.
+   * @param day a day of the month.
+   * @return number of days since 1970-01-01.
+   */
+  private static long getDays(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = y / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097L + dayOfEra - 719468;
+  }
+
+} // DateParser class
@@ -1,12 +1,11 @@
 package pl.aislib.util.validators;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
 
-import java.util.Calendar;
 import java.util.Date;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Date validation class.
@@ -32,6 +31,16 @@ public class DateValidator extends RangeValidator {
    */
   protected BooleanProperty allowFuture;
 
+  /**
+   * Lenient parser for the current pattern and locale, used for ranges.
+   */
+  private volatile DateParser lenientParser;
+
+  /**
+   * Strict parser for the current pattern and locale, used for values.
+   */
+  private volatile DateParser strictParser;
+
 
   // Constructors
 
@@ -48,21 +57,26 @@ public class DateValidator extends RangeValidator {
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject(Object)
+   * @see pl.aislib.util.validators.Validator#checkObject(Object)
    */
-  public void validateObject(Object value) throws ValidateException {
-    super.validateObject(value);
+  protected ValidationFailure checkObject(Object value) {
+    ValidationFailure failure = super.checkObject(value);
+    if (failure != null) {
+      return failure;
+    }
 
     if (checkProperty(allowPast) && !checkPast(value)) {
-      throw new ValidateException("Value is before current date.");
+      return ValidationFailure.BEFORE_CURRENT_DATE;
     }
 
     if (checkProperty(allowFuture) && !checkFuture(value)) {
-      throw new ValidateException("Value is after current date.");
+      return ValidationFailure.AFTER_CURRENT_DATE;
     }
+
+    return null;
   }
 
 
@@ -95,17 +109,7 @@ public class DateValidator extends RangeValidator {
     }
     Date dValue = (Date) value;
 
-    Date dCurrent = null;
-    Calendar cal = Calendar.getInstance();
-
-    try {
-      SimpleDateFormat sdf = new SimpleDateFormat((String) format.getValue(), locale);
-      sdf.setLenient(false);
-      String strCurrent = sdf.format(cal.getTime());
-      dCurrent = sdf.parse(strCurrent);
-    } catch (ParseException e) {
-      dCurrent = cal.getTime();
-    }
+    Date dCurrent = getCurrentDate();
 
     return !(dValue.before(dCurrent));
   }
@@ -120,17 +124,7 @@ public class DateValidator extends RangeValidator {
     }
     Date dValue = (Date) value;
 
-    Date dCurrent = null;
-    Calendar cal = Calendar.getInstance();
-
-    try {
-      SimpleDateFormat sdf = new SimpleDateFormat((String) format.getValue(), locale);
-      sdf.setLenient(false);
-      String strCurrent = sdf.format(cal.getTime());
-      dCurrent = sdf.parse(strCurrent);
-    } catch (ParseException e) {
-      dCurrent = cal.getTime();
-    }
+    Date dCurrent = getCurrentDate();
 
     return !(dValue.after(dCurrent));
   }
@@ -163,8 +157,7 @@ public class DateValidator extends RangeValidator {
     Date dRange = null;
 
     try {
-      SimpleDateFormat sdf = new SimpleDateFormat((String) format.getValue(), locale);
-      dRange = sdf.parse(value);
+      dRange = getDateParser(true).parse(value);
     } catch (Exception e) {
       ;
     }
@@ -176,10 +169,54 @@ public class DateValidator extends RangeValidator {
    * @see pl.aislib.util.validators.StringValidator#formatString
    */
   protected Object formatString(String value) throws Exception {
-    SimpleDateFormat sdf = new SimpleDateFormat((String) format.getValue(), locale);
-    sdf.setLenient(false);
-    Date dValue = sdf.parse(value);
+    Date dValue = getDateParser(false).parse(value);
     return dValue;
   }
 
+  /**
+   * @see pl.aislib.util.validators.StringValidator#parseString
+   */
+  protected Object parseString(String value) {
+    return getDateParser(false).parse(value, new ParsePosition(0));
+  }
+
+  /**
+   * Returns parser for the current pattern and locale of the validator.
+   *
+   * Parsers are shared by validators with the same configuration and may be used by many threads at once.
+   *
+   * @param lenient true if parsing should be lenient.
+   * @return date parser.
+   * @since AISLIB 0.6
+   */
+  protected DateParser getDateParser(boolean lenient) {
+    String pattern = (String) format.getValue();
+    DateParser result = lenient ? lenientParser : strictParser;
+    if (result == null || !result.isFor(pattern, locale)) {
+      result = DateParser.getInstance(pattern, locale, lenient);
+      if (lenient) {
+        lenientParser = result;
+      } else {
+        strictParser = result;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return current date with precision of the pattern.
+   */
+  protected Date getCurrentDate() {
+    Date result = new Date();
+
+    try {
+      DateParser parser = getDateParser(false);
+      result = parser.parse(parser.format(result));
+    } catch (ParseException e) {
+      ;
+    }
+
+    return result;
+  }
+
 } // DateValidator class
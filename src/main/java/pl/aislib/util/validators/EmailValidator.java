@@ -2,8 +2,6 @@ package pl.aislib.util.validators;
 
 import java.util.regex.Pattern;
 
-import pl.aislib.fm.forms.ValidateException;
-
 /**
  * Email validation class.
  *
@@ -50,12 +48,12 @@ public class EmailValidator extends StringValidator {
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#toObject(String)
+   * @see pl.aislib.util.validators.Validator#convert(String)
    */
-  public Object toObject(String value) throws ValidateException {
+  protected Object convert(String value) {
     return value;
   }
 
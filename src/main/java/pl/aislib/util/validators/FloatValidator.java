@@ -55,11 +55,10 @@ public class FloatValidator extends NumberValidator {
   }
 
   /**
-   * @see pl.aislib.util.validators.StringValidator#formatString
+   * @see pl.aislib.util.validators.NumberValidator#convertNumber
    */
-  protected Object formatString(String value) throws Exception {
-    Float result = new Float(parseNumber(value).floatValue());
-    return result;
+  protected Object convertNumber(Number value) {
+    return new Float(value.floatValue());
   }
 
 } // FloatValidator class
@@ -58,11 +58,10 @@ public class IntegerValidator extends NumberValidator {
   }
 
   /**
-   * @see pl.aislib.util.validators.StringValidator#formatString
+   * @see pl.aislib.util.validators.NumberValidator#convertNumber
    */
-  protected Object formatString(String value) throws Exception {
-    Integer result = new Integer(parseNumber(value).intValue());
-    return result;
+  protected Object convertNumber(Number value) {
+    return new Integer(value.intValue());
   }
 
   /**
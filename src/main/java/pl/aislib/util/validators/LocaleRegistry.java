@@ -0,0 +1,146 @@
+package pl.aislib.util.validators;
+
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registry of locales and their format symbols, shared by all validators.
+ *
+ * Locale strings of validators' configuration are resolved once to one of the locales
+ * available in the system; later resolutions of the same string are simple lookups.
+ * Format symbols and number formats are created once per locale and copied for callers,
+ * which may modify the copies.
+ *
+ * @since AISLIB 0.6
+ */
+public final class LocaleRegistry {
+
+  /**
+   * Locale used if a string does not describe any available locale.
+   */
+  private static final Locale DEFAULT_LOCALE = Locale.US;
+
+  /**
+   * Available locales, keyed by their string values.
+   */
+  private static final Map availableLocales = createAvailableLocales();
+
+  /**
+   * Cache of resolved locale strings.
+   */
+  private static final ConcurrentMap resolvedLocales = new ConcurrentHashMap();
+
+  /**
+   * Cache of decimal format symbols, keyed by locales.
+   */
+  private static final ConcurrentMap decimalFormatSymbols = new ConcurrentHashMap();
+
+  /**
+   * Cache of number formats, keyed by locales.
+   */
+  private static final ConcurrentMap numberFormats = new ConcurrentHashMap();
+
+
+  // Constructors
+
+  /**
+   * Not instantiated.
+   */
+  private LocaleRegistry() {
+  }
+
+
+  // Public methods
+
+  /**
+   * Resolves a locale string, like <code>en_US</code>.
+   *
+   * Strings are matched against values of <code>Locale.toString()</code> of available locales;
+   * if there is no exact match, the string is canonicalized first (<code>-</code> separators,
+   * case of language and country).
+   *
+   * @param value string value of a locale.
+   * @return available locale described by the string, <code>Locale.US</code> if there is no such locale.
+   */
+  public static Locale getLocale(String value) {
+    Locale result = (Locale) resolvedLocales.get(value);
+    if (result == null) {
+      result = (Locale) availableLocales.get(value);
+      if (result == null) {
+        result = (Locale) availableLocales.get(canonicalize(value));
+      }
+      if (result == null) {
+        result = DEFAULT_LOCALE;
+      }
+      resolvedLocales.put(value, result);
+    }
+    return result;
+  }
+
+  /**
+   * @param locale a locale.
+   * @return copy of decimal format symbols of the locale.
+   */
+  public static DecimalFormatSymbols getDecimalFormatSymbols(Locale locale) {
+    DecimalFormatSymbols result = (DecimalFormatSymbols) decimalFormatSymbols.get(locale);
+    if (result == null) {
+      result = new DecimalFormatSymbols(locale);
+      decimalFormatSymbols.putIfAbsent(locale, result);
+    }
+    return (DecimalFormatSymbols) result.clone();
+  }
+
+  /**
+   * @param locale a locale.
+   * @return copy of the general-purpose number format of the locale, as from <code>NumberFormat.getInstance</code>.
+   */
+  public static NumberFormat getNumberFormat(Locale locale) {
+    NumberFormat result = (NumberFormat) numberFormats.get(locale);
+    if (result == null) {
+      result = NumberFormat.getInstance(locale);
+      numberFormats.putIfAbsent(locale, result);
+    }
+    return (NumberFormat) result.clone();
+  }
+
+
+  // Private methods
+
+  /**
+   * @return map of available locales, keyed by their string values.
+   */
+  private static Map createAvailableLocales() {
+    Locale[] locales = Locale.getAvailableLocales();
+    Map result = new HashMap(locales.length * 2);
+    for (int i = 0; i < locales.length; i++) {
+      String key = locales[i].toString();
+      if (!result.containsKey(key)) {
+        result.put(key, locales[i]);
+      }
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * @param value string value of a locale.
+   * @return the string with <code>_</code> separators, lower case language and upper case country.
+   */
+  private static String canonicalize(String value) {
+    String[] parts = value.trim().replace('-', '_').split("_", 3);
+    StringBuffer result = new StringBuffer(parts[0].toLowerCase(Locale.ENGLISH));
+    if (parts.length > 1) {
+      result.append('_').append(parts[1].toUpperCase(Locale.ENGLISH));
+    }
+    if (parts.length > 2) {
+      result.append('_').append(parts[2]);
+    }
+    return result.toString();
+  }
+
+} // LocaleRegistry class
@@ -58,11 +58,10 @@ public class LongValidator extends NumberValidator {
   }
 
   /**
-   * @see pl.aislib.util.validators.StringValidator#formatString
+   * @see pl.aislib.util.validators.NumberValidator#convertNumber
    */
-  protected Object formatString(String value) throws Exception {
-    Long result = new Long(parseNumber(value).longValue());
-    return result;
+  protected Object convertNumber(Number value) {
+    return new Long(value.longValue());
   }
 
   /**
@@ -123,6 +123,9 @@ public class NumberFormatHelper {
    * @throws ParseException
    */
   public static Number parse(Format format, String str, ParsePosition pos) throws ParseException {
+    if (format instanceof NumberFormat) {
+      return ((NumberFormat) format).parse(str, pos);
+    }
     try {
       Method m = format.getClass().getDeclaredMethod("parse", new Class[] { String.class, ParsePosition.class });
       return (Number) m.invoke(format, new Object[] { str, pos });
@@ -206,7 +209,7 @@ public class NumberFormatHelper {
         LOG.error("Cannot instantiate ICU4J classes, use default implementation", e);
       }
     }
-    DecimalFormat result = new DecimalFormat(pattern, new DecimalFormatSymbols(locale));
+    DecimalFormat result = new DecimalFormat(pattern, LocaleRegistry.getDecimalFormatSymbols(locale));
     return result;
   }
 
@@ -0,0 +1,134 @@
+package pl.aislib.util.validators;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.text.Format;
+import java.text.NumberFormat;
+import java.text.ParsePosition;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe parser of numbers, shared by all validators with equal number formats.
+ *
+ * Number formats are not thread-safe, so every thread parses with its own copy
+ * of the format, created once per thread and parser.
+ * Parsers are cached by their formats; formats with the same locale symbols,
+ * pattern and settings share one parser.
+ * <p>
+ * Formats which are not <code>java.text.NumberFormat</code> objects, like ICU4J ones,
+ * are parsed with their <code>parse(String, ParsePosition)</code> method, looked up once
+ * when the parser is created.
+ *
+ * @since AISLIB 0.6
+ */
+public final class NumberParser {
+
+  /**
+   * Cache of parsers, keyed by copies of their formats.
+   */
+  private static final ConcurrentMap parsers = new ConcurrentHashMap();
+
+  /**
+   * Format copied by every thread.
+   */
+  private final Format prototype;
+
+  /**
+   * Parse method of formats which are not number formats of the J2SE.
+   */
+  private final Method parseMethod;
+
+  /**
+   * Copies of the format used by threads.
+   */
+  private final ThreadLocal formats = new ThreadLocal();
+
+
+  // Constructors
+
+  /**
+   * @param prototype format copied by every thread, not modified afterwards.
+   * @throws NoSuchMethodException if the format cannot parse strings.
+   */
+  private NumberParser(Format prototype) throws NoSuchMethodException {
+    this.prototype = prototype;
+    if (prototype instanceof NumberFormat) {
+      parseMethod = null;
+    } else {
+      parseMethod = prototype.getClass().getMethod("parse", new Class[] { String.class, ParsePosition.class });
+    }
+  }
+
+
+  // Public methods
+
+  /**
+   * Returns parser for given format.
+   *
+   * The format is copied, so it may be changed afterwards without affecting the parser.
+   *
+   * @param format number format, e.g. <code>java.text.DecimalFormat</code> or <code>com.ibm.icu.text.DecimalFormat</code>.
+   * @return parser shared by all equal formats.
+   * @throws IllegalArgumentException if the format has no method parsing numbers.
+   */
+  public static NumberParser getInstance(Format format) {
+    NumberParser result = (NumberParser) parsers.get(format);
+    if (result != null) {
+      return result;
+    }
+
+    Format prototype = (Format) format.clone();
+    try {
+      result = new NumberParser(prototype);
+    } catch (NoSuchMethodException nsme) {
+      throw new IllegalArgumentException("Format cannot parse numbers: " + format.getClass().getName());
+    }
+
+    NumberParser previous = (NumberParser) parsers.putIfAbsent(prototype, result);
+    return previous != null ? previous : result;
+  }
+
+  /**
+   * Parses a number.
+   *
+   * @param value string to be parsed.
+   * @param pos position to start parsing at, updated to the first unparsed character.
+   * @return parsed number or <code>null</code> if the string could not be parsed.
+   */
+  public Number parse(String value, ParsePosition pos) {
+    Format format = getFormat();
+
+    if (parseMethod == null) {
+      return ((NumberFormat) format).parse(value, pos);
+    }
+
+    try {
+      return (Number) parseMethod.invoke(format, new Object[] { value, pos });
+    } catch (IllegalAccessException iae) {
+      throw new IllegalStateException("Cannot parse with " + format.getClass().getName() + ": " + iae.getMessage());
+    } catch (InvocationTargetException ite) {
+      Throwable target = ite.getTargetException();
+      if (target instanceof RuntimeException) {
+        throw (RuntimeException) target;
+      }
+      if (target instanceof Error) {
+        throw (Error) target;
+      }
+      throw new IllegalStateException("Cannot parse with " + format.getClass().getName() + ": " + target);
+    }
+  }
+
+  /**
+   * @return copy of the format owned by the calling thread.
+   */
+  public Format getFormat() {
+    Format result = (Format) formats.get();
+    if (result == null) {
+      result = (Format) prototype.clone();
+      formats.set(result);
+    }
+    return result;
+  }
+
+} // NumberParser class
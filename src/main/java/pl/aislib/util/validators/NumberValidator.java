@@ -25,6 +25,11 @@ public class NumberValidator extends RangeValidator {
    */
   protected Format decimalFormat;
 
+  /**
+   * Thread-safe parser for the current configuration, created on first use.
+   */
+  private volatile NumberParser numberParser;
+
 
   // Constructors
 
@@ -46,6 +51,7 @@ public class NumberValidator extends RangeValidator {
   public void setFormat(String value) {
     super.setFormat(value);
     NumberFormatHelper.applyLocalizedPattern(decimalFormat, value);
+    resetNumberParser();
   }
 
   /**
@@ -54,6 +60,7 @@ public class NumberValidator extends RangeValidator {
   public void setLocale(String value) {
     super.setLocale(value);
     decimalFormat = getDecimalFormat();
+    resetNumberParser();
   }
 
   /**
@@ -63,6 +70,7 @@ public class NumberValidator extends RangeValidator {
     char gsOld = NumberFormatHelper.setGroupingSeparator(decimalFormat, value.charAt(0));
     format.setValue(format.getValue().toString().replace(gsOld, value.charAt(0)));
     NumberFormatHelper.applyLocalizedPattern(decimalFormat, format.getValue().toString());
+    resetNumberParser();
   }
 
 
@@ -108,8 +116,30 @@ public class NumberValidator extends RangeValidator {
    * @see StringValidator#formatString(String)
    */
   protected Object formatString(String value) throws Exception {
-    Double result = new Double(parseNumber(value).doubleValue());
-    return result;
+    return convertNumber(parseNumber(value));
+  }
+
+  /**
+   * @see StringValidator#parseString(String)
+   */
+  protected Object parseString(String value) {
+    ParsePosition pos = new ParsePosition(0);
+    Number number = getNumberParser().parse(value, pos);
+    if (number == null || pos.getIndex() != value.length()) {
+      return null;
+    }
+    return convertNumber(number);
+  }
+
+  /**
+   * Should be overridden in subclasses.
+   *
+   * @param value a parsed number.
+   * @return number of the type of validated objects.
+   * @since AISLIB 0.6
+   */
+  protected Object convertNumber(Number value) {
+    return new Double(value.doubleValue());
   }
 
   /**
@@ -119,18 +149,54 @@ public class NumberValidator extends RangeValidator {
    */
   protected Number parseNumber(String value) throws Exception {
     ParsePosition pos = new ParsePosition(0);
-    Number result = NumberFormatHelper.parse(decimalFormat, value, pos);
+    Number result = getNumberParser().parse(value, pos);
     if (pos.getIndex() != value.length()) {
       throw new NumberFormatException("Invalid format.");
     }
     return result;
   }
 
+  /**
+   * Returns parser for the current configuration of the validator.
+   *
+   * The parser is shared by validators with equal formats and may be used by many threads at once.
+   *
+   * @return number parser.
+   * @since AISLIB 0.6
+   */
+  protected NumberParser getNumberParser() {
+    NumberParser result = numberParser;
+    if (result == null) {
+      result = NumberParser.getInstance(getParserFormat());
+      numberParser = result;
+    }
+    return result;
+  }
+
+  /**
+   * @return format the number parser is created for.
+   * @since AISLIB 0.6
+   */
+  protected Format getParserFormat() {
+    return decimalFormat;
+  }
+
+  /**
+   * Discards the number parser, so that the next parsing uses the current configuration.
+   *
+   * Should be called by every method changing the configuration of parsing.
+   *
+   * @since AISLIB 0.6
+   */
+  protected void resetNumberParser() {
+    numberParser = null;
+  }
+
   /**
    * @return new instance of decimal format.
    */
   protected Format getDecimalFormat() {
-    NumberFormat result = NumberFormat.getInstance(locale);
+    NumberFormat result = LocaleRegistry.getNumberFormat(locale);
     if (result instanceof DecimalFormat) {
       DecimalFormat df = (DecimalFormat) result;
       df.setMaximumFractionDigits(10);
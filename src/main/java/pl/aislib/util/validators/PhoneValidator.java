@@ -1,6 +1,6 @@
 package pl.aislib.util.validators;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Phone validation class.
@@ -63,18 +63,33 @@ public class PhoneValidator extends StringValidator {
    * @see pl.aislib.util.validators.StringValidator#formatString
    */
   protected Object formatString(String value) throws Exception {
+    Object result = parseString(value);
+    if (result == null) {
+      throw ValidationFailure.INVALID_PHONE.toException(value);
+    }
+    return result;
+  }
+
+  /**
+   * @see pl.aislib.util.validators.StringValidator#parseString
+   */
+  protected Object parseString(String value) {
     String strFormat    = (String) format.getValue();
     int    formatLength = strFormat.length();
 
+    if (value.length() < formatLength) {
+      return null;
+    }
+
     for (int i = 0; i < formatLength; i++) {
       char fc = strFormat.charAt(i);
       char vc = value.charAt(i);
       if (fc == '0') {
         if (vc < '0' || vc > '9') {
-          throw new ValidateException("Invalid phone number format.");
+          return null;
         }
       } else if (fc != vc) {
-        throw new ValidateException("Invalid phone number format.");
+        return null;
       }
     }
 
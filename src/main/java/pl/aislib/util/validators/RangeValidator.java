@@ -1,6 +1,6 @@
 package pl.aislib.util.validators;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Range validation abstract class.
@@ -42,17 +42,22 @@ public abstract class RangeValidator extends StringValidator {
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject(Object)
+   * @see pl.aislib.util.validators.Validator#checkObject(Object)
    */
-  public void validateObject(Object value) throws ValidateException {
-    super.validateObject(value);
+  protected ValidationFailure checkObject(Object value) {
+    ValidationFailure failure = super.checkObject(value);
+    if (failure != null) {
+      return failure;
+    }
 
     if ((checkProperty(startRange) || checkProperty(endRange)) && !checkRange(value)) {
-      throw new ValidateException("Value not in range.");
+      return ValidationFailure.NOT_IN_RANGE;
     }
+
+    return null;
   }
 
 
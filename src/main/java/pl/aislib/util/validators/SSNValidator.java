@@ -1,6 +1,6 @@
 package pl.aislib.util.validators;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Social Security Number (SSN) validation class.
@@ -54,17 +54,22 @@ public class SSNValidator extends StringValidator {
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject
+   * @see pl.aislib.util.validators.Validator#checkObject
    */
-  public void validateObject(Object value) throws ValidateException {
-    super.validateObject(value);
+  protected ValidationFailure checkObject(Object value) {
+    ValidationFailure failure = super.checkObject(value);
+    if (failure != null) {
+      return failure;
+    }
 
     if (checkProperty(ssnTypes) && !checkSSN((String) value)) {
-      throw new ValidateException("Invalid SSN number.");
+      return ValidationFailure.INVALID_SSN;
     }
+
+    return null;
   }
 
 
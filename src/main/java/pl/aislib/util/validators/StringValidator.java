@@ -5,6 +5,7 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Generic string validation class.
@@ -122,6 +123,17 @@ public class StringValidator extends Validator {
   protected Pattern patternObject;
 
 
+  /**
+   * Compiled allowed characters.
+   */
+  private volatile CharacterClass allowedCharClass;
+
+  /**
+   * Compiled disallowed characters.
+   */
+  private volatile CharacterClass disallowedCharClass;
+
+
   // Constructors
 
   /**
@@ -158,51 +170,76 @@ public class StringValidator extends Validator {
       return;
     }
 
-    if (checkProperty(allowedChars) && !checkAllowedChars(value)) {
-      throw new ValidateException("Value '" + value + "' contains disallowed characters.");
+    ValidationFailure failure = checkString(value);
+    if (failure != null) {
+      throw failure.toException(value);
     }
+  }
 
-    if (checkProperty(disallowedChars) && checkDisallowedChars(value)) {
-      throw new ValidateException("Value '" + value + "' contains disallowed characters.");
-    }
+  /**
+   * @see pl.aislib.util.validators.Validator#toObject(String)
+   */
+  public Object toObject(String value) throws ValidateException {
+    return convert(value);
+  }
 
-    if ((checkProperty(minimumLength) || checkProperty(maximumLength)) && !checkLength(value)) {
-      throw new ValidateException("Length of value '" + value + "'is invalid.");
+  /**
+   * @see pl.aislib.util.validators.Validator#validateObject(Object)
+   */
+  public void validateObject(Object value) throws ValidateException {
+    ValidationFailure failure = checkObject(value);
+    if (failure != null) {
+      throw failure.toException(value);
     }
   }
 
+
+  // Protected validation methods
+
   /**
-   * @see pl.aislib.util.validators.Validator#toObject(String)
+   * @see pl.aislib.util.validators.Validator#checkString(String)
    */
-  public Object toObject(String value) throws ValidateException {
-    String strValue = (checkProperty(ignoreCase) && ignoreCase.isTrue()) ? value.toUpperCase() : value;
+  protected ValidationFailure checkString(String value) {
+    if (patternObject != null) {
+      return checkPattern(value);
+    }
 
-    Object oValue = null;
+    if (checkProperty(allowedChars) && !checkAllowedChars(value)) {
+      return ValidationFailure.DISALLOWED_CHARS;
+    }
 
-    try {
-      oValue = formatString(strValue);
-    } catch (Exception e) {
-      e.printStackTrace();
-    } finally {
-      if (oValue != null || checkProperty(format)) {
-        return oValue;
-      }
+    if (checkProperty(disallowedChars) && checkDisallowedChars(value)) {
+      return ValidationFailure.DISALLOWED_CHARS;
+    }
+
+    if ((checkProperty(minimumLength) || checkProperty(maximumLength)) && !checkLength(value)) {
+      return ValidationFailure.INVALID_LENGTH;
     }
 
     return null;
   }
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject(Object)
+   * @see pl.aislib.util.validators.Validator#convert(String)
    */
-  public void validateObject(Object value) throws ValidateException {
+  protected Object convert(String value) {
+    String strValue = (checkProperty(ignoreCase) && ignoreCase.isTrue()) ? value.toUpperCase() : value;
+    return parseString(strValue);
+  }
+
+  /**
+   * @see pl.aislib.util.validators.Validator#checkObject(Object)
+   */
+  protected ValidationFailure checkObject(Object value) {
     if (checkProperty(allowedValues) && !checkAllowedValues(value)) {
-      throw new ValidateException("Value is not allowed.");
+      return ValidationFailure.NOT_ALLOWED;
     }
 
     if (checkProperty(disallowedValues) && checkDisallowedValues(value)) {
-      throw new ValidateException("Value is not allowed.");
+      return ValidationFailure.NOT_ALLOWED;
     }
+
+    return null;
   }
 
 
@@ -227,6 +264,7 @@ public class StringValidator extends Validator {
    */
   public void setAllowedChars(String value) {
     allowedChars.set(value);
+    allowedCharClass = value != null ? CharacterClass.compile(value, ignoreCase.isTrue()) : null;
   }
 
   /**
@@ -234,6 +272,7 @@ public class StringValidator extends Validator {
    */
   public void setDisallowedChars(String value) {
     disallowedChars.set(value);
+    disallowedCharClass = value != null ? CharacterClass.compile(value, ignoreCase.isTrue()) : null;
   }
 
   /**
@@ -380,18 +419,14 @@ public class StringValidator extends Validator {
       return true;
     }
 
-    if (ignoreCase.isTrue()) {
-      value = value.toUpperCase();
-      strChars = strChars.toUpperCase();
+    boolean bIgnoreCase = ignoreCase.isTrue();
+    CharacterClass chars = allowedCharClass;
+    if (chars == null || !chars.isFor(strChars, bIgnoreCase)) {
+      chars = CharacterClass.compile(strChars, bIgnoreCase);
+      allowedCharClass = chars;
     }
 
-    for (int i = 0, l = value.length(); i < l; i++) {
-      if (strChars.indexOf(value.charAt(i)) == -1) {
-        return false;
-      }
-    }
-
-    return true;
+    return chars.containsAll(bIgnoreCase ? value.toUpperCase() : value);
   }
 
   /**
@@ -405,17 +440,14 @@ public class StringValidator extends Validator {
       return false;
     }
 
-    if (ignoreCase.isTrue()) {
-      value = value.toUpperCase();
-      strChars = strChars.toUpperCase();
+    boolean bIgnoreCase = ignoreCase.isTrue();
+    CharacterClass chars = disallowedCharClass;
+    if (chars == null || !chars.isFor(strChars, bIgnoreCase)) {
+      chars = CharacterClass.compile(strChars, bIgnoreCase);
+      disallowedCharClass = chars;
     }
 
-    for (int i = 0, l = value.length(); i < l; i++) {
-      if (strChars.indexOf(value.charAt(i)) != -1) {
-        return true;
-      }
-    }
-    return false;
+    return chars.containsAny(bIgnoreCase ? value.toUpperCase() : value);
   }
 
   /**
@@ -423,19 +455,11 @@ public class StringValidator extends Validator {
    * @return true if the object is one of the allowed values.
    */
   protected boolean checkAllowedValues(Object value) {
-    Object[] oAllowedValues = allowedValues.getConvertedTokens();
-
-    if (oAllowedValues == null) {
+    if (allowedValues.getConvertedTokens() == null) {
       return true;
     }
 
-    for (int i = 0, l = oAllowedValues.length; i < l; i++) {
-      if (value.equals(oAllowedValues[i])) {
-        return true;
-      }
-    }
-
-    return false;
+    return allowedValues.containsConvertedToken(value);
   }
 
   /**
@@ -443,19 +467,11 @@ public class StringValidator extends Validator {
    * @return true if the object is not any disallowed value.
    */
   protected boolean checkDisallowedValues(Object value) {
-    Object[] oDisallowedValues = disallowedValues.getConvertedTokens();
-
-    if (oDisallowedValues == null) {
+    if (disallowedValues.getConvertedTokens() == null) {
       return false;
     }
 
-    for (int i = 0, l = oDisallowedValues.length; i < l; i++) {
-      if (value.equals(oDisallowedValues[i])) {
-        return true;
-      }
-    }
-
-    return false;
+    return disallowedValues.containsConvertedToken(value);
   }
 
 
@@ -502,6 +518,23 @@ public class StringValidator extends Validator {
     return value;
   }
 
+  /**
+   * Formats a string without exceptions.
+   *
+   * Subclasses formatting strings should override it with a method not throwing exceptions.
+   *
+   * @param value a string.
+   * @return a formatted object or <code>null</code> if the string could not be formatted.
+   * @since AISLIB 0.6
+   */
+  protected Object parseString(String value) {
+    try {
+      return formatString(value);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
   /**
    * @param value allowed values.
    */
@@ -556,18 +589,25 @@ public class StringValidator extends Validator {
    * @throws ValidateException if value has not been successfully validated.
    */
   public void validatePattern(String value) throws ValidateException {
-    if (patternObject != null) {
-      Matcher matcher = patternObject.matcher(value);
-      if (!matcher.matches()) {
-        throw new ValidateException(
-          "Value '" + value + "' has not been matched successfully against pattern."
-        );
-      }
-    } else {
-      throw new ValidateException(
-        "Value '" + value + "' has not been matched because there is no pattern to match against."
-      );
+    ValidationFailure failure = checkPattern(value);
+    if (failure != null) {
+      throw failure.toException(value);
+    }
+  }
+
+  /**
+   * Validates value against pattern set up earlier, without exceptions.
+   *
+   * @param value value to be validated.
+   * @return reason of failure or <code>null</code> if value has been successfully validated.
+   * @since AISLIB 0.6
+   */
+  protected ValidationFailure checkPattern(String value) {
+    if (patternObject == null) {
+      return ValidationFailure.NO_PATTERN;
     }
+    Matcher matcher = patternObject.matcher(value);
+    return matcher.matches() ? null : ValidationFailure.PATTERN_NOT_MATCHED;
   }
 
   /**
@@ -39,4 +39,12 @@ public class TimestampValidator extends DateValidator {
     return date != null ? new Timestamp(((Date) date).getTime()) : null;
   }
 
+  /**
+   * @see pl.aislib.util.validators.StringValidator#parseString(String)
+   */
+  protected Object parseString(String value) {
+    Object date = super.parseString(value);
+    return date != null ? new Timestamp(((Date) date).getTime()) : null;
+  }
+
 } // TimestampValidator class
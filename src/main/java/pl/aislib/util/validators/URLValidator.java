@@ -2,7 +2,7 @@ package pl.aislib.util.validators;
 
 import java.net.URL;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * URL validation class.
@@ -67,12 +67,16 @@ public class URLValidator extends StringValidator {
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#toObject
+   * @see pl.aislib.util.validators.Validator#convert
    */
-  public Object toObject(String value) throws ValidateException {
+  protected Object convert(String value) {
+    // URL must have a protocol
+    if (value.indexOf(':') == -1) {
+      return null;
+    }
 
     URL url = null;
     try {
@@ -85,14 +89,19 @@ public class URLValidator extends StringValidator {
   }
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject
+   * @see pl.aislib.util.validators.Validator#checkObject
    */
-  public void validateObject(Object value) throws ValidateException {
-    super.validateObject(value);
+  protected ValidationFailure checkObject(Object value) {
+    ValidationFailure failure = super.checkObject(value);
+    if (failure != null) {
+      return failure;
+    }
 
     if (checkProperty(protocolTypes) && !checkProtocol((URL) value)) {
-      throw new ValidateException("Protocol type is not allowed.");
+      return ValidationFailure.PROTOCOL_NOT_ALLOWED;
     }
+
+    return null;
   }
 
 
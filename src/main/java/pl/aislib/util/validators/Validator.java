@@ -1,13 +1,36 @@
 package pl.aislib.util.validators;
 
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import pl.aislib.fm.forms.CheckingValidator;
 import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Class of objects validating single strings.
  *
  * @author Wojciech Swiatek, AIS.PL
  */
-public abstract class Validator extends AbstractValidator implements pl.aislib.fm.forms.Validator {
+public abstract class Validator extends AbstractValidator implements CheckingValidator {
+
+  /**
+   * Names of exception-based validation methods; subclasses from outside the package overriding
+   * them are validated through {@link #validate(String)} only.
+   */
+  private static final List EXCEPTION_METHODS =
+    Arrays.asList(new String[] {
+      "validate", "validateString", "toObject", "validateObject", "formatString", "validatePattern"
+    });
+
+  /**
+   * Cache of classes of validators and flags whether they support checking.
+   */
+  private static final ConcurrentMap checkSupport = new ConcurrentHashMap();
+
 
   // Public methods
 
@@ -40,6 +63,67 @@ public abstract class Validator extends AbstractValidator implements pl.aislib.f
     return oValue;
   }
 
+  /**
+   * Validates the value without exceptions, in the same steps as {@link #validate(String)}.
+   *
+   * @see pl.aislib.fm.forms.CheckingValidator#check(String)
+   * @since AISLIB 0.6
+   */
+  public Object check(String value) {
+    if (!isCheckSupported()) {
+      try {
+        return validate(value);
+      } catch (ValidateException ve) {
+        return ValidationFailure.NOT_VALIDATED;
+      }
+    }
+
+    if (checkEmpty(value)) {
+      if (required.isTrue()) {
+        return ValidationFailure.REQUIRED;
+      }
+      if (required.isFalse()) {
+        return value;
+      }
+    }
+
+    ValidationFailure failure = checkString(value);
+    if (failure != null) {
+      return failure;
+    }
+
+    Object oValue = convert(value);
+
+    if (oValue == null && required.isFalse()) {
+      return ValidationFailure.INVALID_CONVERSION;
+    }
+
+    if (oValue != null) {
+      failure = checkObject(oValue);
+      if (failure != null) {
+        return failure;
+      }
+    }
+
+    return oValue;
+  }
+
+  /**
+   * Checking is supported unless a class outside this package overrides exception-based validation methods.
+   *
+   * @see pl.aislib.fm.forms.CheckingValidator#isCheckSupported()
+   * @since AISLIB 0.6
+   */
+  public boolean isCheckSupported() {
+    Class validatorClass = getClass();
+    Boolean result = (Boolean) checkSupport.get(validatorClass);
+    if (result == null) {
+      result = Boolean.valueOf(supportsCheck(validatorClass));
+      checkSupport.put(validatorClass, result);
+    }
+    return result.booleanValue();
+  }
+
 
   // Protected validation methods
 
@@ -74,6 +158,59 @@ public abstract class Validator extends AbstractValidator implements pl.aislib.f
    */
   protected abstract void validateObject(Object value) throws ValidateException;
 
+  /**
+   * Syntactic validation of a string without exceptions.
+   *
+   * Should be overridden in subclasses, together with {@link #validateString(String)} calling it.
+   *
+   * @param value a string to be syntactically validated.
+   * @return reason of failure or <code>null</code> if the string has been validated.
+   * @since AISLIB 0.6
+   */
+  protected ValidationFailure checkString(String value) {
+    try {
+      validateString(value);
+      return null;
+    } catch (ValidateException ve) {
+      return ValidationFailure.NOT_VALIDATED;
+    }
+  }
+
+  /**
+   * Conversion of a string to a desired object without exceptions.
+   *
+   * Should be overridden in subclasses, together with {@link #toObject(String)} calling it.
+   *
+   * @param value a string to be converted.
+   * @return a converted object or <code>null</code> if the string could not be converted.
+   * @since AISLIB 0.6
+   */
+  protected Object convert(String value) {
+    try {
+      return toObject(value);
+    } catch (ValidateException ve) {
+      return null;
+    }
+  }
+
+  /**
+   * Semantic validation of a string as an object without exceptions.
+   *
+   * Should be overridden in subclasses, together with {@link #validateObject(Object)} calling it.
+   *
+   * @param value an object to be validated.
+   * @return reason of failure or <code>null</code> if the object has been validated.
+   * @since AISLIB 0.6
+   */
+  protected ValidationFailure checkObject(Object value) {
+    try {
+      validateObject(value);
+      return null;
+    } catch (ValidateException ve) {
+      return ValidationFailure.NOT_VALIDATED;
+    }
+  }
+
 
   // Protected methods
 
@@ -90,4 +227,27 @@ public abstract class Validator extends AbstractValidator implements pl.aislib.f
     return super.checkEmpty(value);
   }
 
+
+  // Private methods
+
+  /**
+   * @param validatorClass class of a validator.
+   * @return true if no class outside this package overrides exception-based validation methods.
+   */
+  private static boolean supportsCheck(Class validatorClass) {
+    String packageName = Validator.class.getName().substring(0, Validator.class.getName().lastIndexOf('.') + 1);
+    for (Class c = validatorClass; c != Validator.class; c = c.getSuperclass()) {
+      if (c.getName().startsWith(packageName) && c.getName().indexOf('.', packageName.length()) == -1) {
+        continue;
+      }
+      Method[] methods = c.getDeclaredMethods();
+      for (int i = 0; i < methods.length; i++) {
+        if (methods[i].getParameterTypes().length == 1 && EXCEPTION_METHODS.contains(methods[i].getName())) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
 } // Validator class
@@ -1,6 +1,6 @@
 package pl.aislib.util.validators;
 
-import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
 
 /**
  * Zip code validation class.
@@ -55,17 +55,22 @@ public class ZipValidator
   }
 
 
-  // Public validation methods
+  // Protected validation methods
 
   /**
-   * @see pl.aislib.util.validators.Validator#validateObject
+   * @see pl.aislib.util.validators.Validator#checkObject
    */
-  public void validateObject(Object value) throws ValidateException {
-    super.validateObject(value);
+  protected ValidationFailure checkObject(Object value) {
+    ValidationFailure failure = super.checkObject(value);
+    if (failure != null) {
+      return failure;
+    }
 
     if (checkProperty(zipTypes) && !checkZip((String) value)) {
-      throw new ValidateException("Invalid zip.");
+      return ValidationFailure.INVALID_ZIP;
     }
+
+    return null;
   }
 
 
@@ -0,0 +1,67 @@
+package pl.aislib.test.fm;
+
+import java.io.InputStream;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+
+import junit.framework.TestCase;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.mock.web.MockServletConfig;
+import org.springframework.mock.web.MockServletContext;
+import org.xml.sax.InputSource;
+
+import pl.aislib.fm.Application;
+
+/**
+ * Base class for test cases of {@link pl.aislib.fm.Application#dispatch}.
+ *
+ * Application uses {@link MapTemplateEngine}.
+ */
+public abstract class AbstractApplicationTest extends TestCase {
+
+  protected Application application;
+  protected MockHttpServletRequest request;
+  protected MockHttpServletResponse response;
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  public void setUp() throws Exception {
+    String xmlFileName = getConfigurationFileName();
+    InputStream stream = this.getClass().getResourceAsStream(xmlFileName);
+    assertNotNull("config file: " + xmlFileName + " is null", stream);
+
+    InputSource source = new InputSource(stream);
+    source.setSystemId(this.getClass().getResource(xmlFileName).toString());
+
+    application = new Application(xmlFileName, new MockServlet());
+    application.initWorkflow(source);
+    application.setTemplateEngine(new MapTemplateEngine());
+
+    request  = new MockHttpServletRequest();
+    response = new MockHttpServletResponse();
+    request.setSession(new MockHttpSession());
+  }
+
+  /**
+   * Return name of file that should be used to configure workflow of {@link Application}.
+   *
+   * @return name of file that should be used to configure workflow of {@link Application}
+   */
+  public abstract String getConfigurationFileName();
+
+  class MockServlet extends HttpServlet {
+
+    MockServlet() throws ServletException {
+      ServletContext context = new MockServletContext();
+      MockServletConfig config = new MockServletConfig(context);
+      init(config);
+    }
+  }
+
+}
@@ -0,0 +1,69 @@
+package pl.aislib.test.fm;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import pl.aislib.fm.TemplateEngineException;
+
+/**
+ * Test {@link pl.aislib.fm.Application#dispatch} in buffered and streaming mode.
+ */
+public class ApplicationTest extends AbstractApplicationTest {
+
+  public void testBufferedDispatch() throws Exception {
+    request.addParameter("page", "second");
+    application.dispatch(request, response);
+    assertEquals("nop:second", response.getContentAsString());
+    assertEquals("text/html", response.getContentType());
+  }
+
+  public void testStreamingDispatch() throws Exception {
+    application.setStreaming(true);
+    application.setStreamingBufferSize(16);
+    request.addParameter("page", "second");
+    application.dispatch(request, response);
+    assertEquals("nop:second", response.getContentAsString());
+    assertEquals(16, response.getBufferSize());
+  }
+
+  /**
+   * Layouts of containers are composed only when switched on.
+   */
+  public void testComposingLayouts() throws Exception {
+    application.setTemplateEngine(new MapTemplateEngine() {
+      public boolean evaluateLayout(Object container, String slot, Object template, Map parameters,
+        Writer writer) throws IOException, TemplateEngineException {
+        writer.write(container + "[" + evaluate(template, parameters) + "]");
+        return true;
+      }
+    });
+    request.addParameter("page", "framed");
+    application.dispatch(request, response);
+    assertEquals("frame:framed", response.getContentAsString());
+
+    application.setComposingLayouts(true);
+    response = new MockHttpServletResponse();
+    application.dispatch(request, response);
+    assertEquals("frame[nop:framed]", response.getContentAsString());
+  }
+
+  public void testInvalidBufferSize() {
+    try {
+      application.setStreamingBufferSize(0);
+      fail("buffer size must be positive");
+    } catch (IllegalArgumentException iae) {
+      ; // it's OK in this test
+    }
+  }
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#getConfigurationFileName()
+   */
+  public String getConfigurationFileName() {
+    return "controller1.xml";
+  }
+
+}
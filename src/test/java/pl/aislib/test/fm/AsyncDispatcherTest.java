@@ -0,0 +1,143 @@
+package pl.aislib.test.fm;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.mock.web.MockHttpSession;
+
+import pl.aislib.fm.AsyncDispatcher;
+
+/**
+ * Test processing of requests by {@link AsyncDispatcher}.
+ */
+public class AsyncDispatcherTest extends AbstractApplicationTest {
+
+  private AsyncDispatcher dispatcher;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    dispatcher = new AsyncDispatcher(application, Executors.newFixedThreadPool(2), 200);
+    application.setAsyncDispatcher(dispatcher);
+  }
+
+  protected void tearDown() throws Exception {
+    dispatcher.shutdown();
+  }
+
+  public void testDispatch() throws Exception {
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+  }
+
+  public void testTimeout() throws Exception {
+    request.addParameter("page", "slow");
+    application.dispatch(request, response);
+    assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+  }
+
+  /**
+   * Processing which ignores interruption writes nothing after timeout and cannot use the request.
+   */
+  public void testTimeoutDetachesResponse() throws Exception {
+    RecordingPage.reset();
+    request.addParameter("page", "stubborn");
+    application.dispatch(request, response);
+    assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    assertDetached(RecordingPage.awaitRequest());
+
+    Thread.sleep(800);
+    assertEquals("", response.getContentAsString());
+  }
+
+  /**
+   * Requests supporting asynchronous processing are completed by executor.
+   */
+  public void testAsyncDispatch() throws Exception {
+    AsyncRequest asyncRequest = createAsyncRequest("index");
+    application.dispatch(asyncRequest, response);
+
+    asyncRequest.getContext().awaitCompletions(1);
+    assertEquals("nop:index", response.getContentAsString());
+    assertEquals(200, asyncRequest.getContext().getTimeout());
+    assertEquals(1, asyncRequest.getContext().getListenerCount());
+  }
+
+  /**
+   * On timeout of asynchronous processing, error is sent and request is completed,
+   * processing which ignores interruption writes nothing afterwards and cannot use the request.
+   */
+  public void testAsyncTimeout() throws Exception {
+    RecordingPage.reset();
+    AsyncRequest asyncRequest = createAsyncRequest("stubborn");
+    application.dispatch(asyncRequest, response);
+    HttpServletRequest pageRequest = RecordingPage.awaitRequest();
+
+    asyncRequest.getContext().fireTimeout();
+    assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, response.getStatus());
+    asyncRequest.getContext().awaitCompletions(2);
+    assertEquals("", response.getContentAsString());
+    assertDetached(pageRequest);
+  }
+
+  /**
+   * Without timeout request is processed in container thread.
+   */
+  public void testWithoutTimeout() throws Exception {
+    AsyncDispatcher inline = new AsyncDispatcher(application, Executors.newSingleThreadExecutor(), 0);
+    application.setAsyncDispatcher(inline);
+    inline.shutdown();
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+  }
+
+  /**
+   * Default executor does not prevent shutdown of the container.
+   */
+  public void testDefaultExecutor() throws Exception {
+    ExecutorService executor = AsyncDispatcher.newDefaultExecutor(1);
+    Future daemon = executor.submit(new Callable() {
+      public Object call() {
+        return Boolean.valueOf(Thread.currentThread().isDaemon());
+      }
+    });
+    assertEquals(Boolean.TRUE, daemon.get());
+    executor.shutdown();
+  }
+
+  /**
+   * @param page name of requested page.
+   * @return request supporting asynchronous processing.
+   */
+  private AsyncRequest createAsyncRequest(String page) {
+    AsyncRequest asyncRequest = new AsyncRequest();
+    asyncRequest.setSession(new MockHttpSession());
+    asyncRequest.addParameter("page", page);
+    return asyncRequest;
+  }
+
+  /**
+   * @param pageRequest request given to a page.
+   */
+  private void assertDetached(HttpServletRequest pageRequest) {
+    assertNotNull(pageRequest);
+    try {
+      pageRequest.getParameter("page");
+      fail("request not detached");
+    } catch (IllegalStateException ise) {
+      ;
+    }
+  }
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#getConfigurationFileName()
+   */
+  public String getConfigurationFileName() {
+    return "includes.xml";
+  }
+
+}
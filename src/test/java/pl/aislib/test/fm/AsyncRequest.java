@@ -0,0 +1,116 @@
+package pl.aislib.test.fm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Request with methods of asynchronous processing of Servlet 3.0 API, found by reflection
+ * in the same way as methods of a container.
+ */
+public class AsyncRequest extends MockHttpServletRequest {
+
+  /**
+   * Context of asynchronous processing, <code>null</code> until started.
+   */
+  private Context context;
+
+  /**
+   * @return always true.
+   */
+  public boolean isAsyncSupported() {
+    return true;
+  }
+
+  /**
+   * @return started context.
+   */
+  public synchronized Context startAsync() {
+    if (context != null) {
+      throw new IllegalStateException("already started");
+    }
+    context = new Context();
+    return context;
+  }
+
+  /**
+   * @return context of asynchronous processing, <code>null</code> until started.
+   */
+  public synchronized Context getContext() {
+    return context;
+  }
+
+  /**
+   * Listener of asynchronous processing, as <code>javax.servlet.AsyncListener</code>.
+   */
+  public interface Listener {
+
+    void onComplete(Object event);
+
+    void onTimeout(Object event);
+
+    void onError(Object event);
+
+    void onStartAsync(Object event);
+
+  } // Listener class
+
+  /**
+   * Context of asynchronous processing, as <code>javax.servlet.AsyncContext</code>.
+   */
+  public static class Context {
+
+    private long timeout;
+
+    private List listeners = new ArrayList();
+
+    private int completions;
+
+    public synchronized void setTimeout(long timeout) {
+      this.timeout = timeout;
+    }
+
+    public synchronized long getTimeout() {
+      return timeout;
+    }
+
+    public synchronized void addListener(Listener listener) {
+      listeners.add(listener);
+    }
+
+    public synchronized int getListenerCount() {
+      return listeners.size();
+    }
+
+    public synchronized void complete() {
+      completions++;
+      notifyAll();
+    }
+
+    /**
+     * Notifies listeners about timeout, as container does.
+     */
+    public void fireTimeout() {
+      Listener[] copy;
+      synchronized (this) {
+        copy = (Listener[]) listeners.toArray(new Listener[listeners.size()]);
+      }
+      for (int i = 0; i < copy.length; i++) {
+        copy[i].onTimeout(null);
+      }
+    }
+
+    /**
+     * @param count expected number of calls of {@link #complete()}.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    public synchronized void awaitCompletions(int count) throws InterruptedException {
+      while (completions < count) {
+        wait();
+      }
+    }
+
+  } // Context class
+
+}
@@ -0,0 +1,60 @@
+package pl.aislib.test.fm;
+
+import pl.aislib.fm.PageInfo;
+
+/**
+ * Test order of triggers resolved through {@link pl.aislib.fm.shepherds.ShepherdsTable}.
+ */
+public class Controller4Test extends AbstractControllerTest {
+
+  public void testNoTrigger() {
+    assertEquals("index", getActionKey());
+  }
+
+  public void testFalsePredicate() {
+    request.addParameter("never", "x");
+    assertEquals("index", getActionKey());
+  }
+
+  public void testFirstParameterWins() {
+    request.addParameter("second", "x");
+    request.addParameter("first", "x");
+    assertEquals("first", getActionKey());
+  }
+
+  public void testOrderOfMixedTriggers() {
+    session.setAttribute(getConfigurationFileName() + ".session", "x");
+    request.addParameter("second", "x");
+    assertEquals("session", getActionKey());
+
+    request.addParameter("first", "x");
+    assertEquals("first", getActionKey());
+  }
+
+  public void testImageParameter() {
+    request.addParameter("image.y", "10");
+    assertEquals("image", getActionKey());
+  }
+
+  public void testManyParameters() {
+    for (int i = 0; i < 20; i++) {
+      request.addParameter("other" + i, "x");
+    }
+    assertEquals("index", getActionKey());
+
+    request.addParameter("image.x", "10");
+    request.addParameter("second", "x");
+    assertEquals("second", getActionKey());
+  }
+
+  private String getActionKey() {
+    PageInfo pageInfo = controller.getPageInfo(request, response, selector);
+    assertNotNull(pageInfo);
+    return pageInfo.getActionKey();
+  }
+
+  public String getConfigurationFileName() {
+    return "controller4.xml";
+  }
+
+}
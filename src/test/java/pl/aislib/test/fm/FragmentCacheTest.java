@@ -0,0 +1,231 @@
+package pl.aislib.test.fm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+
+import pl.aislib.fm.Constants;
+import pl.aislib.fm.FragmentCache;
+import pl.aislib.fm.FragmentPolicy;
+import pl.aislib.fm.IncludeExecutor;
+import pl.aislib.fm.TemplateEngineException;
+
+/**
+ * Tests caching of rendered template includes.
+ */
+public class FragmentCacheTest extends AbstractApplicationTest {
+
+  /**
+   * Template engine counting evaluations.
+   */
+  private CountingTemplateEngine engine;
+
+
+  // Protected methods
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#setUp()
+   */
+  public void setUp() throws Exception {
+    super.setUp();
+    engine = new CountingTemplateEngine();
+    application.setTemplateEngine(engine);
+  }
+
+
+  // Test methods
+
+  /**
+   * Only includes with caching policy are served from the cache, also to other pages.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testCachedIncludes() throws Exception {
+    String first = dispatch("index", "pl");
+    assertEquals(first, dispatch("index", "pl"));
+    dispatch("other", "pl");
+
+    assertEquals(1, engine.getEvaluations("menu"));
+    assertEquals(2, engine.getEvaluations("footer"));
+    assertEquals(2, application.getFragmentCache().getHits());
+
+    dispatch("index", "en");
+    assertEquals(2, engine.getEvaluations("menu"));
+  }
+
+  /**
+   * Output of changed templates is rendered again.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testInvalidation() throws Exception {
+    dispatch("index", "pl");
+    engine.lastModified = 1;
+    dispatch("index", "pl");
+    dispatch("index", "pl");
+
+    assertEquals(2, engine.getEvaluations("menu"));
+    assertEquals(1, application.getFragmentCache().getInvalidations());
+  }
+
+  /**
+   * Includes evaluated in parallel use the cache as well.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testParallelIncludes() throws Exception {
+    IncludeExecutor executor = new IncludeExecutor(2, 4, 1000);
+    application.setIncludeExecutor(executor);
+    try {
+      dispatch("other", "pl");
+      dispatch("other", "pl");
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, engine.getEvaluations("menu"));
+    assertEquals(1, engine.getEvaluations("sidebar"));
+  }
+
+  /**
+   * Caching may be switched off.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testDisabledCache() throws Exception {
+    application.setFragmentCache(null);
+    dispatch("index", "pl");
+    dispatch("index", "pl");
+    assertEquals(2, engine.getEvaluations("menu"));
+  }
+
+  /**
+   * Keys depend on declared parameters only, size of the cache is bounded.
+   */
+  public void testCacheAndPolicy() {
+    FragmentPolicy policy = FragmentPolicy.parse(" 30 ", "page, user");
+    assertEquals(30000, policy.getTtl());
+    assertEquals(2, policy.getVaryingParameters().length);
+
+    Map parameters = new HashMap();
+    parameters.put("page", "index");
+    parameters.put("other", "1");
+    String key = policy.createKey("menu", "pl", parameters);
+    parameters.put("other", "2");
+    assertEquals(key, policy.createKey("menu", "pl", parameters));
+    parameters.put("user", "john");
+    assertFalse(key.equals(policy.createKey("menu", "pl", parameters)));
+    parameters.put("user", new Long(1));
+    String numberKey = policy.createKey("menu", "pl", parameters);
+    parameters.put("user", "1");
+    assertFalse(numberKey.equals(policy.createKey("menu", "pl", parameters)));
+    parameters.put("user", new Object());
+    assertNull(policy.createKey("menu", "pl", parameters));
+
+    FragmentCache cache = new FragmentCache(1000);
+    cache.put("a", repeat('a', 200), 0, policy);
+    cache.put("b", repeat('b', 200), 0, policy);
+    assertNotNull(cache.get("a", 0));
+    cache.put("c", repeat('c', 200), 0, policy);
+    assertTrue(cache.getSize() <= cache.getMaxSize());
+    assertEquals(1, cache.getEvictions());
+    assertNotNull(cache.get("a", 0));
+    assertNull(cache.get("b", 0));
+
+    try {
+      FragmentPolicy.parse("0", null);
+      fail("time to live 0 accepted");
+    } catch (IllegalArgumentException iae) {
+      ;
+    }
+  }
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#getConfigurationFileName()
+   */
+  public String getConfigurationFileName() {
+    return "fragments.xml";
+  }
+
+
+  // Private methods
+
+  /**
+   * @param c a character.
+   * @param count number of characters.
+   * @return string of <code>count</code> characters.
+   */
+  private static String repeat(char c, int count) {
+    StringBuffer result = new StringBuffer();
+    for (int i = 0; i < count; i++) {
+      result.append(c);
+    }
+    return result.toString();
+  }
+
+  /**
+   * @param page requested page.
+   * @param language language of the request.
+   * @return content of the response.
+   * @throws Exception if the request failed.
+   */
+  private String dispatch(String page, String language) throws Exception {
+    request  = new MockHttpServletRequest();
+    response = new MockHttpServletResponse();
+    request.setSession(new MockHttpSession());
+    request.addParameter("page", page);
+    request.setAttribute(Constants.LANG, language);
+    application.dispatch(request, response);
+    return response.getContentAsString();
+  }
+
+
+  // Private classes
+
+  /**
+   * {@link MapTemplateEngine} counting evaluations of templates.
+   */
+  private static class CountingTemplateEngine extends MapTemplateEngine {
+
+    /**
+     * Modification time of all templates.
+     */
+    private volatile long lastModified;
+
+    /**
+     * Numbers of evaluations of templates.
+     */
+    private final Map evaluations = new HashMap();
+
+    /**
+     * @see MapTemplateEngine#evaluate(Object, Map)
+     */
+    public String evaluate(Object template, Map parameters) throws TemplateEngineException {
+      synchronized (evaluations) {
+        evaluations.put(template, new Integer(getEvaluations((String) template) + 1));
+      }
+      return super.evaluate(template, parameters);
+    }
+
+    /**
+     * @see pl.aislib.fm.TemplateEngine#getLastModified(Object)
+     */
+    public long getLastModified(Object template) {
+      return lastModified;
+    }
+
+    /**
+     * @param template name of a template.
+     * @return number of its evaluations.
+     */
+    int getEvaluations(String template) {
+      synchronized (evaluations) {
+        Integer result = (Integer) evaluations.get(template);
+        return (result != null) ? result.intValue() : 0;
+      }
+    }
+  } // CountingTemplateEngine class
+
+} // pl.aislib.test.fm.FragmentCacheTest class
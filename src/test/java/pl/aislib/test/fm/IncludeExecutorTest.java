@@ -0,0 +1,185 @@
+package pl.aislib.test.fm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import pl.aislib.fm.IncludeExecutor;
+import pl.aislib.fm.TemplateEngineException;
+
+/**
+ * Test parallel evaluation of template includes.
+ */
+public class IncludeExecutorTest extends AbstractApplicationTest {
+
+  private IncludeExecutor executor;
+
+  /**
+   * Parameters of the last evaluation of page template.
+   */
+  private Map pageParams;
+
+  /**
+   * Released by tests to finish evaluation of template <code>held</code> and tasks blocking executors.
+   */
+  private CountDownLatch release;
+
+  public void setUp() throws Exception {
+    super.setUp();
+    release = new CountDownLatch(1);
+    executor = new IncludeExecutor(2, 4, 100);
+    application.setIncludeExecutor(executor);
+    application.setTemplateEngine(new MapTemplateEngine() {
+      public String evaluate(Object template, Map parameters) throws TemplateEngineException {
+        if ("nop".equals(template)) {
+          pageParams = new HashMap(parameters);
+        } else if ("held".equals(template)) {
+          await(release);
+        }
+        return super.evaluate(template, parameters);
+      }
+    });
+  }
+
+  protected void tearDown() throws Exception {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  public void testParallelIncludes() throws Exception {
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+    assertEquals(1, executor.getParallelRequests("index"));
+    assertIncludes();
+  }
+
+  public void testSequentialIncludes() throws Exception {
+    executor.setParallel(false);
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+    assertEquals(0, executor.getParallelRequests("index"));
+    assertIncludes();
+  }
+
+  public void testTimeout() throws Exception {
+    request.addParameter("page", "slow");
+    try {
+      application.dispatch(request, response);
+      fail("include should not be evaluated within timeout");
+    } catch (ServletException se) {
+      assertTrue(se.getMessage().indexOf("slow") >= 0);
+    }
+  }
+
+  /**
+   * Include still evaluated when its timeout elapses fails the request.
+   */
+  public void testTimeoutOfRunningInclude() throws Exception {
+    request.addParameter("page", "held");
+    try {
+      application.dispatch(request, response);
+      fail("include should not be evaluated within timeout");
+    } catch (ServletException se) {
+      assertTrue(se.getMessage(), se.getMessage().indexOf("'held'") >= 0);
+    }
+    assertNull(pageParams);
+  }
+
+  /**
+   * Includes waiting for a busy executor longer than timeout are evaluated in request thread.
+   */
+  public void testQueuedIncludes() throws Exception {
+    ExecutorService busy = Executors.newSingleThreadExecutor();
+    busy.execute(new Runnable() {
+      public void run() {
+        await(release);
+      }
+    });
+    replaceExecutor(new IncludeExecutor(busy, 100));
+
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+    assertIncludes();
+  }
+
+  /**
+   * Includes are evaluated in request thread once executor given by application has been shut down,
+   * even if it discards tasks and there is no timeout.
+   */
+  public void testShutdownExecutor() throws Exception {
+    ExecutorService discarding = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue(),
+      new ThreadPoolExecutor.DiscardPolicy());
+    discarding.shutdown();
+    replaceExecutor(new IncludeExecutor(discarding, 0));
+
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+    assertIncludes();
+  }
+
+  /**
+   * Includes are evaluated in request thread when executor rejects them.
+   */
+  public void testRejectedIncludes() throws Exception {
+    replaceExecutor(new IncludeExecutor(1, 1, 0));
+    executor.getExecutor().execute(new Runnable() {
+      public void run() {
+        await(release);
+      }
+    });
+    executor.getExecutor().execute(new Runnable() {
+      public void run() {
+        ;
+      }
+    });
+
+    application.dispatch(request, response);
+    assertEquals("nop:index", response.getContentAsString());
+    assertIncludes();
+  }
+
+  /**
+   * @param newExecutor executor replacing executor of the test.
+   */
+  private void replaceExecutor(IncludeExecutor newExecutor) {
+    executor.shutdown();
+    executor = newExecutor;
+    application.setIncludeExecutor(executor);
+  }
+
+  /**
+   * @param latch latch to wait for, interruption is ignored.
+   */
+  private static void await(CountDownLatch latch) {
+    while (true) {
+      try {
+        latch.await();
+        return;
+      } catch (InterruptedException ie) {
+        ;
+      }
+    }
+  }
+
+  private void assertIncludes() {
+    assertEquals("menu:index", pageParams.get("menu"));
+    assertEquals("footer:index", pageParams.get("footer"));
+    assertEquals("sidebar:index", pageParams.get("sidebar"));
+  }
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#getConfigurationFileName()
+   */
+  public String getConfigurationFileName() {
+    return "includes.xml";
+  }
+
+}
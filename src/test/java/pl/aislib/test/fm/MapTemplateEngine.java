@@ -0,0 +1,55 @@
+package pl.aislib.test.fm;
+
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import pl.aislib.fm.Application;
+import pl.aislib.fm.TemplateEngine;
+import pl.aislib.fm.TemplateEngineException;
+
+/**
+ * Trivial {@link TemplateEngine} used in tests.
+ *
+ * Template is its name, evaluation result is the name followed by value of <code>page</code> parameter.
+ * Evaluation of template named <code>slow</code> takes half a second, evaluation of template named
+ * <code>stubborn</code> takes half a second too, ignoring interruption, evaluation of template named
+ * <code>broken</code> fails.
+ */
+public class MapTemplateEngine extends TemplateEngine {
+
+  public Object load(Application application, HttpServletRequest request, HttpServletResponse response,
+    String templateName) throws TemplateEngineException {
+    return templateName;
+  }
+
+  public String evaluate(Object template, Map parameters) throws TemplateEngineException {
+    if ("broken".equals(template)) {
+      throw new TemplateEngineException("broken template");
+    }
+    if ("slow".equals(template)) {
+      try {
+        Thread.sleep(500);
+      } catch (InterruptedException ie) {
+        throw new TemplateEngineException(ie);
+      }
+    }
+    if ("stubborn".equals(template)) {
+      long end = System.currentTimeMillis() + 500;
+      for (long now = System.currentTimeMillis(); now < end; now = System.currentTimeMillis()) {
+        try {
+          Thread.sleep(end - now);
+        } catch (InterruptedException ie) {
+          ;
+        }
+      }
+    }
+    return template + ":" + parameters.get("page");
+  }
+
+  public boolean isTemplate(Object object) {
+    return object instanceof String;
+  }
+
+}
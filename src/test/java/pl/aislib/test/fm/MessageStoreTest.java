@@ -0,0 +1,150 @@
+package pl.aislib.test.fm;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.logging.LogFactory;
+
+import pl.aislib.fm.Message;
+import pl.aislib.fm.MessagesHandler;
+import pl.aislib.fm.messages.IMessage;
+import pl.aislib.fm.messages.MessageStore;
+
+/**
+ * Tests the compact store of messages.
+ */
+public class MessageStoreTest extends TestCase {
+
+  /**
+   * Handler of messages.
+   */
+  private MessagesHandler handler;
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public MessageStoreTest(String name) {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    handler = new MessagesHandler(LogFactory.getLog(MessageStoreTest.class));
+    for (int code = 0; code < 100; code++) {
+      Map items = new HashMap();
+      items.put("en-us", "message " + code);
+      if (code % 2 == 0) {
+        items.put("pl", "komunikat " + code);
+      }
+      handler.addMessage(IMessage.WARNING, code * 7, "key" + code, new pl.aislib.fm.messages.Message.Content(items), "en-us");
+    }
+  }
+
+
+  // Test methods
+
+  /**
+   * Messages of the store are the same as messages of the handler before the store is built.
+   */
+  public void testSameMessages() {
+    Map expected = new HashMap();
+    for (int code = 0; code < 700; code++) {
+      expected.put(code + "/en-us", toString(handler.getMessage(code, "en-us")));
+      expected.put(code + "/pl", toString(handler.getMessage(code, "pl")));
+      expected.put(code + "/de", toString(handler.getMessage(code, "de")));
+      expected.put(code + "/default", toString(handler.getMessage(code)));
+    }
+
+    MessageStore store = handler.buildMessageStore();
+    assertEquals(100, store.size());
+    assertSame(store, handler.getMessageStore());
+
+    for (int code = 0; code < 700; code++) {
+      assertEquals(expected.get(code + "/en-us"), toString(handler.getMessage(code, "en-us")));
+      assertEquals(expected.get(code + "/pl"), toString(handler.getMessage(code, "pl")));
+      assertEquals(expected.get(code + "/de"), toString(handler.getMessage(code, "de")));
+      assertEquals(expected.get(code + "/default"), toString(handler.getMessage(code)));
+    }
+
+    IMessage full = handler.getFullMessage(14);
+    assertEquals(IMessage.WARNING, full.getType());
+    assertEquals("komunikat 2", full.getContent("pl"));
+    assertSame(full, handler.cloneMessages().get(new Integer(14)));
+  }
+
+  /**
+   * Views of messages are shared.
+   */
+  public void testSharedViews() {
+    handler.buildMessageStore();
+    assertSame(handler.getMessage(7, "pl"), handler.getMessage(7, "pl"));
+    assertSame(handler.getFullMessage(7), handler.getFullMessage(7));
+
+    handler.addMessage(IMessage.ERROR, 1000, "added", new pl.aislib.fm.messages.Message.Content(new HashMap()), "en-us");
+    assertNull(handler.getMessageStore());
+    assertEquals("added", handler.getMessage(1000).getKey());
+  }
+
+  /**
+   * Rebuilt store keeps contents in its own arrays.
+   */
+  public void testRebuild() {
+    handler.buildMessageStore();
+    handler.addMessage(IMessage.ERROR, 1000, "added", new pl.aislib.fm.messages.Message.Content(new HashMap()), "en-us");
+    MessageStore store = handler.buildMessageStore();
+
+    assertEquals(101, store.size());
+    assertEquals(2, store.getLanguages().length);
+    assertEquals("komunikat 2", store.getContent(14, "pl"));
+    assertEquals("message 3", store.getContent(21, null));
+    assertNull(store.getContent(21, "pl"));
+    assertEquals("message 3", handler.getMessage(21).getContent());
+  }
+
+  /**
+   * Subclasses of contents are kept as they are.
+   */
+  public void testContentSubclass() {
+    Map items = new HashMap();
+    items.put("en-us", "custom");
+    handler.addMessage(IMessage.ERROR, 1000, "custom", new pl.aislib.fm.messages.Message.Content(items) {
+      public Object getContent(String lang) {
+        return "pl".equals(lang) ? "wlasny" : super.getContent(lang);
+      }
+    }, "en-us");
+    handler.buildMessageStore();
+
+    assertEquals("custom", handler.getMessage(1000).getContent());
+    assertEquals("wlasny", handler.getMessage(1000, "pl").getContent());
+
+    handler.buildMessageStore();
+    assertEquals("wlasny", handler.getMessage(1000, "pl").getContent());
+  }
+
+
+  // Private methods
+
+  /**
+   * @param message a message.
+   * @return string describing all properties of the message.
+   */
+  private String toString(Message message) {
+    if (message == null) {
+      return null;
+    }
+    return message.getType() + "|" + message.getCode() + "|" + message.getKey() + "|" + message.getContent() + "|"
+      + message.getContent("pl") + "|" + message.getDefaultLanguage();
+  }
+
+} // pl.aislib.test.fm.MessageStoreTest class
@@ -0,0 +1,75 @@
+package pl.aislib.test.fm;
+
+import java.util.List;
+
+import pl.aislib.fm.metrics.LatencyHistogram;
+import pl.aislib.fm.metrics.MetricsRegistry;
+import pl.aislib.fm.metrics.StageSnapshot;
+
+/**
+ * Test {@link MetricsRegistry} and its use in {@link pl.aislib.fm.Application#dispatch}.
+ */
+public class MetricsRegistryTest extends AbstractApplicationTest {
+
+  public void testDisabledByDefault() throws Exception {
+    MetricsRegistry metrics = application.getMetricsRegistry();
+    assertFalse(metrics.isEnabled());
+    assertEquals(0, metrics.start());
+
+    application.dispatch(request, response);
+    assertEquals(0, metrics.getSnapshot().size());
+    assertEquals(0, metrics.getCounter("index", MetricsRegistry.REQUESTS));
+  }
+
+  public void testDispatchStages() throws Exception {
+    MetricsRegistry metrics = application.getMetricsRegistry();
+    metrics.setEnabled(true);
+
+    application.dispatch(request, response);
+    request.addParameter("page", "second");
+    application.dispatch(request, response);
+    application.dispatch(request, response);
+
+    assertEquals(1, metrics.getCounter("index", MetricsRegistry.REQUESTS));
+    assertEquals(2, metrics.getCounter("second", MetricsRegistry.REQUESTS));
+    assertEquals(0, metrics.getCounter("second", MetricsRegistry.ERRORS));
+
+    List snapshots = metrics.getSnapshot("second");
+    assertFalse(snapshots.isEmpty());
+    boolean total = false;
+    for (int i = 0; i < snapshots.size(); i++) {
+      StageSnapshot snapshot = (StageSnapshot) snapshots.get(i);
+      assertEquals("second", snapshot.getPageKey());
+      if (MetricsRegistry.TOTAL.equals(snapshot.getStage())) {
+        total = true;
+        assertEquals(2, snapshot.getCount());
+      }
+    }
+    assertTrue(total);
+    assertEquals(2, metrics.getPageKeys().length);
+
+    metrics.reset();
+    assertEquals(0, metrics.getSnapshot().size());
+  }
+
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000L, histogram.getMin());
+    assertEquals(1000000L, histogram.getMax());
+    assertEquals(500000.0, histogram.getPercentile(50), 500000.0 * 0.07);
+    assertEquals(990000.0, histogram.getPercentile(99), 990000.0 * 0.07);
+    assertEquals(1000000L, histogram.getPercentile(100));
+  }
+
+  /**
+   * @see pl.aislib.test.fm.AbstractApplicationTest#getConfigurationFileName()
+   */
+  public String getConfigurationFileName() {
+    return "controller1.xml";
+  }
+
+}
@@ -0,0 +1,67 @@
+package pl.aislib.test.fm;
+
+import java.io.InputStream;
+
+import org.apache.commons.logging.impl.SimpleLog;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import pl.aislib.fm.DefaultPageFactory;
+import pl.aislib.fm.FmEntityResolver;
+import pl.aislib.fm.Page;
+import pl.aislib.fm.PageFactory;
+import pl.aislib.fm.PoolingPageFactory;
+import pl.aislib.fm.Workflow;
+import pl.aislib.util.xml.XMLUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Test {@link PageFactory} resolution and instance pooling.
+ */
+public class PageFactoryTest extends TestCase {
+
+  private Workflow workflow;
+
+  public void setUp() throws Exception {
+    final String xmlFileName = "pagefactory.xml";
+    InputStream stream = this.getClass().getResourceAsStream(xmlFileName);
+    assertNotNull("config file: " + xmlFileName + " is null", stream);
+
+    InputSource source = new InputSource(stream);
+    source.setSystemId(this.getClass().getResource(xmlFileName).toString());
+
+    XMLReader xmlReader = XMLUtils.newXMLReader(true, true);
+    workflow = new Workflow(new SimpleLog(xmlFileName));
+    xmlReader.setContentHandler(workflow);
+    xmlReader.setEntityResolver(FmEntityResolver.getResolverInstance());
+    xmlReader.parse(source);
+  }
+
+  public void testDefaultFactory() throws Exception {
+    PageFactory factory = workflow.getPageInfo("index").getPageFactory();
+    assertTrue(factory instanceof DefaultPageFactory);
+    assertFalse(factory instanceof PoolingPageFactory);
+
+    Page first = factory.newPage();
+    assertTrue(first instanceof DummyPage);
+    factory.releasePage(first);
+    assertNotSame(first, factory.newPage());
+  }
+
+  public void testPoolingFactory() throws Exception {
+    PoolingPageFactory factory = (PoolingPageFactory) workflow.getPageInfo("pooled").getPageFactory();
+
+    Page first  = factory.newPage();
+    Page second = factory.newPage();
+    assertNotSame(first, second);
+
+    factory.releasePage(first);
+    factory.releasePage(second);
+    assertEquals(1, factory.getPoolSize());
+
+    assertSame(first, factory.newPage());
+    assertEquals(0, factory.getPoolSize());
+  }
+
+}
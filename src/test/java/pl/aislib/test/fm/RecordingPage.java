@@ -0,0 +1,48 @@
+package pl.aislib.test.fm;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+
+import pl.aislib.fm.PageResponse;
+
+/**
+ * Page remembering the last request it has processed.
+ */
+public class RecordingPage extends DummyPage {
+
+  /**
+   * Last processed request.
+   */
+  private static HttpServletRequest lastRequest;
+
+  /**
+   * @see pl.aislib.fm.Page#getPageResponse()
+   */
+  public PageResponse getPageResponse() throws IOException, ServletException {
+    synchronized (RecordingPage.class) {
+      lastRequest = request;
+      RecordingPage.class.notifyAll();
+    }
+    return super.getPageResponse();
+  }
+
+  /**
+   * Forgets the last processed request.
+   */
+  public static synchronized void reset() {
+    lastRequest = null;
+  }
+
+  /**
+   * @return request processed since {@link #reset()}, waiting for it if necessary.
+   * @throws InterruptedException if the thread is interrupted.
+   */
+  public static synchronized HttpServletRequest awaitRequest() throws InterruptedException {
+    while (lastRequest == null) {
+      RecordingPage.class.wait();
+    }
+    return lastRequest;
+  }
+}
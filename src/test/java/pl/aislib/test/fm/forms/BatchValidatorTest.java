@@ -0,0 +1,159 @@
+package pl.aislib.test.fm.forms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import pl.aislib.fm.BatchValidationHandler;
+import pl.aislib.fm.BatchValidator;
+import pl.aislib.fm.Form;
+
+/**
+ * Tests validation of many records with {@link BatchValidator}.
+ */
+public class BatchValidatorTest extends RuleTestAbstract {
+
+  /**
+   * Number of validated records.
+   */
+  private static final int RECORDS = 2000;
+
+
+  // Constructors
+
+  /**
+   * @see FormTestAbstract#FormTestAbstract(String)
+   */
+  public BatchValidatorTest(String name) throws Exception {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see pl.aislib.test.fm.forms.RuleTestAbstract#getFormName()
+   */
+  protected String getFormName() {
+    return "form_equality_001";
+  }
+
+
+  // Test methods
+
+  /**
+   * Records are validated in order, every third record fails on the rule.
+   */
+  public void testSequential() {
+    BatchValidator validator = forms.getBatchValidator(getFormName(), null, null, null);
+    Recorder recorder = new Recorder();
+
+    int validated = validator.validate(createRecords().iterator(), recorder);
+
+    assertEquals(RECORDS - (RECORDS + 2) / 3, validated);
+    recorder.check();
+    for (int i = 0; i < RECORDS; i++) {
+      assertEquals(i, ((Integer) recorder.order.get(i)).intValue());
+    }
+  }
+
+  /**
+   * Records are validated by a pool of workers, each record exactly once.
+   */
+  public void testWorkers() throws Exception {
+    BatchValidator validator = forms.getBatchValidator(getFormName(), null, null, null);
+    Recorder recorder = new Recorder();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      int validated = validator.validate(createRecords().iterator(), recorder, executor, 4);
+      assertEquals(RECORDS - (RECORDS + 2) / 3, validated);
+    } finally {
+      executor.shutdown();
+    }
+    recorder.check();
+  }
+
+  /**
+   * Exception thrown by the handler stops validation and is rethrown.
+   */
+  public void testHandlerFailure() throws Exception {
+    BatchValidator validator = forms.getBatchValidator(getFormName(), null, null, null);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      validator.validate(createRecords().iterator(), new BatchValidationHandler() {
+        public void handle(int recordNumber, Map record, Form form, boolean validated) {
+          if (recordNumber == 10) {
+            throw new IllegalStateException("record 10");
+          }
+        }
+      }, executor, 2);
+      fail("exception expected");
+    } catch (IllegalStateException ise) {
+      assertEquals("record 10", ise.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+
+  // Private methods
+
+  /**
+   * @return list of records, every third of them with different values.
+   */
+  private List createRecords() {
+    List result = new ArrayList(RECORDS);
+    for (int i = 0; i < RECORDS; i++) {
+      Map record = new HashMap();
+      record.put("field_001", "v" + i);
+      record.put("field_002", i % 3 == 0 ? "x" + i : "v" + i);
+      result.add(record);
+    }
+    return result;
+  }
+
+
+  // Private classes
+
+  /**
+   * Records results and checks them against values of records.
+   */
+  private static class Recorder implements BatchValidationHandler {
+
+    /**
+     * Results by record number.
+     */
+    private Boolean[] results = new Boolean[RECORDS];
+
+    /**
+     * Numbers of records in order of handling.
+     */
+    private List order = new ArrayList();
+
+    /**
+     * @see pl.aislib.fm.BatchValidationHandler#handle(int, Map, Form, boolean)
+     */
+    public synchronized void handle(int recordNumber, Map record, Form form, boolean validated) {
+      assertNull("record handled twice: " + recordNumber, results[recordNumber]);
+      assertEquals(record.get("field_002"), form.getValue("field_002"));
+      assertEquals(validated, form.isRuleValidated("rule_001"));
+      results[recordNumber] = new Boolean(validated);
+      order.add(new Integer(recordNumber));
+    }
+
+    /**
+     * Checks that all records have been handled with expected results.
+     */
+    void check() {
+      for (int i = 0; i < RECORDS; i++) {
+        assertNotNull("record not handled: " + i, results[i]);
+        assertEquals("record " + i, i % 3 != 0, results[i].booleanValue());
+      }
+    }
+
+  } // Recorder class
+
+} // pl.aislib.test.fm.forms.BatchValidatorTest class
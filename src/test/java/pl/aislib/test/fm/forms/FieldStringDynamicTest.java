@@ -1,5 +1,7 @@
 package pl.aislib.test.fm.forms;
 
+import java.util.Iterator;
+
 /**
  * Class for testing dynamic string fields.
  *
@@ -146,4 +148,35 @@ public class FieldStringDynamicTest extends FieldTestAbstract {
     printValues();
   }
 
+  /**
+   * field_001_: Dynamic field with many rows, submitted out of order, one row missing.
+   *
+   * Expected result:
+   *   rows validated in numeric order,
+   *   missing row field_001_7 not validated.
+   */
+  public void test006ManyRows() {
+    form = getForm("form_string_dynamic_001");
+    field = form.getField("field_001_");
+
+    for (int i = 120; i >= 1; i--) {
+      if (i != 7) {
+        values.put("field_001_" + i, "v" + i);
+      }
+    }
+    values.put("field_0010", "not a row");
+
+    assertFalse(MSG_001, validateForm(values));
+    assertEquals("v1", form.getValue("field_001_1"));
+    assertEquals("v120", form.getValue("field_001_120"));
+    assertFalse(form.isFieldValidated("field_001_7"));
+
+    Iterator names = form.getValidatedFields().keySet().iterator();
+    for (int i = 1; i <= 120; i++) {
+      assertEquals("field_001_" + i, names.next());
+    }
+
+    printValues();
+  }
+
 } // pl.aislib.test.fm.forms.FieldStringDynamicTest class
@@ -0,0 +1,91 @@
+package pl.aislib.test.fm.forms;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import pl.aislib.fm.Form;
+
+/**
+ * Tests instances of forms sharing a single compiled definition.
+ */
+public class FormInstanceTest extends RuleTestAbstract {
+
+  /**
+   * @see FormTestAbstract#FormTestAbstract(String)
+   */
+  public FormInstanceTest(String name) throws Exception {
+    super(name);
+  }
+
+  /**
+   * @see pl.aislib.test.fm.forms.RuleTestAbstract#getFormName()
+   */
+  protected String getFormName() {
+    return "form_equality_001";
+  }
+
+  /**
+   * Instances share fields and rules but keep their own validation state.
+   */
+  public void testIndependentInstances() {
+    Form first = getForm("form_equality_001");
+    Form second = getForm("form_equality_001");
+
+    assertNotSame(first, second);
+    assertSame(first.getField("field_001"), second.getField("field_001"));
+    assertSame(first.getRule("rule_001"), second.getRule("rule_001"));
+
+    Map firstValues = new HashMap();
+    firstValues.put("field_001", "a");
+    firstValues.put("field_002", "a");
+
+    Map secondValues = new HashMap();
+    secondValues.put("field_001", "a");
+    secondValues.put("field_002", "b");
+
+    assertTrue(first.validate(firstValues));
+    assertFalse(second.validate(secondValues));
+
+    assertEquals("a", first.getValue("field_002"));
+    assertEquals("b", second.getValue("field_002"));
+    assertTrue(first.isRuleValidated("rule_001"));
+    assertFalse(second.isRuleValidated("rule_001"));
+  }
+
+  /**
+   * Dynamic rules are evaluated for every instance of dynamic fields.
+   */
+  public void testDynamicRule() {
+    form = getForm("form_equality_006");
+
+    values.put("field_001_1", "a");
+    values.put("field_001_2", "b");
+    values.put("field_002_1", "a");
+    values.put("field_002_2", "c");
+
+    assertFalse(validateForm(values));
+    assertTrue(form.isRuleValidated("rule_001_1"));
+    assertFalse(form.isRuleValidated("rule_001_2"));
+  }
+
+  /**
+   * Fields added after the form has been compiled take part in validation.
+   */
+  public void testRecompileAfterChange() {
+    form = getForm("form_equality_001");
+
+    values.put("field_001", "a");
+    values.put("field_002", "a");
+    assertTrue(validateForm(values));
+
+    Form definition = new Form("adhoc");
+    definition.addField(form.getField("field_001"));
+    definition.compile();
+    definition.addField(form.getField("field_002"));
+
+    Form instance = definition.newInstance(null, null, null);
+    assertTrue(instance.validate(values));
+    assertEquals("a", instance.getValue("field_002"));
+  }
+
+} // pl.aislib.test.fm.forms.FormInstanceTest class
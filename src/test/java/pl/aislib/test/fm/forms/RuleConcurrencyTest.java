@@ -0,0 +1,114 @@
+package pl.aislib.test.fm.forms;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import pl.aislib.fm.Form;
+
+/**
+ * Validates one form definition from many threads at once.
+ */
+public class RuleConcurrencyTest extends RuleTestAbstract {
+
+  /**
+   * Number of validating threads.
+   */
+  private static final int THREADS = 16;
+
+  /**
+   * Number of validations performed by each thread.
+   */
+  private static final int ITERATIONS = 500;
+
+  /**
+   * Message code of the rule.
+   */
+  private static final Integer RULE_MSG_CODE = new Integer(8);
+
+  /**
+   * Problems found by validating threads.
+   */
+  private List failures = Collections.synchronizedList(new ArrayList());
+
+
+  // Constructors
+
+  /**
+   * @see FormTestAbstract#FormTestAbstract(String)
+   */
+  public RuleConcurrencyTest(String name) throws Exception {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see pl.aislib.test.fm.forms.RuleTestAbstract#getFormName()
+   */
+  protected String getFormName() {
+    return "form_equality_007";
+  }
+
+
+  // Test methods
+
+  /**
+   * Each thread mixes submissions that pass, fail on the rule and fail on a field.
+   * The rule message must be reported exactly when the rule itself failed.
+   */
+  public void testConcurrentValidation() throws Exception {
+    Thread[] threads = new Thread[THREADS];
+    for (int i = 0; i < threads.length; i++) {
+      final int seed = i;
+      threads[i] = new Thread(new Runnable() {
+        public void run() {
+          for (int j = 0; j < ITERATIONS && failures.isEmpty(); j++) {
+            validateOnce((seed + j) % 3);
+          }
+        }
+      });
+    }
+
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].start();
+    }
+    for (int i = 0; i < threads.length; i++) {
+      threads[i].join();
+    }
+
+    assertTrue(failures.toString(), failures.isEmpty());
+  }
+
+
+  // Private methods
+
+  /**
+   * @param variant 0 - valid values, 1 - values not equal, 2 - missing required value.
+   */
+  private void validateOnce(int variant) {
+    Form instance = forms.getForm(getFormName(), null, null, null);
+
+    Map submission = new HashMap();
+    submission.put("field_001_1", "a");
+    submission.put("field_002_1", variant == 0 ? "a" : (variant == 1 ? "b" : ""));
+    submission.put("check_fields_1", "y");
+
+    boolean validated = instance.validate(submission);
+    boolean ruleReported = false;
+    for (Iterator i = instance.getMessageCodes(); i.hasNext();) {
+      ruleReported |= RULE_MSG_CODE.equals(i.next());
+    }
+
+    if (validated != (variant == 0)) {
+      failures.add("variant " + variant + ": validate returned " + validated);
+    } else if (ruleReported != (variant == 1)) {
+      failures.add("variant " + variant + ": rule message reported: " + ruleReported);
+    }
+  }
+
+} // pl.aislib.test.fm.forms.RuleConcurrencyTest class
@@ -0,0 +1,195 @@
+package pl.aislib.test.fm.forms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import pl.aislib.fm.Form;
+import pl.aislib.fm.RuleScheduler;
+
+/**
+ * Tests parallel evaluation of independent rules with {@link RuleScheduler}.
+ */
+public class RuleSchedulerTest extends RuleTestAbstract {
+
+  /**
+   * Scheduler of rules used by the test.
+   */
+  private RuleScheduler scheduler;
+
+
+  // Constructors
+
+  /**
+   * @see FormTestAbstract#FormTestAbstract(String)
+   */
+  public RuleSchedulerTest(String name) throws Exception {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see pl.aislib.test.fm.forms.RuleTestAbstract#getFormName()
+   */
+  protected String getFormName() {
+    return "form_parallel_001";
+  }
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    scheduler = new RuleScheduler(4, 16);
+  }
+
+  /**
+   * @see junit.framework.TestCase#tearDown()
+   */
+  protected void tearDown() throws Exception {
+    forms.setRuleScheduler(null);
+    scheduler.shutdown();
+    super.tearDown();
+  }
+
+
+  // Test methods
+
+  /**
+   * Forms are read with the attribute and get the scheduler of the handler.
+   */
+  public void testConfiguration() {
+    forms.setRuleScheduler(scheduler);
+    Form instance = getForm(getFormName());
+    assertTrue(instance.isParallelRules());
+    assertFalse(getForm("form_equality_001").isParallelRules());
+  }
+
+  /**
+   * Results of parallel and sequential evaluation are the same, messages keep the order of rules.
+   */
+  public void testSameResults() {
+    for (int mask = 0; mask < 8; mask++) {
+      Map record = createRecord(mask);
+
+      forms.setRuleScheduler(null);
+      Form sequential = getForm(getFormName());
+      boolean expected = sequential.validate(record);
+
+      forms.setRuleScheduler(scheduler);
+      Form parallel = getForm(getFormName());
+      assertEquals("mask " + mask, expected, parallel.validate(record));
+
+      for (int i = 1; i <= 3; i++) {
+        String ruleName = "rule_00" + i;
+        assertEquals("mask " + mask + ", " + ruleName,
+          sequential.isRuleValidated(ruleName), parallel.isRuleValidated(ruleName));
+      }
+      assertEquals("mask " + mask, toList(sequential.getMessageCodes()), toList(parallel.getMessageCodes()));
+    }
+  }
+
+  /**
+   * Rules submitted after shutdown of the scheduler are evaluated in validating thread.
+   */
+  public void testShutdown() {
+    scheduler.shutdown();
+    forms.setRuleScheduler(scheduler);
+    assertValidation();
+  }
+
+  /**
+   * Interrupted validating thread does not wait for rules, but evaluates them itself
+   * and keeps its interrupted status.
+   */
+  public void testInterrupted() {
+    forms.setRuleScheduler(scheduler);
+    Thread.currentThread().interrupt();
+    try {
+      assertValidation();
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Many instances of the form evaluate their rules with one scheduler at the same time.
+   */
+  public void testConcurrentForms() throws Exception {
+    forms.setRuleScheduler(scheduler);
+    final List failures = new ArrayList();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < 200; i++) {
+            int mask = (i + offset) % 8;
+            Form instance = getForm(getFormName());
+            boolean result = instance.validate(createRecord(mask));
+            if (result != (mask == 7) || instance.isRuleValidated("rule_001") != ((mask & 1) != 0)
+              || instance.isRuleValidated("rule_003") != ((mask & 4) != 0)) {
+              synchronized (failures) {
+                failures.add("mask " + mask);
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+    }
+    assertTrue(failures.toString(), failures.isEmpty());
+  }
+
+
+  // Private methods
+
+  /**
+   * Validates the form with all combinations of rules and checks the results.
+   */
+  private void assertValidation() {
+    for (int mask = 0; mask < 8; mask++) {
+      Form instance = getForm(getFormName());
+      assertEquals("mask " + mask, mask == 7, instance.validate(createRecord(mask)));
+      assertEquals("mask " + mask, (mask & 1) != 0, instance.isRuleValidated("rule_001"));
+      assertEquals("mask " + mask, (mask & 4) != 0, instance.isRuleValidated("rule_003"));
+    }
+  }
+
+  /**
+   * @param mask bits telling which of the three rules should be fulfilled.
+   * @return record of values for the form.
+   */
+  private static Map createRecord(int mask) {
+    Map record = new HashMap();
+    record.put("field_001", "a");
+    record.put("field_002", (mask & 1) != 0 ? "a" : "b");
+    record.put("field_003", "c");
+    record.put("field_004", (mask & 4) != 0 ? "c" : "d");
+    record.put("field_005", "e");
+    record.put("field_006", (mask & 2) != 0 ? "e" : "f");
+    record.put("check_fields", "y");
+    return record;
+  }
+
+  /**
+   * @param iterator iterator of elements.
+   * @return list of elements.
+   */
+  private static List toList(Iterator iterator) {
+    List result = new ArrayList();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+} // pl.aislib.test.fm.forms.RuleSchedulerTest class
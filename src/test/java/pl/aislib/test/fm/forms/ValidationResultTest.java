@@ -0,0 +1,147 @@
+package pl.aislib.test.fm.forms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import pl.aislib.fm.ValidationResult;
+import pl.aislib.util.messages.MessageFormatConverter;
+
+/**
+ * Tests lazy resolution of error messages by {@link ValidationResult}.
+ */
+public class ValidationResultTest extends FormTestAbstract {
+
+  // Constructors
+
+  /**
+   * @see FormTestAbstract#FormTestAbstract(String)
+   */
+  public ValidationResultTest(String name) throws Exception {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see pl.aislib.test.fm.forms.FormTestAbstract#getFormsConfigurationFileName()
+   */
+  protected String getFormsConfigurationFileName() {
+    return "forms_messages.xml";
+  }
+
+  /**
+   * @see pl.aislib.test.fm.forms.FormTestAbstract#getMessagesConfigurationFileName()
+   */
+  protected String getMessagesConfigurationFileName() {
+    return "messages_messages.xml";
+  }
+
+
+  // Test methods
+
+  /**
+   * Messages resolved by the result are the same as messages of the form.
+   */
+  public void testSameMessages() {
+    form = getForm("form_messages_003", "en-us");
+
+    values.put("field_001_1", "a");
+    values.put("field_001_2", "b");
+    values.put("field_002_1", "1.0");
+    values.put("field_002_2", "x");
+
+    assertFalse(validateForm(values));
+
+    MessageFormatConverter converter = new MessageFormatConverter();
+    ValidationResult result = form.getValidationResult(converter);
+
+    assertFalse(result.isValidated());
+    assertTrue(result.hasErrors());
+    assertEquals(3, result.getErrorCount());
+    assertTrue(result.hasError("field_001_2"));
+    assertFalse(result.hasError("field_002_1"));
+    assertEquals(new HashMap(form.getErrorMessages(converter)), new HashMap(result.getErrorMessages()));
+    assertEquals(toList(form.getErrorCodes()), toList(result.getErrorCodes()));
+    assertTrue(result.hasErrorCode(2));
+    assertFalse(result.hasErrorCode(1));
+  }
+
+  /**
+   * Only messages of requested entities are converted, and only once.
+   */
+  public void testLazyMessages() {
+    form = getForm("form_messages_001", "en-us");
+
+    values.put("field_001_1", "");
+    values.put("field_001_2", "b");
+    values.put("field_001_3", "");
+
+    assertFalse(validateForm(values));
+
+    ValidationResult result = form.getValidationResult(new MessageFormatConverter());
+    Map first = result.getErrorMessages(1);
+    assertEquals(1, first.size());
+    assertEquals("field no. 1 (field_001_1) is empty.", first.get("field_0_empty"));
+
+    assertSame(result.getMessages("field_001_3"), result.getMessages("field_001_3"));
+    assertTrue(result.getMessages("field_001_2").isEmpty());
+    assertEquals(2, result.getErrorMessages().size());
+  }
+
+  /**
+   * Codes of message groups are replaced with codes of their messages.
+   */
+  public void testMessageGroups() {
+    form = getForm("form_messages_010", "en-us");
+
+    values.put("field_001_1", "");
+    values.put("field_001_2", "");
+
+    assertFalse(validateForm(values));
+
+    ValidationResult result = form.getValidationResult();
+    List expected = new ArrayList();
+    expected.add(new Integer(1));
+    expected.add(new Integer(2));
+    assertEquals(expected, toList(result.getErrorCodes()));
+    assertEquals(expected, toList(form.getErrorCodes()));
+    assertFalse(result.hasErrorCode(7));
+    assertEquals(2, result.getMessages("field_001_1").size());
+  }
+
+  /**
+   * Successful validation gives a result without errors.
+   */
+  public void testValidated() {
+    form = getForm("form_messages_001", "en-us");
+    values.put("field_001_1", "a");
+
+    assertTrue(validateForm(values));
+
+    ValidationResult result = form.getValidationResult();
+    assertTrue(result.isValidated());
+    assertFalse(result.hasErrors());
+    assertFalse(result.getErrorCodes().hasNext());
+    assertTrue(result.getErrorMessages().isEmpty());
+  }
+
+
+  // Private methods
+
+  /**
+   * @param iterator iterator of elements.
+   * @return list of elements.
+   */
+  private static List toList(Iterator iterator) {
+    List result = new ArrayList();
+    while (iterator.hasNext()) {
+      result.add(iterator.next());
+    }
+    return result;
+  }
+
+} // pl.aislib.test.fm.forms.ValidationResultTest class
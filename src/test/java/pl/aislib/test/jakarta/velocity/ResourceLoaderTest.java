@@ -0,0 +1,201 @@
+package pl.aislib.test.jakarta.velocity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import junit.framework.TestCase;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+import org.apache.velocity.app.VelocityEngine;
+
+import pl.aislib.jakarta.velocity.TemplateRefresher;
+import pl.aislib.jakarta.velocity.URLResourceLoader;
+import pl.aislib.jakarta.velocity.VelocityConfigHelper;
+
+/**
+ * Tests modification detection of resource loaders and background refreshing of templates.
+ */
+public class ResourceLoaderTest extends TestCase {
+
+  /**
+   * Template file.
+   */
+  private File file;
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public ResourceLoaderTest(String name) {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    file = File.createTempFile("aislib", ".vm");
+  }
+
+  /**
+   * @see junit.framework.TestCase#tearDown()
+   */
+  protected void tearDown() throws Exception {
+    file.delete();
+    super.tearDown();
+  }
+
+
+  // Test methods
+
+  /**
+   * Loader reports modification time of files and detects their changes.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testLastModified() throws Exception {
+    write("first", 1000000000000L);
+    VelocityEngine engine = createEngine(60);
+    Template template = engine.getTemplate(getName(file));
+
+    URLResourceLoader loader = new URLResourceLoader();
+    assertEquals(1000000000000L, loader.getLastModified(template));
+    assertFalse(loader.isSourceModified(template));
+
+    write("second", 1000000005000L);
+    assertEquals(1000000005000L, loader.getLastModified(template));
+    assertTrue(loader.isSourceModified(template));
+  }
+
+  /**
+   * Loader reports modification time of templates packed in archives.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testJarLastModified() throws Exception {
+    File jar = File.createTempFile("aislib", ".jar");
+    try {
+      JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+      try {
+        out.putNextEntry(new ZipEntry("packed.vm"));
+        out.write("packed".getBytes("US-ASCII"));
+        out.closeEntry();
+      } finally {
+        out.close();
+      }
+
+      VelocityEngine engine = createEngine(60);
+      Template template = engine.getTemplate("jar:" + getName(jar) + "!/packed.vm");
+      assertEquals("packed", merge(template));
+      assertTrue(new URLResourceLoader().getLastModified(template) > 0);
+    } finally {
+      jar.delete();
+    }
+  }
+
+  /**
+   * Refresher reloads modified templates, later requests get them from the cache.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testRefresher() throws Exception {
+    write("first", 1000000000000L);
+    VelocityEngine engine = createEngine(1);
+    TemplateRefresher refresher = new TemplateRefresher(engine);
+    Template template = engine.getTemplate(getName(file));
+    refresher.add(getName(file));
+    assertEquals("first", merge(template));
+
+    write("second", 1000000005000L);
+    Thread.sleep(1100);
+    refresher.refresh();
+    assertEquals("second", merge(engine.getTemplate(getName(file))));
+
+    refresher.add("file:/nonexistent/aislib.vm");
+    assertEquals(2, refresher.size());
+    refresher.refresh();
+    assertEquals(1, refresher.size());
+
+    refresher.start(1000);
+    assertTrue(refresher.isRunning());
+    refresher.stop();
+    assertFalse(refresher.isRunning());
+  }
+
+
+  // Private methods
+
+  /**
+   * @param modificationCheckInterval seconds between checks of modification.
+   * @return engine loading templates from URLs.
+   * @throws Exception if the engine could not be initialized.
+   */
+  private VelocityEngine createEngine(long modificationCheckInterval) throws Exception {
+    Map configuration = new HashMap();
+    VelocityConfigHelper.configureURLResourceLoader(configuration, modificationCheckInterval);
+    VelocityConfigHelper.disableLog(configuration);
+    VelocityConfigHelper.disableDefaultLibraryLoading(configuration);
+
+    VelocityEngine result = new VelocityEngine();
+    for (Iterator i = configuration.entrySet().iterator(); i.hasNext();) {
+      Map.Entry entry = (Map.Entry) i.next();
+      result.addProperty((String) entry.getKey(), entry.getValue());
+    }
+    result.init();
+    return result;
+  }
+
+  /**
+   * @param content content of the template.
+   * @param lastModified modification time of the template.
+   * @throws IOException if the template could not be written.
+   */
+  private void write(String content, long lastModified) throws IOException {
+    Writer writer = new FileWriter(file);
+    try {
+      writer.write(content);
+    } finally {
+      writer.close();
+    }
+    file.setLastModified(lastModified);
+  }
+
+  /**
+   * @param f a file.
+   * @return name of the file as a template.
+   */
+  private static String getName(File f) {
+    return f.toURI().toString();
+  }
+
+  /**
+   * @param template a template.
+   * @return merged template.
+   * @throws Exception if the template could not be merged.
+   */
+  private static String merge(Template template) throws Exception {
+    StringWriter writer = new StringWriter();
+    template.merge(new VelocityContext(), writer);
+    return writer.toString();
+  }
+
+} // pl.aislib.test.jakarta.velocity.ResourceLoaderTest class
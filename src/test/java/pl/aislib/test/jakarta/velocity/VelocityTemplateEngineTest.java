@@ -0,0 +1,220 @@
+package pl.aislib.test.jakarta.velocity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import pl.aislib.jakarta.velocity.VelocityConfigHelper;
+import pl.aislib.jakarta.velocity.VelocityTemplate;
+import pl.aislib.jakarta.velocity.VelocityTemplateEngine;
+
+/**
+ * Tests rendering of Velocity templates into streams and layering of their contexts.
+ */
+public class VelocityTemplateEngineTest extends TestCase {
+
+  /**
+   * Template files.
+   */
+  private List files = new ArrayList();
+
+  /**
+   * Tested engine.
+   */
+  private VelocityTemplateEngine engine;
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public VelocityTemplateEngineTest(String name) {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    Map configuration = new HashMap();
+    VelocityConfigHelper.configureURLResourceLoader(configuration);
+    VelocityConfigHelper.disableLog(configuration);
+    VelocityConfigHelper.disableDefaultLibraryLoading(configuration);
+    VelocityConfigHelper.configureContextPool(configuration, 2);
+    configuration.put("input.encoding", "UTF-8");
+    engine = new VelocityTemplateEngine(configuration);
+  }
+
+  /**
+   * @see junit.framework.TestCase#tearDown()
+   */
+  protected void tearDown() throws Exception {
+    for (Iterator i = files.iterator(); i.hasNext();) {
+      ((File) i.next()).delete();
+    }
+    super.tearDown();
+  }
+
+
+  // Test methods
+
+  /**
+   * Result is encoded with the requested charset.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testCharset() throws Exception {
+    Map values = new HashMap();
+    values.put("name", "\u017c\u00f3\u0142w");
+    values.put("version", "1");
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    engine.evaluate(load(), values, stream, "UTF-8");
+    assertEquals("\u017c\u00f3\u0142w:1", new String(stream.toByteArray(), "UTF-8"));
+
+    VelocityTemplate template = load();
+    template.setValues(values);
+    assertEquals("\u017c\u00f3\u0142w:1", new String(template.toByteArray("ISO-8859-2"), "ISO-8859-2"));
+
+    try {
+      engine.evaluate(load(), values, new ByteArrayOutputStream(), "no-such-charset");
+      fail("unsupported charset accepted");
+    } catch (IOException ioe) {
+      ;
+    }
+  }
+
+  /**
+   * Predefined values are visible in all templates and win over evaluation values.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testPredefinedValues() throws Exception {
+    VelocityTemplate loadedBefore = load();
+
+    Map predefined = new HashMap();
+    predefined.put("version", "2");
+    engine.appendPredefinedValues(predefined);
+
+    Map values = new HashMap();
+    values.put("name", "page");
+    values.put("version", "1");
+    assertEquals("page:2", engine.evaluate(load(), values));
+    assertEquals("page:2", engine.evaluate(loadedBefore, values));
+
+    predefined.put("version", "3");
+    assertEquals("page:2", engine.evaluate(load(), values));
+    engine.appendPredefinedValues(predefined);
+    assertEquals("page:3", engine.evaluate(loadedBefore, values));
+  }
+
+
+  /**
+   * Templates of a request share its parameters without modifying them, values set by templates do not leak.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testLayers() throws Exception {
+    Map predefined = new HashMap();
+    predefined.put("version", "2");
+    engine.appendPredefinedValues(predefined);
+
+    Object setting = load("#set($name = 'set')$name:$version");
+    Object reading = load("$name");
+
+    Map values = new HashMap();
+    values.put("name", "page");
+    values.put("version", "1");
+    Map params = engine.beginRequest(values);
+    assertEquals("set:2", engine.evaluate(setting, params));
+    assertEquals("page", engine.evaluate(reading, params));
+
+    values.put("name", "container");
+    assertEquals("container", engine.evaluate(reading, params));
+    params.put("name", "wrapped");
+    assertEquals("wrapped", engine.evaluate(reading, params));
+    assertEquals("set:2", engine.evaluate(setting, params));
+    assertEquals("wrapped", values.get("name"));
+    assertEquals("1", values.get("version"));
+
+    // Parameters win over values set in the template, predefined values win over both
+    VelocityTemplate template = load();
+    template.setValue("name", "own");
+    template.setValue("version", "own");
+    assertEquals("wrapped:2", engine.evaluate(template, values));
+    assertEquals("own:2", engine.evaluate(template, new HashMap()));
+  }
+
+  /**
+   * Page is rendered directly into holes of its container, with the same result as evaluated separately.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testLayout() throws Exception {
+    Object container = load("<h>$title</h>\n$content|${content}|#if($title)[$title]#end|$!{content}.");
+    Object page = load("#set($title = 'page')$name:$version");
+
+    Map values = new HashMap();
+    values.put("name", "page");
+    values.put("version", "1");
+    values.put("title", "Title");
+
+    StringWriter writer = new StringWriter();
+    assertTrue(engine.evaluateLayout(container, "content", page, values, writer));
+    assertFalse(values.containsKey("content"));
+
+    values.put("content", engine.evaluate(page, values));
+    assertEquals(engine.evaluate(container, values), writer.toString());
+    assertEquals("<h>Title</h>\npage:1|page:1|[Title]|page:1.", writer.toString());
+
+    Object nested = load("$content#if($title)<$content>#end");
+    assertFalse(engine.evaluateLayout(nested, "content", page, values, new StringWriter()));
+    Object method = load("$content $content.length()");
+    assertFalse(engine.evaluateLayout(method, "content", page, values, new StringWriter()));
+  }
+
+
+  // Private methods
+
+  /**
+   * @return loaded template printing name and version.
+   * @throws Exception if the template could not be loaded.
+   */
+  private VelocityTemplate load() throws Exception {
+    return load("$name:$version");
+  }
+
+  /**
+   * @param content content of the template.
+   * @return loaded template.
+   * @throws Exception if the template could not be loaded.
+   */
+  private VelocityTemplate load(String content) throws Exception {
+    File file = File.createTempFile("aislib", ".vm");
+    files.add(file);
+    OutputStream stream = new FileOutputStream(file);
+    try {
+      stream.write(content.getBytes("UTF-8"));
+    } finally {
+      stream.close();
+    }
+    return (VelocityTemplate) engine.load(null, null, null, file.toURI().toString());
+  }
+
+} // pl.aislib.test.jakarta.velocity.VelocityTemplateEngineTest class
@@ -0,0 +1,65 @@
+package pl.aislib.test.util.messages;
+
+import java.text.MessageFormat;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import pl.aislib.util.messages.MessageTemplate;
+
+/**
+ * Tests compiled message templates.
+ */
+public class MessageTemplateTest extends TestCase {
+
+  /**
+   * Patterns checked against <code>MessageFormat</code>.
+   */
+  private static final String[] PATTERNS = {
+    "", "No arguments.", "Value of {0} should be up to {1} {2}.", "{1}{0}{1}", "It''s {0}.", "'{0}' is quoted, {0} is not.",
+    "Unmatched } brace {0}", "Missing {3} argument.", "Number {1,number,#.##}.", "Choice {1,choice,0#none|1#one}",
+    "Leading zero {00}.", "'Unterminated quote {0}"
+  };
+
+  /**
+   * Values checked against <code>MessageFormat</code>.
+   */
+  private static final Object[] VALUES = { "name", new Integer(12345), null };
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public MessageTemplateTest(String name) {
+    super(name);
+  }
+
+
+  // Test methods
+
+  /**
+   * Templates give the same results as <code>MessageFormat</code>.
+   */
+  public void testSameAsMessageFormat() {
+    for (int i = 0; i < PATTERNS.length; i++) {
+      MessageTemplate template = MessageTemplate.compile(PATTERNS[i]);
+      assertEquals(PATTERNS[i], MessageFormat.format(PATTERNS[i], VALUES), template.format(VALUES));
+    }
+
+    Object[] values = { new Date(0), new Double(1.5), Boolean.TRUE };
+    MessageTemplate template = MessageTemplate.compile("{0}, {1}, {2}");
+    assertEquals(MessageFormat.format("{0}, {1}, {2}", values), template.format(values));
+  }
+
+  /**
+   * Only patterns with format types are left to <code>MessageFormat</code>.
+   */
+  public void testCompiled() {
+    assertTrue(MessageTemplate.compile("Value of {0} should be up to {1}.").isCompiled());
+    assertTrue(MessageTemplate.compile("'{'quoted'}' {0}").isCompiled());
+    assertFalse(MessageTemplate.compile("Number {0,number}.").isCompiled());
+  }
+
+} // pl.aislib.test.util.messages.MessageTemplateTest class
@@ -0,0 +1,181 @@
+package pl.aislib.test.util.template.image;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.awt.image.MemoryImageSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+
+import junit.framework.TestCase;
+
+import pl.aislib.util.template.Field;
+import pl.aislib.util.template.Template;
+import pl.aislib.util.template.image.FieldRenderer;
+import pl.aislib.util.template.image.ImageTemplateEngine;
+import pl.aislib.util.template.image.ImageTemplateOutputter;
+
+/**
+ * Tests headless rendering of image templates.
+ */
+public class ImageTemplateEngineTest extends TestCase {
+
+  /**
+   * Configuration of templates.
+   */
+  private static final String CONFIG = "<image-templates>"
+    + "<font name='plain' font-name='Dialog' size='10' style='plain' weight='plain' red='0' green='0' blue='0'/>"
+    + "<image-template name='box'><field name='mark' position-x='2' position-y='3' font='plain'/></image-template>"
+    + "</image-templates>";
+
+  /**
+   * Engine under test.
+   */
+  private ImageTemplateEngine engine;
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public ImageTemplateEngineTest(String name) {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    engine = new ImageTemplateEngine();
+    engine.configure(new ByteArrayInputStream(CONFIG.getBytes("US-ASCII")));
+    engine.addFieldRenderer("mark", new FieldRenderer() {
+      public void render(Graphics graphics, Field field, Object value) {
+        graphics.setColor((Color) value);
+        graphics.fillRect(field.getPositionX(), field.getPositionY(), 2, 2);
+      }
+    });
+  }
+
+
+  // Test methods
+
+  /**
+   * Fields are rendered on copies of the background, which is never modified.
+   *
+   * @throws IOException if test failed.
+   */
+  public void testRender() throws IOException {
+    Template template = engine.loadTemplate(createBackground(), "box");
+    template.setValue("mark", Color.RED);
+
+    BufferedImage rendered = decode(template.toByteArray());
+    assertEquals(8, rendered.getWidth());
+    assertEquals(6, rendered.getHeight());
+    assertEquals(Color.RED.getRGB(), rendered.getRGB(2, 3));
+    assertEquals(Color.BLUE.getRGB(), rendered.getRGB(0, 0));
+
+    Template other = engine.newTemplate("box");
+    other.setValue("mark", Color.GREEN);
+    rendered = decode(other.toByteArray());
+    assertEquals(Color.GREEN.getRGB(), rendered.getRGB(2, 3));
+
+    rendered = decode(engine.newTemplate("box").toByteArray());
+    assertEquals(Color.BLUE.getRGB(), rendered.getRGB(2, 3));
+  }
+
+  /**
+   * Images created by <code>Toolkit</code> are converted without AWT peers, keeping their transparency.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testToolkitImage() throws Exception {
+    final int[] pixels = new int[8 * 6];
+    for (int i = 0; i < pixels.length; i++) {
+      pixels[i] = i % 2 == 0 ? 0x00000000 : 0x800000FF;
+    }
+    engine = new ImageTemplateEngine() {
+      public Image loadImage(InputStream stream) {
+        return Toolkit.getDefaultToolkit().createImage(new MemoryImageSource(8, 6, pixels, 0, 8));
+      }
+    };
+    engine.configure(new ByteArrayInputStream(CONFIG.getBytes("US-ASCII")));
+    Template template = engine.loadTemplate(new ByteArrayInputStream(new byte[0]), "box");
+
+    BufferedImage rendered = decode(template.toByteArray());
+    assertEquals(8, rendered.getWidth());
+    assertEquals(Color.WHITE.getRGB(), rendered.getRGB(0, 0));
+    assertEquals(0xFF7F7FFF, rendered.getRGB(1, 0));
+
+    final BufferedImage[] written = new BufferedImage[1];
+    engine.setOutputter(new ImageTemplateOutputter() {
+      public void writeImage(Image image, OutputStream stream) {
+        written[0] = (BufferedImage) image;
+      }
+    });
+    engine.loadTemplate(new ByteArrayInputStream(new byte[0]), "box").toByteArray();
+    assertEquals(6, written[0].getHeight());
+    assertEquals(0x00000000, written[0].getRGB(0, 0));
+    assertEquals(0x800000FF, written[0].getRGB(1, 0));
+  }
+
+  /**
+   * Streams which are not images are rejected.
+   */
+  public void testUnsupportedImage() {
+    try {
+      engine.loadImage(new ByteArrayInputStream(new byte[] { 1, 2, 3 }));
+      fail("image decoded");
+    } catch (IOException ioe) {
+      ;
+    }
+    try {
+      engine.newTemplate("unknown");
+      fail("template created");
+    } catch (IllegalStateException ise) {
+      ;
+    }
+  }
+
+
+  // Private methods
+
+  /**
+   * @return stream with blue PNG image.
+   * @throws IOException if the image could not be encoded.
+   */
+  private InputStream createBackground() throws IOException {
+    BufferedImage image = new BufferedImage(8, 6, BufferedImage.TYPE_INT_RGB);
+    Graphics graphics = image.getGraphics();
+    graphics.setColor(Color.BLUE);
+    graphics.fillRect(0, 0, 8, 6);
+    graphics.dispose();
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    ImageIO.write(image, "png", result);
+    return new ByteArrayInputStream(result.toByteArray());
+  }
+
+  /**
+   * @param bytes GIF image.
+   * @return decoded image.
+   * @throws IOException if the image could not be decoded.
+   */
+  private BufferedImage decode(byte[] bytes) throws IOException {
+    BufferedImage result = ImageIO.read(new ByteArrayInputStream(bytes));
+    assertNotNull(result);
+    return result;
+  }
+
+} // pl.aislib.test.util.template.image.ImageTemplateEngineTest class
@@ -0,0 +1,136 @@
+package pl.aislib.test.util.validators;
+
+import junit.framework.TestCase;
+
+import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.fm.forms.ValidationFailure;
+import pl.aislib.util.validators.DateValidator;
+import pl.aislib.util.validators.IntegerValidator;
+import pl.aislib.util.validators.PhoneValidator;
+import pl.aislib.util.validators.StringValidator;
+import pl.aislib.util.validators.URLValidator;
+import pl.aislib.util.validators.Validator;
+
+/**
+ * Tests validation without exceptions.
+ */
+public class CheckingValidatorTest extends TestCase {
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public CheckingValidatorTest(String name) {
+    super(name);
+  }
+
+
+  // Test methods
+
+  /**
+   * Checking gives the same results as validation with exceptions.
+   */
+  public void testSameAsValidate() {
+    StringValidator stringValidator = new StringValidator();
+    stringValidator.setRequired(true);
+    stringValidator.setMaximumLength(5);
+    stringValidator.setAllowedChars("abcdef");
+    stringValidator.setDisallowedValues("bad");
+    compare(stringValidator, new String[] { "", "  ", "abc", "abcdef", "xyz", "bad" });
+
+    IntegerValidator integerValidator = new IntegerValidator();
+    integerValidator.setStartRange("1");
+    integerValidator.setEndRange("100");
+    compare(integerValidator, new String[] { "", "1", "100", "101", "12a", "abc", "1,5" });
+
+    DateValidator dateValidator = new DateValidator();
+    dateValidator.setFormat("yyyy-MM-dd");
+    dateValidator.setRequired(true);
+    compare(dateValidator, new String[] { "", "2004-02-29", "2003-02-29", "29.02.2004" });
+
+    PhoneValidator phoneValidator = new PhoneValidator();
+    compare(phoneValidator, new String[] { "(123) 456-7890", "(123) 456-789x", "123" });
+
+    URLValidator urlValidator = new URLValidator();
+    urlValidator.setAllowHttp(true);
+    compare(urlValidator, new String[] { "http://aislib.sf.net/", "ftp://aislib.sf.net/", "aislib" });
+  }
+
+  /**
+   * Reasons are preallocated and formatted on demand.
+   */
+  public void testReasons() {
+    StringValidator validator = new StringValidator();
+    validator.setRequired(true);
+    validator.setAllowedChars("abc");
+
+    assertSame(ValidationFailure.REQUIRED, validator.check(""));
+    assertSame(ValidationFailure.DISALLOWED_CHARS, validator.check("abd"));
+    assertEquals("Value 'abd' contains disallowed characters.", ValidationFailure.DISALLOWED_CHARS.getMessage("abd"));
+    assertEquals("Value is required.", ValidationFailure.REQUIRED.getMessage("abd"));
+  }
+
+  /**
+   * Validators overriding exception-based methods outside the library are not checked directly.
+   */
+  public void testOverridingValidator() {
+    assertTrue(new IntegerValidator().isCheckSupported());
+
+    StringValidator validator = new StringValidator() {
+      public void validateString(String value) throws ValidateException {
+        if (value.startsWith("x")) {
+          throw new ValidateException("Value starts with x.");
+        }
+      }
+    };
+    assertFalse(validator.isCheckSupported());
+    assertEquals("abc", validator.check("abc"));
+    assertSame(ValidationFailure.NOT_VALIDATED, validator.check("xyz"));
+  }
+
+  /**
+   * Validators overriding pattern validation are validated through the overriding method.
+   */
+  public void testOverridingPattern() {
+    StringValidator validator = new StringValidator() {
+      public void validatePattern(String value) throws ValidateException {
+        super.validatePattern(value);
+        if (value.endsWith("0")) {
+          throw new ValidateException("Value ends with 0.");
+        }
+      }
+    };
+    validator.setPattern("[0-9]+");
+    assertFalse(validator.isCheckSupported());
+    assertEquals("123", validator.check("123"));
+    assertSame(ValidationFailure.NOT_VALIDATED, validator.check("120"));
+    assertSame(ValidationFailure.NOT_VALIDATED, validator.check("abc"));
+    try {
+      validator.validate("120");
+      fail("Value ending with 0 validated.");
+    } catch (ValidateException ve) {
+      assertEquals("Value ends with 0.", ve.getMessage());
+    }
+  }
+
+
+  // Private methods
+
+  /**
+   * @param validator a validator.
+   * @param values values validated in both ways.
+   */
+  private void compare(Validator validator, String[] values) {
+    assertTrue(validator.isCheckSupported());
+    for (int i = 0; i < values.length; i++) {
+      Object checked = validator.check(values[i]);
+      try {
+        Object validated = validator.validate(values[i]);
+        assertEquals(values[i], validated, checked);
+      } catch (ValidateException ve) {
+        assertTrue(values[i] + " checked as " + checked, checked instanceof ValidationFailure);
+        assertEquals(values[i], ve.getMessage(), ((ValidationFailure) checked).getMessage(values[i]));
+      }
+    }
+  }
+
+} // pl.aislib.test.util.validators.CheckingValidatorTest class
@@ -0,0 +1,242 @@
+package pl.aislib.test.util.validators;
+
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.util.validators.DateParser;
+import pl.aislib.util.validators.DateValidator;
+import pl.aislib.util.validators.TimestampValidator;
+
+/**
+ * Tests cached parsing of dates.
+ */
+public class DateValidatorTest extends TestCase {
+
+  /**
+   * Patterns checked against <code>SimpleDateFormat</code>.
+   */
+  private static final String[] PATTERNS = {
+    "yyyy-MM-dd", "dd.MM.yyyy", "yyyy/MM/dd HH:mm:ss", "yyyyMMddHHmmssSSS", "dd MMM yyyy"
+  };
+
+  /**
+   * Values checked against <code>SimpleDateFormat</code>.
+   */
+  private static final String[] VALUES = {
+    "2004-02-29", "2003-02-29", "1999-12-31", "2000-13-01", "1500-01-01", "2004-2-9", "2004-02-29x",
+    "29.02.2004", "31.04.2004", "01.01.2050",
+    "2004/03/28 02:30:00", "2004/10/31 02:30:00", "2004/07/01 24:00:00", "2004/07/01 23:59:59",
+    "20040701235959999", "01 Jul 2004"
+  };
+
+  /**
+   * Default time zone before the test.
+   */
+  private TimeZone defaultTimeZone;
+
+
+  // Constructors
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public DateValidatorTest(String name) {
+    super(name);
+  }
+
+
+  // Protected methods
+
+  /**
+   * @see junit.framework.TestCase#setUp()
+   */
+  protected void setUp() throws Exception {
+    super.setUp();
+    defaultTimeZone = TimeZone.getDefault();
+  }
+
+  /**
+   * @see junit.framework.TestCase#tearDown()
+   */
+  protected void tearDown() throws Exception {
+    TimeZone.setDefault(defaultTimeZone);
+    super.tearDown();
+  }
+
+
+  // Test methods
+
+  /**
+   * Parsers give the same results as <code>SimpleDateFormat</code>, also around transitions of time zones.
+   */
+  public void testSameAsSimpleDateFormat() {
+    String[] timeZones = { "UTC", "Europe/Warsaw", "America/Sao_Paulo" };
+    for (int z = 0; z < timeZones.length; z++) {
+      TimeZone.setDefault(TimeZone.getTimeZone(timeZones[z]));
+      for (int p = 0; p < PATTERNS.length; p++) {
+        for (int v = 0; v < VALUES.length; v++) {
+          check(PATTERNS[p], VALUES[v], true);
+          check(PATTERNS[p], VALUES[v], false);
+        }
+      }
+    }
+  }
+
+  /**
+   * Dates of locales with calendars other than Gregorian one are parsed by <code>SimpleDateFormat</code>,
+   * including calendars derived from it.
+   */
+  public void testBuddhistCalendar() {
+    Locale locale = new Locale("th", "TH");
+    check("yyyy-MM-dd", "2567-03-15", true, locale);
+    check("yyyy-MM-dd", "2567-03-15", false, locale);
+    check("dd.MM.yyyy", "15.03.2567", false, locale);
+  }
+
+  /**
+   * Validators accept valid dates only and keep checking ranges.
+   *
+   * @throws ValidateException if test failed.
+   */
+  public void testValidator() throws ValidateException {
+    DateValidator validator = new DateValidator();
+    validator.setFormat("yyyy-MM-dd");
+    validator.setStartRange("2004-01-01");
+    validator.setEndRange("2004-12-31");
+
+    Date date = (Date) validator.validate("2004-02-29");
+    assertEquals("2004-02-29", new SimpleDateFormat("yyyy-MM-dd").format(date));
+
+    assertInvalid(validator, "2003-02-29");
+    assertInvalid(validator, "2005-01-01");
+
+    TimestampValidator timestampValidator = new TimestampValidator();
+    timestampValidator.setFormat("dd.MM.yyyy");
+    assertTrue(timestampValidator.validate("01.07.2004") instanceof Timestamp);
+  }
+
+  /**
+   * Current date is compared with precision of the pattern.
+   *
+   * @throws ValidateException if test failed.
+   */
+  public void testPastAndFuture() throws ValidateException {
+    DateValidator validator = new DateValidator();
+    validator.setFormat("yyyy-MM-dd");
+    validator.setAllowPast(false);
+    validator.setAllowFuture(false);
+
+    validator.validate(new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
+    assertInvalid(validator, "2000-01-01");
+  }
+
+  /**
+   * One validator parses different dates in many threads at once.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testConcurrentParsing() throws Exception {
+    final DateValidator validator = new DateValidator();
+    validator.setFormat("dd.MM.yyyy");
+    final List failures = new ArrayList();
+
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int year = 2000 + t;
+      threads[t] = new Thread() {
+        public void run() {
+          SimpleDateFormat expectedFormat = new SimpleDateFormat("dd.MM.yyyy");
+          for (int i = 0; i < 1000; i++) {
+            String value = (i % 28 + 1 < 10 ? "0" : "") + (i % 28 + 1) + "." + (i % 12 + 1 < 10 ? "0" : "")
+              + (i % 12 + 1) + "." + year;
+            try {
+              Date date = (Date) validator.validate(value);
+              if (!value.equals(expectedFormat.format(date))) {
+                synchronized (failures) {
+                  failures.add(value + " parsed as " + date);
+                }
+              }
+            } catch (ValidateException ve) {
+              synchronized (failures) {
+                failures.add(value + " not validated");
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+    }
+
+    assertTrue(failures.toString(), failures.isEmpty());
+  }
+
+
+  // Private methods
+
+  /**
+   * Compares results of the parser and <code>SimpleDateFormat</code>.
+   *
+   * @param pattern pattern of dates.
+   * @param value parsed value.
+   * @param lenient true if parsing is lenient.
+   */
+  private void check(String pattern, String value, boolean lenient) {
+    check(pattern, value, lenient, Locale.US);
+  }
+
+  /**
+   * Compares results of the parser and <code>SimpleDateFormat</code>.
+   *
+   * @param pattern pattern of dates.
+   * @param value parsed value.
+   * @param lenient true if parsing is lenient.
+   * @param locale locale of dates.
+   */
+  private void check(String pattern, String value, boolean lenient, Locale locale) {
+    SimpleDateFormat sdf = new SimpleDateFormat(pattern, locale);
+    sdf.setLenient(lenient);
+
+    Date expected = null;
+    try {
+      expected = sdf.parse(value);
+    } catch (ParseException pe) {
+      ;
+    }
+
+    Date actual = null;
+    try {
+      actual = DateParser.getInstance(pattern, locale, lenient).parse(value);
+    } catch (ParseException pe) {
+      ;
+    }
+
+    assertEquals(locale + ", " + TimeZone.getDefault().getID() + ", " + pattern + ", " + value + ", lenient " + lenient,
+      expected, actual);
+  }
+
+  /**
+   * @param validator a validator.
+   * @param value value which should not be validated.
+   */
+  private void assertInvalid(DateValidator validator, String value) {
+    try {
+      validator.validate(value);
+      fail(value + " validated");
+    } catch (ValidateException ve) {
+      ;
+    }
+  }
+
+} // pl.aislib.test.util.validators.DateValidatorTest class
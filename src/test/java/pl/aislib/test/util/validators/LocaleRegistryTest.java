@@ -0,0 +1,48 @@
+package pl.aislib.test.util.validators;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import pl.aislib.util.validators.LocaleRegistry;
+
+/**
+ * Tests resolution of locales shared by validators.
+ */
+public class LocaleRegistryTest extends TestCase {
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public LocaleRegistryTest(String name) {
+    super(name);
+  }
+
+
+  // Test methods
+
+  /**
+   * Locale strings resolve to shared available locales.
+   */
+  public void testGetLocale() {
+    Locale locale = LocaleRegistry.getLocale("de_DE");
+    assertEquals(Locale.GERMANY, locale);
+    assertSame(locale, LocaleRegistry.getLocale("de_DE"));
+    assertSame(locale, LocaleRegistry.getLocale("de-de"));
+
+    assertEquals(Locale.US, LocaleRegistry.getLocale("xx_YY"));
+  }
+
+  /**
+   * Callers get their own copies of format symbols.
+   */
+  public void testDecimalFormatSymbols() {
+    DecimalFormatSymbols symbols = LocaleRegistry.getDecimalFormatSymbols(Locale.GERMANY);
+    assertEquals(',', symbols.getDecimalSeparator());
+
+    symbols.setDecimalSeparator('.');
+    assertEquals(',', LocaleRegistry.getDecimalFormatSymbols(Locale.GERMANY).getDecimalSeparator());
+  }
+
+} // pl.aislib.test.util.validators.LocaleRegistryTest class
@@ -0,0 +1,106 @@
+package pl.aislib.test.util.validators;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.ParsePosition;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import pl.aislib.fm.forms.ValidateException;
+import pl.aislib.util.validators.DoubleValidator;
+import pl.aislib.util.validators.IntegerValidator;
+import pl.aislib.util.validators.NumberParser;
+
+/**
+ * Tests parsing of numbers shared by many threads.
+ */
+public class NumberValidatorTest extends TestCase {
+
+  /**
+   * @see TestCase#TestCase(String)
+   */
+  public NumberValidatorTest(String name) {
+    super(name);
+  }
+
+
+  // Test methods
+
+  /**
+   * Values are parsed according to the locale of the validator.
+   *
+   * @throws ValidateException if test failed.
+   */
+  public void testLocale() throws ValidateException {
+    DoubleValidator validator = new DoubleValidator();
+    assertEquals(new Double(1234.5), validator.validate("1,234.5"));
+
+    validator.setLocale("de_DE");
+    assertEquals(new Double(1234.5), validator.validate("1.234,5"));
+
+    IntegerValidator integerValidator = new IntegerValidator();
+    try {
+      integerValidator.validate("12.5");
+      fail("fraction accepted by integer validator");
+    } catch (ValidateException ve) {
+      ;
+    }
+  }
+
+  /**
+   * Equal formats share one parser; the parser is not affected by later changes of the format.
+   */
+  public void testSharedParsers() {
+    DecimalFormat format = new DecimalFormat("#,##0.##", new DecimalFormatSymbols(Locale.US));
+    NumberParser parser = NumberParser.getInstance(format);
+    assertSame(parser, NumberParser.getInstance(new DecimalFormat("#,##0.##", new DecimalFormatSymbols(Locale.US))));
+
+    format.setParseIntegerOnly(true);
+    assertNotSame(parser, NumberParser.getInstance(format));
+    assertEquals(1.5, parser.parse("1.5", new ParsePosition(0)).doubleValue(), 0.0);
+  }
+
+  /**
+   * One validator parses different values in many threads at once.
+   *
+   * @throws Exception if test failed.
+   */
+  public void testConcurrentParsing() throws Exception {
+    final DoubleValidator validator = new DoubleValidator();
+    final List failures = new ArrayList();
+
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      final int offset = t * 100000;
+      threads[t] = new Thread() {
+        public void run() {
+          for (int i = 0; i < 2000; i++) {
+            int expected = offset + i;
+            try {
+              Double value = (Double) validator.validate(expected + ".25");
+              if (value.doubleValue() != expected + 0.25) {
+                synchronized (failures) {
+                  failures.add(expected + ".25 parsed as " + value);
+                }
+              }
+            } catch (ValidateException ve) {
+              synchronized (failures) {
+                failures.add(expected + ".25 not validated");
+              }
+            }
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+    }
+
+    assertTrue(failures.toString(), failures.isEmpty());
+  }
+
+} // pl.aislib.test.util.validators.NumberValidatorTest class
@@ -114,4 +114,55 @@ public class StringValidatorTest extends TestCase
     }
   }
 
+  /**
+   * @throws ValidateException if test failed.
+   */
+  public void test007AllowedChars() throws ValidateException {
+    validator.setAllowedChars("abc\u0105\uD835\uDC00");
+    validator.validate("abca\u0105\uD835\uDC00");
+    assertInvalid("abcd");
+    assertInvalid("\uD835\uDC01");
+
+    validator.setIgnoreCase(true);
+    validator.validate("ABC\u0104");
+  }
+
+  /**
+   * @throws ValidateException if test failed.
+   */
+  public void test008DisallowedChars() throws ValidateException {
+    validator.setDisallowedChars("<>&");
+    validator.validate("plain text");
+    assertInvalid("a < b");
+    assertInvalid("&amp;");
+  }
+
+  /**
+   * @throws ValidateException if test failed.
+   */
+  public void test009AllowedValues() throws ValidateException {
+    StringBuffer values = new StringBuffer();
+    for (int i = 0; i < 1000; i++) {
+      values.append("value").append(i).append(", ");
+    }
+    validator.setAllowedValues(values.toString());
+    validator.setDisallowedValues("value13");
+
+    validator.validate("value999");
+    assertInvalid("value1000");
+    assertInvalid("value13");
+  }
+
+  /**
+   * @param value value which should not be validated.
+   */
+  private void assertInvalid(String value) {
+    try {
+      validator.validate(value);
+      fail(MSG_001);
+    } catch (ValidateException e) {
+      ;
+    }
+  }
+
 }